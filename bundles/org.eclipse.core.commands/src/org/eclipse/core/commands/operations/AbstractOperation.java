@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2008 IBM Corporation and others.
+ * Copyright (c) 2005, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,6 +36,12 @@ import org.eclipse.core.runtime.IStatus;
 public abstract class AbstractOperation implements IUndoableOperation {
 	List contexts = new ArrayList();
 
+	/**
+	 * Whether the operation was added to a {@link DefaultOperationHistory},
+	 * which needs to know about changes to its contexts.
+	 */
+	boolean tracked = false;
+
 	private String label = ""; //$NON-NLS-1$
 
 	/**
@@ -60,6 +66,7 @@ public abstract class AbstractOperation implements IUndoableOperation {
 	public void addContext(IUndoContext context) {
 		if (!contexts.contains(context)) {
 			contexts.add(context);
+			contextsChanged();
 		}
 	}
 
@@ -182,6 +189,17 @@ public abstract class AbstractOperation implements IUndoableOperation {
 
 	public void removeContext(IUndoContext context) {
 		contexts.remove(context);
+		contextsChanged();
+	}
+
+	/*
+	 * Report a change of the contexts to the histories that hold the
+	 * operation.
+	 */
+	void contextsChanged() {
+		if (tracked) {
+			OperationList.contextsChanged();
+		}
 	}
 
 	/*
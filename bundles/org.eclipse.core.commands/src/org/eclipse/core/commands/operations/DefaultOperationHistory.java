@@ -15,7 +15,6 @@ package org.eclipse.core.commands.operations;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -50,10 +49,12 @@ import org.eclipse.core.runtime.Status;
  * its undo contexts.
  * </p>
  * <p>
- * The data structures used by the DefaultOperationHistory are synchronized, and
- * entry points that modify the undo and redo history concurrently are also
- * synchronized. This means that the DefaultOperationHistory is relatively
- * "thread-friendly" in its implementation. Outbound notifications or operation
+ * Entry points that modify the undo and redo history concurrently are
+ * synchronized. Queries of the undo and redo history do not wait for these
+ * modifications to complete; they read the operations of each undo context
+ * from a cache that is kept up to date as operations are added and removed.
+ * This means that the DefaultOperationHistory is relatively "thread-friendly"
+ * in its implementation. Outbound notifications or operation
  * approval requests will occur on the thread that initiated the request.
  * Clients may use DefaultOperationHistory API from any thread; however,
  * listeners or operation approvers that receive notifications from the
@@ -127,20 +128,30 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	ListenerList listeners = new ListenerList(ListenerList.IDENTITY);
 
 	/**
-	 * the list of operations available for redo, LIFO
+	 * a lock that is used to synchronize changes to the undo and redo
+	 * history
 	 */
-	private List redoList = Collections.synchronizedList(new ArrayList());
+	final Object undoRedoHistoryLock = new Object();
 
 	/**
-	 * the list of operations available for undo, LIFO
+	 * the list of operations available for redo, LIFO. Only changed while
+	 * holding the undoRedoHistoryLock.
 	 */
-	private List undoList = Collections.synchronizedList(new ArrayList());
+	private final OperationList redoList = new OperationList(
+			undoRedoHistoryLock);
 
 	/**
-	 * a lock that is used to synchronize access between the undo and redo
-	 * history
+	 * the list of operations available for undo, LIFO. Only changed while
+	 * holding the undoRedoHistoryLock.
 	 */
-	final Object undoRedoHistoryLock = new Object();
+	private final OperationList undoList = new OperationList(
+			undoRedoHistoryLock);
+
+	/**
+	 * the maximum estimated size of the undo and redo history, 0 if the
+	 * history is not bounded by memory. Guarded by the undoRedoHistoryLock.
+	 */
+	private long memoryLimit = 0;
 
 	/**
 	 * An operation that is "absorbing" all other operations while it is open.
@@ -196,6 +207,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 			for (int i = 0; i < contexts.length; i++) {
 				flushRedo(contexts[i]);
 			}
+			checkMemoryLimit(operation);
 		} else {
 			// Dispose the operation since we will not have a reference to it.
 			operation.dispose();
@@ -312,6 +324,48 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		return operation.getContexts().length > 0;
 	}
 
+	/**
+	 * Evict the oldest sized operations, first from the undo history and then
+	 * from the redo history, until the estimated size of the history is within
+	 * the memory limit. Operations that do not estimate their size are kept,
+	 * since evicting them would not free any memory as far as the history
+	 * knows, and so is the given operation, if any, which was just added.
+	 */
+	private void checkMemoryLimit(IUndoableOperation excluded) {
+		List evicted = null;
+		synchronized (undoRedoHistoryLock) {
+			if (memoryLimit <= 0) {
+				return;
+			}
+			while (undoList.getEstimatedSize() + redoList.getEstimatedSize() > memoryLimit) {
+				IUndoableOperation operation = undoList
+						.getOldestSized(excluded);
+				if (operation != null) {
+					undoList.remove(operation);
+				} else {
+					operation = redoList.getOldestSized(excluded);
+					if (operation == null) {
+						break;
+					}
+					redoList.remove(operation);
+				}
+				if (evicted == null) {
+					evicted = new ArrayList();
+				}
+				evicted.add(operation);
+			}
+		}
+		// notify outside of the synchronized block.
+		if (evicted != null) {
+			for (int i = 0; i < evicted.size(); i++) {
+				IUndoableOperation operation = (IUndoableOperation) evicted
+						.get(i);
+				notifyEvicted(operation);
+				internalRemove(operation);
+			}
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -330,6 +384,10 @@ public final class DefaultOperationHistory implements IOperationHistory {
 			flushUndo(context);
 			flushRedo(context);
 			limits.remove(context);
+			synchronized (undoRedoHistoryLock) {
+				undoList.forget(context);
+				redoList.forget(context);
+			}
 			return;
 		}
 		if (flushUndo) {
@@ -540,31 +598,25 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	}
 
 	/*
-	 * Filter the specified list to include only the specified undo context.
+	 * Remove a context from an operation of the undo history, keeping the
+	 * cached views of the history up to date.
 	 */
-	private IUndoableOperation[] filter(List list, IUndoContext context) {
-		/*
-		 * This method is used whenever there is a need to filter the undo or
-		 * redo history on a particular context. Currently there are no caches
-		 * kept to optimize repeated requests for the same filter. If benchmarks
-		 * show this to be a common pattern that causes performances problems,
-		 * we could implement a filtered cache here that is nullified whenever
-		 * the global history changes.
-		 */
+	private void removeUndoContext(IUndoableOperation operation,
+			IUndoContext context) {
+		int stamp = OperationList.getContextsStamp();
+		operation.removeContext(context);
+		undoList.contextRemoved(operation, stamp);
+	}
 
-		List filtered = new ArrayList();
-		synchronized (undoRedoHistoryLock) {
-			Iterator iterator = list.iterator();
-			while (iterator.hasNext()) {
-				IUndoableOperation operation = (IUndoableOperation) iterator
-						.next();
-				if (operation.hasContext(context)) {
-					filtered.add(operation);
-				}
-			}
-		}
-		return (IUndoableOperation[]) filtered
-				.toArray(new IUndoableOperation[filtered.size()]);
+	/*
+	 * Remove a context from an operation of the redo history, keeping the
+	 * cached views of the history up to date.
+	 */
+	private void removeRedoContext(IUndoableOperation operation,
+			IUndoContext context) {
+		int stamp = OperationList.getContextsStamp();
+		operation.removeContext(context);
+		redoList.contextRemoved(operation, stamp);
 	}
 
 	/*
@@ -578,7 +630,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 
 		synchronized (undoRedoHistoryLock) {
 			
-			Object[] filtered = filter(redoList, context);
+			Object[] filtered = redoList.filter(context);
 			for (int i = 0; i < filtered.length; i++) {
 				IUndoableOperation operation = (IUndoableOperation) filtered[i];
 				if (context == GLOBAL_UNDO_CONTEXT
@@ -596,7 +648,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 					IUndoContext[] contexts = operation.getContexts();
 					for (int j = 0; j < contexts.length; j++) {
 						if (contexts[j].matches(context)) {
-							operation.removeContext(contexts[j]);
+							removeRedoContext(operation, contexts[j]);
 						}
 					}
 					if (operation.getContexts().length == 0) {
@@ -620,7 +672,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		synchronized (undoRedoHistoryLock) {
 			
 			// Get all operations that have the context (or one that matches)
-			Object[] filtered = filter(undoList, context);
+			Object[] filtered = undoList.filter(context);
 			for (int i = 0; i < filtered.length; i++) {
 				IUndoableOperation operation = (IUndoableOperation) filtered[i];
 				if (context == GLOBAL_UNDO_CONTEXT
@@ -638,7 +690,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 					IUndoContext[] contexts = operation.getContexts();
 					for (int j = 0; j < contexts.length; j++) {
 						if (contexts[j].matches(context)) {
-							operation.removeContext(contexts[j]);
+							removeUndoContext(operation, contexts[j]);
 						}
 					}
 					if (operation.getContexts().length == 0) {
@@ -680,7 +732,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	private void forceRedoLimit(IUndoContext context, int max) {
 		synchronized (undoRedoHistoryLock) {
-			Object[] filtered = filter(redoList, context);
+			Object[] filtered = redoList.filter(context);
 			int size = filtered.length;
 			if (size > 0) {
 				int index = 0;
@@ -700,7 +752,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 						 * the limit for only one of them, then just remove the
 						 * context, not the operation.
 						 */
-						removed.removeContext(context);
+						removeRedoContext(removed, context);
 					}
 					size--;
 					index++;
@@ -715,7 +767,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	private void forceUndoLimit(IUndoContext context, int max) {
 		synchronized (undoRedoHistoryLock) {
-			Object[] filtered = filter(undoList, context);
+			Object[] filtered = undoList.filter(context);
 			int size = filtered.length;
 			if (size > 0) {
 				int index = 0;
@@ -735,7 +787,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 						 * the limit for only one of them, then just remove the
 						 * context, not the operation.
 						 */
-						removed.removeContext(context);
+						removeUndoContext(removed, context);
 					}
 					size--;
 					index++;
@@ -756,6 +808,36 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		return ((Integer) (limits.get(context))).intValue();
 	}
 
+	/**
+	 * Return the limit on the estimated size of the undo and redo history.
+	 * 
+	 * @return the limit in bytes, or 0 if the history is not bounded by memory
+	 * 
+	 * @see #setMemoryLimit(long)
+	 * @since 3.6
+	 */
+	public long getMemoryLimit() {
+		synchronized (undoRedoHistoryLock) {
+			return memoryLimit;
+		}
+	}
+
+	/**
+	 * Return the estimated size of the undo and redo history, which is the sum
+	 * of the sizes estimated by the operations of the history that implement
+	 * {@link ISizedOperation}.
+	 * 
+	 * @return the estimated size in bytes
+	 * 
+	 * @see #setMemoryLimit(long)
+	 * @since 3.6
+	 */
+	public long getEstimatedSize() {
+		synchronized (undoRedoHistoryLock) {
+			return undoList.getEstimatedSize() + redoList.getEstimatedSize();
+		}
+	}
+
 	/*
 	 * Consult the IOperationApprovers to see if the proposed redo should be
 	 * allowed.
@@ -788,7 +870,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation[] getRedoHistory(IUndoContext context) {
 		Assert.isNotNull(context);
-		return filter(redoList, context);
+		return (IUndoableOperation[]) redoList.filter(context).clone();
 	}
 
 	/*
@@ -798,16 +880,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation getRedoOperation(IUndoContext context) {
 		Assert.isNotNull(context);
-		synchronized (undoRedoHistoryLock) {
-			for (int i = redoList.size() - 1; i >= 0; i--) {
-				IUndoableOperation operation = (IUndoableOperation) redoList
-						.get(i);
-				if (operation.hasContext(context)) {
-					return operation;
-				}
-			}
-		}
-		return null;
+		return redoList.getLast(context);
 	}
 
 	/*
@@ -842,7 +915,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation[] getUndoHistory(IUndoContext context) {
 		Assert.isNotNull(context);
-		return filter(undoList, context);
+		return (IUndoableOperation[]) undoList.filter(context).clone();
 	}
 
 	/*
@@ -852,16 +925,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation getUndoOperation(IUndoContext context) {
 		Assert.isNotNull(context);
-		synchronized (undoRedoHistoryLock) {
-			for (int i = undoList.size() - 1; i >= 0; i--) {
-				IUndoableOperation operation = (IUndoableOperation) undoList
-						.get(i);
-				if (operation.hasContext(context)) {
-					return operation;
-				}
-			}
-		}
-		return null;
+		return undoList.getLast(context);
 	}
 
 	/*
@@ -1005,6 +1069,19 @@ public final class DefaultOperationHistory implements IOperationHistory {
 				this, operation));
 	}
 
+	/*
+	 * Notify listeners that an operation is evicted from the history.
+	 */
+	private void notifyEvicted(IUndoableOperation operation) {
+		if (DEBUG_OPERATION_HISTORY_NOTIFICATION) {
+			Tracing.printTrace("OPERATIONHISTORY", "OPERATION_EVICTED " //$NON-NLS-1$ //$NON-NLS-2$
+					+ operation);
+		}
+
+		notifyListeners(new OperationHistoryEvent(
+				OperationHistoryEvent.OPERATION_EVICTED, this, operation));
+	}
+
 	/*
 	 * Notify listeners that an operation did not succeed after an attempt to
 	 * execute, undo, or redo was made.
@@ -1176,10 +1253,10 @@ public final class DefaultOperationHistory implements IOperationHistory {
 					for (int j = 0; j < opContexts.length; j++) {
 						allContexts.add(opContexts[j]);
 					}
-					undoList.add(index, replacements[i]);
-					// notify listeners after the lock on the history is
-					// released
 				}
+				undoList.add(index, reversed(replacements));
+				// notify listeners after the lock on the history is
+				// released
 				// recheck all the limits. We do this at the end so the index
 				// doesn't change during replacement
 				for (int i = 0; i < allContexts.size(); i++) {
@@ -1194,6 +1271,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 			for (int i = 0; i < replacements.length; i++) {
 				notifyAdd(replacements[i]);
 			}
+			checkMemoryLimit(null);
 			return;
 		}
 
@@ -1212,9 +1290,9 @@ public final class DefaultOperationHistory implements IOperationHistory {
 				for (int j = 0; j < opContexts.length; j++) {
 					allContexts.add(opContexts[j]);
 				}
-				redoList.add(index, replacements[i]);
-				// notify listeners after we release the lock on redoList
 			}
+			redoList.add(index, reversed(replacements));
+			// notify listeners after we release the lock on redoList
 			// recheck all the limits. We do this at the end so the index
 			// doesn't change during replacement
 			for (int i = 0; i < allContexts.size(); i++) {
@@ -1227,6 +1305,20 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		for (int i = 0; i < replacements.length; i++) {
 			notifyAdd(replacements[i]);
 		}
+		checkMemoryLimit(null);
+	}
+
+	/*
+	 * Each replacement is inserted at the index of the replaced operation, so
+	 * that they end up in the reverse order.
+	 */
+	private static IUndoableOperation[] reversed(
+			IUndoableOperation[] operations) {
+		IUndoableOperation[] result = new IUndoableOperation[operations.length];
+		for (int i = 0; i < operations.length; i++) {
+			result[operations.length - 1 - i] = operations[i];
+		}
+		return result;
 	}
 
 	/*
@@ -1253,6 +1345,40 @@ public final class DefaultOperationHistory implements IOperationHistory {
 
 	}
 
+	/**
+	 * <p>
+	 * Set the limit on the estimated size of the undo and redo history. The
+	 * size of the history is estimated by summing the sizes reported by its
+	 * operations that implement {@link ISizedOperation}. Whenever the estimated
+	 * size exceeds the limit, the oldest sized operations are removed from the
+	 * history, regardless of their undo contexts: first from the undo history,
+	 * then from the redo history, starting with the operation that would be
+	 * redone last. An operation that is being added is not removed to make
+	 * room for itself, even if its estimated size exceeds the limit.
+	 * Listeners receive an {@link OperationHistoryEvent#OPERATION_EVICTED}
+	 * notification for each operation removed, followed by an
+	 * {@link OperationHistoryEvent#OPERATION_REMOVED} notification once the
+	 * operation has been disposed.
+	 * </p>
+	 * <p>
+	 * The memory limit applies in addition to the limits set for each undo
+	 * context with {@link #setLimit(IUndoContext, int)}.
+	 * </p>
+	 * 
+	 * @param limit
+	 *            the limit in bytes, or 0 if the history should not be bounded
+	 *            by memory, which is the default
+	 * 
+	 * @since 3.6
+	 */
+	public void setMemoryLimit(long limit) {
+		Assert.isTrue(limit >= 0);
+		synchronized (undoRedoHistoryLock) {
+			memoryLimit = limit;
+		}
+		checkMemoryLimit(null);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -1390,7 +1516,12 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public void operationChanged(IUndoableOperation operation) {
 		if (undoList.contains(operation) || redoList.contains(operation)) {
+			synchronized (undoRedoHistoryLock) {
+				undoList.updateSize(operation);
+				redoList.updateSize(operation);
+			}
 			notifyChanged(operation);
+			checkMemoryLimit(null);
 		}
 	}
 }
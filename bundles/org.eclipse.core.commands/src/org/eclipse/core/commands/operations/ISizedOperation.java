@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.commands.operations;
+
+/**
+ * <p>
+ * ISizedOperation defines an interface for undoable operations that can
+ * estimate the amount of memory they retain, such as operations that keep a
+ * copy of the text or model state they replace. An operation history may use
+ * this estimate to keep the memory retained by its undo and redo history
+ * within a limit, removing the oldest operations when the limit is exceeded.
+ * </p>
+ * <p>
+ * Clients may implement this interface in addition to
+ * {@link IUndoableOperation}.
+ * </p>
+ *
+ * @see DefaultOperationHistory#setMemoryLimit(long)
+ *
+ * @since 3.6
+ */
+public interface ISizedOperation {
+
+	/**
+	 * Return an estimate of the memory, in bytes, retained by the operation
+	 * while it is kept in an operation history. The estimate is read when the
+	 * operation is added to the history, and read again when the history is
+	 * notified that the operation changed through
+	 * {@link IOperationHistory#operationChanged(IUndoableOperation)}.
+	 *
+	 * @return the estimated retained size in bytes, never negative.
+	 */
+	long getEstimatedSize();
+}
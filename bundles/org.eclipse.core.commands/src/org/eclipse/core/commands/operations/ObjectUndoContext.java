@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2006 IBM Corporation and others.
+ * Copyright (c) 2005, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -92,6 +92,7 @@ public final class ObjectUndoContext extends UndoContext {
 	 */
 	public void addMatch(IUndoContext context) {
 		children.add(context);
+		OperationList.contextsChanged();
 	}
 
 	/**
@@ -106,6 +107,7 @@ public final class ObjectUndoContext extends UndoContext {
 	 */
 	public void removeMatch(IUndoContext context) {
 		children.remove(context);
+		OperationList.contextsChanged();
 	}
 
 	/*
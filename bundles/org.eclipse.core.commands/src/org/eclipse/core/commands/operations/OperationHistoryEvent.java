@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2006 IBM Corporation and others.
+ * Copyright (c) 2005, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -139,6 +139,19 @@ public final class OperationHistoryEvent {
 	 */
 	public static final int UNDONE = 10;
 
+	/**
+	 * OPERATION_EVICTED indicates that an operation is being removed from the
+	 * history to keep the memory retained by the history within its memory
+	 * limit. Listeners that need to release or save state related to the
+	 * operation can do so before it is disposed. Listeners will also receive an
+	 * OPERATION_REMOVED notification once the operation has been disposed.
+	 * (value is 11).
+	 * 
+	 * @see DefaultOperationHistory#setMemoryLimit(long)
+	 * @since 3.6
+	 */
+	public static final int OPERATION_EVICTED = 11;
+
 	private int code = 0;
 
 	private IOperationHistory history;
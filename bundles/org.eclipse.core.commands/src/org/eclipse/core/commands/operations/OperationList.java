@@ -0,0 +1,455 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.commands.operations;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * <p>
+ * The undo or redo history of a {@link DefaultOperationHistory}, in the order
+ * in which the operations were added. The operations are kept in an array that
+ * is replaced whenever the list changes, and the operations having an undo
+ * context are cached for each context that is queried and has operations. The
+ * view of a context is dropped when its last operation is removed, so that
+ * contexts that are no longer used do not stay in the cache. The history
+ * changes the list while holding its history lock. Queries answered from the
+ * cache only synchronize on the list for the time needed to read its state,
+ * the others filter the operations while holding the history lock, since the
+ * contexts of the operations are changed under that lock.
+ * </p>
+ * <p>
+ * The cached views are updated as operations are added and removed, so that
+ * the history of a context does not need to be filtered again after every
+ * change. Since matching depends on the contexts of the operations, views are
+ * only cached while all the operations in the list are
+ * {@link AbstractOperation}s, which report context changes through
+ * {@link #contextsChanged()}, and they are discarded once a context change is
+ * reported. Undo contexts are expected to change their matching rules only
+ * through {@link ObjectUndoContext#addMatch} and
+ * {@link ObjectUndoContext#removeMatch}, which also report a change.
+ * </p>
+ * <p>
+ * The list also keeps the total of the sizes estimated by its
+ * {@link ISizedOperation}s.
+ * </p>
+ */
+final class OperationList {
+
+	private static final IUndoableOperation[] NO_OPERATIONS = new IUndoableOperation[0];
+
+	private static final Object stampLock = new Object();
+
+	/**
+	 * Incremented whenever the contexts of an operation that was added to a
+	 * history, or the matching rules of a context, change.
+	 */
+	private static int contextsStamp = 0;
+
+	/**
+	 * Report that the contexts of an operation held by a history, or the
+	 * matching rules of a context, changed.
+	 */
+	static void contextsChanged() {
+		synchronized (stampLock) {
+			contextsStamp++;
+		}
+	}
+
+	static int getContextsStamp() {
+		synchronized (stampLock) {
+			return contextsStamp;
+		}
+	}
+
+	/*
+	 * The operations of the list having a context, valid as long as the
+	 * contexts stamp did not change.
+	 */
+	private static final class View {
+		final int stamp;
+
+		final IUndoableOperation[] operations;
+
+		View(int stamp, IUndoableOperation[] operations) {
+			this.stamp = stamp;
+			this.operations = operations;
+		}
+	}
+
+	/**
+	 * The lock of the history, held while the contexts of the operations are
+	 * queried outside of the cache.
+	 */
+	private final Object historyLock;
+
+	/**
+	 * The cached views, by context. All the fields are guarded by this map.
+	 */
+	private final Map views = new HashMap();
+
+	/**
+	 * The operations, never modified once assigned.
+	 */
+	private IUndoableOperation[] operations = NO_OPERATIONS;
+
+	/**
+	 * The number of operations whose context changes are not reported.
+	 */
+	private int untracked = 0;
+
+	/**
+	 * Incremented whenever the operations change, so that views computed from
+	 * older operations are not cached.
+	 */
+	private int generation = 0;
+
+	/**
+	 * The estimated sizes of the sized operations, as Longs by operation.
+	 */
+	private final Map sizes = new HashMap();
+
+	private long estimatedSize = 0;
+
+	/**
+	 * Create an empty list.
+	 * 
+	 * @param historyLock
+	 *            the lock the history holds while changing the list and the
+	 *            contexts of its operations
+	 */
+	OperationList(Object historyLock) {
+		this.historyLock = historyLock;
+	}
+
+	private IUndoableOperation[] getOperations() {
+		synchronized (views) {
+			return operations;
+		}
+	}
+
+	boolean contains(IUndoableOperation operation) {
+		return indexOf(getOperations(), operation) != -1;
+	}
+
+	int indexOf(IUndoableOperation operation) {
+		return indexOf(getOperations(), operation);
+	}
+
+	/**
+	 * Return the oldest operation with an estimated size, other than the given
+	 * one, or <code>null</code>.
+	 */
+	IUndoableOperation getOldestSized(IUndoableOperation excluded) {
+		synchronized (views) {
+			for (int i = 0; i < operations.length; i++) {
+				if (operations[i] != excluded && sizes.containsKey(operations[i])) {
+					return operations[i];
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the total of the sizes estimated by the operations.
+	 */
+	long getEstimatedSize() {
+		synchronized (views) {
+			return estimatedSize;
+		}
+	}
+
+	/**
+	 * Estimate again the size of the operation, if present.
+	 */
+	void updateSize(IUndoableOperation operation) {
+		if (!(operation instanceof ISizedOperation)) {
+			return;
+		}
+		long size = ((ISizedOperation) operation).getEstimatedSize();
+		synchronized (views) {
+			int index = indexOf(operations, operation);
+			if (index != -1) {
+				removeSize(operations[index]);
+				addSize(operations[index], size);
+			}
+		}
+	}
+
+	private void addSize(IUndoableOperation operation, long size) {
+		if (size > 0) {
+			sizes.put(operation, new Long(size));
+			estimatedSize += size;
+		}
+	}
+
+	private void removeSize(IUndoableOperation operation) {
+		Long size = (Long) sizes.remove(operation);
+		if (size != null) {
+			estimatedSize -= size.longValue();
+		}
+	}
+
+	private static long estimateSize(IUndoableOperation operation) {
+		if (operation instanceof ISizedOperation) {
+			return ((ISizedOperation) operation).getEstimatedSize();
+		}
+		return 0;
+	}
+
+	/**
+	 * Return the operations that have the given context, oldest first. The
+	 * returned array is shared and must not be modified.
+	 */
+	IUndoableOperation[] filter(IUndoContext context) {
+		int stamp = getContextsStamp();
+		synchronized (views) {
+			View view = (View) views.get(context);
+			if (view != null && view.stamp == stamp) {
+				return view.operations;
+			}
+		}
+		IUndoableOperation[] filtered;
+		int generation;
+		boolean cacheable;
+		// the contexts of the operations are only changed under the history
+		// lock, which is always acquired before the views
+		synchronized (historyLock) {
+			IUndoableOperation[] operations;
+			synchronized (views) {
+				stamp = getContextsStamp();
+				operations = this.operations;
+				generation = this.generation;
+				cacheable = untracked == 0;
+			}
+			filtered = new IUndoableOperation[operations.length];
+			int count = 0;
+			for (int i = 0; i < operations.length; i++) {
+				if (operations[i].hasContext(context)) {
+					filtered[count++] = operations[i];
+				}
+			}
+			if (count < filtered.length) {
+				IUndoableOperation[] trimmed = new IUndoableOperation[count];
+				System.arraycopy(filtered, 0, trimmed, 0, count);
+				filtered = trimmed;
+			}
+		}
+		if (cacheable && filtered.length > 0) {
+			synchronized (views) {
+				if (this.generation == generation) {
+					views.put(context, new View(stamp, filtered));
+				}
+			}
+		}
+		return filtered;
+	}
+
+	/**
+	 * Return the most recent operation that has the given context, or
+	 * <code>null</code>.
+	 */
+	IUndoableOperation getLast(IUndoContext context) {
+		IUndoableOperation[] filtered = filter(context);
+		return filtered.length == 0 ? null : filtered[filtered.length - 1];
+	}
+
+	/**
+	 * Add the operation as the most recent one.
+	 */
+	void add(IUndoableOperation operation) {
+		boolean tracked = track(operation);
+		long size = estimateSize(operation);
+		synchronized (views) {
+			operations = insert(operations, operations.length, operation);
+			generation++;
+			addSize(operation, size);
+			if (!tracked) {
+				untracked++;
+				views.clear();
+				return;
+			}
+			int stamp = getContextsStamp();
+			for (Iterator i = views.entrySet().iterator(); i.hasNext();) {
+				Map.Entry entry = (Map.Entry) i.next();
+				View view = (View) entry.getValue();
+				if (view.stamp != stamp) {
+					i.remove();
+				} else if (operation.hasContext((IUndoContext) entry.getKey())) {
+					entry.setValue(new View(stamp, insert(view.operations,
+							view.operations.length, operation)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Insert the operations at the given index.
+	 */
+	void add(int index, IUndoableOperation[] added) {
+		int count = 0;
+		long[] addedSizes = new long[added.length];
+		for (int i = 0; i < added.length; i++) {
+			if (!track(added[i])) {
+				count++;
+			}
+			addedSizes[i] = estimateSize(added[i]);
+		}
+		synchronized (views) {
+			for (int i = 0; i < added.length; i++) {
+				addSize(added[i], addedSizes[i]);
+			}
+			IUndoableOperation[] result = new IUndoableOperation[operations.length
+					+ added.length];
+			System.arraycopy(operations, 0, result, 0, index);
+			System.arraycopy(added, 0, result, index, added.length);
+			System.arraycopy(operations, index, result, index + added.length,
+					operations.length - index);
+			operations = result;
+			untracked += count;
+			generation++;
+			// views are rebuilt on demand, this is not a common case
+			views.clear();
+		}
+	}
+
+	/**
+	 * Remove the operation, if present.
+	 */
+	void remove(IUndoableOperation operation) {
+		synchronized (views) {
+			int index = indexOf(operations, operation);
+			if (index == -1) {
+				return;
+			}
+			IUndoableOperation removed = operations[index];
+			IUndoableOperation[] result = new IUndoableOperation[operations.length - 1];
+			System.arraycopy(operations, 0, result, 0, index);
+			System.arraycopy(operations, index + 1, result, index,
+					result.length - index);
+			operations = result;
+			generation++;
+			removeSize(removed);
+			if (!(removed instanceof AbstractOperation)) {
+				untracked--;
+				return;
+			}
+			if (untracked > 0) {
+				return;
+			}
+			int stamp = getContextsStamp();
+			for (Iterator i = views.entrySet().iterator(); i.hasNext();) {
+				Map.Entry entry = (Map.Entry) i.next();
+				View view = (View) entry.getValue();
+				if (view.stamp != stamp) {
+					i.remove();
+				} else if (removed.hasContext((IUndoContext) entry.getKey())) {
+					IUndoableOperation[] remaining = without(view.operations,
+							removed);
+					if (remaining.length == 0) {
+						i.remove();
+					} else {
+						entry.setValue(new View(stamp, remaining));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Update the views after the history removed a context from one of the
+	 * operations, which reported the change once after the contexts stamp was
+	 * read. The views are discarded if other context changes were reported in
+	 * the meantime.
+	 */
+	void contextRemoved(IUndoableOperation operation, int stamp) {
+		synchronized (views) {
+			generation++;
+			int current = getContextsStamp();
+			if (current != stamp + 1) {
+				views.clear();
+				return;
+			}
+			for (Iterator i = views.entrySet().iterator(); i.hasNext();) {
+				Map.Entry entry = (Map.Entry) i.next();
+				View view = (View) entry.getValue();
+				if (view.stamp != stamp) {
+					i.remove();
+				} else if (operation.hasContext((IUndoContext) entry.getKey())) {
+					entry.setValue(new View(current, view.operations));
+				} else {
+					IUndoableOperation[] remaining = without(view.operations,
+							operation);
+					if (remaining.length == 0) {
+						i.remove();
+					} else {
+						entry.setValue(new View(current, remaining));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drop the cached view of a context that is no longer used.
+	 */
+	void forget(IUndoContext context) {
+		synchronized (views) {
+			views.remove(context);
+		}
+	}
+
+	/*
+	 * Start reporting the context changes of the operation, answer whether
+	 * they are reported.
+	 */
+	private static boolean track(IUndoableOperation operation) {
+		if (operation instanceof AbstractOperation) {
+			((AbstractOperation) operation).tracked = true;
+			return true;
+		}
+		return false;
+	}
+
+	private static int indexOf(IUndoableOperation[] operations,
+			IUndoableOperation operation) {
+		for (int i = 0; i < operations.length; i++) {
+			if (operation.equals(operations[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static IUndoableOperation[] insert(IUndoableOperation[] array,
+			int index, IUndoableOperation operation) {
+		IUndoableOperation[] result = new IUndoableOperation[array.length + 1];
+		System.arraycopy(array, 0, result, 0, index);
+		result[index] = operation;
+		System.arraycopy(array, index, result, index + 1, array.length - index);
+		return result;
+	}
+
+	private static IUndoableOperation[] without(IUndoableOperation[] array,
+			IUndoableOperation operation) {
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] == operation) {
+				IUndoableOperation[] result = new IUndoableOperation[array.length - 1];
+				System.arraycopy(array, 0, result, 0, i);
+				System.arraycopy(array, i + 1, result, i, result.length - i);
+				return result;
+			}
+		}
+		return array;
+	}
+}
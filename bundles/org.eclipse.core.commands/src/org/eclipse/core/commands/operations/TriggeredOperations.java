@@ -314,7 +314,7 @@ public final class TriggeredOperations extends AbstractOperation implements
 			}
 		}
 		contexts = allContexts;
-
+		contextsChanged();
 	}
 
 	/*
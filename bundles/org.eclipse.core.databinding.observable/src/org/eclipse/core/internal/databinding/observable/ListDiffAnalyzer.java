@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+import org.eclipse.core.internal.databinding.identity.IdentityMap;
+
+/**
+ * Computes the differences between two list states in O(n log n) time.
+ * <p>
+ * Elements of the new list are matched to elements of the old list through a
+ * hash index (the k-th occurrence of an element in the new list is matched to
+ * its k-th occurrence in the old list). The longest increasing subsequence of
+ * matched old positions is retained in place; all other matched elements are
+ * reported as moves, i.e. as a remove entry immediately followed by an add
+ * entry for the same element, which
+ * {@link org.eclipse.core.databinding.observable.list.ListDiffVisitor#handleMove(int, int, Object)}
+ * picks up. Unmatched old elements are removed and unmatched new elements are
+ * added.
+ * <p>
+ * Every element is given a fixed slot in a total order that contains both its
+ * old position and, if it changes place, its new position. The index of an
+ * entry is then the number of occupied slots in front of it, which a Fenwick
+ * tree answers in logarithmic time regardless of the order in which entries are
+ * emitted.
+ */
+public class ListDiffAnalyzer {
+
+	/**
+	 * Returns the differences between the specified list states. Elements are
+	 * compared using {@link Object#equals(Object)}.
+	 *
+	 * @param oldList
+	 *            the old list state
+	 * @param newList
+	 *            the new list state
+	 * @return the list diff entries that transform oldList into newList, in
+	 *         the order they must be applied
+	 */
+	public static ListDiffEntry[] computeDifferences(List oldList, List newList) {
+		return computeDifferences(oldList, newList, false);
+	}
+
+	/**
+	 * Returns the differences between the specified list states.
+	 *
+	 * @param oldList
+	 *            the old list state
+	 * @param newList
+	 *            the new list state
+	 * @param identity
+	 *            whether elements are compared by identity (<code>==</code>)
+	 *            instead of {@link Object#equals(Object)}
+	 * @return the list diff entries that transform oldList into newList, in
+	 *         the order they must be applied
+	 */
+	public static ListDiffEntry[] computeDifferences(List oldList,
+			List newList, boolean identity) {
+		Object[] oldElements = oldList.toArray();
+		Object[] newElements = newList.toArray();
+		int oldSize = oldElements.length;
+		int newSize = newElements.length;
+
+		int[] newIndexOfOld = new int[oldSize];
+		int[] oldIndexOfNew = new int[newSize];
+		match(oldElements, newElements, newIndexOfOld, oldIndexOfNew, identity);
+
+		boolean[] kept = findKeptElements(oldIndexOfNew);
+
+		// Lay out the slots: leading run of new positions, then each old
+		// position followed by the new positions that come after it when it
+		// is retained in place.
+		int[] oldSlot = new int[oldSize];
+		int[] newSlot = new int[newSize];
+		int slot = 0;
+		int j = 0;
+		for (; j < newSize && !kept[j]; j++)
+			newSlot[j] = slot++;
+		for (int i = 0; i < oldSize; i++) {
+			oldSlot[i] = slot++;
+			int k = newIndexOfOld[i];
+			if (k != -1 && kept[k]) {
+				newSlot[k] = oldSlot[i];
+				for (j = k + 1; j < newSize && !kept[j]; j++)
+					newSlot[j] = slot++;
+			}
+		}
+
+		SlotTree slots = new SlotTree(slot);
+		for (int i = 0; i < oldSize; i++)
+			slots.occupy(oldSlot[i]);
+
+		List entries = new ArrayList();
+		int nextRemoval = 0;
+		for (j = 0; j < newSize; j++) {
+			int i = oldIndexOfNew[j];
+			if (i == -1) {
+				entries.add(Diffs.createListDiffEntry(slots.count(newSlot[j]),
+						true, newElements[j]));
+				slots.occupy(newSlot[j]);
+				continue;
+			}
+
+			// remove unmatched old elements in front of the matched one
+			for (; nextRemoval < i; nextRemoval++) {
+				if (newIndexOfOld[nextRemoval] == -1)
+					remove(entries, slots, oldSlot[nextRemoval],
+							oldElements[nextRemoval]);
+			}
+
+			if (!kept[j]) {
+				remove(entries, slots, oldSlot[i], oldElements[i]);
+				entries.add(Diffs.createListDiffEntry(slots.count(newSlot[j]),
+						true, newElements[j]));
+				slots.occupy(newSlot[j]);
+			}
+		}
+
+		// remove trailing unmatched old elements back to front
+		for (int i = oldSize - 1; i >= nextRemoval; i--) {
+			if (newIndexOfOld[i] == -1)
+				remove(entries, slots, oldSlot[i], oldElements[i]);
+		}
+
+		return (ListDiffEntry[]) entries.toArray(new ListDiffEntry[entries
+				.size()]);
+	}
+
+	private static void remove(List entries, SlotTree slots, int slot,
+			Object element) {
+		slots.vacate(slot);
+		entries.add(Diffs.createListDiffEntry(slots.count(slot), false,
+				element));
+	}
+
+	/**
+	 * Pairs up the k-th occurrence of each element in the new list with its
+	 * k-th occurrence in the old list. Unmatched positions are set to -1.
+	 */
+	private static void match(Object[] oldElements, Object[] newElements,
+			int[] newIndexOfOld, int[] oldIndexOfNew, boolean identity) {
+		Map occurrences = identity ? (Map) new IdentityMap() : new HashMap();
+		int[] nextOccurrence = new int[oldElements.length];
+		for (int i = oldElements.length - 1; i >= 0; i--) {
+			newIndexOfOld[i] = -1;
+			Occurrence occurrence = (Occurrence) occurrences
+					.get(oldElements[i]);
+			if (occurrence == null) {
+				occurrence = new Occurrence();
+				occurrences.put(oldElements[i], occurrence);
+				nextOccurrence[i] = -1;
+			} else {
+				nextOccurrence[i] = occurrence.index;
+			}
+			occurrence.index = i;
+		}
+		for (int j = 0; j < newElements.length; j++) {
+			Occurrence occurrence = (Occurrence) occurrences
+					.get(newElements[j]);
+			if (occurrence == null || occurrence.index == -1) {
+				oldIndexOfNew[j] = -1;
+			} else {
+				int i = occurrence.index;
+				occurrence.index = nextOccurrence[i];
+				oldIndexOfNew[j] = i;
+				newIndexOfOld[i] = j;
+			}
+		}
+	}
+
+	/**
+	 * Returns, for each new position, whether the element stays in place. The
+	 * retained elements form a longest increasing subsequence of the matched
+	 * old positions (patience sorting).
+	 */
+	private static boolean[] findKeptElements(int[] oldIndexOfNew) {
+		int size = oldIndexOfNew.length;
+		boolean[] kept = new boolean[size];
+		int[] tails = new int[size];
+		int[] predecessor = new int[size];
+		int length = 0;
+		for (int k = 0; k < size; k++) {
+			int i = oldIndexOfNew[k];
+			if (i == -1)
+				continue;
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (oldIndexOfNew[tails[mid]] < i)
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			predecessor[k] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = k;
+			if (low == length)
+				length++;
+		}
+		int j = length > 0 ? tails[length - 1] : -1;
+		for (; j != -1; j = predecessor[j])
+			kept[j] = true;
+		return kept;
+	}
+
+	private static class Occurrence {
+		int index;
+	}
+
+	/**
+	 * Fenwick tree over slot occupancy.
+	 */
+	private static class SlotTree {
+		private final int[] tree;
+
+		SlotTree(int size) {
+			tree = new int[size + 1];
+		}
+
+		void occupy(int slot) {
+			for (int i = slot + 1; i < tree.length; i += i & -i)
+				tree[i]++;
+		}
+
+		void vacate(int slot) {
+			for (int i = slot + 1; i < tree.length; i += i & -i)
+				tree[i]--;
+		}
+
+		/**
+		 * @return the number of occupied slots in front of the given slot
+		 */
+		int count(int slot) {
+			int count = 0;
+			for (int i = slot; i > 0; i -= i & -i)
+				count += tree[i];
+			return count;
+		}
+	}
+}
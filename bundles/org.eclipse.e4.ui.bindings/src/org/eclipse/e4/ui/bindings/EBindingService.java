@@ -33,6 +33,16 @@ public interface EBindingService {
 
 	void activateBinding(Binding binding);
 
+	/**
+	 * Activates all the given bindings at once. This has the same effect as calling
+	 * {@link #activateBinding(Binding)} for each of them, but conflicts and binding order are
+	 * computed in a single pass per binding table.
+	 * 
+	 * @param bindings
+	 *            the bindings to activate
+	 */
+	void activateBindings(Collection<Binding> bindings);
+
 	void deactivateBinding(Binding binding);
 
 	TriggerSequence createSequence(String sequence);
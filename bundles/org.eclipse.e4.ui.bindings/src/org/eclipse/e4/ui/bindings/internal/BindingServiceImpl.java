@@ -13,6 +13,7 @@ package org.eclipse.e4.ui.bindings.internal;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import javax.inject.Inject;
@@ -97,6 +98,29 @@ public class BindingServiceImpl implements EBindingService {
 		table.addBinding(binding);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.e4.ui.bindings.EBindingService#activateBindings(java.util.Collection)
+	 */
+	public void activateBindings(Collection<Binding> bindings) {
+		Map<String, ArrayList<Binding>> bindingsByContext = new HashMap<String, ArrayList<Binding>>();
+		for (Binding binding : bindings) {
+			ArrayList<Binding> contextBindings = bindingsByContext.get(binding.getContextId());
+			if (contextBindings == null) {
+				contextBindings = new ArrayList<Binding>();
+				bindingsByContext.put(binding.getContextId(), contextBindings);
+			}
+			contextBindings.add(binding);
+		}
+		for (Map.Entry<String, ArrayList<Binding>> entry : bindingsByContext.entrySet()) {
+			BindingTable table = manager.getTable(entry.getKey());
+			if (table != null) {
+				table.addBindings(entry.getValue());
+			}
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
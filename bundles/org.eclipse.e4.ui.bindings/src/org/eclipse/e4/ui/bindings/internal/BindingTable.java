@@ -16,7 +16,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import org.eclipse.core.commands.ParameterizedCommand;
 import org.eclipse.core.commands.contexts.Context;
 import org.eclipse.jface.bindings.Binding;
@@ -86,9 +89,8 @@ public class BindingTable {
 	};
 	private Context tableId;
 	private ArrayList<Binding> bindings = new ArrayList<Binding>();
-	private Map<TriggerSequence, Binding> bindingsByTrigger = new HashMap<TriggerSequence, Binding>();
+	private TriggerTrie bindingsByTrigger = new TriggerTrie();
 	private Map<ParameterizedCommand, ArrayList<Binding>> bindingsByCommand = new HashMap<ParameterizedCommand, ArrayList<Binding>>();
-	private Map<TriggerSequence, ArrayList<Binding>> bindingsByPrefix = new HashMap<TriggerSequence, ArrayList<Binding>>();
 	private Map<TriggerSequence, ArrayList<Binding>> conflicts = new HashMap<TriggerSequence, ArrayList<Binding>>();
 
 	/**
@@ -133,9 +135,9 @@ public class BindingTable {
 		boolean isConflict = false;
 
 		// if this binding conflicts with one other active binding
-		if (bindingsByTrigger.containsKey(binding.getTriggerSequence())) {
+		conflict = bindingsByTrigger.get(binding.getTriggerSequence());
+		if (conflict != null) {
 			// remove the active binding and put it in the conflicts map
-			conflict = bindingsByTrigger.get(binding.getTriggerSequence());
 			removeBinding(conflict);
 			conflictsList = new ArrayList<Binding>();
 			conflictsList.add(conflict);
@@ -157,26 +159,92 @@ public class BindingTable {
 		// if there are no conflicts, then add to the table
 		if (!isConflict) {
 			bindings.add(binding);
-			bindingsByTrigger.put(binding.getTriggerSequence(), binding);
+			bindingsByTrigger.put(binding);
+			Collections.sort(addSequence(binding), BEST_SEQUENCE);
+		}
+	}
 
-			ArrayList<Binding> sequences = bindingsByCommand.get(binding.getParameterizedCommand());
-			if (sequences == null) {
-				sequences = new ArrayList<Binding>();
-				bindingsByCommand.put(binding.getParameterizedCommand(), sequences);
+	/**
+	 * Adds all the given bindings at once. The result is the same as calling
+	 * {@link #addBinding(Binding)} for each binding in turn, but conflicts are resolved
+	 * once per trigger sequence and the sequences of each command are sorted only once,
+	 * which makes loading large key maps much faster.
+	 * 
+	 * @param newBindings
+	 *            the bindings to add, all in the context of this table
+	 */
+	public void addBindings(Collection<Binding> newBindings) {
+		Map<TriggerSequence, ArrayList<Binding>> bindingsBySequence = new LinkedHashMap<TriggerSequence, ArrayList<Binding>>();
+		for (Binding binding : newBindings) {
+			if (!getId().equals(binding.getContextId())) {
+				throw new IllegalArgumentException("Binding context " + binding.getContextId() //$NON-NLS-1$
+						+ " does not match " + getId()); //$NON-NLS-1$
 			}
-			sequences.add(binding);
-			Collections.sort(sequences, BEST_SEQUENCE);
-
-			TriggerSequence[] prefs = binding.getTriggerSequence().getPrefixes();
-			for (int i = 1; i < prefs.length; i++) {
-				ArrayList<Binding> bindings = bindingsByPrefix.get(prefs[i]);
-				if (bindings == null) {
-					bindings = new ArrayList<Binding>();
-					bindingsByPrefix.put(prefs[i], bindings);
-				}
+			ArrayList<Binding> group = bindingsBySequence.get(binding.getTriggerSequence());
+			if (group == null) {
+				group = new ArrayList<Binding>(1);
+				bindingsBySequence.put(binding.getTriggerSequence(), group);
+			}
+			group.add(binding);
+		}
+
+		Set<ParameterizedCommand> unsortedCommands = new HashSet<ParameterizedCommand>();
+		Set<Binding> demoted = new HashSet<Binding>();
+		for (Map.Entry<TriggerSequence, ArrayList<Binding>> entry : bindingsBySequence
+				.entrySet()) {
+			TriggerSequence sequence = entry.getKey();
+			ArrayList<Binding> group = entry.getValue();
+			Binding active = bindingsByTrigger.get(sequence);
+			ArrayList<Binding> conflictsList = conflicts.get(sequence);
+			boolean conflicting = conflictsList != null && conflictsList.size() > 0;
+
+			if (active == null && !conflicting && group.size() == 1) {
+				Binding binding = group.get(0);
+				bindingsByTrigger.put(binding);
 				bindings.add(binding);
+				addSequence(binding);
+				unsortedCommands.add(binding.getParameterizedCommand());
+				continue;
+			}
+
+			// the active binding, if any, becomes a conflict as well
+			conflictsList = new ArrayList<Binding>();
+			if (active != null) {
+				bindingsByTrigger.remove(sequence);
+				ArrayList<Binding> sequences = bindingsByCommand.get(active
+						.getParameterizedCommand());
+				if (sequences != null) {
+					sequences.remove(active);
+				}
+				demoted.add(active);
+				conflictsList.add(active);
+			} else if (conflicting) {
+				conflictsList = conflicts.get(sequence);
+			}
+			for (Binding binding : group) {
+				if (!conflictsList.contains(binding)) {
+					conflictsList.add(binding);
+				}
 			}
+			conflicts.put(sequence, conflictsList);
+		}
+
+		if (!demoted.isEmpty()) {
+			bindings.removeAll(demoted);
+		}
+		for (ParameterizedCommand command : unsortedCommands) {
+			Collections.sort(bindingsByCommand.get(command), BEST_SEQUENCE);
+		}
+	}
+
+	private ArrayList<Binding> addSequence(Binding binding) {
+		ArrayList<Binding> sequences = bindingsByCommand.get(binding.getParameterizedCommand());
+		if (sequences == null) {
+			sequences = new ArrayList<Binding>();
+			bindingsByCommand.put(binding.getParameterizedCommand(), sequences);
 		}
+		sequences.add(binding);
+		return sequences;
 	}
 
 	public void removeBinding(Binding binding) {
@@ -187,7 +255,7 @@ public class BindingTable {
 		ArrayList<Binding> conflictBindings = conflicts.get(binding.getTriggerSequence());
 
 		// if this binding is in the conflicts map, then remove it
-		if (!bindingsByTrigger.containsKey(binding.getTriggerSequence())
+		if (bindingsByTrigger.get(binding.getTriggerSequence()) == null
 				&& conflictBindings != null) {
 
 			conflictBindings.remove(binding);
@@ -207,11 +275,6 @@ public class BindingTable {
 			if (sequences != null) {
 				sequences.remove(binding);
 			}
-			TriggerSequence[] prefs = binding.getTriggerSequence().getPrefixes();
-			for (int i = 1; i < prefs.length; i++) {
-				ArrayList<Binding> bindings = bindingsByPrefix.get(prefs[i]);
-				bindings.remove(binding);
-			}
 		}
 	}
 
@@ -233,11 +296,29 @@ public class BindingTable {
 	}
 
 	public Collection<Binding> getPartialMatches(TriggerSequence sequence) {
-		return bindingsByPrefix.get(sequence);
+		TriggerTrie.Node node = findPartialMatch(sequence);
+		if (node == null) {
+			return null;
+		}
+		ArrayList<Binding> matches = new ArrayList<Binding>(node.partialCount);
+		node.collectPartialMatches(matches);
+		return matches;
 	}
 
 	public boolean isPartialMatch(TriggerSequence seq) {
-		return bindingsByPrefix.get(seq) != null;
+		return findPartialMatch(seq) != null;
+	}
+
+	/**
+	 * @return the trie node of the sequence if it is a strict, non-empty prefix of some
+	 *         binding, <code>null</code> otherwise
+	 */
+	private TriggerTrie.Node findPartialMatch(TriggerSequence sequence) {
+		if (sequence.isEmpty()) {
+			return null;
+		}
+		TriggerTrie.Node node = bindingsByTrigger.find(sequence);
+		return node == null || node.partialCount == 0 ? null : node;
 	}
 
 	public Collection<Binding> getBindings() {
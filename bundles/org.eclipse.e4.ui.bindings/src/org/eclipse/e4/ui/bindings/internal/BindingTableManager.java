@@ -133,12 +133,22 @@ public class BindingTableManager {
 
 	public Binding getBestSequenceFor(ContextSet contextSet,
 			ParameterizedCommand parameterizedCommand) {
-		ArrayList<Binding> bindings = (ArrayList<Binding>) getSequencesFor(contextSet,
-				parameterizedCommand);
-		if (bindings.size() == 0) {
-			return null;
+		// each table keeps its sequences sorted, so only their best ones compete
+		Binding best = null;
+		List<Context> contexts = contextSet.getContexts();
+		ListIterator<Context> it = contexts.listIterator(contexts.size());
+		while (it.hasPrevious()) {
+			Context c = it.previous();
+			BindingTable table = getTable(c.getId());
+			if (table != null) {
+				Binding binding = table.getBestSequenceFor(parameterizedCommand);
+				if (binding != null
+						&& (best == null || BindingTable.BEST_SEQUENCE.compare(binding, best) < 0)) {
+					best = binding;
+				}
+			}
 		}
-		return bindings.get(0);
+		return best;
 	}
 
 	public Collection<Binding> getSequencesFor(ContextSet contextSet,
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.bindings.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.jface.bindings.Binding;
+import org.eclipse.jface.bindings.Trigger;
+import org.eclipse.jface.bindings.TriggerSequence;
+
+/**
+ * A trie of bindings keyed by the triggers of their trigger sequence. The
+ * node of a sequence holds the binding of that exact sequence, and the number
+ * of bindings whose sequence starts with it, so that perfect and partial
+ * matches are answered by a single walk down the sequence without keeping a
+ * list of bindings for every prefix.
+ */
+class TriggerTrie {
+
+	static class Node {
+		private Map<Trigger, Node> children;
+
+		/**
+		 * The binding of the sequence ending at this node, if any.
+		 */
+		Binding binding;
+
+		/**
+		 * The number of bindings whose sequence is strictly longer than the
+		 * one ending at this node.
+		 */
+		int partialCount;
+
+		Node getChild(Trigger trigger) {
+			return children == null ? null : children.get(trigger);
+		}
+
+		/**
+		 * Adds the bindings below this node, excluding the binding of this node
+		 * itself, to the given list.
+		 */
+		void collectPartialMatches(ArrayList<Binding> matches) {
+			if (children == null) {
+				return;
+			}
+			for (Node child : children.values()) {
+				if (child.binding != null) {
+					matches.add(child.binding);
+				}
+				child.collectPartialMatches(matches);
+			}
+		}
+	}
+
+	private final Node root = new Node();
+
+	/**
+	 * Returns the node of the given sequence, or <code>null</code> if no
+	 * binding starts with it.
+	 */
+	Node find(TriggerSequence sequence) {
+		Trigger[] triggers = sequence.getTriggers();
+		Node node = root;
+		for (int i = 0; i < triggers.length && node != null; i++) {
+			node = node.getChild(triggers[i]);
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the binding of the given sequence.
+	 */
+	Binding get(TriggerSequence sequence) {
+		Node node = find(sequence);
+		return node == null ? null : node.binding;
+	}
+
+	/**
+	 * Stores the binding at the node of its trigger sequence.
+	 *
+	 * @return the binding previously stored for that sequence, if any
+	 */
+	Binding put(Binding binding) {
+		Trigger[] triggers = binding.getTriggerSequence().getTriggers();
+		Node node = root;
+		for (int i = 0; i < triggers.length; i++) {
+			Node child = node.getChild(triggers[i]);
+			if (child == null) {
+				if (node.children == null) {
+					node.children = new HashMap<Trigger, Node>(4);
+				}
+				child = new Node();
+				node.children.put(triggers[i], child);
+			}
+			node = child;
+		}
+		Binding previous = node.binding;
+		node.binding = binding;
+		if (previous == null) {
+			updatePartialCounts(triggers, 1);
+		}
+		return previous;
+	}
+
+	/**
+	 * Removes the binding stored for the given sequence, pruning the nodes
+	 * that no longer lead to any binding.
+	 *
+	 * @return the removed binding, or <code>null</code> if there was none
+	 */
+	Binding remove(TriggerSequence sequence) {
+		Trigger[] triggers = sequence.getTriggers();
+		Node node = find(sequence);
+		if (node == null || node.binding == null) {
+			return null;
+		}
+		Binding removed = node.binding;
+		node.binding = null;
+		updatePartialCounts(triggers, -1);
+		return removed;
+	}
+
+	private void updatePartialCounts(Trigger[] triggers, int delta) {
+		Node node = root;
+		for (int i = 0; i < triggers.length; i++) {
+			node.partialCount += delta;
+			Node child = node.getChild(triggers[i]);
+			boolean last = i == triggers.length - 1;
+			if (delta < 0 && child.binding == null
+					&& child.partialCount == (last ? 0 : 1)) {
+				// nothing left below, drop the branch
+				node.children.remove(triggers[i]);
+				return;
+			}
+			node = child;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008 Angelo Zerr and others.
+ * Copyright (c) 2008, 2010 Angelo Zerr and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -208,6 +208,35 @@ public interface CSSEngine {
 	 */
 	public void applyStyles(Object node, boolean applyStylesToChildNodes);
 
+	/**
+	 * Re-apply styles to the Object node after its CSS class, id, attributes
+	 * or pseudo classes changed. Only the CSS properties whose value changed
+	 * since the node was last styled are applied, and the child nodes are
+	 * restyled only if the change can affect the selectors they match. A node
+	 * which was never styled is styled with its child nodes as by
+	 * {@link #applyStyles(Object, boolean)}.
+	 * <p>
+	 * Callers must only use this method when the selector inputs of the node
+	 * changed. Styles that were overwritten on the widget since it was last
+	 * styled are not applied again, and after the style sheets changed the
+	 * nodes must be styled with {@link #applyStyles(Object, boolean)}.
+	 * </p>
+	 * <p>
+	 * The values applied to a node are remembered in its
+	 * {@link CSSElementContext}, which the engine releases when the native
+	 * widget of the node is disposed.
+	 * </p>
+	 * <p>
+	 * Engines extending
+	 * {@link org.eclipse.e4.ui.css.core.impl.engine.AbstractCSSEngine} inherit
+	 * an implementation of this method.
+	 * </p>
+	 * 
+	 * @param node
+	 * @since 0.10
+	 */
+	public void restyle(Object node);
+
 	/**
 	 * Apply styles to the Object node (SWT Text,...). If
 	 * <code>applyStylesToChildNodes</code> is true, apply styles to the child
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008 Angelo Zerr and others.
+ * Copyright (c) 2008, 2010 Angelo Zerr and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,8 @@ import org.w3c.dom.css.CSSRuleList;
 public class CSSRuleListImpl implements CSSRuleList, Serializable {
 
 	private List<CSSRule> ruleList;
+
+	private int modificationStamp;
 	
 	public CSSRuleListImpl() {
 		super();
@@ -53,6 +55,7 @@ public class CSSRuleListImpl implements CSSRuleList, Serializable {
 	 */	
 	public void add(CSSRule rule) {
 		ruleList.add(rule);
+		modificationStamp++;
 	}
 
 	/**
@@ -60,5 +63,14 @@ public class CSSRuleListImpl implements CSSRuleList, Serializable {
 	 */	
 	public void remove(int position) {
 		ruleList.remove(position);
+		modificationStamp++;
+	}
+
+	/**
+	 * Returns a stamp that changes whenever a rule is added to or removed from
+	 * this list.
+	 */
+	public int getModificationStamp() {
+		return modificationStamp;
 	}
 }
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.dom;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.css.CSSStyleDeclaration;
+
+/**
+ * Cache of computed styles shared between elements with the same signature.
+ * The signature of an element is made of its name, id, CSS class, the values
+ * of the attributes and the states of the pseudo classes that the selectors
+ * of the style sheets test, followed by the signature of its parent. Elements
+ * with the same signature are matched by exactly the same selectors, so they
+ * share the same computed style.
+ * <p>
+ * Since the signature is computed from the current state of the element, a
+ * change of class, id, attribute or pseudo class state simply yields another
+ * signature. The cache is cleared whenever the style sheets change, and is
+ * disabled for style sheets with selectors that depend on something else than
+ * the element and its ancestors, such as sibling selectors.
+ */
+class ComputedStyleCache {
+
+	private static final int MAX_SIZE = 1024;
+
+	private static final char SEPARATOR = '\u0000';
+
+	/**
+	 * Stands for elements that have no style.
+	 */
+	private static final Object NO_STYLE = new Object();
+
+	private final Map<String, Object> styles = new LinkedHashMap<String, Object>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	private StyleRuleIndex[] indexes = new StyleRuleIndex[0];
+
+	private String[] attributes;
+
+	private String[] pseudoClasses;
+
+	private Set<String> ancestorIds;
+
+	private Set<String> ancestorClasses;
+
+	private String[] ancestorAttributes;
+
+	private String[] ancestorPseudoClasses;
+
+	private boolean enabled;
+
+	private long hitCount;
+
+	private long missCount;
+
+	/**
+	 * Makes sure the cache reflects the given rule indexes, one per style
+	 * sheet of the document. The cache is cleared if any of them changed since
+	 * the last call.
+	 */
+	void validate(StyleRuleIndex[] currentIndexes) {
+		if (currentIndexes.length == indexes.length) {
+			boolean same = true;
+			for (int i = 0; i < indexes.length && same; i++)
+				same = currentIndexes[i] == indexes[i];
+			if (same)
+				return;
+		}
+		indexes = currentIndexes;
+		styles.clear();
+		enabled = true;
+		Set<String> allAttributes = new HashSet<String>();
+		Set<String> allPseudoClasses = new HashSet<String>();
+		Set<String> allAncestorAttributes = new HashSet<String>();
+		Set<String> allAncestorPseudoClasses = new HashSet<String>();
+		ancestorIds = new HashSet<String>();
+		ancestorClasses = new HashSet<String>();
+		for (int i = 0; i < indexes.length; i++) {
+			enabled &= indexes[i].isShareable();
+			allAttributes.addAll(indexes[i].getAttributes());
+			allPseudoClasses.addAll(indexes[i].getPseudoClasses());
+			ancestorIds.addAll(indexes[i].getAncestorIds());
+			ancestorClasses.addAll(indexes[i].getAncestorClasses());
+			allAncestorAttributes.addAll(indexes[i].getAncestorAttributes());
+			allAncestorPseudoClasses.addAll(indexes[i]
+					.getAncestorPseudoClasses());
+		}
+		attributes = toArray(allAttributes);
+		pseudoClasses = toArray(allPseudoClasses);
+		ancestorAttributes = toArray(allAncestorAttributes);
+		ancestorPseudoClasses = toArray(allAncestorPseudoClasses);
+	}
+
+	private static String[] toArray(Set<String> set) {
+		return set.toArray(new String[set.size()]);
+	}
+
+	boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns the signature of the given element for the given pseudo
+	 * element.
+	 */
+	String getSignature(Element element, String pseudoElt) {
+		StringBuffer signature = new StringBuffer();
+		signature.append(pseudoElt).append(SEPARATOR);
+		for (Node node = element; node instanceof Element; node = node
+				.getParentNode()) {
+			appendSignature((Element) node, signature);
+		}
+		return signature.toString();
+	}
+
+	private void appendSignature(Element element, StringBuffer signature) {
+		signature.append(StyleRuleIndex.getElementName(element)).append(
+				SEPARATOR);
+		signature.append(StyleRuleIndex.getId(element)).append(SEPARATOR);
+		signature.append(StyleRuleIndex.getCSSClass(element)).append(
+				SEPARATOR);
+		for (int i = 0; i < attributes.length; i++) {
+			signature.append(element.getAttribute(attributes[i])).append(
+					SEPARATOR);
+		}
+		if (pseudoClasses.length > 0
+				&& element instanceof CSSStylableElement) {
+			CSSStylableElement stylableElement = (CSSStylableElement) element;
+			for (int i = 0; i < pseudoClasses.length; i++) {
+				if (!stylableElement.isPseudoInstanceOf(pseudoClasses[i]))
+					signature.append('0');
+				else if (stylableElement
+						.isStaticPseudoInstance(pseudoClasses[i]))
+					signature.append('s');
+				else
+					signature.append('1');
+			}
+		}
+		signature.append(SEPARATOR);
+	}
+
+	/**
+	 * Returns a key made of the id, classes, attributes and pseudo class
+	 * states of the given element that selectors test on ancestors. As long as
+	 * it does not change, the styles of the descendants of the element do not
+	 * change either.
+	 */
+	String getDescendantKey(Element element) {
+		StringBuffer key = new StringBuffer();
+		String id = StyleRuleIndex.getId(element);
+		if (ancestorIds.contains(id))
+			key.append(id);
+		key.append(SEPARATOR);
+		String cssClass = StyleRuleIndex.getCSSClass(element);
+		if (cssClass != null && !ancestorClasses.isEmpty()) {
+			String[] classes = cssClass.split("\\s+"); //$NON-NLS-1$
+			for (int i = 0; i < classes.length; i++) {
+				if (ancestorClasses.contains(classes[i]))
+					key.append(classes[i]).append(' ');
+			}
+		}
+		key.append(SEPARATOR);
+		for (int i = 0; i < ancestorAttributes.length; i++) {
+			key.append(element.getAttribute(ancestorAttributes[i])).append(
+					SEPARATOR);
+		}
+		if (element instanceof CSSStylableElement) {
+			CSSStylableElement stylableElement = (CSSStylableElement) element;
+			for (int i = 0; i < ancestorPseudoClasses.length; i++) {
+				key.append(stylableElement
+						.isPseudoInstanceOf(ancestorPseudoClasses[i]) ? '1'
+						: '0');
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns whether a style is cached for the given signature.
+	 */
+	boolean contains(String signature) {
+		if (styles.containsKey(signature)) {
+			hitCount++;
+			return true;
+		}
+		missCount++;
+		return false;
+	}
+
+	/**
+	 * Returns the style cached for the given signature, which may be
+	 * <code>null</code>.
+	 */
+	CSSStyleDeclaration get(String signature) {
+		Object style = styles.get(signature);
+		return style == NO_STYLE ? null : (CSSStyleDeclaration) style;
+	}
+
+	void put(String signature, CSSStyleDeclaration style) {
+		styles.put(signature, style == null ? NO_STYLE : style);
+	}
+
+	long getHitCount() {
+		return hitCount;
+	}
+
+	long getMissCount() {
+		return missCount;
+	}
+}
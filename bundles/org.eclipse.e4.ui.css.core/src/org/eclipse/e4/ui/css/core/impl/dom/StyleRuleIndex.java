@@ -0,0 +1,405 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.eclipse.e4.ui.css.core.impl.sac.ExtendedCondition;
+import org.eclipse.e4.ui.css.core.impl.sac.ExtendedSelector;
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.CombinatorCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.DescendantSelector;
+import org.w3c.css.sac.ElementSelector;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.css.sac.SiblingSelector;
+import org.w3c.dom.Element;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleRule;
+import org.w3c.dom.css.CSSStyleSheet;
+
+/**
+ * Index of the style rule selectors of a {@link CSSStyleSheet}, bucketed by
+ * the id, CSS class or element name required by the rightmost simple selector
+ * (the subject) of each selector. Selectors whose subject has none of these
+ * are kept in a universal bucket. Looking up an element only returns the
+ * selectors of the buckets the element can fall into, in style sheet order, so
+ * that only those need to be matched.
+ */
+class StyleRuleIndex {
+
+	/**
+	 * A selector of a style rule together with its position in the style
+	 * sheet.
+	 */
+	static final class Entry {
+		final ExtendedSelector selector;
+		final CSSStyleRule rule;
+		final int order;
+
+		Entry(ExtendedSelector selector, CSSStyleRule rule, int order) {
+			this.selector = selector;
+			this.rule = rule;
+			this.order = order;
+		}
+	}
+
+	private static final int ID = 0;
+	private static final int CLASS = 1;
+	private static final int NAME = 2;
+
+	private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+		public int compare(Entry entry1, Entry entry2) {
+			return entry1.order - entry2.order;
+		}
+	};
+
+	private final Map<String, List<Entry>> byId = new HashMap<String, List<Entry>>();
+	private final Map<String, List<Entry>> byClass = new HashMap<String, List<Entry>>();
+	private final Map<String, List<Entry>> byName = new HashMap<String, List<Entry>>();
+	private final List<Entry> universal = new ArrayList<Entry>();
+
+	/**
+	 * Names of the attributes tested by the selectors, other than id and
+	 * class.
+	 */
+	private final Set<String> attributes = new HashSet<String>();
+
+	/**
+	 * Names of the pseudo classes tested by the selectors.
+	 */
+	private final Set<String> pseudoClasses = new HashSet<String>();
+
+	/**
+	 * Ids, classes, attributes and pseudo classes tested on ancestors of the
+	 * subject of selectors. Only changes to these can change the style of the
+	 * descendants of an element.
+	 */
+	private final Set<String> ancestorIds = new HashSet<String>();
+	private final Set<String> ancestorClasses = new HashSet<String>();
+	private final Set<String> ancestorAttributes = new HashSet<String>();
+	private final Set<String> ancestorPseudoClasses = new HashSet<String>();
+
+	/**
+	 * Whether the selectors only depend on the element and its ancestors, so
+	 * that elements that look the same get the same style.
+	 */
+	private boolean shareable = true;
+
+	/**
+	 * The rule list of the style sheet and the rules it held when the index
+	 * was built, used to detect a replaced rule list or rules added, removed
+	 * or replaced afterwards.
+	 */
+	private final CSSRuleList ruleList;
+	private final CSSRule[] rules;
+
+	/**
+	 * The modification stamp of the rule list when the index was built, if
+	 * the rule list has one.
+	 */
+	private final int modificationStamp;
+
+	StyleRuleIndex(CSSStyleSheet styleSheet) {
+		ruleList = styleSheet.getCssRules();
+		modificationStamp = getModificationStamp(ruleList);
+		rules = new CSSRule[ruleList.getLength()];
+		int order = 0;
+		for (int i = 0; i < rules.length; i++) {
+			CSSRule rule = ruleList.item(i);
+			rules[i] = rule;
+			if (rule.getType() != CSSRule.STYLE_RULE
+					|| !(rule instanceof ExtendedCSSRule)) {
+				continue;
+			}
+			SelectorList selectorList = ((ExtendedCSSRule) rule)
+					.getSelectorList();
+			int l = selectorList.getLength();
+			for (int j = 0; j < l; j++) {
+				Selector selector = selectorList.item(j);
+				if (selector instanceof ExtendedSelector) {
+					add(new Entry((ExtendedSelector) selector,
+							(CSSStyleRule) rule, order++), selector);
+					collectDependencies(selector, false);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether this index still reflects the rules of the given style
+	 * sheet.
+	 */
+	boolean isValid(CSSStyleSheet styleSheet) {
+		CSSRuleList currentList = styleSheet.getCssRules();
+		if (currentList != ruleList)
+			return false;
+		if (currentList instanceof CSSRuleListImpl)
+			return getModificationStamp(currentList) == modificationStamp;
+		if (currentList.getLength() != rules.length)
+			return false;
+		for (int i = 0; i < rules.length; i++) {
+			if (currentList.item(i) != rules[i])
+				return false;
+		}
+		return true;
+	}
+
+	private static int getModificationStamp(CSSRuleList ruleList) {
+		if (ruleList instanceof CSSRuleListImpl)
+			return ((CSSRuleListImpl) ruleList).getModificationStamp();
+		return 0;
+	}
+
+	/**
+	 * Returns whether the selectors of the style sheet only depend on the
+	 * name, id, class, {@link #getAttributes() attributes} and
+	 * {@link #getPseudoClasses() pseudo classes} of an element and its
+	 * ancestors.
+	 */
+	boolean isShareable() {
+		return shareable;
+	}
+
+	/**
+	 * Returns the names of the attributes other than id and class that the
+	 * selectors test.
+	 */
+	Set<String> getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Returns the names of the pseudo classes that the selectors test.
+	 */
+	Set<String> getPseudoClasses() {
+		return pseudoClasses;
+	}
+
+	Set<String> getAncestorIds() {
+		return ancestorIds;
+	}
+
+	Set<String> getAncestorClasses() {
+		return ancestorClasses;
+	}
+
+	Set<String> getAncestorAttributes() {
+		return ancestorAttributes;
+	}
+
+	Set<String> getAncestorPseudoClasses() {
+		return ancestorPseudoClasses;
+	}
+
+	/**
+	 * Returns the entries whose selectors may match the given element, in
+	 * style sheet order.
+	 */
+	List<Entry> getCandidates(Element element) {
+		List<Entry> candidates = new ArrayList<Entry>(universal);
+		List<Entry> bucket = byName.get(getElementName(element));
+		if (bucket != null)
+			candidates.addAll(bucket);
+		String id = getId(element);
+		if (id != null) {
+			bucket = byId.get(id);
+			if (bucket != null)
+				candidates.addAll(bucket);
+		}
+		String cssClass = getCSSClass(element);
+		if (cssClass != null && !byClass.isEmpty()) {
+			int length = cssClass.length();
+			int start = 0;
+			while (start < length) {
+				while (start < length
+						&& Character.isSpaceChar(cssClass.charAt(start)))
+					start++;
+				int end = start;
+				while (end < length
+						&& !Character.isSpaceChar(cssClass.charAt(end)))
+					end++;
+				if (end > start) {
+					bucket = byClass.get(cssClass.substring(start, end));
+					if (bucket != null)
+						candidates.addAll(bucket);
+				}
+				start = end;
+			}
+		}
+		if (candidates.size() > universal.size()) {
+			Collections.sort(candidates, ORDER);
+			// a class listed twice on the element contributes its bucket twice
+			for (int i = candidates.size() - 1; i > 0; i--) {
+				if (candidates.get(i) == candidates.get(i - 1))
+					candidates.remove(i);
+			}
+		}
+		return candidates;
+	}
+
+	private void add(Entry entry, Selector selector) {
+		String[] key = new String[3];
+		fillKey(selector, key);
+		if (key[ID] != null)
+			addTo(byId, key[ID], entry);
+		else if (key[CLASS] != null)
+			addTo(byClass, key[CLASS], entry);
+		else if (key[NAME] != null)
+			addTo(byName, key[NAME], entry);
+		else
+			universal.add(entry);
+	}
+
+	private static void addTo(Map<String, List<Entry>> map, String key,
+			Entry entry) {
+		List<Entry> bucket = map.get(key);
+		if (bucket == null) {
+			bucket = new ArrayList<Entry>(2);
+			map.put(key, bucket);
+		}
+		bucket.add(entry);
+	}
+
+	/**
+	 * Fills in the id, class and element name that the subject of the given
+	 * selector requires, if any.
+	 */
+	private static void fillKey(Selector selector, String[] key) {
+		switch (selector.getSelectorType()) {
+		case Selector.SAC_CONDITIONAL_SELECTOR:
+			ConditionalSelector conditional = (ConditionalSelector) selector;
+			fillKey(conditional.getSimpleSelector(), key);
+			fillKey(conditional.getCondition(), key);
+			break;
+		case Selector.SAC_DESCENDANT_SELECTOR:
+		case Selector.SAC_CHILD_SELECTOR:
+			fillKey(((DescendantSelector) selector).getSimpleSelector(), key);
+			break;
+		case Selector.SAC_DIRECT_ADJACENT_SELECTOR:
+			fillKey(((SiblingSelector) selector).getSiblingSelector(), key);
+			break;
+		case Selector.SAC_ELEMENT_NODE_SELECTOR:
+			key[NAME] = ((ElementSelector) selector).getLocalName();
+			break;
+		}
+	}
+
+	private static void fillKey(Condition condition, String[] key) {
+		switch (condition.getConditionType()) {
+		case Condition.SAC_ID_CONDITION:
+			key[ID] = ((AttributeCondition) condition).getValue();
+			break;
+		case Condition.SAC_CLASS_CONDITION:
+			key[CLASS] = ((AttributeCondition) condition).getValue();
+			break;
+		case Condition.SAC_AND_CONDITION:
+			CombinatorCondition and = (CombinatorCondition) condition;
+			fillKey(and.getFirstCondition(), key);
+			fillKey(and.getSecondCondition(), key);
+			break;
+		}
+	}
+
+	/**
+	 * Collects what the given selector tests. Parts of the selector that
+	 * match ancestors of the subject (the left-hand side of descendant and
+	 * child combinators) are collected as ancestor dependencies too.
+	 */
+	private void collectDependencies(Selector selector, boolean ancestor) {
+		switch (selector.getSelectorType()) {
+		case Selector.SAC_CONDITIONAL_SELECTOR:
+			ConditionalSelector conditional = (ConditionalSelector) selector;
+			collectDependencies(conditional.getSimpleSelector(), ancestor);
+			collectDependencies(conditional.getCondition(), ancestor);
+			break;
+		case Selector.SAC_DESCENDANT_SELECTOR:
+		case Selector.SAC_CHILD_SELECTOR:
+			DescendantSelector descendant = (DescendantSelector) selector;
+			collectDependencies(descendant.getAncestorSelector(), true);
+			collectDependencies(descendant.getSimpleSelector(), ancestor);
+			break;
+		case Selector.SAC_ELEMENT_NODE_SELECTOR:
+			break;
+		default:
+			// siblings and anything unknown
+			shareable = false;
+		}
+	}
+
+	private void collectDependencies(Condition condition, boolean ancestor) {
+		switch (condition.getConditionType()) {
+		case Condition.SAC_AND_CONDITION:
+		case Condition.SAC_OR_CONDITION:
+			CombinatorCondition combinator = (CombinatorCondition) condition;
+			collectDependencies(combinator.getFirstCondition(), ancestor);
+			collectDependencies(combinator.getSecondCondition(), ancestor);
+			break;
+		case Condition.SAC_ID_CONDITION:
+			if (ancestor)
+				ancestorIds.add(((AttributeCondition) condition).getValue());
+			break;
+		case Condition.SAC_CLASS_CONDITION:
+			if (ancestor)
+				ancestorClasses.add(((AttributeCondition) condition)
+						.getValue());
+			break;
+		case Condition.SAC_PSEUDO_CLASS_CONDITION:
+			String pseudoClass = ((AttributeCondition) condition).getValue();
+			pseudoClasses.add(pseudoClass);
+			if (ancestor)
+				ancestorPseudoClasses.add(pseudoClass);
+			break;
+		default:
+			if (condition instanceof ExtendedCondition) {
+				((ExtendedCondition) condition).fillAttributeSet(attributes);
+				if (ancestor)
+					((ExtendedCondition) condition)
+							.fillAttributeSet(ancestorAttributes);
+			} else {
+				shareable = false;
+			}
+		}
+	}
+
+	/**
+	 * Returns the element name the same way element selectors match it.
+	 */
+	static String getElementName(Element element) {
+		if (element.getPrefix() == null)
+			return element.getNodeName();
+		return element.getLocalName();
+	}
+
+	static String getId(Element element) {
+		if (element instanceof CSSStylableElement)
+			return ((CSSStylableElement) element).getCSSId();
+		return element.getAttribute("id");
+	}
+
+	static String getCSSClass(Element element) {
+		if (element instanceof CSSStylableElement)
+			return ((CSSStylableElement) element).getCSSClass();
+		return element.getAttribute("class");
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 Angelo Zerr and others.
+ * Copyright (c) 2008, 2010 Angelo Zerr and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,17 +12,14 @@
 package org.eclipse.e4.ui.css.core.impl.dom;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
-import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
 import org.eclipse.e4.ui.css.core.impl.sac.ExtendedSelector;
-import org.w3c.css.sac.Selector;
-import org.w3c.css.sac.SelectorList;
 import org.w3c.dom.Element;
-import org.w3c.dom.css.CSSRule;
-import org.w3c.dom.css.CSSRuleList;
 import org.w3c.dom.css.CSSStyleDeclaration;
-import org.w3c.dom.css.CSSStyleRule;
 import org.w3c.dom.css.CSSStyleSheet;
 import org.w3c.dom.css.DocumentCSS;
 import org.w3c.dom.css.ViewCSS;
@@ -37,6 +34,16 @@ public class ViewCSSImpl implements ViewCSS {
 
 	protected DocumentCSS documentCSS;
 
+	/**
+	 * Rule indexes of the style sheets, weakly keyed so that indexes of style
+	 * sheets removed from the document go away with them.
+	 */
+	private Map ruleIndexes = new WeakHashMap();
+
+	private long selectorEvaluationCount;
+
+	private ComputedStyleCache styleCache = new ComputedStyleCache();
+
 	/**
 	 * Creates a new ViewCSS.
 	 */
@@ -57,8 +64,24 @@ public class ViewCSSImpl implements ViewCSS {
 	 * org.w3c.dom.css.ViewCSS#getComputedStyle(Element,String)}.
 	 */
 	public CSSStyleDeclaration getComputedStyle(Element elt, String pseudoElt) {
-		// Loop for CSS StyleSheet list parsed
 		StyleSheetList styleSheetList = documentCSS.getStyleSheets();
+		validateStyleCache(styleSheetList);
+		if (!styleCache.isEnabled()) {
+			return computeStyle(styleSheetList, elt, pseudoElt);
+		}
+		String signature = styleCache.getSignature(elt, pseudoElt);
+		if (styleCache.contains(signature)) {
+			return styleCache.get(signature);
+		}
+		CSSStyleDeclaration style = computeStyle(styleSheetList, elt,
+				pseudoElt);
+		styleCache.put(signature, style);
+		return style;
+	}
+
+	private CSSStyleDeclaration computeStyle(StyleSheetList styleSheetList,
+			Element elt, String pseudoElt) {
+		// Loop for CSS StyleSheet list parsed
 		int l = styleSheetList.getLength();
 		for (int i = 0; i < l; i++) {
 			CSSStyleSheet styleSheet = (CSSStyleSheet) styleSheetList.item(i);
@@ -74,54 +97,30 @@ public class ViewCSSImpl implements ViewCSS {
 			Element elt, String pseudoElt) {
 		List styleDeclarations = null;
 		StyleWrapper firstStyleDeclaration = null;
-		CSSRuleList ruleList = styleSheet.getCssRules();
-		int length = ruleList.getLength();
+		List candidates = getRuleIndex(styleSheet).getCandidates(elt);
+		selectorEvaluationCount += candidates.size();
 		int position = 0;
-		for (int i = 0; i < length; i++) {
-			CSSRule rule = ruleList.item(i);
-			switch (rule.getType()) {
-			case CSSRule.STYLE_RULE: {
-				CSSStyleRule styleRule = (CSSStyleRule) rule;
-				if (rule instanceof ExtendedCSSRule) {
-					ExtendedCSSRule r = (ExtendedCSSRule) rule;
-					SelectorList selectorList = r.getSelectorList();
-					// Loop for SelectorList
-					int l = selectorList.getLength();
-					for (int j = 0; j < l; j++) {
-						Selector selector = (Selector) selectorList.item(j);
-						if (selector instanceof ExtendedSelector) {
-							ExtendedSelector extendedSelector = (ExtendedSelector) selector;
-							if (extendedSelector.match(elt, pseudoElt)) {
-								CSSStyleDeclaration style = styleRule
-										.getStyle();
-								int specificity = extendedSelector
-										.getSpecificity();
-								StyleWrapper wrapper = new StyleWrapper(style,
-										specificity, position++);
-								if (firstStyleDeclaration == null) {
-									firstStyleDeclaration = wrapper;
-								} else {
-									// There is several Style Declarations which
-									// match the current element
-									if (styleDeclarations == null) {
-										styleDeclarations = new ArrayList();
-										styleDeclarations
-												.add(firstStyleDeclaration);
-									}
-									styleDeclarations.add(wrapper);
-								}
-							}
-						} else {
-							// TODO : selector is not batik ExtendedSelector,
-							// Manage this case...
-						}
-					}
+		for (Iterator iterator = candidates.iterator(); iterator.hasNext();) {
+			StyleRuleIndex.Entry entry = (StyleRuleIndex.Entry) iterator
+					.next();
+			ExtendedSelector extendedSelector = entry.selector;
+			if (extendedSelector.match(elt, pseudoElt)) {
+				CSSStyleDeclaration style = entry.rule.getStyle();
+				int specificity = extendedSelector.getSpecificity();
+				StyleWrapper wrapper = new StyleWrapper(style, specificity,
+						position++);
+				if (firstStyleDeclaration == null) {
+					firstStyleDeclaration = wrapper;
 				} else {
-					// TODO : CSS rule is not ExtendedCSSRule,
-					// Manage this case...
+					// There is several Style Declarations which
+					// match the current element
+					if (styleDeclarations == null) {
+						styleDeclarations = new ArrayList();
+						styleDeclarations.add(firstStyleDeclaration);
+					}
+					styleDeclarations.add(wrapper);
 				}
 			}
-			}
 		}
 		if (styleDeclarations != null) {
 			// There is several Style Declarations wich match
@@ -133,4 +132,74 @@ public class ViewCSSImpl implements ViewCSS {
 		}
 		return null;
 	}
+
+	/**
+	 * Returns the total number of selectors that have been matched against
+	 * elements by this view. Only the selectors of the rule index buckets an
+	 * element falls into are matched, so this shows how much work computing
+	 * styles costs.
+	 * 
+	 * @return the number of selectors evaluated so far
+	 */
+	public long getSelectorEvaluationCount() {
+		return selectorEvaluationCount;
+	}
+
+	/**
+	 * Returns the number of computed styles that were shared with a
+	 * previously styled element of the same signature (name, id, class,
+	 * tested attributes and pseudo classes, and those of its ancestors).
+	 * 
+	 * @return the number of style cache hits so far
+	 */
+	public long getStyleCacheHitCount() {
+		return styleCache.getHitCount();
+	}
+
+	/**
+	 * Returns the number of computed styles that had to be computed because
+	 * no element of the same signature was styled before.
+	 * 
+	 * @return the number of style cache misses so far
+	 */
+	public long getStyleCacheMissCount() {
+		return styleCache.getMissCount();
+	}
+
+	/**
+	 * Returns a key made of the state of the given element (id, classes,
+	 * attributes and pseudo classes) that selectors test on the ancestors of
+	 * the elements they match. The styles of the descendants of the element
+	 * can only change if this key changes.
+	 * 
+	 * @param elt
+	 *            the element
+	 * @return the key, or <code>null</code> if the style sheets contain
+	 *         selectors for which the key cannot be computed, such as sibling
+	 *         selectors
+	 */
+	public String getDescendantDependencyKey(Element elt) {
+		validateStyleCache(documentCSS.getStyleSheets());
+		if (!styleCache.isEnabled())
+			return null;
+		return styleCache.getDescendantKey(elt);
+	}
+
+	private void validateStyleCache(StyleSheetList styleSheetList) {
+		int l = styleSheetList.getLength();
+		StyleRuleIndex[] indexes = new StyleRuleIndex[l];
+		for (int i = 0; i < l; i++) {
+			indexes[i] = getRuleIndex((CSSStyleSheet) styleSheetList.item(i));
+		}
+		styleCache.validate(indexes);
+	}
+
+	private StyleRuleIndex getRuleIndex(CSSStyleSheet styleSheet) {
+		StyleRuleIndex index = (StyleRuleIndex) ruleIndexes.get(styleSheet);
+		if (index == null || !index.isValid(styleSheet)) {
+			index = new StyleRuleIndex(styleSheet);
+			ruleIndexes.put(styleSheet, index);
+		}
+		return index;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 Angelo Zerr and others.
+ * Copyright (c) 2008, 2010 Angelo Zerr and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -137,6 +137,34 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	//Map containing k: ElementAdapters o: Map of PropertyHandlers (k: name o: handler))
 	public  HashMap propertyHandlerMap = new HashMap();
 
+	/**
+	 * Nesting depth of applyStyles calls, used to attribute the selector
+	 * evaluations of a whole styled subtree to the outermost call.
+	 */
+	private int applyStylesDepth;
+
+	private long lastApplyStylesSelectorEvaluations;
+
+	/**
+	 * Key of the {@link RestyleState} stored in the {@link CSSElementContext}
+	 * of styled elements. The state goes away with the element context, which
+	 * {@link #handleWidgetDisposed(Object)} removes when the widget is
+	 * disposed, and with all element contexts on {@link #dispose()}.
+	 */
+	private static final String RESTYLE_STATE_KEY = "org.eclipse.e4.ui.css.core.restyleState"; //$NON-NLS-1$
+
+	/**
+	 * Values (CSS text keyed by pseudo instance and property name) applied to
+	 * the element being styled, or <code>null</code> if they are not recorded.
+	 */
+	private Map appliedValues;
+
+	/**
+	 * Values applied to the element being restyled the last time it was
+	 * styled. Properties whose value did not change are not applied again.
+	 */
+	private Map previousAppliedValues;
+
 	public AbstractCSSEngine() {
 		this(new DocumentCSSImpl());
 	}
@@ -405,7 +433,102 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	 */
 	public void applyStyles(Object element, boolean applyStylesToChildNodes,
 			boolean computeDefaultStyle) {
+		long evaluations = getSelectorEvaluationCount();
+		applyStylesDepth++;
+		try {
+			internalApplyStyles(element, applyStylesToChildNodes,
+					computeDefaultStyle);
+		} finally {
+			if (--applyStylesDepth == 0)
+				lastApplyStylesSelectorEvaluations = getSelectorEvaluationCount()
+						- evaluations;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.e4.ui.css.core.engine.CSSEngine#restyle(java.lang.Object)
+	 */
+	public void restyle(Object element) {
+		long evaluations = getSelectorEvaluationCount();
+		applyStylesDepth++;
+		try {
+			internalRestyle(element, false);
+		} finally {
+			if (--applyStylesDepth == 0)
+				lastApplyStylesSelectorEvaluations = getSelectorEvaluationCount()
+						- evaluations;
+		}
+	}
+
+	/**
+	 * Restyles the given element, applying only the properties whose value
+	 * changed since it was last styled. Its children are restyled as well if
+	 * <code>ancestorChanged</code> is true or if the element changed in a way
+	 * that selectors testing ancestors can see.
+	 */
+	private void internalRestyle(Object element, boolean ancestorChanged) {
 		Element elt = getElement(element);
+		if (elt == null)
+			return;
+		CSSElementContext elementContext = getCSSElementContext(elt);
+		RestyleState state = elementContext == null ? null
+				: (RestyleState) elementContext.getData(RESTYLE_STATE_KEY);
+		if (state == null || computeDefaultStyle) {
+			// never styled, or default styles must be computed: style the
+			// whole subtree
+			internalApplyStyles(element, true, computeDefaultStyle);
+			return;
+		}
+		internalApplyStyles(element, false, false, state.appliedValues);
+		String descendantKey = getDescendantDependencyKey(elt);
+		if (!ancestorChanged && descendantKey != null
+				&& descendantKey.equals(state.descendantKey))
+			return;
+		NodeList nodes = elt.getChildNodes();
+		if (nodes != null) {
+			for (int k = 0; k < nodes.getLength(); k++) {
+				internalRestyle(nodes.item(k), true);
+			}
+			onStylesAppliedToChildNodes(elt, nodes);
+		}
+	}
+
+	/**
+	 * Returns the key of the element state that selectors testing ancestors
+	 * depend on, or <code>null</code> if it cannot be computed.
+	 */
+	private String getDescendantDependencyKey(Element element) {
+		if (viewCSS instanceof ViewCSSImpl)
+			return ((ViewCSSImpl) viewCSS).getDescendantDependencyKey(element);
+		return null;
+	}
+
+	private void internalApplyStyles(Object element,
+			boolean applyStylesToChildNodes, boolean computeDefaultStyle) {
+		internalApplyStyles(element, applyStylesToChildNodes,
+				computeDefaultStyle, null);
+	}
+
+	private void internalApplyStyles(Object element,
+			boolean applyStylesToChildNodes, boolean computeDefaultStyle,
+			Map previousValues) {
+		Map oldAppliedValues = appliedValues;
+		Map oldPreviousAppliedValues = previousAppliedValues;
+		appliedValues = computeDefaultStyle ? null : new HashMap();
+		previousAppliedValues = previousValues;
+		try {
+			internalApplyStyles(element, getElement(element),
+					applyStylesToChildNodes, computeDefaultStyle);
+		} finally {
+			appliedValues = oldAppliedValues;
+			previousAppliedValues = oldPreviousAppliedValues;
+		}
+	}
+
+	private void internalApplyStyles(Object element, Element elt,
+			boolean applyStylesToChildNodes, boolean computeDefaultStyle) {
 		if (elt != null) {
 			/*
 			 * Compute new Style to apply.
@@ -456,6 +579,7 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 				//applyStyleDeclaration(element, style, null);
 				applyStyleDeclaration(elt, style, null);
 			}
+			storeRestyleState(elt);
 			try {
 				// Apply inline style
 				applyInlineStyle(elt, false);
@@ -479,6 +603,42 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 
 	}
 	
+	/**
+	 * Remembers the values applied to the given element so that
+	 * {@link #restyle(Object)} can skip the unchanged ones, and stops recording
+	 * them: inline styles must always be applied on top.
+	 */
+	private void storeRestyleState(Element elt) {
+		CSSElementContext elementContext = getCSSElementContext(elt);
+		if (elementContext != null) {
+			String descendantKey = appliedValues == null ? null
+					: getDescendantDependencyKey(elt);
+			elementContext.setData(RESTYLE_STATE_KEY,
+					descendantKey == null ? null : new RestyleState(
+							appliedValues, descendantKey));
+		}
+		appliedValues = null;
+		previousAppliedValues = null;
+	}
+
+	/**
+	 * Returns the number of selectors that were matched against elements while
+	 * computing styles in the last (outermost) call to
+	 * {@link #applyStyles(Object, boolean, boolean)}, including the styles of
+	 * child nodes if they were styled as well.
+	 * 
+	 * @return the number of selectors evaluated by the last applyStyles call
+	 */
+	public long getLastApplyStylesSelectorEvaluationCount() {
+		return lastApplyStylesSelectorEvaluations;
+	}
+
+	private long getSelectorEvaluationCount() {
+		if (viewCSS instanceof ViewCSSImpl)
+			return ((ViewCSSImpl) viewCSS).getSelectorEvaluationCount();
+		return 0;
+	}
+
 	private void applyConditionalPseudoStyle(ExtendedCSSRule parentRule, String pseudoInstance, Object element, CSSStyleDeclaration styleWithPseudoInstance) {
 		SelectorList selectorList = parentRule.getSelectorList();
 		for (int j = 0; j < selectorList.getLength(); j++) {
@@ -536,6 +696,16 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		for (int i = 0; i < style.getLength(); i++) {
 			String property = style.item(i);
 			CSSValue value = style.getPropertyCSSValue(property);
+			if (appliedValues != null && value != null) {
+				String key = pseudo == null ? property : pseudo + ':'
+						+ property;
+				String cssText = value.getCssText();
+				appliedValues.put(key, cssText);
+				if (previousAppliedValues != null
+						&& cssText.equals(previousAppliedValues.get(key)))
+					// unchanged since the element was last styled
+					continue;
+			}
 			try {
 				ICSSPropertyHandler handler = this.applyCSSProperty(element,
 						property, value, pseudo);
@@ -1166,4 +1336,18 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	 */
 	public abstract CSSParser makeCSSParser();
 
+	/**
+	 * What {@link AbstractCSSEngine#restyle(Object)} needs to know about the
+	 * last time an element was styled.
+	 */
+	private static class RestyleState {
+		final Map appliedValues;
+
+		final String descendantKey;
+
+		RestyleState(Map appliedValues, String descendantKey) {
+			this.appliedValues = appliedValues;
+			this.descendantKey = descendantKey;
+		}
+	}
 }
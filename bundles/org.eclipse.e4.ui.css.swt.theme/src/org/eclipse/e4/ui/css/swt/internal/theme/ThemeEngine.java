@@ -34,7 +34,7 @@ import org.eclipse.e4.ui.css.core.util.impl.resources.OSGiResourceLocator;
 import org.eclipse.e4.ui.css.core.util.resources.IResourceLocator;
 import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
 import org.eclipse.e4.ui.css.swt.theme.ITheme;
-import org.eclipse.e4.ui.css.swt.theme.IThemeEngine;
+import org.eclipse.e4.ui.css.swt.theme.IThemeEngine2;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
@@ -46,7 +46,7 @@ import org.w3c.css.sac.InputSource;
 import org.w3c.dom.Element;
 import org.w3c.dom.css.CSSStyleDeclaration;
 
-public class ThemeEngine implements IThemeEngine {
+public class ThemeEngine implements IThemeEngine2 {
 	private List<Theme> themes = new ArrayList<Theme>();
 
 	private CSSEngine engine;
@@ -372,6 +372,10 @@ public class ThemeEngine implements IThemeEngine {
 		engine.applyStyles(widget, applyStylesToChildNodes);
 	}
 
+	public void restyle(Widget widget) {
+		engine.restyle(widget);
+	}
+
 	// TODO may not be ideal??
 	// see https://bugs.eclipse.org/bugs/show_bug.cgi?id=312842
 	public CSSEngine getCSSEngine() {
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.swt.theme;
+
+import org.eclipse.swt.widgets.Widget;
+
+/**
+ * Extension interface for {@link IThemeEngine}, adding the restyling of a
+ * widget after its CSS class or id changed.
+ *
+ * @since 0.10
+ */
+public interface IThemeEngine2 extends IThemeEngine {
+
+	/**
+	 * Reapply the style to the widget after its CSS class or id changed. Only
+	 * the properties whose value changed are applied, and the children are
+	 * only updated if the change affects them. Use
+	 * {@link #applyStyles(Widget, boolean)} to apply the style again for any
+	 * other reason.
+	 *
+	 * @param widget
+	 *            the widget
+	 * @see org.eclipse.e4.ui.css.core.engine.CSSEngine#restyle(Object)
+	 */
+	public void restyle(Widget widget);
+}
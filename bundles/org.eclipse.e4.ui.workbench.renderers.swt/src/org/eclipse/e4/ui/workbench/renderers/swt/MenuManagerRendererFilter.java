@@ -268,8 +268,16 @@ public class MenuManagerRendererFilter implements Listener {
 		} else {
 			evalContext = modelService.getContainingContext(menuModel);
 		}
+		long evaluations = ContributionsAnalyzer.getVisibilityEvaluationCount();
+		long saved = ContributionsAnalyzer
+				.getSavedVisibilityEvaluationCount();
 		updateElementVisibility(menuModel, renderer, menuManager, evalContext,
 				true);
+		trace("showMenu: " //$NON-NLS-1$
+				+ (ContributionsAnalyzer.getVisibilityEvaluationCount() - evaluations)
+				+ " visibility evaluations, " //$NON-NLS-1$
+				+ (ContributionsAnalyzer.getSavedVisibilityEvaluationCount() - saved)
+				+ " saved", menu, menuModel); //$NON-NLS-1$
 
 		// last thing to do, kill the event and update the menu manager
 		event.type = SWT.None;
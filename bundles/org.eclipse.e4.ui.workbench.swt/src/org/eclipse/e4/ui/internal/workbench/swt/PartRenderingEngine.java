@@ -37,6 +37,7 @@ import org.eclipse.e4.ui.bindings.keys.KeyBindingDispatcher;
 import org.eclipse.e4.ui.css.core.util.impl.resources.OSGiResourceLocator;
 import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
 import org.eclipse.e4.ui.css.swt.theme.IThemeEngine;
+import org.eclipse.e4.ui.css.swt.theme.IThemeEngine2;
 import org.eclipse.e4.ui.css.swt.theme.IThemeManager;
 import org.eclipse.e4.ui.internal.workbench.Activator;
 import org.eclipse.e4.ui.internal.workbench.E4Workbench;
@@ -1115,12 +1116,12 @@ public class PartRenderingEngine implements IPresentationEngine {
 				public void setClassname(Object widget, String classname) {
 					((Widget) widget).setData(
 							"org.eclipse.e4.ui.css.CssClassName", classname); //$NON-NLS-1$
-					engine.applyStyles((Widget) widget, true);
+					restyle(engine, (Widget) widget);
 				}
 
 				public void setId(Object widget, String id) {
 					((Widget) widget).setData("org.eclipse.e4.ui.css.id", id); //$NON-NLS-1$
-					engine.applyStyles((Widget) widget, true);
+					restyle(engine, (Widget) widget);
 				}
 
 				public void style(Object widget) {
@@ -1136,7 +1137,7 @@ public class PartRenderingEngine implements IPresentationEngine {
 					((Widget) widget).setData(
 							"org.eclipse.e4.ui.css.CssClassName", classname); //$NON-NLS-1$
 					((Widget) widget).setData("org.eclipse.e4.ui.css.id", id); //$NON-NLS-1$
-					engine.applyStyles((Widget) widget, true);
+					restyle(engine, (Widget) widget);
 				}
 
 			});
@@ -1153,12 +1154,12 @@ public class PartRenderingEngine implements IPresentationEngine {
 				public void setClassname(Object widget, String classname) {
 					((Widget) widget).setData(
 							"org.eclipse.e4.ui.css.CssClassName", classname); //$NON-NLS-1$
-					engine.applyStyles((Widget) widget, true);
+					engine.restyle((Widget) widget);
 				}
 
 				public void setId(Object widget, String id) {
 					((Widget) widget).setData("org.eclipse.e4.ui.css.id", id); //$NON-NLS-1$
-					engine.applyStyles((Widget) widget, true);
+					engine.restyle((Widget) widget);
 				}
 
 				public void style(Object widget) {
@@ -1179,7 +1180,7 @@ public class PartRenderingEngine implements IPresentationEngine {
 					((Widget) widget).setData(
 							"org.eclipse.e4.ui.css.CssClassName", classname); //$NON-NLS-1$
 					((Widget) widget).setData("org.eclipse.e4.ui.css.id", id); //$NON-NLS-1$
-					engine.applyStyles((Widget) widget, true);
+					engine.restyle((Widget) widget);
 				}
 
 			});
@@ -1223,4 +1224,16 @@ public class PartRenderingEngine implements IPresentationEngine {
 		}
 
 	}
+
+	/**
+	 * Restyles the widget after its CSS class or id changed, or applies its
+	 * styles again if the engine cannot restyle it.
+	 */
+	private static void restyle(IThemeEngine engine, Widget widget) {
+		if (engine instanceof IThemeEngine2) {
+			((IThemeEngine2) engine).restyle(widget);
+		} else {
+			engine.applyStyles(widget, true);
+		}
+	}
 }
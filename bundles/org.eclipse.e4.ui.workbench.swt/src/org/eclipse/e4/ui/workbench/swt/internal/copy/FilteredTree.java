@@ -27,6 +27,7 @@ import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.viewers.IContentProvider;
 import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.LabelProviderChangedEvent;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.SWT;
@@ -130,6 +131,23 @@ public class FilteredTree extends Composite {
 	 */
 	private Job refreshJob;
 
+	/**
+	 * The job matching the cached labels against the filter text before the
+	 * tree is refreshed.
+	 */
+	private Job matchJob;
+
+	/**
+	 * The filter text the match job is scheduled for.
+	 */
+	private String matchText;
+
+	/**
+	 * Whether the refresh job is refreshing the tree, which keeps the caches
+	 * of the pattern filter.
+	 */
+	private boolean refreshingFilter;
+
 	/**
 	 * The parent composite of the filtered tree.
 	 * 
@@ -412,11 +430,13 @@ public class FilteredTree extends Composite {
 			 * .swt.events.DisposeEvent)
 			 */
 			public void widgetDisposed(DisposeEvent e) {
+				matchJob.cancel();
 				refreshJob.cancel();
 			}
 		});
 		if (treeViewer instanceof NotifyingTreeViewer) {
 			patternFilter.setUseCache(true);
+			patternFilter.setUseLabelCache(true);
 		}
 		treeViewer.addFilter(patternFilter);
 		return treeViewer.getControl();
@@ -464,6 +484,17 @@ public class FilteredTree extends Composite {
 	private void createRefreshJob() {
 		refreshJob = doCreateRefreshJob();
 		refreshJob.setSystem(true);
+		matchJob = new Job("Match Filter") {//$NON-NLS-1$
+			protected IStatus run(IProgressMonitor monitor) {
+				patternFilter.prepareMatches(matchText, monitor);
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				refreshJob.schedule();
+				return Status.OK_STATUS;
+			}
+		};
+		matchJob.setSystem(true);
 	}
 
 	/**
@@ -513,7 +544,13 @@ public class FilteredTree extends Composite {
 							}
 						}
 					}
-					treeViewer.refresh(true);
+					// the labels did not change, only the pattern did
+					refreshingFilter = true;
+					try {
+						treeViewer.refresh(true);
+					} finally {
+						refreshingFilter = false;
+					}
 
 					if (text.length() > 0 && !initial) {
 						/*
@@ -868,8 +905,17 @@ public class FilteredTree extends Composite {
 				|| getFilterString().startsWith(previousFilterText);
 		previousFilterText = getFilterString();
 		// cancel currently running job first, to prevent unnecessary redraw
+		matchJob.cancel();
 		refreshJob.cancel();
-		refreshJob.schedule(getRefreshJobDelay());
+		if (treeViewer instanceof NotifyingTreeViewer
+				&& previousFilterText != null
+				&& !previousFilterText.equals(initialText)) {
+			// match the cached labels before the tree is refreshed
+			matchText = previousFilterText;
+			matchJob.schedule(getRefreshJobDelay());
+		} else {
+			refreshJob.schedule(getRefreshJobDelay());
+		}
 	}
 
 	/**
@@ -1191,7 +1237,8 @@ public class FilteredTree extends Composite {
 
 	/**
 	 * Custom tree viewer subclass that clears the caches in patternFilter on
-	 * any change to the tree. See bug 187200.
+	 * any change to the tree. See bug 187200. The caches are kept when the
+	 * tree is refreshed for a new filter text.
 	 * 
 	 * @since 3.3
 	 * 
@@ -1228,25 +1275,42 @@ public class FilteredTree extends Composite {
 		}
 
 		public void refresh() {
-			getPatternFilter().clearCaches();
+			clearCaches();
 			super.refresh();
 		}
 
 		public void refresh(boolean updateLabels) {
-			getPatternFilter().clearCaches();
+			clearCaches();
 			super.refresh(updateLabels);
 		}
 
 		public void refresh(Object element) {
-			getPatternFilter().clearCaches();
+			clearCaches();
 			super.refresh(element);
 		}
 
 		public void refresh(Object element, boolean updateLabels) {
-			getPatternFilter().clearCaches();
+			clearCaches();
 			super.refresh(element, updateLabels);
 		}
 
+		private void clearCaches() {
+			if (!refreshingFilter) {
+				getPatternFilter().clearCaches();
+			}
+		}
+
+		protected void handleLabelProviderChanged(
+				LabelProviderChangedEvent event) {
+			getPatternFilter().clearLabels(event.getElements());
+			super.handleLabelProviderChanged(event);
+		}
+
+		public void update(Object element, String[] properties) {
+			getPatternFilter().clearLabels(new Object[] { element });
+			super.update(element, properties);
+		}
+
 		public void remove(Object elementsOrTreePaths) {
 			getPatternFilter().clearCaches();
 			super.remove(elementsOrTreePaths);
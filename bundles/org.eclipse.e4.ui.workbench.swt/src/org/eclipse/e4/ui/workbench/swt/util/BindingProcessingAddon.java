@@ -11,6 +11,7 @@
 
 package org.eclipse.e4.ui.workbench.swt.util;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -127,23 +128,26 @@ public class BindingProcessingAddon {
 			table = new BindingTable(bindingContext);
 			bindingTables.addTable(table);
 		}
-		for (MKeyBinding binding : bindingTable.getBindings()) {
-			defineBinding(table, bindingContext, binding);
-		}
+		defineBindings(table, bindingContext, bindingTable.getBindings());
 	}
 
 	/**
 	 * @param bindingTable
-	 * @param binding
+	 * @param bindingContext
+	 * @param bindings
 	 */
-	private void defineBinding(BindingTable bindingTable,
-			Context bindingContext, MKeyBinding binding) {
-		Binding keyBinding = createBinding(bindingContext,
-				binding.getCommand(), binding.getParameters(),
-				binding.getKeySequence(), binding);
-		if (keyBinding != null) {
-			bindingTable.addBinding(keyBinding);
+	private void defineBindings(BindingTable bindingTable,
+			Context bindingContext, List<MKeyBinding> bindings) {
+		List<Binding> keyBindings = new ArrayList<Binding>(bindings.size());
+		for (MKeyBinding binding : bindings) {
+			Binding keyBinding = createBinding(bindingContext,
+					binding.getCommand(), binding.getParameters(),
+					binding.getKeySequence(), binding);
+			if (keyBinding != null) {
+				keyBindings.add(keyBinding);
+			}
 		}
+		bindingTable.addBindings(keyBindings);
 	}
 
 	private Binding createBinding(Context bindingContext, MCommand cmdModel,
@@ -279,16 +283,7 @@ public class BindingProcessingAddon {
 						final BindingTable table = new BindingTable(
 								bindingContext);
 						bindingTables.addTable(table);
-						List<MKeyBinding> bindings = bt.getBindings();
-						for (MKeyBinding binding : bindings) {
-							Binding keyBinding = createBinding(bindingContext,
-									binding.getCommand(),
-									binding.getParameters(),
-									binding.getKeySequence(), binding);
-							if (keyBinding != null) {
-								table.addBinding(keyBinding);
-							}
-						}
+						defineBindings(table, bindingContext, bt.getBindings());
 					}
 				} else if (elementObj instanceof MBindingTable) {
 					Object newObj = event
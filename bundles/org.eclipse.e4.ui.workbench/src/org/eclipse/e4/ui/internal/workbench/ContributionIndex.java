@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.commands.MCommand;
+import org.eclipse.e4.ui.model.application.impl.ApplicationPackageImpl;
+import org.eclipse.e4.ui.model.application.ui.menu.MMenuContribution;
+import org.eclipse.e4.ui.model.application.ui.menu.impl.MenuPackageImpl;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * Index of the menu contributions of an application by parent id, and of its commands by id,
+ * kept up to date from the notifications of the model.
+ * <p>
+ * The index is attached as an adapter to the application, to its menu contributions and to its
+ * commands. Contributions and commands are indexed in the order of the lists of the
+ * application; changes that cannot be applied without losing that order (such as the insertion
+ * of a contribution before others, or a change of parent id) invalidate the affected part of
+ * the index, which is rebuilt on the next query.
+ * </p>
+ */
+final class ContributionIndex extends AdapterImpl {
+
+	/**
+	 * What a contribution was indexed with, so that it can be removed even after it changed.
+	 */
+	private static class Entry {
+		final String parentId;
+		final int position;
+
+		Entry(String parentId, int position) {
+			this.parentId = parentId;
+			this.position = position;
+		}
+	}
+
+	/**
+	 * Returns the index of the given application, attaching a new one if needed.
+	 */
+	static ContributionIndex getIndex(MApplication application) {
+		List<Adapter> adapters = ((EObject) application).eAdapters();
+		for (Adapter adapter : adapters) {
+			if (adapter instanceof ContributionIndex)
+				return (ContributionIndex) adapter;
+		}
+		ContributionIndex index = new ContributionIndex(application);
+		adapters.add(index);
+		return index;
+	}
+
+	private final MApplication application;
+
+	private boolean contributionsValid;
+
+	private Map<MMenuContribution, Entry> entries = new HashMap<MMenuContribution, Entry>();
+
+	private Map<String, List<MMenuContribution>> contributionsByParentId = new HashMap<String, List<MMenuContribution>>();
+
+	private int nextPosition;
+
+	private boolean commandsValid;
+
+	private Map<String, MCommand> commandsById = new HashMap<String, MCommand>();
+
+	private ContributionIndex(MApplication application) {
+		this.application = application;
+	}
+
+	/**
+	 * Returns the menu contributions of the application whose parent id is one of the given ids,
+	 * in the order of the application's list.
+	 */
+	List<MMenuContribution> getMenuContributions(Collection<String> parentIds) {
+		if (!contributionsValid)
+			rebuildContributions();
+		List<MMenuContribution> result = new ArrayList<MMenuContribution>();
+		parentIds = new LinkedHashSet<String>(parentIds);
+		for (String parentId : parentIds) {
+			List<MMenuContribution> contributions = contributionsByParentId.get(parentId);
+			if (contributions != null)
+				result.addAll(contributions);
+		}
+		if (parentIds.size() > 1) {
+			Collections.sort(result, new Comparator<MMenuContribution>() {
+				public int compare(MMenuContribution c1, MMenuContribution c2) {
+					return entries.get(c1).position - entries.get(c2).position;
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the first command of the application with the given id, or <code>null</code>.
+	 */
+	MCommand getCommand(String id) {
+		if (!commandsValid)
+			rebuildCommands();
+		return commandsById.get(id);
+	}
+
+	@Override
+	public void notifyChanged(Notification msg) {
+		if (msg.isTouch())
+			return;
+		Object feature = msg.getFeature();
+		if (msg.getNotifier() == application) {
+			if (feature == MenuPackageImpl.Literals.MENU_CONTRIBUTIONS__MENU_CONTRIBUTIONS)
+				contributionsChanged(msg);
+			else if (feature == ApplicationPackageImpl.Literals.APPLICATION__COMMANDS)
+				commandsChanged(msg);
+		} else if (feature == MenuPackageImpl.Literals.MENU_CONTRIBUTION__PARENT_ID) {
+			contributionsValid = false;
+		} else if (feature == ApplicationPackageImpl.Literals.APPLICATION_ELEMENT__ELEMENT_ID
+				&& msg.getNotifier() instanceof MCommand) {
+			commandsValid = false;
+		}
+	}
+
+	private void contributionsChanged(Notification msg) {
+		int size = application.getMenuContributions().size();
+		switch (msg.getEventType()) {
+		case Notification.ADD:
+			if (contributionsValid && msg.getPosition() == size - 1)
+				add((MMenuContribution) msg.getNewValue());
+			else
+				contributionsValid = false;
+			break;
+		case Notification.ADD_MANY:
+			List<?> added = (List<?>) msg.getNewValue();
+			if (contributionsValid && msg.getPosition() == size - added.size()) {
+				for (Object contribution : added) {
+					add((MMenuContribution) contribution);
+				}
+			} else {
+				contributionsValid = false;
+			}
+			break;
+		case Notification.REMOVE:
+			remove((MMenuContribution) msg.getOldValue());
+			break;
+		case Notification.REMOVE_MANY:
+			for (Object contribution : (List<?>) msg.getOldValue()) {
+				remove((MMenuContribution) contribution);
+			}
+			break;
+		default:
+			contributionsValid = false;
+		}
+	}
+
+	private void commandsChanged(Notification msg) {
+		int size = application.getCommands().size();
+		switch (msg.getEventType()) {
+		case Notification.ADD:
+			if (commandsValid && msg.getPosition() == size - 1)
+				add((MCommand) msg.getNewValue());
+			else
+				commandsValid = false;
+			break;
+		case Notification.ADD_MANY:
+			List<?> added = (List<?>) msg.getNewValue();
+			if (commandsValid && msg.getPosition() == size - added.size()) {
+				for (Object command : added) {
+					add((MCommand) command);
+				}
+			} else {
+				commandsValid = false;
+			}
+			break;
+		case Notification.REMOVE:
+			remove((MCommand) msg.getOldValue());
+			break;
+		case Notification.REMOVE_MANY:
+			for (Object command : (List<?>) msg.getOldValue()) {
+				remove((MCommand) command);
+			}
+			break;
+		default:
+			commandsValid = false;
+		}
+	}
+
+	private void rebuildContributions() {
+		entries.clear();
+		contributionsByParentId.clear();
+		nextPosition = 0;
+		for (MMenuContribution contribution : application.getMenuContributions()) {
+			add(contribution);
+		}
+		contributionsValid = true;
+	}
+
+	private void rebuildCommands() {
+		commandsById.clear();
+		for (MCommand command : application.getCommands()) {
+			add(command);
+		}
+		commandsValid = true;
+	}
+
+	private void add(MMenuContribution contribution) {
+		listen(contribution);
+		String parentId = contribution.getParentId();
+		entries.put(contribution, new Entry(parentId, nextPosition++));
+		List<MMenuContribution> contributions = contributionsByParentId.get(parentId);
+		if (contributions == null) {
+			contributions = new ArrayList<MMenuContribution>();
+			contributionsByParentId.put(parentId, contributions);
+		}
+		contributions.add(contribution);
+	}
+
+	private void remove(MMenuContribution contribution) {
+		((EObject) contribution).eAdapters().remove(this);
+		if (!contributionsValid)
+			return;
+		Entry entry = entries.remove(contribution);
+		if (entry == null)
+			return;
+		List<MMenuContribution> contributions = contributionsByParentId.get(entry.parentId);
+		contributions.remove(contribution);
+		if (contributions.isEmpty())
+			contributionsByParentId.remove(entry.parentId);
+	}
+
+	private void add(MCommand command) {
+		listen(command);
+		String id = command.getElementId();
+		if (id != null && !commandsById.containsKey(id))
+			commandsById.put(id, command);
+	}
+
+	private void remove(MCommand command) {
+		((EObject) command).eAdapters().remove(this);
+		String id = command.getElementId();
+		if (commandsValid && id != null && commandsById.get(id) == command) {
+			// another command may have the same id
+			commandsValid = false;
+		}
+	}
+
+	private void listen(Object element) {
+		List<Adapter> adapters = ((EObject) element).eAdapters();
+		if (!adapters.contains(this))
+			adapters.add(this);
+	}
+}
@@ -11,11 +11,15 @@
 
 package org.eclipse.e4.ui.internal.workbench;
 
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import org.eclipse.core.expressions.EvaluationResult;
 import org.eclipse.core.expressions.Expression;
 import org.eclipse.core.expressions.ExpressionInfo;
@@ -41,8 +45,10 @@ import org.eclipse.e4.ui.model.application.ui.menu.MToolBarContribution;
 import org.eclipse.e4.ui.model.application.ui.menu.MToolBarElement;
 import org.eclipse.e4.ui.model.application.ui.menu.MToolBarSeparator;
 import org.eclipse.e4.ui.model.application.ui.menu.MTrimContribution;
+import org.eclipse.e4.ui.model.application.ui.menu.impl.MenuPackageImpl;
 import org.eclipse.e4.ui.workbench.modeling.ExpressionContext;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 
 public final class ContributionsAnalyzer {
@@ -131,7 +137,19 @@ public final class ContributionsAnalyzer {
 				}
 			}
 		}
-		for (MMenuContribution menuContribution : menuContributionList) {
+		ContributionIndex index = getIndex(menuContributionList);
+		List<MMenuContribution> candidates = menuContributionList;
+		if (index != null) {
+			ArrayList<String> parentIds = new ArrayList<String>(popupIds);
+			if (!parentIds.contains(id)) {
+				parentIds.add(id);
+			}
+			if (includePopups && menuModel instanceof MPopupMenu) {
+				parentIds.add(POPUP_PARENT_ID);
+			}
+			candidates = index.getMenuContributions(parentIds);
+		}
+		for (MMenuContribution menuContribution : candidates) {
 			String parentID = menuContribution.getParentId();
 			if (parentID == null) {
 				// it doesn't make sense for this to be null, temporary workaround for bug 320790
@@ -157,7 +175,17 @@ public final class ContributionsAnalyzer {
 			return;
 		}
 		boolean menuBar = (((MUIElement) ((EObject) menuModel).eContainer()) instanceof MWindow);
-		for (MMenuContribution menuContribution : menuContributionList) {
+		ContributionIndex index = getIndex(menuContributionList);
+		List<MMenuContribution> candidates = menuContributionList;
+		if (index != null) {
+			ArrayList<String> parentIds = new ArrayList<String>();
+			parentIds.add(id);
+			if (includePopups && menuModel instanceof MPopupMenu) {
+				parentIds.add(POPUP_PARENT_ID);
+			}
+			candidates = index.getMenuContributions(parentIds);
+		}
+		for (MMenuContribution menuContribution : candidates) {
 			String parentID = menuContribution.getParentId();
 			if (parentID == null) {
 				// it doesn't make sense for this to be null, temporary workaround for bug 320790
@@ -175,6 +203,21 @@ public final class ContributionsAnalyzer {
 		}
 	}
 
+	/**
+	 * Returns the index of the application owning the given list, if it is the list of menu
+	 * contributions of an application.
+	 */
+	private static ContributionIndex getIndex(List<MMenuContribution> menuContributionList) {
+		if (menuContributionList instanceof EStructuralFeature.Setting) {
+			EStructuralFeature.Setting setting = (EStructuralFeature.Setting) menuContributionList;
+			if (setting.getEObject() instanceof MApplication
+					&& setting.getEStructuralFeature() == MenuPackageImpl.Literals.MENU_CONTRIBUTIONS__MENU_CONTRIBUTIONS) {
+				return ContributionIndex.getIndex((MApplication) setting.getEObject());
+			}
+		}
+		return null;
+	}
+
 	static boolean isFiltered(MMenu menuModel, MMenuContribution menuContribution,
 			boolean includePopups) {
 		if (includePopups || menuModel.getTags().contains(ContributionsAnalyzer.MC_POPUP)) {
@@ -224,6 +267,110 @@ public final class ContributionsAnalyzer {
 		return isVisible((MCoreExpression) contribution.getVisibleWhen(), eContext);
 	}
 
+	/**
+	 * The result of the last evaluation of a visibility expression, along with the values of the
+	 * variables it read. The result stays valid as long as these variables keep their values. The
+	 * values are weakly referenced, and the result is no longer valid once one of them was
+	 * garbage collected.
+	 */
+	private static class VisibilityResult {
+		/**
+		 * Stands for a <code>null</code> value, which cannot be told apart from a collected one.
+		 */
+		private static final Object NULL = new Object();
+
+		final Expression expression;
+		final String[] variables;
+		final boolean defaultVariable;
+		final Reference<?>[] values;
+		final boolean visible;
+
+		VisibilityResult(Expression expression, ExpressionInfo info, ExpressionContext eContext,
+				boolean visible) {
+			this.expression = expression;
+			this.variables = info.getAccessedVariableNames();
+			this.defaultVariable = info.isAccessingDefaultVariable();
+			this.values = new Reference<?>[variables.length + 1];
+			Object[] current = getValues(eContext);
+			for (int i = 0; i < current.length; i++) {
+				values[i] = new WeakReference<Object>(current[i] == null ? NULL : current[i]);
+			}
+			this.visible = visible;
+		}
+
+		private Object[] getValues(ExpressionContext eContext) {
+			Object[] current = new Object[variables.length + 1];
+			for (int i = 0; i < variables.length; i++) {
+				current[i] = eContext.getVariable(variables[i]);
+			}
+			if (defaultVariable) {
+				current[variables.length] = eContext.getDefaultVariable();
+			}
+			return current;
+		}
+
+		boolean isValid(Expression expression, ExpressionContext eContext) {
+			if (this.expression != expression) {
+				return false;
+			}
+			Object[] current = getValues(eContext);
+			for (int i = 0; i < current.length; i++) {
+				Object value = values[i].get();
+				if (value == null) {
+					// collected, the variable changed since
+					return false;
+				}
+				if (value == NULL) {
+					if (current[i] != null) {
+						return false;
+					}
+				} else if (value != current[i] && !value.equals(current[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The results of the visibility expressions whose dependencies could be collected. Guarded
+	 * by itself, as the counters.
+	 */
+	private static final Map<MCoreExpression, VisibilityResult> visibilityResults = new WeakHashMap<MCoreExpression, VisibilityResult>();
+
+	private static long visibilityEvaluations = 0;
+
+	private static long savedVisibilityEvaluations = 0;
+
+	/**
+	 * Returns the number of times a visibility expression was evaluated by
+	 * {@link #isVisible(MCoreExpression, ExpressionContext)}.
+	 */
+	public static long getVisibilityEvaluationCount() {
+		synchronized (visibilityResults) {
+			return visibilityEvaluations;
+		}
+	}
+
+	/**
+	 * Returns the number of times {@link #isVisible(MCoreExpression, ExpressionContext)} answered
+	 * from the result of a previous evaluation, because none of the variables read by the
+	 * expression changed.
+	 */
+	public static long getSavedVisibilityEvaluationCount() {
+		synchronized (visibilityResults) {
+			return savedVisibilityEvaluations;
+		}
+	}
+
+	/**
+	 * Returns whether the expression evaluates to a result other than
+	 * {@link EvaluationResult#FALSE}. The result is remembered along with the variables that the
+	 * expression reads, as reported by {@link Expression#collectExpressionInfo(ExpressionInfo)},
+	 * and the expression is only evaluated again once one of these variables changes. Expressions
+	 * whose dependencies cannot be collected are evaluated every time, as are expressions that test
+	 * properties or system properties: these may answer differently for the same variables.
+	 */
 	public static boolean isVisible(MCoreExpression exp, ExpressionContext eContext) {
 		Expression ref = null;
 		if (exp.getCoreExpression() instanceof Expression) {
@@ -232,12 +379,41 @@ public final class ContributionsAnalyzer {
 			ref = new ReferenceExpression(exp.getCoreExpressionId());
 			exp.setCoreExpression(ref);
 		}
+		VisibilityResult result;
+		synchronized (visibilityResults) {
+			result = visibilityResults.get(exp);
+		}
+		boolean valid = result != null && result.isValid(ref, eContext);
+		synchronized (visibilityResults) {
+			if (valid) {
+				savedVisibilityEvaluations++;
+				return result.visible;
+			}
+			visibilityEvaluations++;
+		}
+		boolean visible;
 		try {
-			return ref.evaluate(eContext) != EvaluationResult.FALSE;
+			visible = ref.evaluate(eContext) != EvaluationResult.FALSE;
 		} catch (CoreException e) {
 			trace("isVisible exception", e); //$NON-NLS-1$
+			return false;
 		}
-		return false;
+		ExpressionInfo info = new ExpressionInfo();
+		ref.collectExpressionInfo(info);
+		result = null;
+		if (!info.hasNonStandardElements() && info.getMisbehavingExpressionTypes() == null
+				&& info.getAccessedPropertyNames().length == 0
+				&& !info.hasSystemPropertyAccess()) {
+			result = new VisibilityResult(ref, info, eContext, visible);
+		}
+		synchronized (visibilityResults) {
+			if (result == null) {
+				visibilityResults.remove(exp);
+			} else {
+				visibilityResults.put(exp, result);
+			}
+		}
+		return visible;
 	}
 
 	public static void addMenuContributions(final MMenu menuModel,
@@ -385,13 +561,7 @@ public final class ContributionsAnalyzer {
 	}
 
 	public static MCommand getCommandById(MApplication app, String cmdId) {
-		final List<MCommand> cmds = app.getCommands();
-		for (MCommand cmd : cmds) {
-			if (cmdId.equals(cmd.getElementId())) {
-				return cmd;
-			}
-		}
-		return null;
+		return ContributionIndex.getIndex(app).getCommand(cmdId);
 	}
 
 	static class Key {
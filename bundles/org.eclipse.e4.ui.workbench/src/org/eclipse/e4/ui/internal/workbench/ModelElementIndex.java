@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * Copyright (c) 2010, 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.ui.MElementContainer;
+import org.eclipse.e4.ui.model.application.ui.MUIElement;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPerspective;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
+import org.eclipse.e4.ui.model.application.ui.basic.MTrimmedWindow;
+import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
+import org.eclipse.e4.ui.workbench.UIEvents;
+import org.eclipse.e4.ui.workbench.UIEvents.EventTags;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.osgi.service.event.Event;
+
+/**
+ * Index of the UI elements of an application by element id and by tag, kept up to date from
+ * the model events published for the application.
+ * <p>
+ * Searches started from an element of an application whose changes are published by a
+ * {@link UIEventPublisher} look up the candidates in the index and only keep those that the
+ * recursive search of {@link ModelServiceImpl} would reach from the search root, in the order in
+ * which it would reach them. To do so, the index also remembers which placeholders reference
+ * each element.
+ * </p>
+ * <p>
+ * Events that do not carry enough information to update the index (such as the addition of
+ * several elements at once) invalidate it; it is then rebuilt on the next search.
+ * </p>
+ */
+class ModelElementIndex {
+
+	// the order in which the recursive search visits the parts of an element
+	private static final int CHILDREN = 0;
+	private static final int TRIM_BARS = 1;
+	private static final int WINDOWS = 2;
+	private static final int REFERENCE = 3;
+
+	private static final Comparator<int[]> WALK_ORDER = new Comparator<int[]>() {
+		public int compare(int[] path1, int[] path2) {
+			int length = Math.min(path1.length, path2.length);
+			for (int i = 0; i < length; i++) {
+				if (path1[i] != path2[i])
+					return path1[i] < path2[i] ? -1 : 1;
+			}
+			return path1.length - path2.length;
+		}
+	};
+
+	/**
+	 * What an element was indexed with, so that it can be removed even after it changed.
+	 */
+	private static class Entry {
+		String id;
+		List<String> tags;
+		MUIElement ref;
+	}
+
+	private MApplication application;
+
+	private boolean valid;
+
+	private Map<MUIElement, Entry> entries = new HashMap<MUIElement, Entry>();
+
+	private Map<String, Set<MUIElement>> elementsById = new HashMap<String, Set<MUIElement>>();
+
+	private Map<String, Set<MUIElement>> elementsByTag = new HashMap<String, Set<MUIElement>>();
+
+	private Map<MUIElement, Set<MPlaceholder>> placeholdersByRef = new HashMap<MUIElement, Set<MPlaceholder>>();
+
+	/**
+	 * Returns the elements that a search of the whole UI ({@link ModelServiceImpl#ANYWHERE})
+	 * from the given root would find, or <code>null</code> if the index cannot answer the
+	 * query.
+	 */
+	<T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
+			List<String> tagsToMatch) {
+		Collection<MUIElement> candidates;
+		if (id != null) {
+			candidates = elementsById.get(id);
+		} else if (tagsToMatch != null && tagsToMatch.size() > 0) {
+			candidates = null;
+			for (String tag : tagsToMatch) {
+				Collection<MUIElement> tagged = elementsByTag.get(tag);
+				if (tagged == null || candidates == null || tagged.size() < candidates.size())
+					candidates = tagged;
+				if (candidates == null)
+					break;
+			}
+		} else {
+			// nothing to look up, the whole tree has to be walked anyway
+			return null;
+		}
+
+		if (!isIndexed(searchRoot))
+			return null;
+
+		List<T> elements = new ArrayList<T>();
+		if (candidates == null)
+			return elements;
+
+		final Map<MUIElement, int[]> paths = new HashMap<MUIElement, int[]>();
+		for (MUIElement candidate : candidates) {
+			if (!ModelServiceImpl.match(candidate, id, clazz, tagsToMatch))
+				continue;
+			int[] path = getWalkPath(candidate, searchRoot, new HashSet<MUIElement>());
+			if (path != null)
+				paths.put(candidate, path);
+		}
+		List<MUIElement> found = new ArrayList<MUIElement>(paths.keySet());
+		if (found.size() > 1) {
+			Collections.sort(found, new Comparator<MUIElement>() {
+				public int compare(MUIElement element1, MUIElement element2) {
+					return WALK_ORDER.compare(paths.get(element1), paths.get(element2));
+				}
+			});
+		}
+		for (MUIElement element : found) {
+			elements.add((T) element);
+		}
+		return elements;
+	}
+
+	/**
+	 * Returns whether the given element belongs to the indexed application, (re)building the
+	 * index if needed.
+	 */
+	private boolean isIndexed(MUIElement element) {
+		EObject root = EcoreUtil.getRootContainer((EObject) element);
+		if (!(root instanceof MApplication))
+			return false;
+		if (!isPublishingEvents(root)) {
+			// changes would go unnoticed
+			invalidate();
+			return false;
+		}
+		if (!valid || root != application) {
+			clear();
+			application = (MApplication) root;
+			addSubtree(application);
+			valid = true;
+		}
+		return true;
+	}
+
+	private static boolean isPublishingEvents(EObject application) {
+		for (Adapter adapter : application.eAdapters()) {
+			if (adapter instanceof UIEventPublisher)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the position of the element in the order of the recursive search from the given
+	 * root: for each step from the root down to the element, the part of the parent that
+	 * contains it followed by its index there. Elements referenced by placeholders are reached
+	 * through whichever path comes first. Returns <code>null</code> if the search does not reach
+	 * the element.
+	 */
+	private int[] getWalkPath(MUIElement element, MUIElement root, Set<MUIElement> visiting) {
+		if (element == root)
+			return new int[0];
+		if (!visiting.add(element))
+			return null;
+		try {
+			int[] best = null;
+			EObject eObj = (EObject) element;
+			EObject container = eObj.eContainer();
+			if (container instanceof MUIElement) {
+				EStructuralFeature feature = eObj.eContainmentFeature();
+				int section = getSection(container, feature.getName());
+				if (section != -1) {
+					int[] parentPath = getWalkPath((MUIElement) container, root, visiting);
+					if (parentPath != null) {
+						int index = ((List<?>) container.eGet(feature)).indexOf(element);
+						best = append(parentPath, section, index);
+					}
+				}
+			}
+			Set<MPlaceholder> placeholders = placeholdersByRef.get(element);
+			if (placeholders != null) {
+				for (MPlaceholder placeholder : placeholders) {
+					int[] placeholderPath = getWalkPath(placeholder, root, visiting);
+					if (placeholderPath != null) {
+						int[] path = append(placeholderPath, REFERENCE, 0);
+						if (best == null || WALK_ORDER.compare(path, best) < 0)
+							best = path;
+					}
+				}
+			}
+			return best;
+		} finally {
+			visiting.remove(element);
+		}
+	}
+
+	/**
+	 * Returns the part of the container that the recursive search visits for the given
+	 * containment feature, or -1 if it does not search there.
+	 */
+	private static int getSection(EObject container, String featureName) {
+		if (container instanceof MElementContainer<?>
+				&& UIEvents.ElementContainer.CHILDREN.equals(featureName))
+			return CHILDREN;
+		if (container instanceof MTrimmedWindow
+				&& UIEvents.TrimmedWindow.TRIMBARS.equals(featureName))
+			return TRIM_BARS;
+		if ((container instanceof MWindow || container instanceof MPerspective)
+				&& UIEvents.Window.WINDOWS.equals(featureName))
+			return WINDOWS;
+		return -1;
+	}
+
+	private static int[] append(int[] path, int section, int index) {
+		int[] result = new int[path.length + 2];
+		System.arraycopy(path, 0, result, 0, path.length);
+		result[path.length] = section;
+		result[path.length + 1] = index;
+		return result;
+	}
+
+	/**
+	 * Updates the index from a model event.
+	 */
+	void handleEvent(Event event) {
+		if (!valid)
+			return;
+
+		Object element = event.getProperty(EventTags.ELEMENT);
+		Object attName = event.getProperty(EventTags.ATTNAME);
+		if (UIEvents.ApplicationElement.ELEMENTID.equals(attName)
+				|| UIEvents.ApplicationElement.TAGS.equals(attName)
+				|| UIEvents.Placeholder.REF.equals(attName)) {
+			if (entries.containsKey(element)) {
+				remove((MUIElement) element);
+				add((MUIElement) element);
+			}
+			return;
+		}
+
+		Object type = event.getProperty(EventTags.TYPE);
+		if (UIEvents.EventTypes.ADD.equals(type) || UIEvents.EventTypes.SET.equals(type)
+				|| UIEvents.EventTypes.REMOVE.equals(type)) {
+			Object oldValue = event.getProperty(EventTags.OLD_VALUE);
+			if (oldValue instanceof MUIElement && entries.containsKey(oldValue)
+					&& EcoreUtil.getRootContainer((EObject) oldValue) != application) {
+				removeSubtree((MUIElement) oldValue);
+			}
+			Object newValue = event.getProperty(EventTags.NEW_VALUE);
+			if (newValue instanceof MUIElement && !entries.containsKey(newValue)
+					&& EcoreUtil.getRootContainer((EObject) newValue) == application) {
+				addSubtree((MUIElement) newValue);
+			}
+		} else {
+			// e.g. several elements added or removed at once
+			invalidate();
+		}
+	}
+
+	/**
+	 * Forgets the content of the index; it is rebuilt on the next search.
+	 */
+	void invalidate() {
+		valid = false;
+		clear();
+	}
+
+	private void clear() {
+		entries.clear();
+		elementsById.clear();
+		elementsByTag.clear();
+		placeholdersByRef.clear();
+		application = null;
+	}
+
+	private void addSubtree(MUIElement root) {
+		add(root);
+		for (Iterator<EObject> it = ((EObject) root).eAllContents(); it.hasNext();) {
+			EObject eObj = it.next();
+			if (eObj instanceof MUIElement)
+				add((MUIElement) eObj);
+		}
+	}
+
+	private void removeSubtree(MUIElement root) {
+		remove(root);
+		for (Iterator<EObject> it = ((EObject) root).eAllContents(); it.hasNext();) {
+			EObject eObj = it.next();
+			if (eObj instanceof MUIElement)
+				remove((MUIElement) eObj);
+		}
+	}
+
+	private void add(MUIElement element) {
+		if (entries.containsKey(element))
+			return;
+		Entry entry = new Entry();
+		entry.id = element.getElementId();
+		entry.tags = new ArrayList<String>(element.getTags());
+		if (entry.id != null)
+			addTo(elementsById, entry.id, element);
+		for (String tag : entry.tags) {
+			addTo(elementsByTag, tag, element);
+		}
+		if (element instanceof MPlaceholder) {
+			entry.ref = ((MPlaceholder) element).getRef();
+			if (entry.ref != null)
+				addTo(placeholdersByRef, entry.ref, (MPlaceholder) element);
+		}
+		entries.put(element, entry);
+	}
+
+	private void remove(MUIElement element) {
+		Entry entry = entries.remove(element);
+		if (entry == null)
+			return;
+		if (entry.id != null)
+			removeFrom(elementsById, entry.id, element);
+		for (String tag : entry.tags) {
+			removeFrom(elementsByTag, tag, element);
+		}
+		if (entry.ref != null)
+			removeFrom(placeholdersByRef, entry.ref, element);
+	}
+
+	private static <K, V> void addTo(Map<K, Set<V>> map, K key, V value) {
+		Set<V> values = map.get(key);
+		if (values == null) {
+			values = new LinkedHashSet<V>();
+			map.put(key, values);
+		}
+		values.add(value);
+	}
+
+	private static <K, V> void removeFrom(Map<K, Set<V>> map, K key, Object value) {
+		Set<V> values = map.get(key);
+		if (values != null) {
+			values.remove(value);
+			if (values.isEmpty())
+				map.remove(key);
+		}
+	}
+}
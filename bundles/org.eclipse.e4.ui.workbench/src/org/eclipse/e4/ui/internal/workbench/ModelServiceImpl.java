@@ -48,8 +48,10 @@ import org.eclipse.e4.ui.workbench.modeling.EPartService;
 import org.eclipse.e4.ui.workbench.modeling.EPlaceholderResolver;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.osgi.service.debug.DebugOptions;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
+import org.osgi.service.log.LogService;
 
 /**
  *
@@ -78,6 +80,16 @@ public class ModelServiceImpl implements EModelService {
 		}
 	};
 
+	// Only maintained when the service listens to the model events, see findElementsAnywhere
+	private ModelElementIndex elementIndex;
+
+	// Keeps the index up to date with the changes to the model
+	private EventHandler indexHandler = new EventHandler() {
+		public void handleEvent(Event event) {
+			elementIndex.handleEvent(event);
+		}
+	};
+
 	/**
 	 * This is a singleton service. One instance is used throughout the running application
 	 * 
@@ -90,6 +102,10 @@ public class ModelServiceImpl implements EModelService {
 
 		IEventBroker eventBroker = appContext.get(IEventBroker.class);
 		eventBroker.subscribe(UIEvents.UIElement.TOPIC_WIDGET, hostedElementHandler);
+
+		elementIndex = new ModelElementIndex();
+		eventBroker.subscribe(UIEvents.UIModelTopicBase + UIEvents.TOPIC_SEP
+				+ UIEvents.ALL_SUB_TOPICS, indexHandler);
 	}
 
 	/**
@@ -105,7 +121,7 @@ public class ModelServiceImpl implements EModelService {
 	 *            The tags to check, <b>all</b> the specified rags must be in the element's tags
 	 * @return <code>true</code> iff all the tests pass
 	 */
-	private boolean match(MUIElement element, String id, Class clazz, List<String> tagsToMatch) {
+	static boolean match(MUIElement element, String id, Class clazz, List<String> tagsToMatch) {
 		if (id != null && !id.equals(element.getElementId()))
 			return false;
 
@@ -209,18 +225,54 @@ public class ModelServiceImpl implements EModelService {
 	 */
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch) {
-		List<T> elements = new ArrayList<T>();
-		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, ANYWHERE);
-		return elements;
+		return findElementsAnywhere(searchRoot, id, clazz, tagsToMatch);
 	}
 
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch, int searchFlags) {
+		if (searchFlags == ANYWHERE)
+			return findElementsAnywhere(searchRoot, id, clazz, tagsToMatch);
+
 		List<T> elements = new ArrayList<T>();
 		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, searchFlags);
 		return elements;
 	}
 
+	/**
+	 * Searches the whole UI below the given root. Queries by id or by tags are answered from the
+	 * element index when the root belongs to an application, the others walk the model.
+	 */
+	private <T> List<T> findElementsAnywhere(MUIElement searchRoot, String id, Class<T> clazz,
+			List<String> tagsToMatch) {
+		Assert.isLegal(searchRoot != null);
+		List<T> indexed = elementIndex == null ? null : elementIndex.findElements(searchRoot, id,
+				clazz, tagsToMatch);
+		if (indexed != null && !isCheckingIndex())
+			return indexed;
+
+		List<T> elements = new ArrayList<T>();
+		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, ANYWHERE);
+		if (indexed != null && !indexed.equals(elements)) {
+			Activator.log(LogService.LOG_ERROR, "Element index out of date for id: " + id //$NON-NLS-1$
+					+ ", tags: " + tagsToMatch + ", found: " + indexed + ", expected: " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ elements);
+			elementIndex.invalidate();
+		}
+		return elements;
+	}
+
+	/**
+	 * Returns whether the results of the element index should be checked against a walk of the
+	 * model, see {@link Policy#DEBUG_MODEL_INDEX}.
+	 */
+	private static boolean isCheckingIndex() {
+		Activator activator = Activator.getDefault();
+		DebugOptions debugOptions = activator == null ? null : activator.getDebugOptions();
+		return debugOptions != null && debugOptions.isDebugEnabled()
+				&& debugOptions.getBooleanOption(Activator.PI_WORKBENCH + Policy.DEBUG_MODEL_INDEX,
+						false);
+	}
+
 	private <T> List<T> findPerspectiveElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch) {
 		List<T> elements = new ArrayList<T>();
@@ -13,4 +13,8 @@ public class Policy {
 	public static final String DEBUG_CONTEXTS_VERBOSE = "/trace/eclipse.context.verbose"; //$NON-NLS-1$
 	public static final String DEBUG_WORKBENCH = "/trace/workbench"; //$NON-NLS-1$
 	public static final String DEBUG_RENDERER = "/trace/renderer"; //$NON-NLS-1$
+	/**
+	 * Checks the results of the model element index against a walk of the model.
+	 */
+	public static final String DEBUG_MODEL_INDEX = "/debug/modelIndex"; //$NON-NLS-1$
 }
@@ -609,6 +609,10 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 * @see org.eclipse.jface.viewers.StructuredViewer#getSortedChildren(java.lang.Object)
 	 */
 	protected Object[] getSortedChildren(Object parentElementOrTreePath) {
+		Object[] backgroundResult = getBackgroundSortedChildren(parentElementOrTreePath);
+		if (backgroundResult != null) {
+			return backgroundResult;
+		}
 		Object[] result = getFilteredChildren(parentElementOrTreePath);
 		ViewerComparator comparator = getComparator();
 		if (parentElementOrTreePath != null
@@ -1062,9 +1066,14 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	public void expandToLevel(Object elementOrTreePath, int level) {
 		if (checkBusy())
 			return;
-		Widget w = internalExpand(elementOrTreePath, true);
-		if (w != null) {
-			internalExpandToLevel(w, level);
+		boolean oldSortSynchronously = setSortSynchronously(true);
+		try {
+			Widget w = internalExpand(elementOrTreePath, true);
+			if (w != null) {
+				internalExpandToLevel(w, level);
+			}
+		} finally {
+			setSortSynchronously(oldSortSynchronously);
 		}
 	}
 
@@ -2292,9 +2301,14 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 */
 	public void reveal(Object elementOrTreePath) {
 		Assert.isNotNull(elementOrTreePath);
-		Widget w = internalExpand(elementOrTreePath, true);
-		if (w instanceof Item) {
-			showItem((Item) w);
+		boolean oldSortSynchronously = setSortSynchronously(true);
+		try {
+			Widget w = internalExpand(elementOrTreePath, true);
+			if (w instanceof Item) {
+				showItem((Item) w);
+			}
+		} finally {
+			setSortSynchronously(oldSortSynchronously);
 		}
 	}
 
@@ -2407,20 +2421,26 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 			return;
 		}
 		CustomHashtable expandedElements = newHashtable(elements.length * 2 + 1);
-		for (int i = 0; i < elements.length; ++i) {
-			Object element = elements[i];
-			// Ensure item exists for element. This will materialize items for
-			// each element and their parents, if possible. This is important
-			// to support expanding of inner tree nodes without necessarily
-			// expanding their parents.
-			internalExpand(element, false);
-			expandedElements.put(element, element);
+		boolean oldSortSynchronously = setSortSynchronously(true);
+		try {
+			for (int i = 0; i < elements.length; ++i) {
+				Object element = elements[i];
+				// Ensure item exists for element. This will materialize items
+				// for each element and their parents, if possible. This is
+				// important to support expanding of inner tree nodes without
+				// necessarily expanding their parents.
+				internalExpand(element, false);
+				expandedElements.put(element, element);
+			}
+			// this will traverse all existing items, and create children for
+			// elements that need to be expanded. If the tree contains multiple
+			// equal elements, and those are in the set of elements to be
+			// expanded, only the first item found for each element will be
+			// expanded.
+			internalSetExpanded(expandedElements, getControl());
+		} finally {
+			setSortSynchronously(oldSortSynchronously);
 		}
-		// this will traverse all existing items, and create children for
-		// elements that need to be expanded. If the tree contains multiple
-		// equal elements, and those are in the set of elements to be expanded,
-		// only the first item found for each element will be expanded.
-		internalSetExpanded(expandedElements, getControl());
 	}
 
 	/**
@@ -2455,21 +2475,27 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		};
 		CustomHashtable expandedTreePaths = new CustomHashtable(
 				treePaths.length * 2 + 1, treePathComparer);
-		for (int i = 0; i < treePaths.length; ++i) {
-			TreePath treePath = treePaths[i];
-			// Ensure item exists for element. This will materialize items for
-			// each element and their parents, if possible. This is important
-			// to support expanding of inner tree nodes without necessarily
-			// expanding their parents.
-			internalExpand(treePath, false);
-			expandedTreePaths.put(treePath, treePath);
+		boolean oldSortSynchronously = setSortSynchronously(true);
+		try {
+			for (int i = 0; i < treePaths.length; ++i) {
+				TreePath treePath = treePaths[i];
+				// Ensure item exists for element. This will materialize items
+				// for each element and their parents, if possible. This is
+				// important to support expanding of inner tree nodes without
+				// necessarily expanding their parents.
+				internalExpand(treePath, false);
+				expandedTreePaths.put(treePath, treePath);
+			}
+			// this will traverse all existing items, and create children for
+			// elements that need to be expanded. If the tree contains multiple
+			// equal elements, and those are in the set of elements to be
+			// expanded, only the first item found for each element will be
+			// expanded.
+			internalSetExpandedTreePaths(expandedTreePaths, getControl(),
+					new TreePath(new Object[0]));
+		} finally {
+			setSortSynchronously(oldSortSynchronously);
 		}
-		// this will traverse all existing items, and create children for
-		// elements that need to be expanded. If the tree contains multiple
-		// equal elements, and those are in the set of elements to be expanded,
-		// only the first item found for each element will be expanded.
-		internalSetExpandedTreePaths(expandedTreePaths, getControl(),
-				new TreePath(new Object[0]));
 	}
 
 	/**
@@ -2486,12 +2512,17 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		Assert.isNotNull(elementOrTreePath);
 		if (checkBusy())
 			return;
-		Widget item = internalExpand(elementOrTreePath, false);
-		if (item instanceof Item) {
-			if (expanded) {
-				createChildren(item);
+		boolean oldSortSynchronously = setSortSynchronously(true);
+		try {
+			Widget item = internalExpand(elementOrTreePath, false);
+			if (item instanceof Item) {
+				if (expanded) {
+					createChildren(item);
+				}
+				setExpanded((Item) item, expanded);
 			}
-			setExpanded((Item) item, expanded);
+		} finally {
+			setSortSynchronously(oldSortSynchronously);
 		}
 	}
 
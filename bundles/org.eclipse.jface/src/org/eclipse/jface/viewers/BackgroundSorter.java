@@ -0,0 +1,619 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.viewers;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedList;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.jface.util.Policy;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Filters and sorts large arrays of children for a structured viewer in a
+ * background thread.
+ * <p>
+ * When the viewer asks for the sorted children of a parent with at least
+ * {@link #THRESHOLD} raw children, the raw children are handed to a worker
+ * thread together with the current filters and comparator, and the viewer
+ * keeps showing the children it showed before (none the first time). Once
+ * the worker is done, the viewer refreshes the parent on the display thread
+ * and gets the new order. A newer request for the same parent cancels the
+ * previous one. The children of smaller parents, and those asked for by an
+ * operation that needs them right away, are filtered and sorted on the
+ * display thread.
+ * </p>
+ * <p>
+ * Arrays of at least {@link #PARALLEL_THRESHOLD} children are split in parts
+ * that are filtered and sorted in parallel, and then merged. Sorting with a
+ * {@link ViewerComparator} that compares collation keys computes the label
+ * and collation key of each element only once. The work runs in a pool of
+ * threads shared by all viewers.
+ * </p>
+ * <p>
+ * The filters, the comparator and the label provider of the viewer are called
+ * from the background threads, so they must not access widgets.
+ * </p>
+ */
+/* package */final class BackgroundSorter {
+
+	/**
+	 * The number of raw children from which they are filtered and sorted in the
+	 * background.
+	 */
+	static final int THRESHOLD = 1000;
+
+	/**
+	 * The number of raw children from which they are filtered and sorted by
+	 * several threads.
+	 */
+	static final int PARALLEL_THRESHOLD = 20000;
+
+	/**
+	 * The number of elements given to a filter at once, between two checks for
+	 * cancellation.
+	 */
+	private static final int FILTER_CHUNK_SIZE = 256;
+
+	private static final String SORTING = JFaceResources.getString("Sorting"); //$NON-NLS-1$
+
+	/**
+	 * Marks parents whose children must be sorted on the display thread,
+	 * because sorting them in the background failed.
+	 */
+	private static final Object[] SYNCHRONOUS = new Object[0];
+
+	/**
+	 * The children of a parent to filter and sort.
+	 */
+	private static final class Request {
+		final Object parent;
+
+		final Object[] elements;
+
+		final ViewerFilter[] filters;
+
+		final ViewerComparator comparator;
+
+		volatile boolean canceled;
+
+		Object[] result;
+
+		Request(Object parent, Object[] elements, ViewerFilter[] filters,
+				ViewerComparator comparator) {
+			this.parent = parent;
+			this.elements = elements;
+			this.filters = filters;
+			this.comparator = comparator;
+		}
+
+		void checkCanceled() {
+			if (canceled) {
+				throw new OperationCanceledException();
+			}
+		}
+	}
+
+	/**
+	 * A part of the children of a request, filtered and sorted by a thread of
+	 * the pool or by the thread that waits for it, whichever starts it first.
+	 */
+	private final class Part implements Runnable {
+		private final Request request;
+
+		private final Object[] elements;
+
+		private boolean started;
+
+		private boolean finished;
+
+		Object[] result;
+
+		RuntimeException error;
+
+		Part(Request request, Object[] elements) {
+			this.request = request;
+			this.elements = elements;
+		}
+
+		public void run() {
+			synchronized (this) {
+				if (started) {
+					return;
+				}
+				started = true;
+			}
+			try {
+				result = filterAndSort(request, elements);
+			} catch (RuntimeException e) {
+				error = e;
+			} finally {
+				synchronized (this) {
+					finished = true;
+					notifyAll();
+				}
+			}
+		}
+
+		/**
+		 * Runs this part in the calling thread unless a thread of the pool
+		 * started it already, and waits until it is finished. A pool whose
+		 * threads all wait for parts therefore cannot starve.
+		 */
+		void join() {
+			run();
+			synchronized (this) {
+				while (!finished) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						request.canceled = true;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A pool of daemon threads shared by the background sorters of all
+	 * viewers. Threads are started as needed, up to the number of processors,
+	 * and end after being idle for {@link #KEEP_ALIVE} milliseconds.
+	 */
+	private static final class WorkerPool {
+		private static final long KEEP_ALIVE = 5000;
+
+		private final int maxThreads = Runtime.getRuntime()
+				.availableProcessors();
+
+		private final LinkedList tasks = new LinkedList();
+
+		private int threads;
+
+		private int idleThreads;
+
+		synchronized void execute(Runnable task) {
+			tasks.add(task);
+			if (tasks.size() > idleThreads && threads < maxThreads) {
+				threads++;
+				Thread thread = new Thread(SORTING) {
+					public void run() {
+						work();
+					}
+				};
+				thread.setDaemon(true);
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				thread.start();
+			} else {
+				notify();
+			}
+		}
+
+		private void work() {
+			while (true) {
+				Runnable task;
+				synchronized (this) {
+					if (tasks.isEmpty()) {
+						idleThreads++;
+						try {
+							wait(KEEP_ALIVE);
+						} catch (InterruptedException e) {
+							// end the thread if there is nothing to do
+						}
+						idleThreads--;
+						if (tasks.isEmpty()) {
+							threads--;
+							return;
+						}
+					}
+					task = (Runnable) tasks.removeFirst();
+				}
+				task.run();
+			}
+		}
+	}
+
+	private static final WorkerPool POOL = new WorkerPool();
+
+	private final StructuredViewer viewer;
+
+	private final Display display;
+
+	/**
+	 * The requests in progress, by parent. Only accessed from the display
+	 * thread.
+	 */
+	private CustomHashtable pending;
+
+	/**
+	 * The results of the requests that the viewer did not get yet, by parent.
+	 * Only accessed from the display thread.
+	 */
+	private CustomHashtable completed;
+
+	/**
+	 * The children the viewer got last, by parent. Only accessed from the
+	 * display thread.
+	 */
+	private CustomHashtable applied;
+
+	/**
+	 * The parents whose children the viewer got from a completed request
+	 * during the current run of the event loop, and that are given again
+	 * without starting a new request. Only accessed from the display thread.
+	 */
+	private CustomHashtable fresh;
+
+	/**
+	 * The requests to run, in order. Also guards {@link #running}.
+	 */
+	private final LinkedList queue = new LinkedList();
+
+	/**
+	 * Whether a thread of the pool runs the requests of the queue.
+	 */
+	private boolean running;
+
+	/**
+	 * Creates a new background sorter for the given viewer.
+	 *
+	 * @param viewer
+	 *            the viewer
+	 */
+	BackgroundSorter(StructuredViewer viewer) {
+		this.viewer = viewer;
+		this.display = viewer.getControl().getDisplay();
+		createTables();
+	}
+
+	private void createTables() {
+		pending = viewer.newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+		completed = viewer.newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+		applied = viewer.newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+		fresh = viewer.newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Returns the sorted and filtered children of the given parent, or
+	 * <code>null</code> if the viewer must compute them itself. Must be called
+	 * from the display thread.
+	 *
+	 * @param parent
+	 *            the parent element
+	 * @param synchronous
+	 *            <code>true</code> if the caller needs the current children
+	 *            right away, whatever their number
+	 * @return the children to show for now, or <code>null</code>
+	 */
+	Object[] getSortedChildren(Object parent, boolean synchronous) {
+		if (parent instanceof TreePath
+				|| viewer.getComparator() instanceof TreePathViewerSorter) {
+			return null;
+		}
+		Object[] result = (Object[]) fresh.get(parent);
+		if (result != null) {
+			return result;
+		}
+		result = (Object[]) completed.remove(parent);
+		if (result == SYNCHRONOUS) {
+			applied.remove(parent);
+			return null;
+		}
+		if (result != null) {
+			applied.put(parent, result);
+			if (fresh.size() == 0) {
+				display.asyncExec(new Runnable() {
+					public void run() {
+						fresh = viewer.newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+					}
+				});
+			}
+			fresh.put(parent, result);
+			return result;
+		}
+
+		cancel(parent);
+		Object[] elements = viewer.getRawChildren(parent);
+		if (elements.length < THRESHOLD) {
+			applied.remove(parent);
+			return sortSynchronously(parent, elements);
+		}
+		if (synchronous) {
+			result = sortSynchronously(parent, elements);
+			applied.put(parent, result);
+			return result;
+		}
+		Request request = new Request(parent, elements, viewer.getFilters(),
+				viewer.getComparator());
+		pending.put(parent, request);
+		schedule(request);
+		result = (Object[]) applied.get(parent);
+		return result == null ? new Object[0] : result;
+	}
+
+	/**
+	 * Filters and sorts the given raw children of the given parent on the
+	 * calling thread, the same way as the viewer does.
+	 */
+	private Object[] sortSynchronously(Object parent, Object[] elements) {
+		Object[] result = viewer.filterChildren(parent, elements);
+		ViewerComparator comparator = viewer.getComparator();
+		if (comparator != null) {
+			// be sure we're not modifying the original array from the model
+			result = (Object[]) result.clone();
+			comparator.sort(viewer, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Cancels all requests and forgets the children given to the viewer. Must
+	 * be called from the display thread.
+	 */
+	void reset() {
+		for (Enumeration e = pending.elements(); e.hasMoreElements();) {
+			((Request) e.nextElement()).canceled = true;
+		}
+		synchronized (queue) {
+			queue.clear();
+		}
+		createTables();
+	}
+
+	private void cancel(Object parent) {
+		Request request = (Request) pending.remove(parent);
+		if (request != null) {
+			request.canceled = true;
+		}
+	}
+
+	private void schedule(Request request) {
+		synchronized (queue) {
+			queue.add(request);
+			if (!running) {
+				running = true;
+				POOL.execute(new Runnable() {
+					public void run() {
+						runRequests();
+					}
+				});
+			}
+		}
+	}
+
+	private void runRequests() {
+		while (true) {
+			Request request;
+			synchronized (queue) {
+				if (queue.isEmpty()) {
+					running = false;
+					return;
+				}
+				request = (Request) queue.removeFirst();
+			}
+			if (request.canceled) {
+				continue;
+			}
+			try {
+				request.result = process(request);
+			} catch (OperationCanceledException e) {
+				continue;
+			} catch (RuntimeException e) {
+				Policy.getLog().log(
+						new Status(IStatus.ERROR, Policy.JFACE,
+								"Failed to sort the children of " //$NON-NLS-1$
+										+ request.parent + " in the background", e)); //$NON-NLS-1$
+				request.result = SYNCHRONOUS;
+			}
+			done(request);
+		}
+	}
+
+	/**
+	 * Filters and sorts the children of the given request, splitting them in
+	 * parts for several threads if there are enough of them.
+	 */
+	private Object[] process(Request request) {
+		Object[] elements = request.elements;
+		int partCount = Math.min(Runtime.getRuntime().availableProcessors(),
+				elements.length / (PARALLEL_THRESHOLD / 2));
+		if (partCount <= 1 || (request.comparator != null
+				&& !request.comparator.isSortInherited())) {
+			return unwrap(request, filterAndSort(request, elements));
+		}
+
+		Part[] parts = new Part[partCount];
+		int start = 0;
+		for (int i = 0; i < partCount; i++) {
+			int end = (int) ((long) elements.length * (i + 1) / partCount);
+			Object[] partElements = new Object[end - start];
+			System.arraycopy(elements, start, partElements, 0, end - start);
+			parts[i] = new Part(request, partElements);
+			start = end;
+		}
+		for (int i = 1; i < parts.length; i++) {
+			POOL.execute(parts[i]);
+		}
+		for (int i = 0; i < parts.length; i++) {
+			parts[i].join();
+		}
+		for (int i = 0; i < parts.length; i++) {
+			if (parts[i].error != null) {
+				throw parts[i].error;
+			}
+		}
+		request.checkCanceled();
+
+		Object[] result = parts[0].result;
+		for (int i = 1; i < parts.length; i++) {
+			result = request.comparator == null ? concat(result,
+					parts[i].result) : merge(result, parts[i].result,
+					getOrder(request));
+		}
+		return unwrap(request, result);
+	}
+
+	/**
+	 * Filters the given elements with the filters of the request, then sorts
+	 * them. Elements are replaced by their sort keys if the comparator of the
+	 * request compares collation keys.
+	 */
+	private Object[] filterAndSort(Request request, Object[] elements) {
+		Object[] result = elements;
+		for (int i = 0; i < request.filters.length; i++) {
+			result = filter(request, request.filters[i], result);
+		}
+		ViewerComparator comparator = request.comparator;
+		if (comparator == null) {
+			return result == request.elements ? (Object[]) result.clone()
+					: result;
+		}
+		if (!comparator.isSortInherited()) {
+			// be sure we're not modifying the original array from the model
+			if (result == request.elements) {
+				result = (Object[]) result.clone();
+			}
+			comparator.sort(viewer, result);
+			return result;
+		}
+		if (comparator.isCollationKeySortable()) {
+			Collator collator = comparator.newSortKeyCollator();
+			Object[] keys = new Object[result.length];
+			for (int i = 0; i < result.length; i++) {
+				if (i % FILTER_CHUNK_SIZE == 0) {
+					request.checkCanceled();
+				}
+				keys[i] = comparator.getSortKey(viewer, result[i], collator);
+			}
+			result = keys;
+		} else if (result == request.elements) {
+			result = (Object[]) result.clone();
+		}
+		Arrays.sort(result, getOrder(request));
+		return result;
+	}
+
+	private Object[] filter(Request request, ViewerFilter filter,
+			Object[] elements) {
+		ArrayList filtered = new ArrayList(elements.length);
+		Object[] chunk = null;
+		for (int start = 0; start < elements.length; start += FILTER_CHUNK_SIZE) {
+			request.checkCanceled();
+			int length = Math.min(FILTER_CHUNK_SIZE, elements.length - start);
+			if (chunk == null || chunk.length != length) {
+				chunk = new Object[length];
+			}
+			System.arraycopy(elements, start, chunk, 0, length);
+			filtered.addAll(Arrays.asList(filter.filter(viewer, request.parent,
+					chunk)));
+		}
+		return filtered.toArray();
+	}
+
+	/**
+	 * Returns the order in which to sort the elements, or the sort keys, of the
+	 * given request. The order checks regularly whether the request is
+	 * canceled, and must not be shared between threads.
+	 */
+	private Comparator getOrder(final Request request) {
+		final ViewerComparator comparator = request.comparator;
+		final Comparator order = comparator.isCollationKeySortable() ? ViewerComparator.SORT_KEY_ORDER
+				: new Comparator() {
+					public int compare(Object e1, Object e2) {
+						return comparator.compare(viewer, e1, e2);
+					}
+				};
+		return new Comparator() {
+			private int count;
+
+			public int compare(Object o1, Object o2) {
+				if ((++count & 0x3FF) == 0) {
+					request.checkCanceled();
+				}
+				return order.compare(o1, o2);
+			}
+		};
+	}
+
+	private static Object[] concat(Object[] first, Object[] second) {
+		Object[] result = new Object[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+	/**
+	 * Merges two sorted arrays, taking equal elements from the first one first
+	 * so that the result is the same as a stable sort of both.
+	 */
+	private static Object[] merge(Object[] first, Object[] second,
+			Comparator order) {
+		Object[] result = new Object[first.length + second.length];
+		int i = 0, j = 0, k = 0;
+		while (i < first.length && j < second.length) {
+			if (order.compare(second[j], first[i]) < 0) {
+				result[k++] = second[j++];
+			} else {
+				result[k++] = first[i++];
+			}
+		}
+		System.arraycopy(first, i, result, k, first.length - i);
+		System.arraycopy(second, j, result, k + first.length - i,
+				second.length - j);
+		return result;
+	}
+
+	/**
+	 * Replaces sort keys by their elements.
+	 */
+	private static Object[] unwrap(Request request, Object[] result) {
+		if (request.comparator != null
+				&& request.comparator.isSortInherited()
+				&& request.comparator.isCollationKeySortable()) {
+			for (int i = 0; i < result.length; i++) {
+				result[i] = ((ViewerComparator.SortKey) result[i]).element;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Hands the result of the given request to the viewer, on the display
+	 * thread.
+	 */
+	private void done(final Request request) {
+		if (display.isDisposed()) {
+			return;
+		}
+		display.asyncExec(new Runnable() {
+			public void run() {
+				Control control = viewer.getControl();
+				if (request.canceled || control == null
+						|| control.isDisposed()) {
+					return;
+				}
+				pending.remove(request.parent);
+				completed.put(request.parent, request.result);
+				viewer.refresh(request.parent, false);
+				// the parent may not be shown anymore
+				completed.remove(request.parent);
+			}
+		});
+	}
+}
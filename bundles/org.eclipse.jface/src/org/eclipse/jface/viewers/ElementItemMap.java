@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.viewers;
+
+import org.eclipse.swt.widgets.Widget;
+
+/**
+ * ElementItemMap associates the elements of a structured viewer with the
+ * items that show them. Elements are compared with the viewer's element
+ * comparer, if any.
+ * <p>
+ * The map uses open addressing with linear probing over two parallel arrays,
+ * so that it does not allocate any object per element. The value stored for an
+ * element is the item itself when the element is shown by a single item, which
+ * is by far the most common case, and an array of items otherwise.
+ * </p>
+ */
+/* package */final class ElementItemMap {
+
+	/**
+	 * The default capacity used when not specified in the constructor.
+	 */
+	static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * The keys of the map, <code>null</code> for free slots. The length is a
+	 * power of two.
+	 */
+	private Object[] elements;
+
+	/**
+	 * The <code>Widget</code> or <code>Widget[]</code> mapped to the key
+	 * in the same slot.
+	 */
+	private Object[] items;
+
+	private int size;
+
+	private int threshold;
+
+	private final IElementComparer comparer;
+
+	/**
+	 * Constructs a new map able to hold the given number of elements without
+	 * growing.
+	 *
+	 * @param capacity
+	 *            the expected number of elements
+	 * @param comparer
+	 *            the element comparer to use to compare elements and obtain
+	 *            hash codes for elements, or <code>null</code> to use the
+	 *            normal <code>equals</code> and <code>hashCode</code> methods
+	 */
+	ElementItemMap(int capacity, IElementComparer comparer) {
+		this.comparer = comparer;
+		int length = DEFAULT_CAPACITY;
+		while (length * 3 / 4 < capacity) {
+			length <<= 1;
+		}
+		allocate(length);
+	}
+
+	/**
+	 * Constructs a new map holding the associations of the given map, using
+	 * the given element comparer.
+	 *
+	 * @param map
+	 *            the original map to copy from
+	 * @param comparer
+	 *            the element comparer to use to compare elements and obtain
+	 *            hash codes for elements, or <code>null</code> to use the
+	 *            normal <code>equals</code> and <code>hashCode</code> methods
+	 */
+	ElementItemMap(ElementItemMap map, IElementComparer comparer) {
+		this(map.size, comparer);
+		for (int i = 0; i < map.elements.length; i++) {
+			if (map.elements[i] != null) {
+				Object[] widgets = map.items[i] instanceof Widget[] ? (Object[]) map.items[i]
+						: new Object[] { map.items[i] };
+				for (int j = 0; j < widgets.length; j++) {
+					add(map.elements[i], (Widget) widgets[j]);
+				}
+			}
+		}
+	}
+
+	private void allocate(int length) {
+		elements = new Object[length];
+		items = new Object[length];
+		threshold = length * 3 / 4;
+	}
+
+	/**
+	 * Returns the number of elements in this map.
+	 *
+	 * @return the number of elements
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the item or items mapped to the given element.
+	 *
+	 * @param element
+	 *            the element
+	 * @return a <code>Widget</code>, a <code>Widget[]</code> or
+	 *         <code>null</code> if the element is not mapped
+	 */
+	Object get(Object element) {
+		int index = indexOf(element);
+		return index == -1 ? null : items[index];
+	}
+
+	/**
+	 * Maps the given element to the given item, in addition to the items it is
+	 * already mapped to.
+	 *
+	 * @param element
+	 *            the element
+	 * @param item
+	 *            the item
+	 */
+	void add(Object element, Widget item) {
+		int mask = elements.length - 1;
+		int index = hash(element) & mask;
+		Object key;
+		while ((key = elements[index]) != null && !keyEquals(element, key)) {
+			index = (index + 1) & mask;
+		}
+		if (key == null) {
+			if (size >= threshold) {
+				resize(elements.length << 1);
+				add(element, item);
+				return;
+			}
+			elements[index] = element;
+			items[index] = item;
+			size++;
+			return;
+		}
+		// important to avoid hanging onto elements that are equal but "old" --
+		// see bug 30607
+		elements[index] = element;
+		Object widgetOrWidgets = items[index];
+		if (widgetOrWidgets instanceof Widget) {
+			if (widgetOrWidgets != item) {
+				items[index] = new Widget[] { (Widget) widgetOrWidgets, item };
+			}
+		} else {
+			Widget[] widgets = (Widget[]) widgetOrWidgets;
+			for (int i = 0; i < widgets.length; i++) {
+				if (widgets[i] == item) {
+					return;
+				}
+			}
+			int length = widgets.length;
+			System.arraycopy(widgets, 0, widgets = new Widget[length + 1], 0,
+					length);
+			widgets[length] = item;
+			items[index] = widgets;
+		}
+	}
+
+	/**
+	 * Removes the given element and all its items from the map.
+	 *
+	 * @param element
+	 *            the element
+	 */
+	void remove(Object element) {
+		int index = indexOf(element);
+		if (index != -1) {
+			removeAt(index);
+		}
+	}
+
+	/**
+	 * Removes the given item from the items the given element is mapped to.
+	 * Does nothing if the element is not mapped to the item.
+	 *
+	 * @param element
+	 *            the element
+	 * @param item
+	 *            the item
+	 */
+	void remove(Object element, Widget item) {
+		int index = indexOf(element);
+		if (index == -1) {
+			return;
+		}
+		Object widgetOrWidgets = items[index];
+		if (widgetOrWidgets instanceof Widget) {
+			if (widgetOrWidgets == item) {
+				removeAt(index);
+			}
+			return;
+		}
+		Widget[] widgets = (Widget[]) widgetOrWidgets;
+		int indexOfItem = -1;
+		for (int i = 0; i < widgets.length && indexOfItem == -1; i++) {
+			if (widgets[i] == item) {
+				indexOfItem = i;
+			}
+		}
+		if (indexOfItem == -1) {
+			return;
+		}
+		int length = widgets.length;
+		if (length == 1) {
+			removeAt(index);
+		} else if (length == 2) {
+			// back to a single item
+			items[index] = widgets[1 - indexOfItem];
+		} else {
+			Widget[] updatedWidgets = new Widget[length - 1];
+			System.arraycopy(widgets, 0, updatedWidgets, 0, indexOfItem);
+			System.arraycopy(widgets, indexOfItem + 1, updatedWidgets,
+					indexOfItem, length - indexOfItem - 1);
+			items[index] = updatedWidgets;
+		}
+	}
+
+	/**
+	 * Returns the slot of the given element, or -1 if it is not mapped.
+	 */
+	private int indexOf(Object element) {
+		int mask = elements.length - 1;
+		int index = hash(element) & mask;
+		Object key;
+		while ((key = elements[index]) != null) {
+			if (keyEquals(element, key)) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Frees the given slot, moving back the entries of the same probe
+	 * sequence so that lookups never need to skip deleted slots.
+	 */
+	private void removeAt(int index) {
+		int mask = elements.length - 1;
+		int free = index;
+		int next = (index + 1) & mask;
+		Object key;
+		while ((key = elements[next]) != null) {
+			int home = hash(key) & mask;
+			// move the entry unless its home slot lies cyclically in
+			// (free, next]
+			boolean stays = free <= next ? free < home && home <= next
+					: free < home || home <= next;
+			if (!stays) {
+				elements[free] = key;
+				items[free] = items[next];
+				free = next;
+			}
+			next = (next + 1) & mask;
+		}
+		elements[free] = null;
+		items[free] = null;
+		size--;
+	}
+
+	private void resize(int length) {
+		Object[] oldElements = elements;
+		Object[] oldItems = items;
+		allocate(length);
+		int mask = length - 1;
+		for (int i = 0; i < oldElements.length; i++) {
+			Object key = oldElements[i];
+			if (key != null) {
+				int index = hash(key) & mask;
+				while (elements[index] != null) {
+					index = (index + 1) & mask;
+				}
+				elements[index] = key;
+				items[index] = oldItems[i];
+			}
+		}
+	}
+
+	/**
+	 * Answers the hash code for the given element, spread so that the low
+	 * bits used to pick a slot depend on all the bits.
+	 */
+	private int hash(Object element) {
+		int h = comparer == null ? element.hashCode() : comparer
+				.hashCode(element);
+		h ^= (h >>> 20) ^ (h >>> 12);
+		return h ^ (h >>> 7) ^ (h >>> 4);
+	}
+
+	/**
+	 * Compares two elements for equality.
+	 */
+	private boolean keyEquals(Object a, Object b) {
+		if (comparer == null) {
+			return a.equals(b);
+		}
+		return comparer.equals(a, b);
+	}
+}
@@ -63,7 +63,20 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 * <code>Object</code>, value type: <code>Widget</code>, or <code>Widget[]</code>).
 	 * <code>null</code> means that the element map is disabled.
 	 */
-	private CustomHashtable elementMap;
+	private ElementItemMap elementMap;
+
+	/**
+	 * Filters and sorts large arrays of children in the background, or
+	 * <code>null</code> if they are filtered and sorted synchronously.
+	 */
+	private BackgroundSorter backgroundSorter;
+
+	/**
+	 * Whether the children of elements are filtered and sorted synchronously
+	 * even if background sorting is enabled, because the running operation
+	 * needs their items right away.
+	 */
+	private boolean sortSynchronously;
 
 	/**
 	 * The comparer to use for comparing elements, or <code>null</code> to use
@@ -914,7 +927,21 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 * @return a filtered array of child elements
 	 */
 	protected Object[] getFilteredChildren(Object parent) {
-		Object[] result = getRawChildren(parent);
+		return filterChildren(parent, getRawChildren(parent));
+	}
+
+	/**
+	 * Returns the given children of the given element, filtered with the
+	 * filters of this viewer. The resulting array must not be modified.
+	 * 
+	 * @param parent
+	 *            the parent element
+	 * @param children
+	 *            the raw children of the parent element
+	 * @return a filtered array of child elements
+	 */
+	Object[] filterChildren(Object parent, Object[] children) {
+		Object[] result = children;
 		if (filters != null) {
 			for (Iterator iter = filters.iterator(); iter.hasNext();) {
 				ViewerFilter f = (ViewerFilter) iter.next();
@@ -1064,6 +1091,10 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 * @return a sorted and filtered array of child elements
 	 */
 	protected Object[] getSortedChildren(Object parent) {
+		Object[] backgroundResult = getBackgroundSortedChildren(parent);
+		if (backgroundResult != null) {
+			return backgroundResult;
+		}
 		Object[] result = getFilteredChildren(parent);
 		if (sorter != null) {
 			// be sure we're not modifying the original array from the model
@@ -1073,6 +1104,39 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		return result;
 	}
 
+	/**
+	 * Returns the children of the given element if they are filtered and
+	 * sorted in the background, see {@link #setUseBackgroundSorting(boolean)}.
+	 * 
+	 * @param parent
+	 *            the parent element
+	 * @return the children to show until the background sort is done, or
+	 *         <code>null</code> if the children must be filtered and sorted
+	 *         synchronously
+	 */
+	Object[] getBackgroundSortedChildren(Object parent) {
+		if (backgroundSorter == null || associateListener != null) {
+			return null;
+		}
+		return backgroundSorter.getSortedChildren(parent, sortSynchronously);
+	}
+
+	/**
+	 * Sets whether the children of elements are filtered and sorted
+	 * synchronously even if background sorting is enabled. Operations that
+	 * create the items of elements and then look for them, like expanding,
+	 * revealing or selecting an element, set this while they run.
+	 * 
+	 * @param synchronous
+	 *            <code>true</code> to filter and sort synchronously
+	 * @return the previous value
+	 */
+	boolean setSortSynchronously(boolean synchronous) {
+		boolean old = sortSynchronously;
+		sortSynchronously = synchronous;
+		return old;
+	}
+
 	/**
 	 * Returns this viewer's sorter, or <code>null</code> if it does not have
 	 * one.  If this viewer has a comparator that was set via 
@@ -1187,6 +1251,15 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 */
 	protected void handleLabelProviderChanged(LabelProviderChangedEvent event) {
 		Object[] elements = event.getElements();
+		if (sorter != null) {
+			if (elements == null) {
+				sorter.invalidateSortKeys(this, null);
+			} else {
+				for (int i = 0; i < elements.length; i++) {
+					sorter.invalidateSortKeys(this, elements[i]);
+				}
+			}
+		}
 		if (elements != null) {
 			update(elements, null);
 		} else {
@@ -1313,25 +1386,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 */
 	protected void mapElement(Object element, Widget item) {
 		if (elementMap != null) {
-			Object widgetOrWidgets = elementMap.get(element);
-			if (widgetOrWidgets == null) {
-				elementMap.put(element, item);
-			} else if (widgetOrWidgets instanceof Widget) {
-				if (widgetOrWidgets != item) {
-					elementMap.put(element, new Widget[] {
-							(Widget) widgetOrWidgets, item });
-				}
-			} else {
-				Widget[] widgets = (Widget[]) widgetOrWidgets;
-				int indexOfItem = Arrays.asList(widgets).indexOf(item);
-				if (indexOfItem == -1) {
-					int length = widgets.length;
-					System.arraycopy(widgets, 0,
-							widgets = new Widget[length + 1], 0, length);
-					widgets[length] = item;
-					elementMap.put(element, widgets);
-				}
-			}
+			elementMap.add(element, item);
 		}
 	}
 
@@ -1378,6 +1433,18 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		return new CustomHashtable(capacity, getComparer());
 	}
 
+	/**
+	 * Returns a new element map using the given capacity and this viewer's
+	 * element comparer.
+	 * 
+	 * @param capacity
+	 *            the expected number of elements
+	 * @return a new element map
+	 */
+	private ElementItemMap newElementMap(int capacity) {
+		return new ElementItemMap(capacity, getComparer());
+	}
+
 	/**
 	 * Attempts to preserves the current selection across a run of the given
 	 * code. This method should not preserve the selection if
@@ -1686,6 +1753,12 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 			//		fInChange= true;
 
 			unmapAllElements();
+			if (sorter != null) {
+				sorter.invalidateSortKeys(this, null);
+			}
+			if (backgroundSorter != null) {
+				backgroundSorter.reset();
+			}
 
 			super.setInput(input);
 
@@ -1719,14 +1792,19 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		if (control == null || control.isDisposed()) {
 			return;
 		}
-		if (!inChange) {
-			setSelectionToWidget(selection, reveal);
-			ISelection sel = getSelection();
-			updateSelection(sel);
-			firePostSelectionChanged(new SelectionChangedEvent(this, sel));
-		} else {
-			restoreSelection = false;
-			setSelectionToWidget(selection, reveal);
+		boolean oldSortSynchronously = setSortSynchronously(true);
+		try {
+			if (!inChange) {
+				setSelectionToWidget(selection, reveal);
+				ISelection sel = getSelection();
+				updateSelection(sel);
+				firePostSelectionChanged(new SelectionChangedEvent(this, sel));
+			} else {
+				restoreSelection = false;
+				setSelectionToWidget(selection, reveal);
+			}
+		} finally {
+			setSortSynchronously(oldSortSynchronously);
 		}
 	}
 
@@ -1822,12 +1900,52 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		Assert.isTrue(getInput() == null,
 				"Can only enable the hash look up before input has been set");//$NON-NLS-1$
 		if (enable) {
-			elementMap = newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+			elementMap = newElementMap(ElementItemMap.DEFAULT_CAPACITY);
 		} else {
 			elementMap = null;
 		}
 	}
 
+	/**
+	 * Configures whether this structured viewer filters and sorts large arrays
+	 * of children in a background thread. When enabled, the children of an
+	 * element with at least 1000 children are filtered and sorted in the
+	 * background during a refresh, while the viewer keeps showing the children
+	 * it showed before; the element is refreshed again on the display thread
+	 * with the new order once it is known. A newer refresh of the same element
+	 * cancels the background work of the previous one.
+	 * <p>
+	 * The filters, the comparator and the label provider of this viewer are
+	 * then called from background threads, so they must not access widgets
+	 * and must be safe to call concurrently. Viewers with a lazy content
+	 * provider and tree viewers with a {@link TreePathViewerSorter} always
+	 * filter and sort synchronously.
+	 * </p>
+	 * <p>
+	 * Until the background work for an element is done, the items of its new
+	 * children do not exist, so {@link #findItem(Object)},
+	 * <code>reveal</code> and {@link #setSelection(ISelection, boolean)} do
+	 * not find them. Tree viewers filter and sort synchronously when they
+	 * create the items of an element in order to expand, reveal or select an
+	 * element or one of its descendants.
+	 * </p>
+	 * 
+	 * @param enable
+	 *            <code>true</code> to filter and sort in the background, and
+	 *            <code>false</code> to do it synchronously
+	 * @since 3.8
+	 */
+	public void setUseBackgroundSorting(boolean enable) {
+		if (enable && backgroundSorter == null) {
+			Assert.isNotNull(getControl(),
+					"Can only sort in the background once the control is created"); //$NON-NLS-1$
+			backgroundSorter = new BackgroundSorter(this);
+		} else if (!enable && backgroundSorter != null) {
+			backgroundSorter.reset();
+			backgroundSorter = null;
+		}
+	}
+
 	/**
 	 * Sets the comparer to use for comparing elements, or <code>null</code>
 	 * to use the default <code>equals</code> and <code>hashCode</code>
@@ -1840,7 +1958,10 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	public void setComparer(IElementComparer comparer) {
 		this.comparer = comparer;
 		if (elementMap != null) {
-			elementMap = new CustomHashtable(elementMap, comparer);
+			elementMap = new ElementItemMap(elementMap, comparer);
+		}
+		if (backgroundSorter != null) {
+			backgroundSorter.reset();
 		}
 	}
 
@@ -1909,7 +2030,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 */
 	protected void unmapAllElements() {
 		if (elementMap != null) {
-			elementMap = newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+			elementMap = newElementMap(ElementItemMap.DEFAULT_CAPACITY);
 		}
 	}
 
@@ -1949,36 +2070,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		// double-check that the element actually maps to the given item before
 		// unmapping it
 		if (elementMap != null) {
-			Object widgetOrWidgets = elementMap.get(element);
-			if (widgetOrWidgets == null) {
-				// item was not mapped, return
-				return;
-			} else if (widgetOrWidgets instanceof Widget) {
-				if (item == widgetOrWidgets) {
-					elementMap.remove(element);
-				}
-			} else {
-				Widget[] widgets = (Widget[]) widgetOrWidgets;
-				int indexOfItem = Arrays.asList(widgets).indexOf(item);
-				if (indexOfItem == -1) {
-					return;
-				}
-				int length = widgets.length;
-				if (indexOfItem == 0) {
-					if(length == 1) {
-						elementMap.remove(element);
-					} else {
-						Widget[] updatedWidgets = new Widget[length - 1];
-						System.arraycopy(widgets, 1, updatedWidgets, 0, length -1 );
-						elementMap.put(element, updatedWidgets);
-					}
-				} else {
-					Widget[] updatedWidgets = new Widget[length - 1];
-					System.arraycopy(widgets, 0, updatedWidgets, 0, indexOfItem);
-					System.arraycopy(widgets, indexOfItem + 1, updatedWidgets, indexOfItem, length - indexOfItem - 1);
-					elementMap.put(element, updatedWidgets);
-				}
-			}
+			elementMap.remove(element, item);
 		}
 	}
 
@@ -2082,6 +2174,9 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 */
 	public void update(Object element, String[] properties) {
 		Assert.isNotNull(element);
+		if (sorter != null) {
+			sorter.invalidateSortKeys(this, element);
+		}
 		Widget[] items = findItems(element);
 
 		boolean mayExitEarly = !refreshOccurred;
@@ -2212,6 +2307,9 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		} else {
 			colorAndFontCollector = new ColorAndFontCollector();
 		}
+		if (sorter != null) {
+			sorter.invalidateSortKeys(this, null);
+		}
 		super.setLabelProvider(labelProvider);
 		
 	}
@@ -2330,7 +2428,11 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		comparer = null;
 		if (filters != null)
 			filters.clear();
-		elementMap = newHashtable(1);
+		elementMap = newElementMap(1);
+		if (backgroundSorter != null) {
+			backgroundSorter.reset();
+			backgroundSorter = null;
+		}
 		openListeners.clear();
 		doubleClickListeners.clear();
 		colorAndFontCollector.clear();
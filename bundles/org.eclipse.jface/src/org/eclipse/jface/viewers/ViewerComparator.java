@@ -11,8 +11,12 @@
 
 package org.eclipse.jface.viewers;
 
+import java.text.CollationKey;
+import java.text.Collator;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -46,6 +50,90 @@ public class ViewerComparator {
 	 */
 	private Comparator comparator;
 
+	/**
+	 * The minimum number of collation keys kept for the next sorts.
+	 */
+	private static final int MIN_CACHED_SORT_KEYS = 1000;
+
+	/**
+	 * Whether <code>compare</code> amounts to comparing the categories then
+	 * the collation keys of the labels of the elements, or <code>null</code>
+	 * if not known yet.
+	 */
+	private Boolean collationKeyComparable;
+
+	/**
+	 * Whether the collation keys computed by <code>sort</code> are kept for
+	 * the next sorts.
+	 */
+	private boolean cacheSortKeys;
+
+	/**
+	 * The viewer the keys of {@link #cachedSortKeys} were computed for.
+	 */
+	private Viewer cachedSortKeysViewer;
+
+	/**
+	 * The collation keys of the labels of the last sorted elements, by
+	 * element, or <code>null</code>. Guarded by this comparator.
+	 */
+	private SortKeyCache cachedSortKeys;
+
+	/**
+	 * The collation keys of the most recently sorted elements.
+	 */
+	private static final class SortKeyCache extends LinkedHashMap {
+		private static final long serialVersionUID = 1L;
+
+		int maxSize = MIN_CACHED_SORT_KEYS;
+
+		SortKeyCache() {
+			super(16, 0.75f, true);
+		}
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > maxSize;
+		}
+	}
+
+	/**
+	 * Whether the <code>sort</code> method is the one of this class, or
+	 * <code>null</code> if not known yet.
+	 */
+	private Boolean sortInherited;
+
+	/**
+	 * The category and the collation key of the label of an element.
+	 */
+	static final class SortKey {
+		final Object element;
+
+		final int category;
+
+		final CollationKey key;
+
+		SortKey(Object element, int category, CollationKey key) {
+			this.element = element;
+			this.category = category;
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Orders sort keys the same way as <code>compare</code> orders their
+	 * elements.
+	 */
+	static final Comparator SORT_KEY_ORDER = new Comparator() {
+		public int compare(Object o1, Object o2) {
+			SortKey key1 = (SortKey) o1;
+			SortKey key2 = (SortKey) o2;
+			if (key1.category != key2.category) {
+				return key1.category - key2.category;
+			}
+			return key1.key.compareTo(key2.key);
+		}
+	};
+
 	/**
      * Creates a new {@link ViewerComparator}, which uses the default comparator
      * to sort strings.
@@ -183,6 +271,10 @@ public class ViewerComparator {
      * @param elements the elements to sort
      */
 	public void sort(final Viewer viewer, Object[] elements) {
+		if (elements.length > 1 && isCollationKeyComparable()) {
+			sortByCollationKeys(viewer, elements);
+			return;
+		}
 		try {
 			Arrays.sort(elements, new Comparator() {
 				public int compare(Object a, Object b) {
@@ -202,4 +294,155 @@ public class ViewerComparator {
 			throw e;
 		}
 	}
+
+	/**
+	 * Sorts the given elements by their {@link SortKey}, computing the label
+	 * and collation key of each element once, or taking them from the cache
+	 * if {@link #setCacheSortKeys(boolean)} is enabled.
+	 */
+	private void sortByCollationKeys(Viewer viewer, Object[] elements) {
+		Collator collator = (Collator) getComparator();
+		SortKeyCache cache = null;
+		if (cacheSortKeys) {
+			synchronized (this) {
+				if (cachedSortKeys == null || cachedSortKeysViewer != viewer) {
+					cachedSortKeys = new SortKeyCache();
+					cachedSortKeysViewer = viewer;
+				}
+				cache = cachedSortKeys;
+				// make room for all the elements of a sort
+				cache.maxSize = Math.max(cache.maxSize, elements.length * 2);
+			}
+		}
+		SortKey[] keys = new SortKey[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			Object element = elements[i];
+			CollationKey key = null;
+			if (cache != null) {
+				synchronized (this) {
+					key = (CollationKey) cache.get(element);
+				}
+			}
+			if (key == null) {
+				key = collator.getCollationKey(getLabel(viewer, element));
+				if (cache != null) {
+					synchronized (this) {
+						cache.put(element, key);
+					}
+				}
+			}
+			keys[i] = new SortKey(element, category(element), key);
+		}
+		Arrays.sort(keys, SORT_KEY_ORDER);
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = keys[i].element;
+		}
+	}
+
+	/**
+	 * Configures whether the labels of the elements and their collation keys
+	 * are kept from one sort to the next. This only has an effect when the
+	 * strings are compared with a {@link Collator} and <code>compare</code>
+	 * is not overridden.
+	 * <p>
+	 * The keys of elements are forgotten when the viewer is given a new input
+	 * or label provider, when the label provider fires a
+	 * {@link LabelProviderChangedEvent} and when the elements are updated with
+	 * {@link StructuredViewer#update(Object, String[])}. Clients should only
+	 * enable this if the labels of the elements never change otherwise.
+	 * </p>
+	 * 
+	 * @param cache
+	 *            <code>true</code> to keep the keys between sorts, and
+	 *            <code>false</code> to compute them for each sort
+	 * @since 3.8
+	 */
+	public void setCacheSortKeys(boolean cache) {
+		synchronized (this) {
+			cacheSortKeys = cache;
+			cachedSortKeys = null;
+			cachedSortKeysViewer = null;
+		}
+	}
+
+	/**
+	 * Forgets the cached collation key of the given element, or of all the
+	 * elements if it is <code>null</code>, for the given viewer.
+	 */
+	void invalidateSortKeys(Viewer viewer, Object element) {
+		synchronized (this) {
+			if (cachedSortKeys == null || cachedSortKeysViewer != viewer) {
+				return;
+			}
+			if (element == null) {
+				cachedSortKeys = null;
+				cachedSortKeysViewer = null;
+			} else {
+				cachedSortKeys.remove(element);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether <code>compare</code> amounts to comparing the
+	 * {@link SortKey} of the elements, which is the case when it is not
+	 * overridden and strings are compared with a {@link Collator}.
+	 */
+	private boolean isCollationKeyComparable() {
+		if (collationKeyComparable == null) {
+			collationKeyComparable = Boolean.valueOf(getComparator() instanceof Collator
+					&& isInherited("compare", new Class[] { Viewer.class, //$NON-NLS-1$
+							Object.class, Object.class }));
+		}
+		return collationKeyComparable.booleanValue();
+	}
+
+	/**
+	 * Returns whether sorting with this comparator amounts to ordering the
+	 * elements by their {@link SortKey}, which is the case when neither
+	 * <code>compare</code> nor <code>sort</code> are overridden and strings
+	 * are compared with a {@link Collator}.
+	 */
+	boolean isCollationKeySortable() {
+		return isCollationKeyComparable() && isSortInherited();
+	}
+
+	/**
+	 * Returns whether <code>sort</code> is the one of this class, that sorts
+	 * the elements with <code>compare</code>.
+	 */
+	boolean isSortInherited() {
+		if (sortInherited == null) {
+			sortInherited = Boolean.valueOf(isInherited("sort", new Class[] { //$NON-NLS-1$
+					Viewer.class, Object[].class }));
+		}
+		return sortInherited.booleanValue();
+	}
+
+	private boolean isInherited(String methodName, Class[] parameterTypes) {
+		try {
+			return getClass().getMethod(methodName, parameterTypes)
+					.getDeclaringClass() == ViewerComparator.class;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns a collator to compute sort keys with, that can be used by a
+	 * single thread. Must only be called if
+	 * {@link #isCollationKeySortable()} returns <code>true</code>.
+	 */
+	Collator newSortKeyCollator() {
+		return (Collator) ((Collator) getComparator()).clone();
+	}
+
+	/**
+	 * Returns the sort key of the given element. Must only be called if
+	 * {@link #isCollationKeySortable()} returns <code>true</code>.
+	 */
+	SortKey getSortKey(Viewer viewer, Object element, Collator collator) {
+		return new SortKey(element, category(element), collator
+				.getCollationKey(getLabel(viewer, element)));
+	}
 }
@@ -44,6 +44,7 @@ import org.eclipse.ui.views.markers.FilterConfigurationArea;
 import org.eclipse.ui.views.markers.MarkerField;
 import org.eclipse.ui.views.markers.internal.ContentGeneratorDescriptor;
 import org.eclipse.ui.views.markers.internal.MarkerGroup;
+import org.eclipse.ui.views.markers.internal.MarkerMessages;
 import org.eclipse.ui.views.markers.internal.MarkerSupportRegistry;
 import org.eclipse.ui.views.markers.internal.MarkerType;
 import org.eclipse.ui.views.markers.internal.MarkerTypesModel;
@@ -1108,7 +1109,10 @@ public class MarkerContentGenerator {
 
 	/**
 	 * A helper to the
-	 * {@link #gatherMarkers(String[], boolean, Collection, IProgressMonitor)}
+	 * {@link #gatherMarkers(String[], boolean, Collection, IProgressMonitor)}.
+	 * The resources are searched a project at a time by
+	 * {@link ParallelMarkerJobs} and the entries are added to result in the
+	 * order of the resources.
 	 * 
 	 * @param resources
 	 * @param typeId
@@ -1116,14 +1120,51 @@ public class MarkerContentGenerator {
 	 * @param result
 	 * @param monitor
 	 */
-	private boolean internalGatherMarkers(Collection resources, String typeId,
-			boolean includeSubTypes, Collection result, IProgressMonitor monitor) {
+	private boolean internalGatherMarkers(Collection resources,
+			final String typeId, final boolean includeSubTypes,
+			Collection result, final IProgressMonitor monitor) {
 		if (monitor.isCanceled()) {
 			return false;
 		}
-		IResource[] selected = getSelectedResources();
-		Collection filters = getEnabledFilters();
-		boolean andFilters = andFilters();
+		final IResource[] selected = getSelectedResources();
+		final Collection filters = getEnabledFilters();
+		final boolean andFilters = andFilters();
+		Iterator filtersIterator = filters.iterator();
+		while (filtersIterator.hasNext()) {
+			((MarkerFieldFilterGroup) filtersIterator.next())
+					.prepareSelection();
+		}
+		final List partitions = MarkerResourceUtil
+				.partitionByProject(resources);
+		final Collection[] gathered = new Collection[partitions.size()];
+		boolean success = ParallelMarkerJobs.run(
+				MarkerMessages.MarkerView_searching_for_markers, partitions
+						.size(), new ParallelMarkerJobs.Task() {
+					boolean run(int index) {
+						gathered[index] = new ArrayList();
+						return internalGatherMarkers((Collection) partitions
+								.get(index), typeId, includeSubTypes,
+								gathered[index], selected, filters,
+								andFilters, monitor);
+					}
+				}, monitor);
+		if (!success) {
+			return false;
+		}
+		for (int i = 0; i < gathered.length; i++) {
+			result.addAll(gathered[i]);
+		}
+		return true;
+	}
+
+	/**
+	 * Gather the markers of one group of resources of the same project.
+	 * 
+	 * @see MarkerResourceUtil#partitionByProject(Collection)
+	 */
+	private boolean internalGatherMarkers(Collection resources, String typeId,
+			boolean includeSubTypes, Collection result, IResource[] selected,
+			Collection filters, boolean andFilters, IProgressMonitor monitor) {
 		Iterator iterator = resources.iterator();
 		while (iterator.hasNext()) {
 			IMarker[] markers = null;
@@ -1132,8 +1173,10 @@ public class MarkerContentGenerator {
 				if (!resource.isAccessible()) {
 					continue;
 				}
-				markers = resource.findMarkers(typeId, includeSubTypes,
-						IResource.DEPTH_INFINITE);
+				// The projects of the root are searched separately
+				int depth = resource.getType() == IResource.ROOT ? IResource.DEPTH_ZERO
+						: IResource.DEPTH_INFINITE;
+				markers = resource.findMarkers(typeId, includeSubTypes, depth);
 			} catch (CoreException e) {
 				MarkerSupportInternalUtilities.logViewError(e);
 			}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -66,6 +66,9 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	}
 	// The key for the string we built for display
 	private static final Object LOCATION_STRING = "LOCATION_STRING"; //$NON-NLS-1$
+	// The keys for the values the comparators ask for repeatedly
+	private static final Object CREATION_TIME = "CREATION_TIME"; //$NON-NLS-1$
+	private static final Object MARKER_TYPE_NAME = "MARKER_TYPE_NAME"; //$NON-NLS-1$
 	private MarkerCategory category;
 	private Map cache = null;
 	
@@ -232,8 +235,14 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 		if(stale){
 			return -1;
 		}
+		Object value = getCache().get(CREATION_TIME);
+		if (value != null) {
+			return ((Long) value).longValue();
+		}
 		try {
-			return marker.getCreationTime();
+			long creationTime = marker.getCreationTime();
+			getCache().put(CREATION_TIME, new Long(creationTime));
+			return creationTime;
 		} catch (CoreException e) {
 			checkIfMarkerStale();
 			Policy.handle(e);
@@ -318,9 +327,15 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 			return NLS.bind(MarkerMessages.FieldMessage_WrongType, marker
 					.toString());
 		}
+		Object value = getCache().get(MARKER_TYPE_NAME);
+		if (value != null) {
+			return (String) value;
+		}
 		try {
-			return MarkerTypesModel.getInstance().getType(marker.getType())
-					.getLabel();
+			String typeName = MarkerTypesModel.getInstance().getType(
+					marker.getType()).getLabel();
+			getCache().put(MARKER_TYPE_NAME, typeName);
+			return typeName;
 		} catch (CoreException e) {
 			checkIfMarkerStale() ;
 			Policy.handle(e);
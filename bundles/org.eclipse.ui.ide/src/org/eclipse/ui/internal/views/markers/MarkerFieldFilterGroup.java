@@ -702,6 +702,18 @@ class MarkerFieldFilterGroup {
 		}
 	}
 	
+	/**
+	 * Compute the filters and the working set resources that are otherwise
+	 * computed on the first selection, so that entries can then be selected
+	 * from several threads at once.
+	 */
+	void prepareSelection() {
+		getFieldFilters();
+		if (getScope() == ON_WORKING_SET && wSetResources == null) {
+			computeWorkingSetResources();
+		}
+	}
+
 	public boolean selectByFilters(MarkerEntry entry) {
 		return select(entry);
 	}
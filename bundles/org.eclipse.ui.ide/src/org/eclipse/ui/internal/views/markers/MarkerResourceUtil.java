@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,10 +11,14 @@
 
 package org.eclipse.ui.internal.views.markers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
@@ -111,6 +115,48 @@ class MarkerResourceUtil {
 		return resourceSet;
 	}
 
+	/**
+	 * Split the resources to collect markers for into groups of the same
+	 * project so that the groups can be searched independently. The
+	 * workspace root is split into its projects and the root itself; the
+	 * root is only to be searched for its own markers
+	 * ({@link IResource#DEPTH_ZERO}) since its projects are searched apart.
+	 * 
+	 * @param resources
+	 *            the resources as computed by
+	 *            {@link #computeResources(IResource[], Collection, boolean)}
+	 * @return List of Collection of {@link IResource}
+	 */
+	static List partitionByProject(Collection resources) {
+		Map partitions = new LinkedHashMap();
+		Iterator iterator = resources.iterator();
+		while (iterator.hasNext()) {
+			IResource resource = (IResource) iterator.next();
+			if (resource.getType() == IResource.ROOT) {
+				IProject[] projects = ((IWorkspaceRoot) resource).getProjects();
+				for (int i = 0; i < projects.length; i++) {
+					addToPartition(partitions, projects[i], projects[i]);
+				}
+				addToPartition(partitions, resource, resource);
+			} else {
+				addToPartition(partitions, resource.getProject(), resource);
+			}
+		}
+		return new ArrayList(partitions.values());
+	}
+
+	private static void addToPartition(Map partitions, IResource key,
+			IResource resource) {
+		Collection partition = (Collection) partitions.get(key);
+		if (partition == null) {
+			partition = new ArrayList(1);
+			partitions.put(key, partition);
+		}
+		if (!partition.contains(resource)) {
+			partition.add(resource);
+		}
+	}
+
 	/**
 	 * Since every filter provides it's on set of resources, instead of
 	 * computing markers on filters individually and then ORing the markers; we
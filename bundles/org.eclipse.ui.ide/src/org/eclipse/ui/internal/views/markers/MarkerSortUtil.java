@@ -33,6 +33,7 @@ import java.util.Comparator;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.ui.views.markers.internal.MarkerMessages;
 
 /**
  * @since 3.5
@@ -63,6 +64,13 @@ public class MarkerSortUtil {
 	 */
 	private static float MERGE_OR_HEAP_SWITCH=1.5f;
 
+	/*
+	 * The least number of entries each run has to hold for the entries to be
+	 * sorted in parallel runs. Smaller arrays are sorted faster on the
+	 * calling thread than the runs can be scheduled and merged.
+	 */
+	private static int PARALLEL_THRESHOLD = 2 * BATCH_SIZE;
+
 	/**
 	 * Sorts [first,middle] in the array of [first,last] using a variant of
 	 * modified heapsort, such that
@@ -358,6 +366,97 @@ public class MarkerSortUtil {
 		}
 	}
 
+	/**
+	 * Sorts [from,from+k-1] in the array of [from,to] like
+	 * {@link #sortStartingKElement(MarkerEntry[], Comparator, int, int, int, IProgressMonitor)}
+	 * but splits the range into runs that are sorted in parallel by
+	 * {@link ParallelMarkerJobs}. The first k entries of every run are then
+	 * merged into place. Ranges too small to be worth splitting are sorted on
+	 * the calling thread.
+	 * 
+	 * @param entries
+	 * @param comparator
+	 * @param from
+	 * @param to
+	 * @param k
+	 * @param monitor
+	 */
+	public static void sortStartingKElementInParallel(
+			final MarkerEntry[] entries, final Comparator comparator,
+			int from, int to, int k, final IProgressMonitor monitor) {
+		int last = from + k - 1;
+		int n = to - from + 1;
+		int runCount = Math.min(ParallelMarkerJobs.getParallelism(), n
+				/ PARALLEL_THRESHOLD);
+		if (runCount < 2 || from < 0 || last < from || last > to
+				|| to > entries.length - 1) {
+			sortStartingKElement(entries, comparator, from, to, k, monitor);
+			return;
+		}
+
+		final int[] starts = new int[runCount + 1];
+		final int[] limits = new int[runCount];
+		for (int i = 0; i <= runCount; i++) {
+			starts[i] = from + (int) ((long) n * i / runCount);
+		}
+		for (int i = 0; i < runCount; i++) {
+			limits[i] = Math.min(k, starts[i + 1] - starts[i]);
+		}
+		boolean sorted = ParallelMarkerJobs.run(
+				MarkerMessages.MarkerView_processUpdates, runCount,
+				new ParallelMarkerJobs.Task() {
+					boolean run(int index) {
+						sortStartingKElement(entries, comparator,
+								starts[index], starts[index + 1] - 1,
+								limits[index], monitor);
+						return !monitor.isCanceled();
+					}
+				}, monitor);
+		if (!sorted) {
+			return;
+		}
+		merge(entries, comparator, starts, limits, k, monitor);
+	}
+
+	/**
+	 * Merge the sorted first entries of the runs starting at starts into the
+	 * first k entries of the range, followed by the remaining entries.
+	 */
+	private static void merge(MarkerEntry[] entries, Comparator comparator,
+			int[] starts, int[] limits, int k, IProgressMonitor monitor) {
+		int runCount = limits.length;
+		int from = starts[0];
+		MarkerEntry[] merged = new MarkerEntry[starts[runCount] - from];
+		int[] heads = new int[runCount];
+		System.arraycopy(starts, 0, heads, 0, runCount);
+		int count = 0;
+		while (count < k) {
+			int min = -1;
+			for (int i = 0; i < runCount; i++) {
+				if (heads[i] < starts[i] + limits[i]
+						&& (min < 0 || comparator.compare(entries[heads[i]],
+								entries[heads[min]]) < 0)) {
+					min = i;
+				}
+			}
+			if (min < 0) {
+				break;
+			}
+			merged[count] = entries[heads[min]++];
+			merged[count++].clearCache();
+			if (count % BATCH_SIZE == 0 && monitor.isCanceled()) {
+				return;
+			}
+		}
+		for (int i = 0; i < runCount; i++) {
+			for (int j = heads[i]; j < starts[i + 1]; j++) {
+				merged[count] = entries[j];
+				merged[count++].clearCache();
+			}
+		}
+		System.arraycopy(merged, 0, entries, from, merged.length);
+	}
+
 	/**
 	 * @param fArray1
 	 * @param comparator
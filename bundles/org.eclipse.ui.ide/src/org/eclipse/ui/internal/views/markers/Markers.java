@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -157,9 +157,9 @@ class Markers {
 					category.children = null; // reset cached children
 					int avaliable = category.end - category.start + 1;
 					int effLimit = getShowingLimit(avaliable);
-					MarkerSortUtil.sortStartingKElement(markerEntryArray,
-							comparator, category.start, category.end, effLimit,
-							monitor);
+					MarkerSortUtil.sortStartingKElementInParallel(
+							markerEntryArray, comparator, category.start,
+							category.end, effLimit, monitor);
 				}
 			} else {
 				if (monitor.isCanceled()) {
@@ -167,8 +167,9 @@ class Markers {
 				}
 				int avaialble = markerEntryArray.length - 1;
 				int effLimit = getShowingLimit(avaialble);
-				MarkerSortUtil.sortStartingKElement(markerEntryArray,
-						builder.getComparator(), effLimit, monitor);
+				MarkerSortUtil.sortStartingKElementInParallel(
+						markerEntryArray, builder.getComparator(), 0,
+						markerEntryArray.length - 1, effLimit, monitor);
 			}
 			if (monitor.isCanceled()) {
 				return false;
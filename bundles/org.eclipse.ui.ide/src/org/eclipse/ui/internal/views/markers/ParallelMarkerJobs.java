@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.internal.views.markers;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * ParallelMarkerJobs runs a number of independent tasks of a marker update
+ * on the calling thread and on a pool of system jobs, one job per available
+ * processor. The tasks are handed out by index so that the results can be
+ * kept in order by the caller.
+ *
+ * @since 3.6
+ *
+ */
+class ParallelMarkerJobs {
+
+	/**
+	 * The family of the jobs running the tasks.
+	 */
+	static final Object FAMILY = new Object();
+
+	/**
+	 * A task run for each index.
+	 */
+	abstract static class Task {
+
+		/**
+		 * Run the task for index.
+		 *
+		 * @param index
+		 * @return <code>false</code> if the other tasks are not to be run
+		 */
+		abstract boolean run(int index);
+	}
+
+	private final int count;
+	private final Task task;
+	private final IProgressMonitor monitor;
+	private int next;
+	private int done;
+	private boolean failed;
+
+	private ParallelMarkerJobs(int count, Task task, IProgressMonitor monitor) {
+		this.count = count;
+		this.task = task;
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Return the number of tasks that can run at once.
+	 *
+	 * @return int
+	 */
+	static int getParallelism() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Run task for the indices from 0 to count - 1 and wait until all of them
+	 * have run.
+	 *
+	 * @param name
+	 *            the name of the jobs
+	 * @param count
+	 * @param task
+	 * @param monitor
+	 * @return <code>true</code> if the task ran for every index,
+	 *         <code>false</code> if it failed or the monitor was canceled
+	 */
+	static boolean run(String name, int count, Task task,
+			IProgressMonitor monitor) {
+		ParallelMarkerJobs jobs = new ParallelMarkerJobs(count, task, monitor);
+		jobs.runAll(name);
+		return jobs.isCompleted();
+	}
+
+	private void runAll(String name) {
+		Job[] workers = new Job[Math.max(Math.min(getParallelism(), count) - 1,
+				0)];
+		try {
+			for (int i = 0; i < workers.length; i++) {
+				workers[i] = new Job(name) {
+					protected IStatus run(IProgressMonitor jobMonitor) {
+						runTasks();
+						return Status.OK_STATUS;
+					}
+
+					public boolean belongsTo(Object family) {
+						return FAMILY == family;
+					}
+				};
+				workers[i].setSystem(true);
+				workers[i].schedule();
+			}
+			runTasks();
+		} finally {
+			for (int i = 0; i < workers.length; i++) {
+				if (workers[i] != null) {
+					join(workers[i]);
+				}
+			}
+		}
+	}
+
+	private static void join(Job job) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				job.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void runTasks() {
+		int index;
+		while ((index = nextIndex()) >= 0) {
+			boolean success = false;
+			try {
+				success = task.run(index);
+			} finally {
+				taskDone(success);
+			}
+		}
+	}
+
+	private synchronized int nextIndex() {
+		if (failed || next >= count || monitor.isCanceled()) {
+			return -1;
+		}
+		return next++;
+	}
+
+	private synchronized void taskDone(boolean success) {
+		if (success) {
+			done++;
+		} else {
+			failed = true;
+		}
+	}
+
+	private synchronized boolean isCompleted() {
+		return !failed && done == count && !monitor.isCanceled();
+	}
+}
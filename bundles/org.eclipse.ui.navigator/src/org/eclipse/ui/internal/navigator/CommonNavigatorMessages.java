@@ -129,6 +129,9 @@ public class CommonNavigatorMessages extends NLS {
 	
 	/** */
 	public static String NavigatorContentService_problemSavingPreferences;
+
+	/** */
+	public static String NavigatorContentServiceContentProvider_Fetching_children_of_0_;
 	
 
 	static {
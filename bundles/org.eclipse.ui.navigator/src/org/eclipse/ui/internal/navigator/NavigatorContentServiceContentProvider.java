@@ -15,19 +15,33 @@
 package org.eclipse.ui.internal.navigator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.viewers.AbstractTreeViewer;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.ITreePathContentProvider;
+import org.eclipse.jface.viewers.ITreeViewerListener;
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.TreeExpansionEvent;
 import org.eclipse.jface.viewers.TreePath;
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.internal.navigator.extensions.NavigatorContentDescriptor;
 import org.eclipse.ui.internal.navigator.extensions.NavigatorContentExtension;
 import org.eclipse.ui.internal.navigator.extensions.NavigatorViewerDescriptor;
@@ -37,6 +51,7 @@ import org.eclipse.ui.navigator.INavigatorContentDescriptor;
 import org.eclipse.ui.navigator.INavigatorViewerDescriptor;
 import org.eclipse.ui.navigator.IPipelinedTreeContentProvider;
 import org.eclipse.ui.navigator.OverridePolicy;
+import org.eclipse.ui.progress.PendingUpdateAdapter;
 
 /**
  * <p>
@@ -53,6 +68,19 @@ import org.eclipse.ui.navigator.OverridePolicy;
  * functionality (filters, sorting, etc) may choose to use this class, in effect
  * using an extensible, aggregating, delegate content provider.
  * </p>
+ * <p>
+ * If the viewer sets the
+ * {@link NavigatorViewerDescriptor#PROP_ASYNC_CHILDREN} property, the children
+ * of the extensions marked as thread safe are fetched by jobs belonging to the
+ * family of this content provider. A {@link PendingUpdateAdapter} is shown
+ * until they are first available. Later requests answer the children last
+ * fetched while the job fetches them again, and the differences are then
+ * added to and removed from the viewer. Until its children have been fetched,
+ * an element is assumed to have children of these extensions unless the
+ * viewer enforces <code>hasChildren</code>. The children of an element and of
+ * its descendants are forgotten when the element is collapsed, and when it is
+ * no longer shown by the viewer.
+ * </p>
  * 
  * @see org.eclipse.ui.internal.navigator.NavigatorContentService
  * @see org.eclipse.ui.internal.navigator.NavigatorContentServiceLabelProvider
@@ -70,8 +98,35 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 
 	private final boolean enforceHasChildren;
 
+	private final boolean asyncChildren;
+
 	private Viewer viewer;
 
+	/* Guards pendingJobs, fetchedChildren, shownChildren and the jobs' extensions */
+	private final Object childrenLock = new Object();
+
+	// parent element or path -> FetchChildrenJob
+	private final Map pendingJobs = new HashMap();
+
+	// parent element or path -> Map of NavigatorContentExtension -> Object[],
+	// the children last fetched
+	private final Map fetchedChildren = new HashMap();
+
+	// parent element or path -> Object[], the children last given to the viewer
+	private final Map shownChildren = new HashMap();
+
+	// elements unmapped from the viewer since the last check, UI thread only
+	private final Set unmappedElements = new HashSet();
+
+	private final ITreeViewerListener collapseListener = new ITreeViewerListener() {
+		public void treeCollapsed(TreeExpansionEvent event) {
+			forgetChildren(Collections.singleton(event.getElement()));
+		}
+
+		public void treeExpanded(TreeExpansionEvent event) {
+		}
+	};
+
 	/**
 	 * <p>
 	 * Creates a cached {@link NavigatorContentService}&nbsp;from the given
@@ -102,38 +157,54 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 		contentService = aContentService;
 		INavigatorViewerDescriptor vDesc = contentService.getViewerDescriptor();
 		enforceHasChildren = vDesc.getBooleanConfigProperty(NavigatorViewerDescriptor.PROP_ENFORCE_HAS_CHILDREN);
+		asyncChildren = vDesc.getBooleanConfigProperty(NavigatorViewerDescriptor.PROP_ASYNC_CHILDREN);
 	}
 
 	public void inputChanged(Viewer aViewer, Object anOldInput, Object aNewInput) {
+		cancelFetchingChildren();
+		if (aViewer != viewer) {
+			if (asyncChildren && viewer instanceof AbstractTreeViewer) {
+				((AbstractTreeViewer) viewer).removeTreeListener(collapseListener);
+			}
+			if (asyncChildren && aViewer instanceof AbstractTreeViewer) {
+				((AbstractTreeViewer) aViewer).addTreeListener(collapseListener);
+			}
+		}
 		viewer = aViewer;
 		contentService.updateService(aViewer, anOldInput, aNewInput);
 	}
 
 	public Object[] getElements(Object anInputElement) {
 		Set rootContentExtensions = contentService.findRootContentExtensions(anInputElement);
-		return internalGetChildren(anInputElement, anInputElement, rootContentExtensions, ELEMENTS);
+		return internalGetChildren(anInputElement, anInputElement, rootContentExtensions, ELEMENTS,
+				true);
 	}
 
 	public Object[] getChildren(Object aParentElement) {
 		Set enabledExtensions = contentService.findContentExtensionsByTriggerPoint(aParentElement);
-		return internalGetChildren(aParentElement, aParentElement, enabledExtensions, !ELEMENTS);
+		return internalGetChildren(aParentElement, aParentElement, enabledExtensions, !ELEMENTS,
+				true);
 	}
 
 	public Object[] getChildren(TreePath parentPath) {
 		Object aParentElement = internalAsElement(parentPath);
 		Set enabledExtensions = contentService.findContentExtensionsByTriggerPoint(aParentElement);
-		return internalGetChildren(aParentElement, parentPath, enabledExtensions, !ELEMENTS);
+		return internalGetChildren(aParentElement, parentPath, enabledExtensions, !ELEMENTS, true);
 	}
 	
 	private static final boolean ELEMENTS = true;
 
 	private Object[] internalGetChildren(final Object aParentElement,
-			final Object aParentElementOrPath, final Set enabledExtensions, final boolean elements) {
+			final Object aParentElementOrPath, final Set enabledExtensions, final boolean elements,
+			boolean fetch) {
 		if (enabledExtensions.size() == 0) {
 			return NO_CHILDREN;
 		}
 		final Set finalSet = new LinkedHashSet();
 		final ContributorTrackingSet localSet = new ContributorTrackingSet(contentService);
+		final Set asyncExtensions = findAsyncExtensions(enabledExtensions);
+		final Map fetched = asyncExtensions.isEmpty() ? null : getFetchedChildren(
+				aParentElement, aParentElementOrPath, asyncExtensions, elements, fetch);
 
 		for (final Iterator itr = enabledExtensions.iterator(); itr.hasNext();) {
 			SafeRunner.run(new NavigatorSafeRunnable() {
@@ -144,7 +215,13 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 				public void run() throws Exception {
 					if (!isOverridingExtensionInSet(foundExtension.getDescriptor(),
 							enabledExtensions)) {
-						if (elements)
+						if (asyncExtensions.contains(foundExtension)) {
+							if (fetched == null) {
+								// Merged once the children are fetched
+								return;
+							}
+							contributedChildren = (Object[]) fetched.get(foundExtension);
+						} else if (elements)
 							contributedChildren = foundExtension.internalGetContentProvider()
 									.getElements(aParentElementOrPath);
 						else
@@ -173,9 +250,395 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 			});
 		}		
 
+		if (!asyncExtensions.isEmpty()) {
+			if (fetched == null) {
+				finalSet.add(new PendingUpdateAdapter());
+			}
+			Object[] children = finalSet.toArray();
+			synchronized (childrenLock) {
+				shownChildren.put(aParentElementOrPath, children);
+			}
+			return children;
+		}
 		return finalSet.toArray();
 	}
 
+	/**
+	 * Return the extensions whose children are fetched in the background. Only
+	 * thread safe extensions that are already loaded qualify, and only when
+	 * the viewer asks for the children on the UI thread.
+	 * 
+	 * @param theEnabledExtensions
+	 *            The extensions enabled for the parent
+	 * @return The set of extensions to fetch the children of
+	 */
+	private Set findAsyncExtensions(Set theEnabledExtensions) {
+		if (!asyncChildren || !(viewer instanceof AbstractTreeViewer)
+				|| Display.getCurrent() == null) {
+			return Collections.EMPTY_SET;
+		}
+		Set asyncExtensions = null;
+		for (Iterator itr = theEnabledExtensions.iterator(); itr.hasNext();) {
+			NavigatorContentExtension extension = (NavigatorContentExtension) itr.next();
+			NavigatorContentDescriptor descriptor = (NavigatorContentDescriptor) extension
+					.getDescriptor();
+			if (descriptor.isThreadSafe() && extension.isLoaded()
+					&& !isOverridingExtensionInSet(descriptor, theEnabledExtensions)) {
+				if (asyncExtensions == null) {
+					asyncExtensions = new HashSet();
+				}
+				asyncExtensions.add(extension);
+			}
+		}
+		return asyncExtensions != null ? asyncExtensions : Collections.EMPTY_SET;
+	}
+
+	/**
+	 * Return the children last fetched for the parent, and schedule a job to
+	 * fetch them again.
+	 * 
+	 * @param aParentElement
+	 *            The parent element
+	 * @param aParentElementOrPath
+	 *            The parent element or path the viewer asked for
+	 * @param theAsyncExtensions
+	 *            The extensions to fetch the children of
+	 * @param elements
+	 *            True if the parent is the input of the viewer
+	 * @param fetch
+	 *            False to only fetch the children if none are known yet
+	 * @return Map of each extension to its children, or <code>null</code> if
+	 *         they are still being fetched
+	 */
+	private Map getFetchedChildren(Object aParentElement, Object aParentElementOrPath,
+			Set theAsyncExtensions, boolean elements, boolean fetch) {
+		synchronized (childrenLock) {
+			Map children = (Map) fetchedChildren.get(aParentElementOrPath);
+			if (children != null && !children.keySet().containsAll(theAsyncExtensions)) {
+				children = null;
+			}
+			if (fetch || children == null) {
+				FetchChildrenJob job = (FetchChildrenJob) pendingJobs.get(aParentElementOrPath);
+				if (job == null) {
+					job = new FetchChildrenJob(aParentElement, aParentElementOrPath,
+							theAsyncExtensions, elements);
+					pendingJobs.put(aParentElementOrPath, job);
+					job.schedule();
+				} else {
+					// The parent may have changed since the job started
+					job.refetch(theAsyncExtensions);
+				}
+			}
+			return children;
+		}
+	}
+
+	/**
+	 * Return whether the element has children according to the children last
+	 * fetched for it by the extension.
+	 * 
+	 * @param anElementOrPath
+	 *            The element or path the viewer asked for
+	 * @param anExtension
+	 *            A thread safe extension
+	 * @return <code>Boolean.TRUE</code> or <code>Boolean.FALSE</code>, or
+	 *         <code>null</code> if the children have not been fetched yet
+	 */
+	private Boolean hasFetchedChildren(Object anElementOrPath,
+			NavigatorContentExtension anExtension) {
+		synchronized (childrenLock) {
+			Map children = (Map) fetchedChildren.get(anElementOrPath);
+			if (children == null || !children.containsKey(anExtension)) {
+				return null;
+			}
+			Object[] contributedChildren = (Object[]) children.get(anExtension);
+			return contributedChildren != null && contributedChildren.length > 0 ? Boolean.TRUE
+					: Boolean.FALSE;
+		}
+	}
+
+	private void cancelFetchingChildren() {
+		synchronized (childrenLock) {
+			for (Iterator itr = pendingJobs.values().iterator(); itr.hasNext();) {
+				((Job) itr.next()).cancel();
+			}
+			pendingJobs.clear();
+			fetchedChildren.clear();
+			shownChildren.clear();
+		}
+	}
+
+	/**
+	 * Forget the children of the elements and of their descendants, and stop
+	 * fetching them. The descendants are found through the children last
+	 * given to the viewer.
+	 * 
+	 * @param theElements
+	 *            The elements collapsed in or removed from the viewer
+	 */
+	private void forgetChildren(Set theElements) {
+		synchronized (childrenLock) {
+			LinkedList toForget = new LinkedList();
+			for (Iterator itr = shownChildren.keySet().iterator(); itr.hasNext();) {
+				Object parentElementOrPath = itr.next();
+				if (theElements.contains(internalAsElement(parentElementOrPath))) {
+					toForget.add(parentElementOrPath);
+				}
+			}
+			while (!toForget.isEmpty()) {
+				Object parentElementOrPath = toForget.removeFirst();
+				Job job = (Job) pendingJobs.remove(parentElementOrPath);
+				if (job != null) {
+					job.cancel();
+				}
+				fetchedChildren.remove(parentElementOrPath);
+				Object[] children = (Object[]) shownChildren.remove(parentElementOrPath);
+				if (children == null) {
+					continue;
+				}
+				for (int i = 0; i < children.length; i++) {
+					if (parentElementOrPath instanceof TreePath) {
+						toForget.add(((TreePath) parentElementOrPath).createChildPath(children[i]));
+					} else {
+						toForget.add(children[i]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Called by the viewer when an element is no longer associated with one
+	 * of its items. Once the viewer operation has completed, the children of
+	 * the elements the viewer no longer shows are forgotten. Elements that
+	 * were only moved to another item keep their children.
+	 * </p>
+	 * <p>
+	 * Must be called from the UI thread.
+	 * </p>
+	 * 
+	 * @param anElement
+	 *            The element unmapped from the viewer
+	 */
+	public void elementUnmapped(Object anElement) {
+		if (!asyncChildren || !(viewer instanceof StructuredViewer)) {
+			return;
+		}
+		synchronized (childrenLock) {
+			if (shownChildren.isEmpty()) {
+				return;
+			}
+		}
+		if (unmappedElements.isEmpty()) {
+			final StructuredViewer unmappingViewer = (StructuredViewer) viewer;
+			final Control control = unmappingViewer.getControl();
+			if (control == null || control.isDisposed()) {
+				return;
+			}
+			control.getDisplay().asyncExec(new Runnable() {
+				public void run() {
+					Object[] elements = unmappedElements.toArray();
+					unmappedElements.clear();
+					if (control.isDisposed() || viewer != unmappingViewer) {
+						return;
+					}
+					Set removed = new HashSet();
+					for (int i = 0; i < elements.length; i++) {
+						if (unmappingViewer.testFindItem(elements[i]) == null) {
+							removed.add(elements[i]);
+						}
+					}
+					if (!removed.isEmpty()) {
+						forgetChildren(removed);
+					}
+				}
+			});
+		}
+		unmappedElements.add(anElement);
+	}
+
+	/**
+	 * Fetches the children of thread safe extensions for a parent, querying
+	 * the extensions concurrently, and updates the children of the parent in
+	 * the viewer once all of them answered.
+	 */
+	private class FetchChildrenJob extends Job {
+
+		private final Object parentElement;
+
+		private final Object parentElementOrPath;
+
+		private final boolean elements;
+
+		private final Viewer jobViewer;
+
+		private Set extensions;
+
+		private boolean refetch;
+
+		FetchChildrenJob(Object aParentElement, Object aParentElementOrPath,
+				Set theExtensions, boolean isElements) {
+			super(NLS.bind(
+					CommonNavigatorMessages.NavigatorContentServiceContentProvider_Fetching_children_of_0_,
+					aParentElement));
+			parentElement = aParentElement;
+			parentElementOrPath = aParentElementOrPath;
+			extensions = theExtensions;
+			elements = isElements;
+			jobViewer = viewer;
+			setSystem(true);
+		}
+
+		/* Called holding childrenLock */
+		void refetch(Set theExtensions) {
+			extensions = theExtensions;
+			refetch = true;
+		}
+
+		public boolean belongsTo(Object family) {
+			return family == NavigatorContentServiceContentProvider.this;
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			Set toFetch;
+			synchronized (childrenLock) {
+				toFetch = extensions;
+				refetch = false;
+			}
+			while (true) {
+				Map children = fetch(toFetch);
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				synchronized (childrenLock) {
+					if (pendingJobs.get(parentElementOrPath) != this) {
+						return Status.CANCEL_STATUS;
+					}
+					if (!refetch) {
+						pendingJobs.remove(parentElementOrPath);
+						fetchedChildren.put(parentElementOrPath, children);
+						break;
+					}
+					toFetch = extensions;
+					refetch = false;
+				}
+			}
+			updateParent();
+			return Status.OK_STATUS;
+		}
+
+		private Map fetch(Set theExtensions) {
+			final Map children = Collections.synchronizedMap(new HashMap());
+			Iterator itr = theExtensions.iterator();
+			NavigatorContentExtension first = (NavigatorContentExtension) itr.next();
+			List others = new ArrayList();
+			while (itr.hasNext()) {
+				final NavigatorContentExtension extension = (NavigatorContentExtension) itr.next();
+				Job other = new Job(getName()) {
+					protected IStatus run(IProgressMonitor monitor) {
+						fetch(extension, children);
+						return Status.OK_STATUS;
+					}
+				};
+				other.setSystem(true);
+				other.schedule();
+				others.add(other);
+			}
+			fetch(first, children);
+			boolean interrupted = false;
+			for (int i = 0; i < others.size(); i++) {
+				Job other = (Job) others.get(i);
+				while (true) {
+					try {
+						other.join();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return children;
+		}
+
+		private void fetch(final NavigatorContentExtension anExtension, final Map theChildren) {
+			SafeRunner.run(new NavigatorSafeRunnable() {
+				public void run() throws Exception {
+					SafeDelegateTreeContentProvider cp = anExtension.internalGetContentProvider();
+					theChildren.put(anExtension, elements ? cp.getElements(parentElementOrPath)
+							: cp.getChildren(parentElementOrPath));
+				}
+
+				public void handleException(Throwable e) {
+					theChildren.put(anExtension, NO_CHILDREN);
+					NavigatorPlugin.logError(0, NLS.bind(
+							CommonNavigatorMessages.Exception_Invoking_Extension, new Object[] {
+									anExtension.getDescriptor().getId(), parentElement }), e);
+				}
+			});
+		}
+
+		private void updateParent() {
+			final Control control = jobViewer.getControl();
+			if (control == null || control.isDisposed()) {
+				return;
+			}
+			control.getDisplay().asyncExec(new Runnable() {
+				public void run() {
+					if (control.isDisposed() || viewer != jobViewer) {
+						return;
+					}
+					Object[] oldChildren;
+					synchronized (childrenLock) {
+						oldChildren = (Object[]) shownChildren.get(parentElementOrPath);
+					}
+					if (oldChildren == null) {
+						// Forgotten since the job started
+						return;
+					}
+					Set enabledExtensions = elements ? contentService
+							.findRootContentExtensions(parentElement) : contentService
+							.findContentExtensionsByTriggerPoint(parentElement);
+					Object[] newChildren = internalGetChildren(parentElement,
+							parentElementOrPath, enabledExtensions, elements, false);
+					updateChildren(oldChildren, newChildren);
+				}
+			});
+		}
+
+		/*
+		 * Add and remove the differences instead of refreshing the parent, which
+		 * would ask for its children again.
+		 */
+		private void updateChildren(Object[] theOldChildren, Object[] theNewChildren) {
+			Set oldSet = new HashSet(Arrays.asList(theOldChildren));
+			Set newSet = new HashSet(Arrays.asList(theNewChildren));
+			Set removed = new LinkedHashSet();
+			for (int i = 0; i < theOldChildren.length; i++) {
+				if (!newSet.contains(theOldChildren[i])) {
+					removed.add(theOldChildren[i]);
+				}
+			}
+			List added = new ArrayList();
+			for (int i = 0; i < theNewChildren.length; i++) {
+				if (!oldSet.contains(theNewChildren[i])) {
+					added.add(theNewChildren[i]);
+				}
+			}
+			AbstractTreeViewer treeViewer = (AbstractTreeViewer) jobViewer;
+			if (!removed.isEmpty()) {
+				treeViewer.remove(parentElementOrPath, removed.toArray());
+				forgetChildren(removed);
+			}
+			if (!added.isEmpty()) {
+				treeViewer.add(parentElementOrPath, added.toArray());
+			}
+		}
+	}
+
 	/**
 	 * Query each of <code>theOverridingExtensions</code> for children, and then
 	 * pipe them through the Pipeline content provider.
@@ -375,6 +838,7 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 	public boolean hasChildren(final Object anElementOrPath) {
 		final Object anElement = internalAsElement(anElementOrPath);
 		final Set enabledExtensions = contentService.findContentExtensionsByTriggerPoint(anElement);
+		final Set asyncExtensions = findAsyncExtensions(enabledExtensions);
 		final boolean suggestedHasChildren[] = new boolean[1];
 
 		for (final Iterator itr = enabledExtensions.iterator(); itr.hasNext();) {
@@ -391,9 +855,16 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 
 					NavigatorContentExtension[] overridingExtensions;
 					if (!isOverridingExtensionInSet(ext.getDescriptor(), enabledExtensions)) {
-						SafeDelegateTreeContentProvider cp = ext.internalGetContentProvider();
-						suggestedHasChildren[0] |= callNormalHasChildren(anElementOrPath,
-								anElement, cp);
+						if (!enforceHasChildren && asyncExtensions.contains(ext)) {
+							// Not asked on the UI thread, like getChildren()
+							Boolean fetched = hasFetchedChildren(anElementOrPath, ext);
+							suggestedHasChildren[0] |= fetched == null
+									|| fetched.booleanValue();
+						} else {
+							SafeDelegateTreeContentProvider cp = ext.internalGetContentProvider();
+							suggestedHasChildren[0] |= callNormalHasChildren(anElementOrPath,
+									anElement, cp);
+						}
 						overridingExtensions = ext
 								.getOverridingExtensionsForTriggerPoint(anElement);
 
@@ -466,6 +937,10 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 	 * @see org.eclipse.jface.viewers.IContentProvider#dispose()
 	 */
 	public void dispose() {
+		cancelFetchingChildren();
+		if (asyncChildren && viewer instanceof AbstractTreeViewer) {
+			((AbstractTreeViewer) viewer).removeTreeListener(collapseListener);
+		}
 		if (disposeContentService) {
 			contentService.dispose();
 		}
@@ -0,0 +1,352 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.navigator.extensions;
+
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.ui.internal.navigator.VisibilityAssistant;
+import org.eclipse.ui.internal.navigator.VisibilityAssistant.VisibilityListener;
+
+/**
+ * Caches the content descriptors found for the elements of a viewer.
+ * <p>
+ * The descriptors are not cached per element but per {@link Key}: the class
+ * of the element together with the descriptors whose expressions do not only
+ * test the type and are enabled for the element. Elements of the same kind
+ * therefore share their results, and the results stay valid when an element
+ * changes.
+ * </p>
+ * <p>
+ * The most recently used keys are kept up to a maximum size. When the
+ * visibility or activation of descriptors changes, only the results for which
+ * one of those descriptors was enabled are invalidated.
+ * </p>
+ * <p>
+ * The cache is safe for use by several threads. The statistics are kept for
+ * tuning the maximum size.
+ * </p>
+ */
+public class EvaluationCache implements VisibilityListener {
+
+	/**
+	 * The default maximum number of cached results.
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+	/**
+	 * The inputs the descriptors found for an element depend on.
+	 */
+	public static final class Key {
+
+		private final Class type;
+
+		private final boolean considerOverrides;
+
+		private final Set enabledDescriptors;
+
+		private final int hashCode;
+
+		/**
+		 *
+		 * @param aType
+		 *            The class of the element
+		 * @param toConsiderOverrides
+		 *            Whether the overrides are considered
+		 * @param theEnabledDescriptors
+		 *            The visible and active descriptors which do not only
+		 *            test the type and are enabled for the element
+		 */
+		public Key(Class aType, boolean toConsiderOverrides,
+				Set theEnabledDescriptors) {
+			type = aType;
+			considerOverrides = toConsiderOverrides;
+			enabledDescriptors = theEnabledDescriptors;
+			hashCode = (type.hashCode() * 31 + enabledDescriptors.hashCode())
+					* 2 + (considerOverrides ? 1 : 0);
+		}
+
+		public int hashCode() {
+			return hashCode;
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return type == other.type
+					&& considerOverrides == other.considerOverrides
+					&& enabledDescriptors.equals(other.enabledDescriptors);
+		}
+
+		public String toString() {
+			return "Key[type=" + type.getName() + ", enabled=" + enabledDescriptors + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	private static class Entry {
+		final NavigatorContentDescriptor[] descriptors;
+
+		final Set enabledDescriptors;
+
+		Entry(NavigatorContentDescriptor[] theDescriptors,
+				Set theEnabledDescriptors) {
+			descriptors = theDescriptors;
+			enabledDescriptors = theEnabledDescriptors;
+		}
+	}
+
+	/* The assistant keeps the cache, not the other way around */
+	private final WeakReference assistantReference;
+
+	private final NavigatorContentDescriptor[] allDescriptors;
+
+	private Set visibleAndActiveDescriptors;
+
+	private int generation;
+
+	private int maximumSize;
+
+	// Key -> Entry, in access order
+	private final LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			if (size() <= maximumSize) {
+				return false;
+			}
+			evictionCount++;
+			return true;
+		}
+	};
+
+	private long hitCount;
+
+	private long missCount;
+
+	private long evictionCount;
+
+	private long invalidationCount;
+
+	/**
+	 * Create a cache for the viewer of the assistant.
+	 *
+	 * @param anAssistant
+	 *            The assistant of the viewer
+	 * @param theDescriptors
+	 *            All of the content descriptors
+	 */
+	public EvaluationCache(VisibilityAssistant anAssistant,
+			NavigatorContentDescriptor[] theDescriptors) {
+		assistantReference = new WeakReference(anAssistant);
+		allDescriptors = theDescriptors;
+		maximumSize = DEFAULT_MAXIMUM_SIZE;
+		visibleAndActiveDescriptors = computeVisibleAndActiveDescriptors(anAssistant);
+		anAssistant.addListener(this);
+	}
+
+	/**
+	 * Return the cached descriptors for the key and count it as a hit or a
+	 * miss.
+	 *
+	 * @param aKey
+	 * @return The descriptors or <code>null</code> if there are none
+	 */
+	public synchronized NavigatorContentDescriptor[] getDescriptors(Key aKey) {
+		Entry entry = (Entry) entries.get(aKey);
+		if (entry == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return entry.descriptors;
+	}
+
+	/**
+	 * Return the number of visibility or activation changes so far, to be
+	 * passed to
+	 * {@link #setDescriptors(Key, NavigatorContentDescriptor[], Set, int)}
+	 * once the descriptors are found.
+	 *
+	 * @return The current generation of the cache
+	 */
+	public synchronized int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Cache the descriptors found for the key, unless the visibility or
+	 * activation of descriptors changed while they were found.
+	 *
+	 * @param aKey
+	 * @param theDescriptors
+	 *            The descriptors found
+	 * @param theEnabledDescriptors
+	 *            All of the descriptors enabled for the key, whether they are
+	 *            visible and active or not
+	 * @param aGeneration
+	 *            The generation of the cache before the descriptors were found
+	 */
+	public synchronized void setDescriptors(Key aKey,
+			NavigatorContentDescriptor[] theDescriptors,
+			Set theEnabledDescriptors, int aGeneration) {
+		if (aGeneration == generation) {
+			entries.put(aKey, new Entry(theDescriptors, theEnabledDescriptors));
+		}
+	}
+
+	/**
+	 * Remove the results for which one of the descriptors was enabled.
+	 *
+	 * @param theDescriptors
+	 * @return The number of results removed
+	 */
+	public synchronized int invalidate(Set theDescriptors) {
+		int invalidated = 0;
+		for (Iterator iter = entries.values().iterator(); iter.hasNext();) {
+			Entry entry = (Entry) iter.next();
+			if (containsAny(entry.enabledDescriptors, theDescriptors)) {
+				iter.remove();
+				invalidated++;
+			}
+		}
+		invalidationCount += invalidated;
+		return invalidated;
+	}
+
+	private static boolean containsAny(Set aSet, Set theElements) {
+		for (Iterator iter = theElements.iterator(); iter.hasNext();) {
+			if (aSet.contains(iter.next())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Remove all of the results. This is not counted as invalidations.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.ui.internal.navigator.VisibilityAssistant.VisibilityListener#onVisibilityOrActivationChange()
+	 */
+	public synchronized void onVisibilityOrActivationChange() {
+		VisibilityAssistant assistant = (VisibilityAssistant) assistantReference.get();
+		if (assistant == null) {
+			return;
+		}
+		Set previous = visibleAndActiveDescriptors;
+		visibleAndActiveDescriptors = computeVisibleAndActiveDescriptors(assistant);
+		Set changedDescriptors = new HashSet(previous);
+		changedDescriptors.addAll(visibleAndActiveDescriptors);
+		previous.retainAll(visibleAndActiveDescriptors);
+		changedDescriptors.removeAll(previous);
+		if (!changedDescriptors.isEmpty()) {
+			generation++;
+			invalidate(changedDescriptors);
+		}
+	}
+
+	private Set computeVisibleAndActiveDescriptors(VisibilityAssistant assistant) {
+		Set result = new HashSet();
+		for (int i = 0; i < allDescriptors.length; i++) {
+			if (assistant.isVisibleAndActive(allDescriptors[i])) {
+				result.add(allDescriptors[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @return The maximum number of cached results
+	 */
+	public synchronized int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Set the maximum number of cached results, evicting the least recently
+	 * used ones if there are more.
+	 *
+	 * @param aMaximumSize
+	 */
+	public synchronized void setMaximumSize(int aMaximumSize) {
+		maximumSize = aMaximumSize;
+		Iterator iter = entries.values().iterator();
+		while (entries.size() > maximumSize && iter.hasNext()) {
+			iter.next();
+			iter.remove();
+			evictionCount++;
+		}
+	}
+
+	/**
+	 *
+	 * @return The number of cached results
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 *
+	 * @return The number of lookups that found a result
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 *
+	 * @return The number of lookups that did not find a result
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 *
+	 * @return The number of results evicted to stay within the maximum size
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 *
+	 * @return The number of results invalidated by a change of the
+	 *         visibility or activation of descriptors
+	 */
+	public synchronized long getInvalidationCount() {
+		return invalidationCount;
+	}
+
+	/**
+	 * Reset the statistics.
+	 */
+	public synchronized void resetStatistics() {
+		hitCount = 0;
+		missCount = 0;
+		evictionCount = 0;
+		invalidationCount = 0;
+	}
+}
@@ -99,6 +99,9 @@ public interface INavigatorContentExtPtConstants {
 
 	/** */
 	String ATT_PROVIDES_SAVEABLES = "providesSaveables"; //$NON-NLS-1$
+
+	/** */
+	String ATT_THREAD_SAFE = "threadSafe"; //$NON-NLS-1$
 	
 	/** */
 	String ATT_CONTENT_PROVIDER = "contentProvider"; //$NON-NLS-1$
@@ -11,7 +11,9 @@
 package org.eclipse.ui.internal.navigator.extensions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
@@ -56,6 +58,11 @@ public final class NavigatorContentDescriptor implements
 		INavigatorContentDescriptor, INavigatorContentExtPtConstants {
 
 	private static final int HASH_CODE_NOT_COMPUTED = -1;
+
+	/* The expressions whose result only depends on the type of the element */
+	private static final Set TYPE_ONLY_EXPRESSIONS = new HashSet(Arrays.asList(new String[] {
+			"instanceof", "and", "or", "not" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
 	private String id;
 
 	private String name;
@@ -77,6 +84,10 @@ public final class NavigatorContentDescriptor implements
 	private Expression possibleChildren;
 
 	private Expression initialActivation;
+
+	private boolean enablementTestsTypeOnly = true;
+
+	private boolean possibleChildrenTestsTypeOnly = true;
 	
 	private String icon;
 
@@ -99,6 +110,8 @@ public final class NavigatorContentDescriptor implements
 
 	private boolean providesSaveables;
 
+	private boolean threadSafe;
+
 	/**
 	 * Creates a new content descriptor from a configuration element.
 	 * 
@@ -199,6 +212,10 @@ public final class NavigatorContentDescriptor implements
 		providesSaveables = (providesSaveablesString != null && providesSaveablesString
 				.length() > 0) ? Boolean.valueOf(providesSaveablesString)
 						.booleanValue() : false;
+
+		String threadSafeString = configElement.getAttribute(ATT_THREAD_SAFE);
+		threadSafe = (threadSafeString != null && threadSafeString.length() > 0) ? Boolean
+				.valueOf(threadSafeString).booleanValue() : false;
 		appearsBeforeId = configElement.getAttribute(ATT_APPEARS_BEFORE);
 
 		if (priorityString != null) {
@@ -264,6 +281,7 @@ public final class NavigatorContentDescriptor implements
 			children = configElement.getChildren(TAG_TRIGGER_POINTS);
 			if (children.length == 1) {
 				enablement = new CustomAndExpression(children[0]);
+				enablementTestsTypeOnly = testsTypeOnly(children[0].getChildren());
 			} else {
 				throw new WorkbenchException(NLS.bind(
 						CommonNavigatorMessages.Attribute_Missing_Warning,
@@ -277,6 +295,7 @@ public final class NavigatorContentDescriptor implements
 			children = configElement.getChildren(TAG_POSSIBLE_CHILDREN);
 			if (children.length == 1) {
 				possibleChildren = new CustomAndExpression(children[0]);
+				possibleChildrenTestsTypeOnly = testsTypeOnly(children[0].getChildren());
 			} else if(children.length > 1){
 				throw new WorkbenchException(NLS.bind(
 						CommonNavigatorMessages.Attribute_Missing_Warning,
@@ -290,6 +309,7 @@ public final class NavigatorContentDescriptor implements
 			try {
 				enablement = ElementHandler.getDefault().create(
 						ExpressionConverter.getDefault(), children[0]);
+				enablementTestsTypeOnly = testsTypeOnly(children[0].getChildren());
 			} catch (CoreException e) {
 				NavigatorPlugin.log(IStatus.ERROR, 0, e.getMessage(), e);
 			}
@@ -458,6 +478,42 @@ public final class NavigatorContentDescriptor implements
 		return false;
 	}
 	
+	/**
+	 * Determine if the result of {@link #isTriggerPoint(Object)} only depends
+	 * on the class of the element, which is the case when the expression is
+	 * made of <b>instanceof</b> tests only.
+	 * 
+	 * @return True if elements of the same class are always trigger points of
+	 *         this extension or never are.
+	 */
+	public boolean isTriggerPointTypeOnly() {
+		return enablementTestsTypeOnly;
+	}
+
+	/**
+	 * Determine if the result of {@link #isPossibleChild(Object)} only depends
+	 * on the class of the element, which is the case when the expression is
+	 * made of <b>instanceof</b> tests only. Selections are always evaluated
+	 * element by element.
+	 * 
+	 * @return True if elements of the same class are always possible children
+	 *         of this extension or never are.
+	 */
+	public boolean isPossibleChildTypeOnly() {
+		return possibleChildren != null ? possibleChildrenTestsTypeOnly
+				: enablementTestsTypeOnly;
+	}
+
+	private static boolean testsTypeOnly(IConfigurationElement[] theElements) {
+		for (int i = 0; i < theElements.length; i++) {
+			if (!TYPE_ONLY_EXPRESSIONS.contains(theElements[i].getName())
+					|| !testsTypeOnly(theElements[i].getChildren())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * A convenience method to check all elements in a selection.
 	 * 
@@ -563,4 +619,13 @@ public final class NavigatorContentDescriptor implements
 		return providesSaveables;
 	}
 
+	/**
+	 * 
+	 * @return True if the content provider may be asked for children from a
+	 *         thread other than the UI thread.
+	 */
+	public boolean isThreadSafe() {
+		return threadSafe;
+	}
+
 }
@@ -11,8 +11,8 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.navigator.extensions;
 
-import java.lang.ref.SoftReference;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -28,12 +28,12 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.ImageRegistry;
+import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.ui.internal.navigator.NavigatorPlugin;
 import org.eclipse.ui.internal.navigator.NavigatorSafeRunnable;
 import org.eclipse.ui.internal.navigator.Policy;
 import org.eclipse.ui.internal.navigator.VisibilityAssistant;
-import org.eclipse.ui.internal.navigator.VisibilityAssistant.VisibilityListener;
 import org.eclipse.ui.navigator.INavigatorContentDescriptor;
 import org.eclipse.ui.navigator.OverridePolicy;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
@@ -49,68 +49,27 @@ public class NavigatorContentDescriptorManager {
 
 	private final Map allDescriptors = new HashMap();
 
-	private class EvaluationCache implements VisibilityListener {
-
-		private final Map evaluations/* <Object, NavigatorContentDescriptor[]> */= new HashMap();
-		private final Map evaluationsWithOverrides/*<Object, NavigatorContentDescriptor[]>*/ = new HashMap();
-
-		EvaluationCache(VisibilityAssistant anAssistant) {
-			anAssistant.addListener(this);
-		}
-
-		protected final NavigatorContentDescriptor[] getDescriptors(Object anElement) {
-			return getDescriptors(anElement, true);
-		}
-
-		protected final void setDescriptors(Object anElement, NavigatorContentDescriptor[] theDescriptors) {
-			setDescriptors(anElement, theDescriptors, true);
-		}
-
-		protected final NavigatorContentDescriptor[] getDescriptors(Object anElement, boolean toComputeOverrides) {
-
-			if (anElement == null)
-				return null;
-
-			NavigatorContentDescriptor[] cachedDescriptors = null;
-			if (toComputeOverrides) {
-				SoftReference cache = (SoftReference) evaluations.get(anElement);
-				if (cache != null && (cachedDescriptors = (NavigatorContentDescriptor[]) cache.get()) == null)
-					evaluations.remove(anElement);
-				return cachedDescriptors;
-			}
-			SoftReference cache = (SoftReference) evaluationsWithOverrides.get(anElement);
-			if (cache != null && (cachedDescriptors = (NavigatorContentDescriptor[]) cache.get()) == null)
-				evaluationsWithOverrides.remove(anElement);
-			return cachedDescriptors;
-
-		}
-
-		protected final void setDescriptors(Object anElement, NavigatorContentDescriptor[] theDescriptors, boolean toComputeOverrides) {
-			if (anElement != null) {
-				if (toComputeOverrides)
-					evaluations.put(new EvalutationReference(anElement), new SoftReference(theDescriptors));
-				else
-					evaluationsWithOverrides.put(new EvalutationReference(anElement), new SoftReference(theDescriptors));
-			}
-		}
-
-		/*
-		 * (non-Javadoc)
-		 * 
-		 * @see org.eclipse.ui.internal.navigator.VisibilityAssistant.VisibilityListener#onVisibilityOrActivationChange()
-		 */
-		public void onVisibilityOrActivationChange() {
-			evaluations.clear();
-			evaluationsWithOverrides.clear();
-		}
-	}
-
 	/* Map of (VisibilityAssistant, EvaluationCache)-pairs */
 	private final Map cachedTriggerPointEvaluations = new WeakHashMap();
 
 	/* Map of (VisibilityAssistant, EvaluationCache)-pairs */
 	private final Map cachedPossibleChildrenEvaluations = new WeakHashMap();
 
+	/*
+	 * Map of (Class, Set of NavigatorContentDescriptor)-pairs: the descriptors
+	 * whose triggerPoints only test the type and enable for the class
+	 */
+	private final Map typeTriggerPointEvaluations = new WeakHashMap();
+
+	/*
+	 * Map of (Class, Set of NavigatorContentDescriptor)-pairs: the descriptors
+	 * whose possibleChildren only test the type and enable for the class
+	 */
+	private final Map typePossibleChildrenEvaluations = new WeakHashMap();
+
+	/* The descriptors evaluated when overrides are considered */
+	private NavigatorContentDescriptor[] descriptorsWithOverrides;
+
 	private ImageRegistry imageRegistry;
 
 	private final Set overridingDescriptors = new HashSet();
@@ -211,21 +170,61 @@ public class NavigatorContentDescriptorManager {
 
 	private Set findDescriptors(Object anElement,
 			Map cachedEvaluations, VisibilityAssistant aVisibilityAssistant, boolean considerOverrides, boolean possibleChild) {
-		EvaluationCache cache = getEvaluationCache(
-				cachedEvaluations, aVisibilityAssistant);
+		Set descriptors;
+		if (anElement == null || (possibleChild && anElement instanceof IStructuredSelection)) {
+			descriptors = computeDescriptors(anElement, aVisibilityAssistant, considerOverrides, possibleChild, null);
+		} else {
+			EvaluationCache cache = getEvaluationCache(cachedEvaluations, aVisibilityAssistant);
+			int generation = cache.getGeneration();
+
+			/*
+			 * The expressions that do not only test the type are evaluated for
+			 * every element, the others are shared by the elements of a class.
+			 */
+			Set enabledDescriptors = new HashSet();
+			Collection candidates = considerOverrides ? Arrays.asList(getDescriptorsWithOverrides())
+					: firstClassDescriptorsSet;
+			for (Iterator candidatesItr = candidates.iterator(); candidatesItr.hasNext();) {
+				NavigatorContentDescriptor descriptor = (NavigatorContentDescriptor) candidatesItr.next();
+				if (!isTypeOnly(descriptor, possibleChild) && aVisibilityAssistant.isVisibleAndActive(descriptor)
+						&& isEnabled(descriptor, anElement, possibleChild)) {
+					enabledDescriptors.add(descriptor);
+				}
+			}
+			EvaluationCache.Key key = new EvaluationCache.Key(anElement.getClass(), considerOverrides,
+					enabledDescriptors);
 
-		Set descriptors = new TreeSet(ExtensionSequenceNumberComparator.INSTANCE);
-		NavigatorContentDescriptor[] cachedDescriptors = null;
-		if ((cachedDescriptors = cache.getDescriptors(anElement)) != null) {
-			descriptors.addAll(Arrays.asList(cachedDescriptors));
+			NavigatorContentDescriptor[] cachedDescriptors = cache.getDescriptors(key);
+			if (cachedDescriptors != null) {
+				descriptors = new TreeSet(ExtensionSequenceNumberComparator.INSTANCE);
+				descriptors.addAll(Arrays.asList(cachedDescriptors));
+			} else {
+				enabledDescriptors = new HashSet(enabledDescriptors);
+				enabledDescriptors.addAll(getTypeOnlyEnabledDescriptors(anElement, possibleChild));
+				descriptors = computeDescriptors(anElement, aVisibilityAssistant, considerOverrides, possibleChild,
+						enabledDescriptors);
+				cache.setDescriptors(key, (NavigatorContentDescriptor[]) descriptors
+						.toArray(new NavigatorContentDescriptor[descriptors.size()]), enabledDescriptors, generation);
+			}
 		}
 
+		if (considerOverrides && Policy.DEBUG_RESOLUTION) {
+			System.out.println("Find descriptors for: " + Policy.getObjectString(anElement) + //$NON-NLS-1$
+					": " + descriptors); //$NON-NLS-1$
+		}
+		return descriptors;
+	}
+
+	/*
+	 * theEnabledDescriptors contains every visible and active descriptor
+	 * enabled for the element, or is null to evaluate the expressions
+	 */
+	private Set computeDescriptors(Object anElement, VisibilityAssistant aVisibilityAssistant,
+			boolean considerOverrides, boolean possibleChild, Set theEnabledDescriptors) {
+		Set descriptors = new TreeSet(ExtensionSequenceNumberComparator.INSTANCE);
 		if (considerOverrides) {
-			addDescriptorsConsideringOverrides(anElement, firstClassDescriptorsSet, aVisibilityAssistant, descriptors, possibleChild);
-			if (Policy.DEBUG_RESOLUTION) {
-				System.out.println("Find descriptors for: " + Policy.getObjectString(anElement) + //$NON-NLS-1$
-						": " + descriptors); //$NON-NLS-1$
-			}
+			addDescriptorsConsideringOverrides(anElement, firstClassDescriptorsSet, aVisibilityAssistant, descriptors,
+					possibleChild, theEnabledDescriptors);
 		} else {
 
 			/* Find other ContentProviders which enable for this object */
@@ -233,31 +232,112 @@ public class NavigatorContentDescriptorManager {
 				NavigatorContentDescriptor descriptor = (NavigatorContentDescriptor) contentDescriptorsItr.next();
 
 				if (aVisibilityAssistant.isActive(descriptor) && aVisibilityAssistant.isVisible(descriptor)
-						&& (possibleChild ? descriptor.isPossibleChild(anElement) : descriptor.isTriggerPoint(anElement))) {
+						&& isEnabled(descriptor, anElement, possibleChild, theEnabledDescriptors)) {
 					descriptors.add(descriptor);
 				}
 			}
 		}
-		cache.setDescriptors(anElement, (NavigatorContentDescriptor[]) descriptors.toArray(new NavigatorContentDescriptor[descriptors.size()]));
-
 		return descriptors;
 	}
 
+	private static boolean isTypeOnly(NavigatorContentDescriptor aDescriptor, boolean possibleChild) {
+		return possibleChild ? aDescriptor.isPossibleChildTypeOnly() : aDescriptor.isTriggerPointTypeOnly();
+	}
+
+	private static boolean isEnabled(NavigatorContentDescriptor aDescriptor, Object anElement, boolean possibleChild) {
+		return possibleChild ? aDescriptor.isPossibleChild(anElement) : aDescriptor.isTriggerPoint(anElement);
+	}
+
+	private static boolean isEnabled(NavigatorContentDescriptor aDescriptor, Object anElement, boolean possibleChild,
+			Set theEnabledDescriptors) {
+		if (theEnabledDescriptors != null) {
+			return theEnabledDescriptors.contains(aDescriptor);
+		}
+		return isEnabled(aDescriptor, anElement, possibleChild);
+	}
+
+	/*
+	 * Return the descriptors whose expressions only test the type and enable
+	 * for the class of the element, whether they are visible or not.
+	 */
+	private Set getTypeOnlyEnabledDescriptors(Object anElement, boolean possibleChild) {
+		Map typeEvaluations = possibleChild ? typePossibleChildrenEvaluations : typeTriggerPointEvaluations;
+		synchronized (typeEvaluations) {
+			Set enabledDescriptors = (Set) typeEvaluations.get(anElement.getClass());
+			if (enabledDescriptors == null) {
+				enabledDescriptors = new HashSet();
+				for (Iterator iter = allDescriptors.values().iterator(); iter.hasNext();) {
+					NavigatorContentDescriptor descriptor = (NavigatorContentDescriptor) iter.next();
+					if (isTypeOnly(descriptor, possibleChild) && isEnabled(descriptor, anElement, possibleChild)) {
+						enabledDescriptors.add(descriptor);
+					}
+				}
+				typeEvaluations.put(anElement.getClass(), enabledDescriptors);
+			}
+			return enabledDescriptors;
+		}
+	}
+
+	/*
+	 * Return the first class descriptors and all of the descriptors
+	 * overriding them.
+	 */
+	private synchronized NavigatorContentDescriptor[] getDescriptorsWithOverrides() {
+		if (descriptorsWithOverrides == null) {
+			Set result = new HashSet();
+			LinkedList toVisit = new LinkedList(firstClassDescriptorsSet);
+			while (!toVisit.isEmpty()) {
+				NavigatorContentDescriptor descriptor = (NavigatorContentDescriptor) toVisit.removeFirst();
+				if (result.add(descriptor) && descriptor.hasOverridingExtensions()) {
+					toVisit.addAll(descriptor.getOverriddingExtensions());
+				}
+			}
+			descriptorsWithOverrides = (NavigatorContentDescriptor[]) result
+					.toArray(new NavigatorContentDescriptor[result.size()]);
+		}
+		return descriptorsWithOverrides;
+	}
+
+	/**
+	 * Returns the cache of the descriptors found for trigger points.
+	 * 
+	 * @param aVisibilityAssistant
+	 *            The relevant viewer assistant
+	 * @return the cache used by
+	 *         {@link #findDescriptorsForTriggerPoint(Object, VisibilityAssistant, boolean)}
+	 */
+	public EvaluationCache getTriggerPointEvaluationCache(VisibilityAssistant aVisibilityAssistant) {
+		return getEvaluationCache(cachedTriggerPointEvaluations, aVisibilityAssistant);
+	}
+
+	/**
+	 * Returns the cache of the descriptors found for possible children.
+	 * 
+	 * @param aVisibilityAssistant
+	 *            The relevant viewer assistant
+	 * @return the cache used by
+	 *         {@link #findDescriptorsForPossibleChild(Object, VisibilityAssistant, boolean)}
+	 */
+	public EvaluationCache getPossibleChildrenEvaluationCache(VisibilityAssistant aVisibilityAssistant) {
+		return getEvaluationCache(cachedPossibleChildrenEvaluations, aVisibilityAssistant);
+	}
+
 	private EvaluationCache getEvaluationCache(Map anEvaluationMap,
 			VisibilityAssistant aVisibilityAssistant) {
-		EvaluationCache c = (EvaluationCache) anEvaluationMap
-				.get(aVisibilityAssistant);
-		if (c == null) {
-			anEvaluationMap.put(aVisibilityAssistant, c = new EvaluationCache(
-					aVisibilityAssistant));
+		synchronized (anEvaluationMap) {
+			EvaluationCache c = (EvaluationCache) anEvaluationMap
+					.get(aVisibilityAssistant);
+			if (c == null) {
+				anEvaluationMap.put(aVisibilityAssistant, c = new EvaluationCache(
+						aVisibilityAssistant, getAllContentDescriptors()));
+			}
+			return c;
 		}
-		return c;
-
 	}
 
 	private boolean addDescriptorsConsideringOverrides(Object anElement,
 			Set theChildDescriptors, VisibilityAssistant aVisibilityAssistant,
-			Set theFoundDescriptors, boolean possibleChild) {
+			Set theFoundDescriptors, boolean possibleChild, Set theEnabledDescriptors) {
 		int initialSize = theFoundDescriptors.size();
 
 		NavigatorContentDescriptor descriptor;
@@ -269,7 +349,7 @@ public class NavigatorContentDescriptorManager {
 
 			boolean isApplicable = aVisibilityAssistant.isActive(descriptor)
 					&& aVisibilityAssistant.isVisible(descriptor)
-					&& (possibleChild ? descriptor.isPossibleChild(anElement) : descriptor.isTriggerPoint(anElement));
+					&& isEnabled(descriptor, anElement, possibleChild, theEnabledDescriptors);
 
 			if (descriptor.hasOverridingExtensions()) {
 
@@ -277,7 +357,7 @@ public class NavigatorContentDescriptorManager {
 
 				Set overridingDescriptors = new TreeSet(ExtensionSequenceNumberComparator.INSTANCE);
 				isOverridden = addDescriptorsConsideringOverrides(anElement, descriptor.getOverriddingExtensions(),
-						aVisibilityAssistant, overridingDescriptors, possibleChild);
+						aVisibilityAssistant, overridingDescriptors, possibleChild, theEnabledDescriptors);
 
 				if (!isOverridden && isApplicable) {
 					theFoundDescriptors.add(descriptor);
@@ -40,6 +40,13 @@ public final class NavigatorViewerDescriptor implements
 	 */
 	public static final String PROP_ENFORCE_HAS_CHILDREN = "org.eclipse.ui.navigator.enforceHasChildren"; //$NON-NLS-1$
 
+	/**
+	 * {@value} (boolean): True indicates the children of the content
+	 * extensions marked as thread safe are fetched in the background, showing
+	 * a pending element until they are available (<b>false</b>).
+	 */
+	public static final String PROP_ASYNC_CHILDREN = "org.eclipse.ui.navigator.asyncChildren"; //$NON-NLS-1$
+
 	static final String TAG_INCLUDES = "includes"; //$NON-NLS-1$
 
 	static final String TAG_EXCLUDES = "excludes"; //$NON-NLS-1$
@@ -35,6 +35,7 @@ import org.eclipse.swt.widgets.Widget;
 import org.eclipse.ui.internal.navigator.CommonNavigatorFrameSource;
 import org.eclipse.ui.internal.navigator.ContributorTrackingSet;
 import org.eclipse.ui.internal.navigator.NavigatorContentService;
+import org.eclipse.ui.internal.navigator.NavigatorContentServiceContentProvider;
 import org.eclipse.ui.internal.navigator.NavigatorDecoratingLabelProvider;
 import org.eclipse.ui.internal.navigator.NavigatorPipelineService;
 import org.eclipse.ui.internal.navigator.dnd.NavigatorDnDService;
@@ -427,6 +428,10 @@ public class CommonViewer extends TreeViewer {
 			_mapper.removeFromMap(element, (Item) item);
 		}
 		super.unmapElement(element, item);
+		if (getContentProvider() instanceof NavigatorContentServiceContentProvider) {
+			((NavigatorContentServiceContentProvider) getContentProvider())
+					.elementUnmapped(element);
+		}
 	}
 
 	/*
@@ -23,6 +23,7 @@ import org.eclipse.ui.internal.navigator.NavigatorContentService;
 import org.eclipse.ui.internal.navigator.NavigatorContentServiceContentProvider;
 import org.eclipse.ui.internal.navigator.NavigatorPlugin;
 import org.eclipse.ui.internal.navigator.Policy;
+import org.eclipse.ui.progress.PendingUpdateAdapter;
 
 /**
  * 
@@ -85,6 +86,11 @@ public final class CommonViewerSorter extends TreePathViewerSorter {
 	public int compare(Viewer viewer, TreePath parentPath, Object e1, Object e2) {
 		if (contentService == null)
 			return -1;
+		// Children still being fetched are shown last
+		if (e1 instanceof PendingUpdateAdapter)
+			return e2 instanceof PendingUpdateAdapter ? 0 : 1;
+		if (e2 instanceof PendingUpdateAdapter)
+			return -1;
 		INavigatorContentDescriptor sourceOfLvalue = getSource(e1);
 		INavigatorContentDescriptor sourceOfRvalue = getSource(e2);
 		
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2009 IBM Corporation and others.
+ * Copyright (c) 2004, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,7 @@ import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.viewers.IContentProvider;
 import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.LabelProviderChangedEvent;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.SWT;
@@ -133,6 +134,23 @@ public class FilteredTree extends Composite {
 	 */
 	private Job refreshJob;
 
+	/**
+	 * The job matching the cached labels against the filter text before the
+	 * tree is refreshed.
+	 */
+	private Job matchJob;
+
+	/**
+	 * The filter text the match job is scheduled for.
+	 */
+	private String matchText;
+
+	/**
+	 * Whether the refresh job is refreshing the tree, which keeps the caches
+	 * of the pattern filter.
+	 */
+	private boolean refreshingFilter;
+
 	/**
 	 * The parent composite of the filtered tree.
 	 * 
@@ -407,11 +425,13 @@ public class FilteredTree extends Composite {
 			 * @see org.eclipse.swt.events.DisposeListener#widgetDisposed(org.eclipse.swt.events.DisposeEvent)
 			 */
 			public void widgetDisposed(DisposeEvent e) {
+				matchJob.cancel();
 				refreshJob.cancel();
 			}
 		});
 		if (treeViewer instanceof NotifyingTreeViewer) {
 			patternFilter.setUseCache(true);
+			patternFilter.setUseLabelCache(true);
 		}
 		treeViewer.addFilter(patternFilter);
 		return treeViewer.getControl();
@@ -459,6 +479,17 @@ public class FilteredTree extends Composite {
 	private void createRefreshJob() {
 		refreshJob = doCreateRefreshJob();
 		refreshJob.setSystem(true);
+		matchJob = new Job("Match Filter") {//$NON-NLS-1$
+			protected IStatus run(IProgressMonitor monitor) {
+				patternFilter.prepareMatches(matchText, monitor);
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				refreshJob.schedule();
+				return Status.OK_STATUS;
+			}
+		};
+		matchJob.setSystem(true);
 	}
 
 	/**
@@ -508,7 +539,13 @@ public class FilteredTree extends Composite {
 							}
 						}
 					}
-					treeViewer.refresh(true);
+					// the labels did not change, only the pattern did
+					refreshingFilter = true;
+					try {
+						treeViewer.refresh(true);
+					} finally {
+						refreshingFilter = false;
+					}
 
 					if (text.length() > 0 && !initial) {
 						/*
@@ -847,8 +884,16 @@ public class FilteredTree extends Composite {
 				|| getFilterString().startsWith(previousFilterText);
 		previousFilterText = getFilterString();
 		// cancel currently running job first, to prevent unnecessary redraw
+		matchJob.cancel();
 		refreshJob.cancel();
-		refreshJob.schedule(getRefreshJobDelay());
+		if (treeViewer instanceof NotifyingTreeViewer && previousFilterText != null
+				&& !previousFilterText.equals(initialText)) {
+			// match the cached labels before the tree is refreshed
+			matchText = previousFilterText;
+			matchJob.schedule(getRefreshJobDelay());
+		} else {
+			refreshJob.schedule(getRefreshJobDelay());
+		}
 	}
 	
 	/**
@@ -1157,7 +1202,8 @@ public class FilteredTree extends Composite {
 
 	/**
 	 * Custom tree viewer subclass that clears the caches in patternFilter on
-	 * any change to the tree. See bug 187200.
+	 * any change to the tree. See bug 187200. The caches are kept when the
+	 * tree is refreshed for a new filter text.
 	 * 
 	 * @since 3.3
 	 * 
@@ -1194,25 +1240,42 @@ public class FilteredTree extends Composite {
 		}
 
 		public void refresh() {
-			getPatternFilter().clearCaches();
+			clearCaches();
 			super.refresh();
 		}
 
 		public void refresh(boolean updateLabels) {
-			getPatternFilter().clearCaches();
+			clearCaches();
 			super.refresh(updateLabels);
 		}
 
 		public void refresh(Object element) {
-			getPatternFilter().clearCaches();
+			clearCaches();
 			super.refresh(element);
 		}
 
 		public void refresh(Object element, boolean updateLabels) {
-			getPatternFilter().clearCaches();
+			clearCaches();
 			super.refresh(element, updateLabels);
 		}
 
+		private void clearCaches() {
+			if (!refreshingFilter) {
+				getPatternFilter().clearCaches();
+			}
+		}
+
+		protected void handleLabelProviderChanged(
+				LabelProviderChangedEvent event) {
+			getPatternFilter().clearLabels(event.getElements());
+			super.handleLabelProviderChanged(event);
+		}
+
+		public void update(Object element, String[] properties) {
+			getPatternFilter().clearLabels(new Object[] { element });
+			super.update(element, properties);
+		}
+
 		public void remove(Object elementsOrTreePaths) {
 			getPatternFilter().clearCaches();
 			super.remove(elementsOrTreePaths);
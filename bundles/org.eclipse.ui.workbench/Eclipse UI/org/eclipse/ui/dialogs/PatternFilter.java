@@ -13,9 +13,12 @@ package org.eclipse.ui.dialogs;
 
 import com.ibm.icu.text.BreakIterator;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.viewers.AbstractTreeViewer;
 import org.eclipse.jface.viewers.ILabelProvider;
 import org.eclipse.jface.viewers.ITreeContentProvider;
@@ -30,6 +33,13 @@ import org.eclipse.ui.internal.misc.StringMatcher;
  * of the tree to do pattern matching on its children. This causes the entire
  * tree structure to be realized. Note that the label provider must implement
  * ILabelProvider.
+ * <p>
+ * When used by a filtered tree that reports the label changes, the labels of
+ * the elements are cached until the tree content changes. The results of the
+ * matching are kept when the pattern narrows, that is when the new pattern
+ * starts with the previous one: only the elements that were visible are tested
+ * again, as the others cannot match the longer pattern.
+ * </p>
  * 
  * @see org.eclipse.ui.dialogs.FilteredTree
  * @since 3.2
@@ -53,6 +63,48 @@ public class PatternFilter extends ViewerFilter {
 	 * @since 3.103
 	 */
 	protected boolean useCache = false;
+
+	/*
+	 * Whether the labels and the matches are cached, which needs the viewer
+	 * to report the label changes
+	 */
+	private boolean useLabelCache = false;
+
+	/*
+	 * Label of each element, kept while the pattern changes. Also read by the
+	 * job preparing the matches of the filtered tree.
+	 */
+	private Map labelCache = Collections.synchronizedMap(new HashMap());
+
+	/*
+	 * Words of each label
+	 */
+	private Map wordsCache = Collections.synchronizedMap(new HashMap());
+
+	/*
+	 * Maps elements to whether their label matches the pattern
+	 */
+	private Map leafMatchCache = Collections.synchronizedMap(new HashMap());
+
+	/*
+	 * Maps elements to whether they are visible with the pattern
+	 */
+	private Map visibleCache = new HashMap();
+
+	/*
+	 * The matches prepared in the background for a pattern
+	 */
+	private String preparedPattern;
+
+	private Map preparedMatches;
+
+	/*
+	 * Incremented whenever the caches are cleared, so that matches prepared
+	 * for labels that changed meanwhile are dropped
+	 */
+	private int generation;
+
+	private Boolean overridesWordMatches;
     
 	/**
 	 * Whether to include a leading wildcard for all provided patterns.  A
@@ -64,6 +116,11 @@ public class PatternFilter extends ViewerFilter {
 	 * The string pattern matcher used for this pattern filter.  
 	 */
     private StringMatcher matcher;
+
+	/**
+	 * The pattern of the matcher, including the wildcards.
+	 */
+	private String pattern;
     
     private boolean useEarlyReturnIfMatcherIsNull = true;
     
@@ -154,17 +211,40 @@ public class PatternFilter extends ViewerFilter {
 		boolean elementFound = false;
 		for (int i = 0; i < elements.length && !elementFound; i++) {
 			Object element = elements[i];
-			elementFound = isElementVisible(viewer, element);
+			elementFound = isVisible(viewer, element);
 		}
 		return elementFound;
 	}
+
+	/**
+	 * Returns whether the element is visible, using the cached result if
+	 * caching is enabled.
+	 * 
+	 * @param viewer
+	 *            the viewer
+	 * @param element
+	 *            the element to test
+	 * @return <code>true</code> if the element is visible
+	 */
+	private boolean isVisible(Viewer viewer, Object element) {
+		if (!useLabelCache || matcher == null) {
+			return isElementVisible(viewer, element);
+		}
+		Boolean visible = (Boolean) visibleCache.get(element);
+		if (visible == null) {
+			visible = isElementVisible(viewer, element) ? Boolean.TRUE
+					: Boolean.FALSE;
+			visibleCache.put(element, visible);
+		}
+		return visible.booleanValue();
+	}
     
     /* (non-Javadoc)
      * @see org.eclipse.jface.viewers.ViewerFilter#select(org.eclipse.jface.viewers.Viewer, java.lang.Object, java.lang.Object)
      */
     public boolean select(Viewer viewer, Object parentElement,
 			Object element) {
-        return isElementVisible(viewer, element);
+        return isVisible(viewer, element);
     }
     
     /**
@@ -190,22 +270,85 @@ public class PatternFilter extends ViewerFilter {
     	// 3.3 - https://bugs.eclipse.org/bugs/show_bug.cgi?id=186404
     	if ("org.eclipse.ui.keys.optimization.true".equals(patternString)) { //$NON-NLS-1$
     		useEarlyReturnIfMatcherIsNull = true;
+    		clearMatches();
     		return;
     	} else if ("org.eclipse.ui.keys.optimization.false".equals(patternString)) { //$NON-NLS-1$
     		useEarlyReturnIfMatcherIsNull = false;
+    		clearMatches();
     		return;
     	}
-        clearCaches();
-        if (patternString == null || patternString.equals("")) { //$NON-NLS-1$
-			matcher = null;
-		} else {
-			String pattern = patternString + "*"; //$NON-NLS-1$
-			if (includeLeadingWildcard) {
-				pattern = "*" + pattern; //$NON-NLS-1$
+        cache.clear();
+        foundAnyCache.clear();
+        String previousPattern = pattern;
+        pattern = toPattern(patternString);
+        matcher = pattern == null ? null : new StringMatcher(pattern, true, false);
+        if (isNarrowing(previousPattern, pattern)) {
+        	// Only the elements that matched can match the longer pattern
+        	removeMatches(visibleCache);
+        	synchronized (leafMatchCache) {
+        		removeMatches(leafMatchCache);
+        	}
+        } else {
+        	clearMatches();
+        }
+        synchronized (this) {
+        	if (pattern != null && pattern.equals(preparedPattern)) {
+        		leafMatchCache.putAll(preparedMatches);
+        	}
+        	preparedPattern = null;
+        	preparedMatches = null;
+        }
+    }
+
+	/**
+	 * Returns the pattern the matcher uses for the pattern string.
+	 * 
+	 * @param patternString
+	 * @return the pattern or <code>null</code> if every element matches
+	 */
+	private String toPattern(String patternString) {
+		if (patternString == null || patternString.equals("")) { //$NON-NLS-1$
+			return null;
+		}
+		String newPattern = patternString + "*"; //$NON-NLS-1$
+		if (includeLeadingWildcard) {
+			newPattern = "*" + newPattern; //$NON-NLS-1$
+		}
+		return newPattern;
+	}
+
+	/**
+	 * Returns whether every text matching the new pattern also matches the
+	 * previous one, which is the case when the new pattern only appends to the
+	 * previous one before the trailing wildcard.
+	 * 
+	 * @param previousPattern
+	 * @param newPattern
+	 * @return <code>true</code> if the new pattern narrows the previous one
+	 */
+	private static boolean isNarrowing(String previousPattern, String newPattern) {
+		if (previousPattern == null || newPattern == null
+				|| newPattern.length() <= previousPattern.length()) {
+			return false;
+		}
+		String prefix = previousPattern.substring(0,
+				previousPattern.length() - 1);
+		// A trailing backslash escapes the wildcard
+		return !prefix.endsWith("\\") && newPattern.startsWith(prefix); //$NON-NLS-1$
+	}
+
+	private static void removeMatches(Map matches) {
+		for (Iterator i = matches.values().iterator(); i.hasNext();) {
+			if (((Boolean) i.next()).booleanValue()) {
+				i.remove();
 			}
-			matcher = new StringMatcher(pattern, true, false);
 		}
-    }
+	}
+
+	private void clearMatches() {
+		visibleCache.clear();
+		leafMatchCache.clear();
+	}
 
 	/**
 	 * Clears the caches used for optimizing this filter. Needs to be called whenever
@@ -214,6 +357,106 @@ public class PatternFilter extends ViewerFilter {
 	/* package */ void clearCaches() {
 		cache.clear();
         foundAnyCache.clear();
+        clearMatches();
+        synchronized (this) {
+        	labelCache.clear();
+        	wordsCache.clear();
+        	preparedPattern = null;
+        	preparedMatches = null;
+        	generation++;
+        }
+	}
+
+	/**
+	 * Forgets the labels of the elements, and the results of the matching
+	 * that depend on them. Needs to be called whenever labels change.
+	 * 
+	 * @param elements
+	 *            the elements, or <code>null</code> for all of them
+	 */
+	/* package */ void clearLabels(Object[] elements) {
+		if (elements == null) {
+			clearCaches();
+			return;
+		}
+		cache.clear();
+		foundAnyCache.clear();
+		// The parents of the elements may change as well
+		visibleCache.clear();
+		synchronized (this) {
+			for (int i = 0; i < elements.length; i++) {
+				labelCache.remove(elements[i]);
+				leafMatchCache.remove(elements[i]);
+			}
+			preparedPattern = null;
+			preparedMatches = null;
+			generation++;
+		}
+	}
+
+	/**
+	 * Matches the cached labels against the pattern the filter will be given,
+	 * so that setting it does not have to. This is called by the filtered
+	 * tree outside of the UI thread.
+	 * 
+	 * @param patternString
+	 *            the pattern string that will be set
+	 * @param monitor
+	 *            the monitor to check for cancellation
+	 */
+	/* package */ void prepareMatches(String patternString,
+			IProgressMonitor monitor) {
+		String newPattern = toPattern(patternString);
+		if (!useLabelCache || newPattern == null || overridesWordMatches()) {
+			return;
+		}
+		StringMatcher newMatcher = new StringMatcher(newPattern, true, false);
+		Object[] entries;
+		int startGeneration;
+		synchronized (this) {
+			startGeneration = generation;
+			synchronized (labelCache) {
+				entries = labelCache.entrySet().toArray();
+			}
+		}
+		Map matches = new HashMap();
+		for (int i = 0; i < entries.length; i++) {
+			if (monitor.isCanceled()) {
+				return;
+			}
+			Map.Entry entry = (Map.Entry) entries[i];
+			matches.put(entry.getKey(), wordMatches((String) entry
+					.getValue(), newMatcher) ? Boolean.TRUE : Boolean.FALSE);
+		}
+		synchronized (this) {
+			if (generation == startGeneration) {
+				preparedPattern = newPattern;
+				preparedMatches = matches;
+			}
+		}
+	}
+
+	/**
+	 * Returns whether a subclass overrides {@link #wordMatches(String)}, in
+	 * which case the matches cannot be prepared.
+	 * 
+	 * @return <code>true</code> if wordMatches is overridden
+	 */
+	private synchronized boolean overridesWordMatches() {
+		if (overridesWordMatches == null) {
+			overridesWordMatches = Boolean.FALSE;
+			for (Class c = getClass(); c != PatternFilter.class; c = c
+					.getSuperclass()) {
+				try {
+					c.getDeclaredMethod("wordMatches", new Class[] { String.class }); //$NON-NLS-1$
+					overridesWordMatches = Boolean.TRUE;
+					break;
+				} catch (NoSuchMethodException e) {
+					// Look at the superclass
+				}
+			}
+		}
+		return overridesWordMatches.booleanValue();
 	}
 
     /**
@@ -224,10 +467,14 @@ public class PatternFilter extends ViewerFilter {
      * @return whether the string matches the pattern
      */
     private boolean match(String string) {
-    	if (matcher == null) {
-			return true;
-		}
-        return matcher.match(string);
+    	return match(string, matcher);
+    }
+
+    private static boolean match(String string, StringMatcher aMatcher) {
+    	if (aMatcher == null) {
+    		return true;
+    	}
+    	return aMatcher.match(string);
     }
     
     /**
@@ -293,13 +540,32 @@ public class PatternFilter extends ViewerFilter {
      * @return true if the given element's label matches the filter text
      */
     protected boolean isLeafMatch(Viewer viewer, Object element){
-        String labelText = ((ILabelProvider) ((StructuredViewer) viewer)
-                .getLabelProvider()).getText(element);
-        
-        if(labelText == null) {
-			return false;
-		}
-        return wordMatches(labelText);  
+    	if (!useLabelCache) {
+            String labelText = ((ILabelProvider) ((StructuredViewer) viewer)
+                    .getLabelProvider()).getText(element);
+            
+            if(labelText == null) {
+    			return false;
+    		}
+            return wordMatches(labelText);  
+    	}
+
+    	Boolean leafMatch = (Boolean) leafMatchCache.get(element);
+    	if (leafMatch != null) {
+    		return leafMatch.booleanValue();
+    	}
+    	String labelText = (String) labelCache.get(element);
+    	if (labelText == null) {
+            labelText = ((ILabelProvider) ((StructuredViewer) viewer)
+                    .getLabelProvider()).getText(element);
+            if (labelText == null) {
+            	return false;
+            }
+            labelCache.put(element, labelText);
+    	}
+    	leafMatch = wordMatches(labelText) ? Boolean.TRUE : Boolean.FALSE;
+    	leafMatchCache.put(element, leafMatch);
+    	return leafMatch.booleanValue();
     }
     
     /**
@@ -310,6 +576,10 @@ public class PatternFilter extends ViewerFilter {
      * @return an array of words
      */
     private String[] getWords(String text){
+    	String[] cachedWords = (String[]) wordsCache.get(text);
+    	if (cachedWords != null) {
+    		return cachedWords;
+    	}
     	List words = new ArrayList();
 		// Break the text up into words, separating based on whitespace and
 		// common punctuation.
@@ -334,7 +604,11 @@ public class PatternFilter extends ViewerFilter {
 			}
 			i = j;
 		}
-		return (String[]) words.toArray(new String[words.size()]);
+		cachedWords = (String[]) words.toArray(new String[words.size()]);
+		if (useLabelCache) {
+			wordsCache.put(text, cachedWords);
+		}
+		return cachedWords;
     }
     
 	/**
@@ -346,12 +620,16 @@ public class PatternFilter extends ViewerFilter {
 	 * 					satisifes the match criteria.
 	 */
 	protected boolean wordMatches(String text) {
+		return wordMatches(text, matcher);
+	}
+
+	private boolean wordMatches(String text, StringMatcher aMatcher) {
 		if (text == null) {
 			return false;
 		}
 		
 		//If the whole text matches we are all set
-		if(match(text)) {
+		if(match(text, aMatcher)) {
 			return true;
 		}
 		
@@ -359,7 +637,7 @@ public class PatternFilter extends ViewerFilter {
 		String[] words = getWords(text);
 		for (int i = 0; i < words.length; i++) {
 			String word = words[i];
-			if (match(word)) {
+			if (match(word, aMatcher)) {
 				return true;
 			}
 		}
@@ -374,5 +652,15 @@ public class PatternFilter extends ViewerFilter {
 	 */
 	void setUseCache(boolean useCache) {
 		this.useCache = useCache;
-	}    
+	}
+
+	/**
+	 * Can be called by the filtered tree to turn on the caching of labels and
+	 * matches, when it is told about the label changes.
+	 * 
+	 * @param useLabelCache The useLabelCache to set.
+	 */
+	void setUseLabelCache(boolean useLabelCache) {
+		this.useLabelCache = useLabelCache;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -220,6 +220,18 @@ public interface IPreferenceConstants {
 	 */
 	public static final String PERSPECTIVEBAR_VISIBLE = "perspectiveBarVisible"; //$NON-NLS-1$
 
+	/**
+	 * Workbench preference to decorate elements with a pool of jobs running
+	 * the lightweight decorators in parallel, decorating the elements most
+	 * recently shown by the viewers first.
+	 * <p>
+	 * The default value for this preference is: <code>false</code>
+	 * </p>
+	 * 
+	 * @since 3.6
+	 */
+	public static final String PARALLEL_DECORATION = "parallelDecoration"; //$NON-NLS-1$
+
     /**
 	 * Preference that restores the 3.2 startup threading behavior. This
 	 * essentially means that there will be no restrictions on what runnables
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IAdapterManager;
@@ -51,6 +53,10 @@ import org.eclipse.ui.internal.util.Util;
  *				its superinterfaces then B and its superinterfaces)
  *		</il>
  * </ul>
+ * <p>
+ * The search order of each class and the contributors found for it are
+ * cached. The lookups may be run by several threads at once.
+ * </p>
  *
  * @see IObjectContributor
  */
@@ -73,29 +79,76 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
 		IObjectContributor contributor;
 	}
 
-    /** Table of contributors. */
+	/**
+	 * The search order of a class. It only depends on the class hierarchy, so
+	 * it stays valid when contributors are added or removed.
+	 * 
+	 * @since 3.6
+	 */
+	private static class SearchOrder {
+		/** The class and its superclasses; must not be modified. */
+		final List classes;
+
+		/** The interfaces of <code>classes</code>; must not be modified. */
+		final List interfaces;
+
+		/** The result of <code>computeCombinedOrder</code>; must not be modified. */
+		final List combined;
+
+		/** The names of <code>classes</code> and <code>interfaces</code>. */
+		final Set typeNames;
+
+		SearchOrder(List classes, List interfaces, List combined) {
+			this.classes = Collections.unmodifiableList(classes);
+			this.interfaces = Collections.unmodifiableList(interfaces);
+			this.combined = Collections.unmodifiableList(combined);
+			typeNames = new HashSet();
+			addNames(classes);
+			addNames(interfaces);
+		}
+
+		private void addNames(List types) {
+			for (int i = 0; i < types.size(); i++) {
+				typeNames.add(((Class) types.get(i)).getName());
+			}
+		}
+	}
+
+    /**
+	 * Table of contributors. The contributor lists are replaced rather than
+	 * modified, so that lookups can iterate them without locking.
+	 */
     protected Map contributors;
 
-    /** Cache of object class contributor search paths; <code>null</code> if none. */
+    /** Cache of object class contributor search paths. */
     protected Map objectLookup;
 
-    /** Cache of resource adapter class contributor search paths; <code>null</code> if none. */
+    /** Cache of resource adapter class contributor search paths. */
     protected Map resourceAdapterLookup;
     
-    /** Cache of adaptable class contributor search paths; <code>null</code> if none. */
+    /** Cache of adaptable class contributor search paths. */
     protected Map adaptableLookup;
     
     protected Set contributorRecordSet;
 
+    /** Cache of the search order of each class (Class -> SearchOrder). */
+    private final Map searchOrderLookup = new ConcurrentHashMap();
+
+	/**
+	 * Incremented whenever the lookup caches are flushed, so that a search
+	 * path computed while contributors change is not cached.
+	 */
+    private final AtomicInteger lookupGeneration = new AtomicInteger();
+
     /** 
      * Constructs a new contributor manager.
      */
     public ObjectContributorManager() {
     	contributors = new Hashtable(5);
         contributorRecordSet = new HashSet(5);
-        objectLookup = null;
-        resourceAdapterLookup = null;
-        adaptableLookup = null;
+        objectLookup = new ConcurrentHashMap();
+        resourceAdapterLookup = new ConcurrentHashMap();
+        adaptableLookup = new ConcurrentHashMap();
         String extensionPointId = getExtensionPointFilter();
         if (extensionPointId != null) {
         	IExtensionPoint extensionPoint = Platform.getExtensionRegistry().getExtensionPoint(
@@ -162,46 +215,60 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
     }
 
     /**
-     * Flushes the cache of contributor search paths.  This is generally required
-     * whenever a contributor is added or removed.  
-     * <p>
-     * It is likely easier to just toss the whole cache rather than trying to be
-     * smart and remove only those entries affected.
+     * Returns the cached search order of <code>clazz</code>.
      */
-    public void flushLookup() {
-        objectLookup = null;
-        resourceAdapterLookup = null;
-        adaptableLookup = null;
+    private SearchOrder getSearchOrder(Class clazz) {
+        SearchOrder order = (SearchOrder) searchOrderLookup.get(clazz);
+        if (order == null) {
+            List classes = computeClassOrder(clazz);
+            order = new SearchOrder(classes, computeInterfaceOrder(classes),
+                    computeCombinedOrder(clazz));
+            searchOrderLookup.put(clazz, order);
+        }
+        return order;
     }
 
     /**
-     * Cache the real adapter class contributor search path.
+     * Flushes the cache of contributor search paths.  This is generally required
+     * whenever the contributors of a bundle are removed, so that its classes
+     * are no longer referenced.  Adding or removing a single contributor only
+     * flushes the search paths that include its target type.
      */
-    private void cacheResourceAdapterLookup(Class adapterClass, List results) {
-        if (resourceAdapterLookup == null) {
-			resourceAdapterLookup = new HashMap();
-		}
-        resourceAdapterLookup.put(adapterClass, results);
+    public void flushLookup() {
+        lookupGeneration.incrementAndGet();
+        objectLookup.clear();
+        resourceAdapterLookup.clear();
+        adaptableLookup.clear();
+        searchOrderLookup.clear();
     }
-    
+
     /**
-     * Cache the real adapter class contributor search path.
+     * Flushes the contributor search paths that include <code>targetType</code>.
      */
-    private void cacheAdaptableLookup(String adapterClass, List results) {
-        if (adaptableLookup == null) {
-			adaptableLookup = new HashMap();
-		}
-        adaptableLookup.put(adapterClass, results);
+    private void flushLookup(String targetType) {
+        lookupGeneration.incrementAndGet();
+        flushLookup(objectLookup, targetType);
+        flushLookup(resourceAdapterLookup, targetType);
+        adaptableLookup.remove(targetType);
+    }
+
+    private void flushLookup(Map lookup, String targetType) {
+        for (Iterator it = lookup.keySet().iterator(); it.hasNext();) {
+            if (getSearchOrder((Class) it.next()).typeNames.contains(targetType)) {
+                it.remove();
+            }
+        }
     }
 
     /**
-     * Cache the object class contributor search path.
+     * Cache a contributor search path unless the lookups have been flushed
+     * since <code>generation</code>.
      */
-    private void cacheObjectLookup(Class objectClass, List results) {
-        if (objectLookup == null) {
-			objectLookup = new HashMap();
-		}
-        objectLookup.put(objectClass, results);
+    private void cacheLookup(Map lookup, Object key, List results, int generation) {
+        lookup.put(key, results);
+        if (lookupGeneration.get() != generation) {
+            lookup.remove(key);
+        }
     }
 
     /**
@@ -221,11 +288,10 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      */
     protected List addContributorsFor(Class objectClass) {
 
-        List classList = computeClassOrder(objectClass);
+        SearchOrder order = getSearchOrder(objectClass);
         List result = new ArrayList();
-        addContributorsFor(classList, result);
-        classList = computeInterfaceOrder(classList); // interfaces
-        addContributorsFor(classList, result);
+        addContributorsFor(order.classes, result);
+        addContributorsFor(order.interfaces, result); // interfaces
         return result;
     }
 
@@ -318,10 +384,12 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         List contributorList = (List) contributors.get(targetType);
         if (contributorList == null) {
             contributorList = new ArrayList(5);
-            contributors.put(targetType, contributorList);
+        } else {
+            contributorList = new ArrayList(contributorList);
         }
         contributorList.add(contributor);
-        flushLookup();
+        contributors.put(targetType, contributorList);
+        flushLookup(targetType);
 
         IConfigurationElement element = (IConfigurationElement) Util.getAdapter(contributor,
         	IConfigurationElement.class);
@@ -357,11 +425,14 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         if (contributorList == null) {
 			return;
 		}
+        contributorList = new ArrayList(contributorList);
         contributorList.remove(contributor);
         if (contributorList.isEmpty()) {
 			contributors.remove(targetType);
+		} else {
+			contributors.put(targetType, contributorList);
 		}
-        flushLookup();
+        flushLookup(targetType);
     }
 
 
@@ -372,7 +443,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      */
     public void unregisterContributors(String targetType) {
         contributors.remove(targetType);
-        flushLookup();
+        flushLookup(targetType);
     }
     
     protected List getContributors(Object object) {
@@ -416,12 +487,10 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      * @since 3.1
      */
     protected List getObjectContributors(Class objectClass) {
-		List objectList = null;
 		// Lookup the results in the cache first.
-		if (objectLookup != null) {
-			objectList = (List) objectLookup.get(objectClass);
-		}
+		List objectList = (List) objectLookup.get(objectClass);
 		if (objectList == null) {
+			int generation = lookupGeneration.get();
 			objectList = addContributorsFor(objectClass);
 			if (objectList.size() == 0) {
 				objectList = Collections.EMPTY_LIST;
@@ -429,7 +498,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
 			else {
 				objectList = Collections.unmodifiableList(objectList);
 			}
-			cacheObjectLookup(objectClass, objectList);
+			cacheLookup(objectLookup, objectClass, objectList, generation);
 		}
 		return objectList;
 	}
@@ -446,18 +515,16 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      * @since 3.1
      */
 	protected List getResourceContributors(Class resourceClass) {
-		List resourceList = null;
-		if (resourceAdapterLookup != null) {
-			resourceList = (List) resourceAdapterLookup.get(resourceClass);
-		}
+		List resourceList = (List) resourceAdapterLookup.get(resourceClass);
 		if (resourceList == null) {
+			int generation = lookupGeneration.get();
 			resourceList = addContributorsFor(resourceClass);
 			if (resourceList.size() == 0) {
 				resourceList = Collections.EMPTY_LIST;
 			} else {
 				resourceList = Collections.unmodifiableList(filterOnlyAdaptableContributors(resourceList));
 			}
-			cacheResourceAdapterLookup(resourceClass, resourceList);
+			cacheLookup(resourceAdapterLookup, resourceClass, resourceList, generation);
 		}
 		return resourceList;
 	}
@@ -472,14 +539,12 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      * @since 3.1
      */
 	protected List getAdaptableContributors(String adapterType) {
-		List adaptableList = null;
 		// Lookup the results in the cache first, there are two caches
 		// one that stores non-adapter contributions and the other
 		// contains adapter contributions.
-		if (adaptableLookup != null) {
-			adaptableList = (List) adaptableLookup.get(adapterType);
-		}
+		List adaptableList = (List) adaptableLookup.get(adapterType);
 		if (adaptableList == null) {
+			int generation = lookupGeneration.get();
 			// ignore resource adapters because these must be adapted via the
 			// IContributorResourceAdapter.
 			if (LegacyResourceSupport.isResourceType(adapterType) || LegacyResourceSupport.isResourceMappingType(adapterType)) {
@@ -493,7 +558,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
 					adaptableList = Collections.unmodifiableList(filterOnlyAdaptableContributors(adaptableList));
 				}
 			}
-			cacheAdaptableLookup(adapterType, adaptableList);
+			cacheLookup(adaptableLookup, adapterType, adaptableList, generation);
 		}
 		return adaptableList;
 	}
@@ -508,7 +573,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
 	protected void removeCommonAdapters(List adapters, List results) {
     	for (Iterator it = results.iterator(); it.hasNext();) {
 			Class clazz = ((Class) it.next());
-			List commonTypes = computeCombinedOrder(clazz);
+			List commonTypes = getSearchOrder(clazz).combined;
 			for (Iterator it2 = commonTypes.iterator(); it2.hasNext();) {
 				Class type = (Class) it2.next();
 				adapters.remove(type.getName());	
@@ -555,13 +620,19 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      * @see org.eclipse.core.runtime.dynamicHelpers.IExtensionChangeHandler#removeExtension(org.eclipse.core.runtime.IExtension, java.lang.Object[])
      */
     public void removeExtension(IExtension source, Object[] objects) {
+        boolean removed = false;
         for (int i = 0; i < objects.length; i++) {
             if (objects[i] instanceof ContributorRecord) {
                 ContributorRecord contributorRecord = (ContributorRecord) objects[i];
                 unregisterContributor((contributorRecord).contributor, (contributorRecord).objectClassName);
                 contributorRecordSet.remove(contributorRecord);
+                removed = true;
             }
         }
+        if (removed) {
+            // Release the classes of the bundle
+            flushLookup();
+        }
     }
 
     /**
@@ -689,9 +760,14 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         
         // Compute all the super classes, interfaces, and adapters 
         // for the first element.
-        List classes = computeClassOrder(objects.get(0).getClass());
+        SearchOrder order = getSearchOrder(objects.get(0).getClass());
+        List classes = new ArrayList(order.classes);
         List adapters = computeAdapterOrder(classes);
-        List interfaces = computeInterfaceOrder(classes);
+        List interfaces = new ArrayList(order.interfaces);
+
+        // The adapters of the classes and interfaces of each class in the
+        // selection (Class -> List), which must not be modified.
+        Map adapterLookup = new HashMap();
 
         // Cache of all types found in the selection - this is needed
         // to compute common adapters.
@@ -703,14 +779,16 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         // Traverse the selection if there is more than one element selected.
         for (int i = 1; i < objects.size(); i++) {
             // Compute all the super classes for the current element
-            List otherClasses = computeClassOrder(objects.get(i).getClass());
+            Class otherClass = objects.get(i).getClass();
+            SearchOrder otherOrder = getSearchOrder(otherClass);
+            List otherClasses = otherOrder.classes;
             if (!classesEmpty) {
                 classesEmpty = extractCommonClasses(classes, otherClasses);
             }
 
             // Compute all the interfaces for the current element
             // and all of its super classes.
-            List otherInterfaces = computeInterfaceOrder(otherClasses);
+            List otherInterfaces = otherOrder.interfaces;
             if (!interfacesEmpty) {
                 interfacesEmpty = extractCommonClasses(interfaces,
                         otherInterfaces);
@@ -722,7 +800,11 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
             if (otherInterfaces != null) {
 				classesAndInterfaces.addAll(otherInterfaces);
 			}
-            List otherAdapters = computeAdapterOrder(classesAndInterfaces);
+            List otherAdapters = (List) adapterLookup.get(otherClass);
+            if (otherAdapters == null) {
+                otherAdapters = computeAdapterOrder(classesAndInterfaces);
+                adapterLookup.put(otherClass, otherAdapters);
+            }
 
             // Compute common adapters
             // Note here that an adapter can match a class or interface, that is
@@ -734,6 +816,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
                 removeNonCommonAdapters(adapters, classesAndInterfaces);
             } else {
                 if (adapters.isEmpty()) {
+                    otherAdapters = new ArrayList(otherAdapters);
                     removeNonCommonAdapters(otherAdapters, lastCommonTypes);
                     if (!otherAdapters.isEmpty()) {
 						adapters.addAll(otherAdapters);
@@ -990,8 +1073,8 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      * two input classes.
      */
     private Class getCommonClass(Class class1, Class class2) {
-        List list1 = computeCombinedOrder(class1);
-        List list2 = computeCombinedOrder(class2);
+        List list1 = getSearchOrder(class1).combined;
+        List list2 = getSearchOrder(class2).combined;
         for (int i = 0; i < list1.size(); i++) {
             for (int j = 0; j < list2.size(); j++) {
                 Class candidate1 = (Class) list1.get(i);
@@ -909,7 +909,6 @@ public class WorkbenchMessages extends NLS {
 	public static String DecorationScheduler_CalculationJobName;
 	public static String DecorationScheduler_UpdatingTask;
 	public static String DecorationScheduler_CalculatingTask;
-	public static String DecorationScheduler_ClearResultsJob;
 	public static String DecorationScheduler_DecoratingSubtask;
 
 	public static String PerspectiveBar_showText;
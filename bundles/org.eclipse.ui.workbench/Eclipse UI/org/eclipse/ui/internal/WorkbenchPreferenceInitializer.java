@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -73,6 +73,7 @@ public class WorkbenchPreferenceInitializer extends
 		node.putInt(IPreferenceConstants.OPEN_PERSP_MODE,
 				IPreferenceConstants.OPM_ACTIVE_PAGE);
 		node.put(IPreferenceConstants.ENABLED_DECORATORS, ""); //$NON-NLS-1$
+		node.putBoolean(IPreferenceConstants.PARALLEL_DECORATION, false);
 		node.putInt(IPreferenceConstants.EDITORLIST_SELECTION_SCOPE,
 				IPreferenceConstants.EDITORLIST_SET_PAGE_SCOPE); // Current
 																 // Window
@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.internal.activities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.eclipse.ui.activities.IActivityPatternBinding;
+
+/**
+ * Matches identifiers against the pattern bindings of all activities at once.
+ * <p>
+ * Equality patterns and regular expressions without any special constructs
+ * are looked up in a map. The other patterns are kept in a trie under the
+ * literal text they start with, so that only the patterns whose literal
+ * prefix starts the identifier are tested. Patterns that are a literal
+ * followed by <code>.*</code> are matched by the trie alone.
+ * </p>
+ * <p>
+ * Instances are immutable and may be used by several threads.
+ * </p>
+ */
+public final class ActivityPatternMatcher {
+
+	private static final String ANY_SUFFIX = ".*"; //$NON-NLS-1$
+
+	private static final String SPECIAL_CHARACTERS = ".[](){}*+?^$|"; //$NON-NLS-1$
+
+	/**
+	 * A pattern of an activity.
+	 */
+	private static class Entry {
+		final String activityId;
+
+		final Pattern pattern;
+
+		Entry(String activityId, Pattern pattern) {
+			this.activityId = activityId;
+			this.pattern = pattern;
+		}
+	}
+
+	/**
+	 * A node of the trie of literal prefixes.
+	 */
+	private static class Node {
+		// Character -> Node
+		Map children;
+
+		// Entry of the patterns matching anything after the prefix
+		List prefixEntries;
+
+		// Entry of the patterns that have to be tested
+		List patternEntries;
+
+		Node getChild(char c) {
+			return children == null ? null : (Node) children
+					.get(new Character(c));
+		}
+
+		Node addChild(char c) {
+			Node child = getChild(c);
+			if (child == null) {
+				if (children == null) {
+					children = new HashMap(4);
+				}
+				child = new Node();
+				children.put(new Character(c), child);
+			}
+			return child;
+		}
+
+		void addMatches(String identifierId, boolean anySuffix, Set result) {
+			if (prefixEntries != null) {
+				for (int i = 0; i < prefixEntries.size(); i++) {
+					Entry entry = (Entry) prefixEntries.get(i);
+					if (!result.contains(entry.activityId)
+							&& (anySuffix || entry.pattern
+									.matcher(identifierId).matches())) {
+						result.add(entry.activityId);
+					}
+				}
+			}
+			if (patternEntries != null) {
+				for (int i = 0; i < patternEntries.size(); i++) {
+					Entry entry = (Entry) patternEntries.get(i);
+					if (!result.contains(entry.activityId)
+							&& entry.pattern.matcher(identifierId).matches()) {
+						result.add(entry.activityId);
+					}
+				}
+			}
+		}
+	}
+
+	// String -> Set of activity ids
+	private final Map activityIdsByLiteral = new HashMap();
+
+	private final Node root = new Node();
+
+	/**
+	 * Create a matcher for the pattern bindings.
+	 *
+	 * @param activityPatternBindingsByActivityId
+	 *            the Set of {@link IActivityPatternBinding} of each activity
+	 *            id
+	 */
+	public ActivityPatternMatcher(Map activityPatternBindingsByActivityId) {
+		for (Iterator iterator = activityPatternBindingsByActivityId
+				.values().iterator(); iterator.hasNext();) {
+			Set activityPatternBindings = (Set) iterator.next();
+			for (Iterator iterator2 = activityPatternBindings.iterator(); iterator2
+					.hasNext();) {
+				add((IActivityPatternBinding) iterator2.next());
+			}
+		}
+	}
+
+	private void add(IActivityPatternBinding binding) {
+		String activityId = binding.getActivityId();
+		if (binding.isEqualityPattern()) {
+			addLiteral(binding.getString(), activityId);
+			return;
+		}
+
+		Pattern pattern = binding.getPattern();
+		String regex = pattern.pattern();
+		StringBuffer literal = new StringBuffer();
+		int end = pattern.flags() == 0 ? parseLiteralPrefix(regex, literal) : -1;
+		if (end < 0) {
+			literal.setLength(0);
+		}
+		if (end == regex.length()) {
+			addLiteral(literal.toString(), activityId);
+			return;
+		}
+
+		Node node = root;
+		for (int i = 0; i < literal.length(); i++) {
+			node = node.addChild(literal.charAt(i));
+		}
+		Entry entry = new Entry(activityId, pattern);
+		if (end >= 0 && regex.substring(end).equals(ANY_SUFFIX)) {
+			if (node.prefixEntries == null) {
+				node.prefixEntries = new ArrayList(1);
+			}
+			node.prefixEntries.add(entry);
+		} else {
+			if (node.patternEntries == null) {
+				node.patternEntries = new ArrayList(1);
+			}
+			node.patternEntries.add(entry);
+		}
+	}
+
+	private void addLiteral(String literal, String activityId) {
+		Set activityIds = (Set) activityIdsByLiteral.get(literal);
+		if (activityIds == null) {
+			activityIds = new HashSet(2);
+			activityIdsByLiteral.put(literal, activityIds);
+		}
+		activityIds.add(activityId);
+	}
+
+	/**
+	 * Append the literal text every match of regex starts with to literal.
+	 *
+	 * @param regex
+	 * @param literal
+	 * @return the index in regex where the literal text ends, or
+	 *         <code>-1</code> if regex has to be tested as a whole
+	 */
+	static int parseLiteralPrefix(String regex, StringBuffer literal) {
+		if (regex.indexOf('|') >= 0) {
+			// An alternative may start differently
+			return -1;
+		}
+		int length = regex.length();
+		int i = regex.startsWith("^") ? 1 : 0; //$NON-NLS-1$
+		while (i < length) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				if (i + 1 == length) {
+					return -1;
+				}
+				char next = regex.charAt(i + 1);
+				if (next == 'Q') {
+					int stop = regex.indexOf("\\E", i + 2); //$NON-NLS-1$
+					if (stop < 0) {
+						literal.append(regex.substring(i + 2));
+						return length;
+					}
+					literal.append(regex.substring(i + 2, stop));
+					i = stop + 2;
+				} else if (!Character.isLetterOrDigit(next)) {
+					literal.append(next);
+					i += 2;
+				} else {
+					// A character class, escape sequence or back reference
+					return i;
+				}
+			} else if (SPECIAL_CHARACTERS.indexOf(c) >= 0) {
+				if ((c == '?' || c == '*' || c == '{')
+						&& literal.length() > 0) {
+					// The last character may not be there at all
+					literal.setLength(literal.length() - 1);
+				}
+				return i;
+			} else {
+				literal.append(c);
+				i++;
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * Return the ids of the activities with a pattern binding matching the
+	 * identifier id.
+	 *
+	 * @param identifierId
+	 * @return Set of activity ids, which may be modified by the caller
+	 */
+	public Set getMatchingActivityIds(String identifierId) {
+		Set result = new HashSet();
+		Set activityIds = (Set) activityIdsByLiteral.get(identifierId);
+		if (activityIds != null) {
+			result.addAll(activityIds);
+		}
+
+		// The patterns ending in .* do not match past a line terminator
+		int lineTerminator = indexOfLineTerminator(identifierId);
+		Node node = root;
+		int length = identifierId.length();
+		for (int i = 0; node != null; i++) {
+			node.addMatches(identifierId, lineTerminator < i, result);
+			node = i < length ? node.getChild(identifierId.charAt(i)) : null;
+		}
+		return result;
+	}
+
+	private static int indexOfLineTerminator(String string) {
+		for (int i = string.length() - 1; i >= 0; i--) {
+			switch (string.charAt(i)) {
+			case '\n':
+			case '\r':
+			case '\u0085':
+			case '\u2028':
+			case '\u2029':
+				return i;
+			}
+		}
+		return -1;
+	}
+}
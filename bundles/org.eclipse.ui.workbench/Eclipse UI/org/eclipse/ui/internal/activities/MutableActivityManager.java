@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -65,6 +65,13 @@ public final class MutableActivityManager extends AbstractActivityManager
 
     private Map activityPatternBindingsByActivityId = new HashMap();
 
+    /**
+     * The pattern bindings of all activities, compiled for matching
+     * identifiers against them at once.
+     */
+    private volatile ActivityPatternMatcher activityPatternMatcher = new ActivityPatternMatcher(
+            Collections.EMPTY_MAP);
+
     private IActivityRegistry activityRegistry;
 
     private Map categoriesById = new HashMap();
@@ -426,6 +433,8 @@ public final class MutableActivityManager extends AbstractActivityManager
         this.activityRequirementBindingsByActivityId = activityRequirementBindingsByActivityId;
         this.activityDefinitionsById = activityDefinitionsById;
         this.activityPatternBindingsByActivityId = activityPatternBindingsByActivityId;
+        this.activityPatternMatcher = new ActivityPatternMatcher(
+                activityPatternBindingsByActivityId);
         this.categoryActivityBindingsByCategoryId = categoryActivityBindingsByCategoryId;
         this.categoryDefinitionsById = categoryDefinitionsById;
         boolean definedActivityIdsChanged = false;
@@ -840,18 +849,18 @@ public final class MutableActivityManager extends AbstractActivityManager
                         enabledChanged);
 			}
         } else {
-            Set activityIdsToUpdate = new HashSet(changedActivityIds);
-            if (identifier.getActivityIds() != null) {
-                activityIdsToUpdate.addAll(identifier.getActivityIds());
-            }
-            for (Iterator iterator = activityIdsToUpdate.iterator(); iterator
-                    .hasNext();) {
+            // only the changed activities and those previously matched
+            // need to be updated
+            Set previousActivityIds = identifier.getActivityIds();
+            for (Iterator iterator = activityPatternMatcher
+                    .getMatchingActivityIds(id).iterator(); iterator.hasNext();) {
                 String activityId = (String) iterator.next();
-                Activity activity = (Activity) getActivity(activityId);
-    
-                if (activity.isMatch(id)) {
+
+                if (changedActivityIds.contains(activityId)
+                        || (previousActivityIds != null && previousActivityIds
+                                .contains(activityId))) {
                     activityIds.add(activityId);
-               }
+                }
             }
             
             activityIdsChanged = identifier.setActivityIds(activityIds);
@@ -928,16 +937,8 @@ public final class MutableActivityManager extends AbstractActivityManager
                 protected IStatus run(IProgressMonitor monitor) {
                     while (!deferredIdentifiers.isEmpty()) {
                         Identifier identifier = (Identifier) deferredIdentifiers.remove(0);
-                        Set activityIds = new HashSet();
-                        for (Iterator iterator = definedActivityIds.iterator(); iterator
-                                .hasNext();) {
-                            String activityId = (String) iterator.next();
-                            Activity activity = (Activity) getActivity(activityId);
-
-                            if (activity.isMatch(identifier.getId())) {
-                                activityIds.add(activityId);
-                            }
-                        }
+                        Set activityIds = activityPatternMatcher
+                                .getMatchingActivityIds(identifier.getId());
                         
                         boolean activityIdsChanged = identifier.setActivityIds(activityIds);
                         if (activityIdsChanged) {
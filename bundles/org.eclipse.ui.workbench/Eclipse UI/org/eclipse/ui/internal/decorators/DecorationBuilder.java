@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -44,6 +44,9 @@ public class DecorationBuilder implements IDecoration {
 
 	LightweightDecoratorDefinition currentDefinition;
 
+	// The definitions contributed to the type of the element
+	private List definitions = new ArrayList();
+
 	// A flag set if a value has been added
 	private boolean valueSet = false;
 
@@ -75,6 +78,33 @@ public class DecorationBuilder implements IDecoration {
 		this.currentDefinition = definition;
 	}
 
+	/**
+	 * Record the definitions contributed to the type of the element, before
+	 * their enablement is tested.
+	 * 
+	 * @param candidates
+	 */
+	void addCandidateDefinitions(LightweightDecoratorDefinition[] candidates) {
+		for (int i = 0; i < candidates.length; i++) {
+			if (!definitions.contains(candidates[i])) {
+				definitions.add(candidates[i]);
+			}
+		}
+	}
+
+	/**
+	 * Return the definitions that may decorate the element of the receiver,
+	 * whether or not their enablement accepted it.
+	 * 
+	 * @return LightweightDecoratorDefinition[]
+	 */
+	LightweightDecoratorDefinition[] getDefinitions() {
+		LightweightDecoratorDefinition[] result = new LightweightDecoratorDefinition[definitions
+				.size()];
+		definitions.toArray(result);
+		return result;
+	}
+
 	/**
 	 * @see org.eclipse.jface.viewers.IDecoration#addOverlay(org.eclipse.jface.resource.ImageDescriptor)
 	 */
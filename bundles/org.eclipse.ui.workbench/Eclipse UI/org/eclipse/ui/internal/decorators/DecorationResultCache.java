@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.decorators;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.viewers.IDecorationContext;
+
+/**
+ * The DecorationResultCache holds the lightweight decoration results of the
+ * most recently used elements. The least recently used elements are evicted
+ * once the cache holds more than its maximum size.
+ * <p>
+ * The results of an element are also found through the resource it adapts
+ * to, so that a change of the resource invalidates the decorations of all of
+ * the elements adapting to it. The decorators contributed to the type of each
+ * element are kept, whether or not their enablement accepted the element, so
+ * that a change of a decorator only invalidates the results it may take part
+ * in.
+ * </p>
+ * <p>
+ * The cache is safe for use by several threads. The statistics are kept for
+ * tuning the maximum size.
+ * </p>
+ */
+public class DecorationResultCache {
+
+	/**
+	 * The default maximum number of elements with cached results.
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+	private static final LightweightDecoratorDefinition[] EMPTY_DEFINITIONS = new LightweightDecoratorDefinition[0];
+
+	/**
+	 * The cached results of an element, one per decoration context.
+	 */
+	private static class Entry {
+		Object adaptedElement;
+
+		IDecorationContext[] contexts = new IDecorationContext[0];
+
+		DecorationResult[] results = new DecorationResult[0];
+
+		LightweightDecoratorDefinition[] definitions = EMPTY_DEFINITIONS;
+
+		DecorationResult get(IDecorationContext context) {
+			for (int i = 0; i < contexts.length; i++) {
+				if (contexts[i].equals(context)) {
+					return results[i];
+				}
+			}
+			return null;
+		}
+
+		void put(IDecorationContext context, DecorationResult result) {
+			for (int i = 0; i < contexts.length; i++) {
+				if (contexts[i].equals(context)) {
+					results[i] = result;
+					return;
+				}
+			}
+			IDecorationContext[] newContexts = new IDecorationContext[contexts.length + 1];
+			System.arraycopy(contexts, 0, newContexts, 0, contexts.length);
+			newContexts[contexts.length] = context;
+			contexts = newContexts;
+			DecorationResult[] newResults = new DecorationResult[results.length + 1];
+			System.arraycopy(results, 0, newResults, 0, results.length);
+			newResults[results.length] = result;
+			results = newResults;
+		}
+
+		void addDefinitions(LightweightDecoratorDefinition[] newDefinitions) {
+			List added = new ArrayList();
+			for (int i = 0; i < newDefinitions.length; i++) {
+				if (!isDecoratedBy(newDefinitions[i])) {
+					added.add(newDefinitions[i]);
+				}
+			}
+			if (added.isEmpty()) {
+				return;
+			}
+			LightweightDecoratorDefinition[] merged = new LightweightDecoratorDefinition[definitions.length
+					+ added.size()];
+			System.arraycopy(definitions, 0, merged, 0, definitions.length);
+			for (int i = 0; i < added.size(); i++) {
+				merged[definitions.length + i] = (LightweightDecoratorDefinition) added
+						.get(i);
+			}
+			definitions = merged;
+		}
+
+		boolean isDecoratedBy(LightweightDecoratorDefinition definition) {
+			for (int i = 0; i < definitions.length; i++) {
+				if (definitions[i] == definition) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private int maximumSize;
+
+	// Element -> Entry, in access order
+	private LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			if (size() <= maximumSize) {
+				return false;
+			}
+			unindex(eldest.getKey(), (Entry) eldest.getValue());
+			evictionCount++;
+			return true;
+		}
+	};
+
+	// Adapted element -> element or List of elements adapting to it
+	private Map elementsByAdaptedElement = new HashMap();
+
+	private long hitCount;
+
+	private long missCount;
+
+	private long evictionCount;
+
+	private long invalidationCount;
+
+	/**
+	 * Create a new instance of the receiver with the default maximum size.
+	 */
+	public DecorationResultCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Create a new instance of the receiver.
+	 *
+	 * @param maximumSize
+	 *            the maximum number of elements with cached results
+	 */
+	public DecorationResultCache(int maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Return the cached result of element in the context and count it as a
+	 * hit or a miss.
+	 *
+	 * @param element
+	 * @param context
+	 * @return DecorationResult or <code>null</code> if there is none
+	 */
+	public synchronized DecorationResult get(Object element,
+			IDecorationContext context) {
+		Entry entry = (Entry) entries.get(element);
+		DecorationResult result = entry == null ? null : entry.get(context);
+		if (result == null) {
+			missCount++;
+		} else {
+			hitCount++;
+		}
+		return result;
+	}
+
+	/**
+	 * Return whether there is a cached result of element in the context.
+	 * Unlike {@link #get(Object, IDecorationContext)} this does not count in
+	 * the statistics.
+	 *
+	 * @param element
+	 * @param context
+	 * @return boolean
+	 */
+	public synchronized boolean contains(Object element,
+			IDecorationContext context) {
+		Entry entry = (Entry) entries.get(element);
+		return entry != null && entry.get(context) != null;
+	}
+
+	/**
+	 * Cache the result of element in the context.
+	 *
+	 * @param element
+	 * @param adaptedElement
+	 *            the resource element adapts to, or <code>null</code>
+	 * @param context
+	 * @param result
+	 * @param definitions
+	 *            the decorators contributed to the type of element, added to
+	 *            those of the results in the other contexts
+	 */
+	public synchronized void put(Object element, Object adaptedElement,
+			IDecorationContext context, DecorationResult result,
+			LightweightDecoratorDefinition[] definitions) {
+		Entry entry = (Entry) entries.get(element);
+		if (entry == null) {
+			entry = new Entry();
+			entry.adaptedElement = adaptedElement;
+			index(element, adaptedElement);
+			entries.put(element, entry);
+		}
+		entry.put(context, result);
+		entry.addDefinitions(definitions);
+	}
+
+	/**
+	 * Remove the results of the elements and of the elements adapting to
+	 * them.
+	 *
+	 * @param elements
+	 * @return Collection the elements whose results were removed
+	 */
+	public synchronized Collection invalidate(Object[] elements) {
+		List invalidated = new ArrayList();
+		for (int i = 0; i < elements.length; i++) {
+			if (remove(elements[i])) {
+				invalidated.add(elements[i]);
+			}
+			Object adapting = elementsByAdaptedElement.get(elements[i]);
+			if (adapting instanceof List) {
+				Object[] adaptingElements = ((List) adapting).toArray();
+				for (int j = 0; j < adaptingElements.length; j++) {
+					if (remove(adaptingElements[j])) {
+						invalidated.add(adaptingElements[j]);
+					}
+				}
+			} else if (adapting != null && remove(adapting)) {
+				invalidated.add(adapting);
+			}
+		}
+		return invalidated;
+	}
+
+	/**
+	 * Remove the results the decorator may take part in.
+	 *
+	 * @param definition
+	 * @return Collection the elements whose results were removed
+	 */
+	public synchronized Collection invalidate(
+			LightweightDecoratorDefinition definition) {
+		List invalidated = new ArrayList();
+		Iterator iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry next = (Map.Entry) iterator.next();
+			Entry entry = (Entry) next.getValue();
+			if (entry.isDecoratedBy(definition)) {
+				iterator.remove();
+				unindex(next.getKey(), entry);
+				invalidationCount++;
+				invalidated.add(next.getKey());
+			}
+		}
+		return invalidated;
+	}
+
+	/**
+	 * Remove all of the results. This is not counted as invalidations.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		elementsByAdaptedElement.clear();
+	}
+
+	private boolean remove(Object element) {
+		Entry entry = (Entry) entries.remove(element);
+		if (entry == null) {
+			return false;
+		}
+		unindex(element, entry);
+		invalidationCount++;
+		return true;
+	}
+
+	private void index(Object element, Object adaptedElement) {
+		if (adaptedElement == null) {
+			return;
+		}
+		Object adapting = elementsByAdaptedElement.get(adaptedElement);
+		if (adapting == null) {
+			elementsByAdaptedElement.put(adaptedElement, element);
+		} else if (adapting instanceof List) {
+			((List) adapting).add(element);
+		} else {
+			List elements = new ArrayList(2);
+			elements.add(adapting);
+			elements.add(element);
+			elementsByAdaptedElement.put(adaptedElement, elements);
+		}
+	}
+
+	private void unindex(Object element, Entry entry) {
+		if (entry.adaptedElement == null) {
+			return;
+		}
+		Object adapting = elementsByAdaptedElement.get(entry.adaptedElement);
+		if (adapting instanceof List) {
+			List elements = (List) adapting;
+			elements.remove(element);
+			if (elements.size() == 1) {
+				elementsByAdaptedElement.put(entry.adaptedElement, elements
+						.get(0));
+			}
+		} else if (adapting != null) {
+			elementsByAdaptedElement.remove(entry.adaptedElement);
+		}
+	}
+
+	/**
+	 * Return the maximum number of elements with cached results.
+	 *
+	 * @return int
+	 */
+	public synchronized int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Set the maximum number of elements with cached results, evicting the
+	 * least recently used elements if there are more.
+	 *
+	 * @param maximumSize
+	 */
+	public synchronized void setMaximumSize(int maximumSize) {
+		this.maximumSize = maximumSize;
+		Iterator iterator = entries.entrySet().iterator();
+		while (entries.size() > maximumSize && iterator.hasNext()) {
+			Map.Entry eldest = (Map.Entry) iterator.next();
+			iterator.remove();
+			unindex(eldest.getKey(), (Entry) eldest.getValue());
+			evictionCount++;
+		}
+	}
+
+	/**
+	 * Return the number of elements with cached results.
+	 *
+	 * @return int
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Return the number of lookups that found a result.
+	 *
+	 * @return long
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Return the number of lookups that did not find a result.
+	 *
+	 * @return long
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Return the number of elements whose results were evicted to stay
+	 * within the maximum size.
+	 *
+	 * @return long
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Return the number of elements whose results were invalidated by a
+	 * change of the elements or of a decorator.
+	 *
+	 * @return long
+	 */
+	public synchronized long getInvalidationCount() {
+		return invalidationCount;
+	}
+
+	/**
+	 * Reset the statistics.
+	 */
+	public synchronized void resetStatistics() {
+		hitCount = 0;
+		missCount = 0;
+		evictionCount = 0;
+		invalidationCount = 0;
+	}
+}
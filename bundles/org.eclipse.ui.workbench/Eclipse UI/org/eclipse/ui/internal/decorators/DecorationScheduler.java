@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -49,7 +49,7 @@ public class DecorationScheduler {
 
 	// When decorations are computed they are added to this cache via
 	// decorated() method
-	Map resultCache = new HashMap();
+	DecorationResultCache resultCache = new DecorationResultCache();
 
 	// Objects that need an icon and text computed for display to the user
 	List awaitingDecoration = new ArrayList();
@@ -68,19 +68,26 @@ public class DecorationScheduler {
 
 	Job decorationJob;
 
+	// Whether elements are decorated by the pool of decoration workers
+	volatile boolean parallel = false;
+
+	// The jobs decorating elements in parallel, created when first needed
+	private Job[] workers;
+
 	UIJob updateJob;
 
 	private Collection removedListeners = Collections
 			.synchronizedSet(new HashSet());
 
-	private Job clearJob;
-
 	// Static used for the updates to indicate an update is required
 	static final int NEEDS_INIT = -1;
 
 	/** Amount of time to delay the update notification when max reached. */
 	static final int UPDATE_DELAY = 100;
 
+	/** Maximum number of jobs decorating elements in parallel. */
+	static final int MAX_WORKERS = 4;
+
 	/**
 	 * Return a new instance of the receiver configured for the supplied
 	 * DecoratorManager.
@@ -89,7 +96,51 @@ public class DecorationScheduler {
 	 */
 	DecorationScheduler(DecoratorManager manager) {
 		decoratorManager = manager;
-		createDecorationJob();
+		decorationJob = createDecorationJob(false);
+		decorationJob.schedule();
+	}
+
+	/**
+	 * Set whether elements are decorated in parallel. In parallel mode the
+	 * waiting elements are decorated by a bounded pool of jobs, the elements
+	 * most recently asked for first as they are the ones the viewers are
+	 * showing, and the labels of decorated elements are updated while the
+	 * rest of the elements are decorated, each listener getting a single
+	 * update per flush.
+	 *
+	 * @param parallel
+	 *            <code>true</code> to decorate elements in parallel
+	 */
+	synchronized void setParallel(boolean parallel) {
+		if (this.parallel == parallel) {
+			return;
+		}
+		this.parallel = parallel;
+		if (!shutdown && !awaitingDecorationValues.isEmpty()) {
+			scheduleDecoration();
+		}
+	}
+
+	/**
+	 * Schedule the jobs decorating the waiting elements.
+	 */
+	private void scheduleDecoration() {
+		if (!parallel) {
+			decorationJob.schedule();
+			return;
+		}
+		if (workers == null) {
+			workers = new Job[Math.min(MAX_WORKERS, Runtime.getRuntime()
+					.availableProcessors())];
+			for (int i = 0; i < workers.length; i++) {
+				workers[i] = createDecorationJob(true);
+			}
+		}
+		// Do not wake up more workers than there are elements
+		int count = Math.min(workers.length, awaitingDecorationValues.size());
+		for (int i = 0; i < count; i++) {
+			workers[i].schedule();
+		}
 	}
 
 	/**
@@ -146,6 +197,13 @@ public class DecorationScheduler {
 				reference.setForceUpdate(forceUpdate);
 			}
 			reference.addContext(context);
+			// An element asked for again is likely to be visible so queue it
+			// again to be decorated next. The stale entry is skipped in
+			// nextElement().
+			if (parallel
+					&& awaitingDecoration.get(awaitingDecoration.size() - 1) != element) {
+				awaitingDecoration.add(element);
+			}
 		} else {
 			reference = new DecorationReference(element, adaptedElement,
 					context);
@@ -156,7 +214,7 @@ public class DecorationScheduler {
 			if (shutdown) {
 				return;
 			}
-			decorationJob.schedule();
+			scheduleDecoration();
 		}
 
 	}
@@ -207,7 +265,7 @@ public class DecorationScheduler {
 			return null;
 		}
 
-		DecorationResult decoration = internalGetResult(element, context);
+		DecorationResult decoration = resultCache.get(element, context);
 
 		if (decoration == null) {
 			queueForDecoration(element, adaptedElement, false, null, context);
@@ -217,23 +275,13 @@ public class DecorationScheduler {
 
 	}
 
-	private DecorationResult internalGetResult(Object element,
-			IDecorationContext context) {
-		Map results = (Map) resultCache.get(context);
-		if (results != null) {
-			return (DecorationResult) results.get(element);
-		}
-		return null;
-	}
-
-	protected void internalPutResult(Object element,
-			IDecorationContext context, DecorationResult result) {
-		Map results = (Map) resultCache.get(context);
-		if (results == null) {
-			results = new HashMap();
-			resultCache.put(context, results);
-		}
-		results.put(element, result);
+	/**
+	 * Return the cache of the decoration results.
+	 * 
+	 * @return DecorationResultCache
+	 */
+	DecorationResultCache getResultCache() {
+		return resultCache;
 	}
 
 	/**
@@ -269,19 +317,30 @@ public class DecorationScheduler {
 	 */
 	synchronized DecorationReference nextElement() {
 
-		if (shutdown || awaitingDecoration.isEmpty()) {
-			return null;
+		while (!shutdown && !awaitingDecoration.isEmpty()) {
+			// In parallel mode the most recent requests are served first
+			Object element = parallel ? awaitingDecoration
+					.remove(awaitingDecoration.size() - 1) : awaitingDecoration
+					.remove(0);
+			DecorationReference reference = (DecorationReference) awaitingDecorationValues
+					.remove(element);
+			// Elements asked for again in parallel mode are queued twice
+			if (reference != null) {
+				return reference;
+			}
 		}
-		Object element = awaitingDecoration.remove(0);
-
-		return (DecorationReference) awaitingDecorationValues.remove(element);
+		return null;
 	}
 
 	/**
-	 * Create the Thread used for running decoration.
+	 * Create a job used for running decoration.
+	 * 
+	 * @param concurrent
+	 *            whether the job runs along with other decoration jobs
+	 * @return Job
 	 */
-	private void createDecorationJob() {
-		decorationJob = new Job(
+	private Job createDecorationJob(final boolean concurrent) {
+		Job job = new Job(
 				WorkbenchMessages.DecorationScheduler_CalculationJobName) {
 			/*
 			 * (non-Javadoc)
@@ -328,13 +387,16 @@ public class DecorationScheduler {
 					IDecorationContext[] contexts = reference.getContexts();
 					for (int i = 0; i < contexts.length; i++) {
 						IDecorationContext context = contexts[i];
-						ensureResultCached(element, force, context);
+						ensureResultCached(element, reference
+								.getAdaptedElement(), force, context);
 					}
 
 					// Only notify listeners when we have exhausted the
-					// queue of decoration requests.
+					// queue of decoration requests, or in parallel mode
+					// whenever the previous update is done.
 					synchronized (DecorationScheduler.this) {
-						if (awaitingDecoration.isEmpty()) {
+						if (awaitingDecorationValues.isEmpty() || parallel
+								&& !hasPendingUpdates() && !isUpdateScheduled()) {
 							decorated();
 						}
 					}
@@ -349,14 +411,18 @@ public class DecorationScheduler {
 			 * 
 			 * @param element
 			 *            the elements
+			 * @param adaptedElement
+			 *            the adapted value of element, may be null
 			 * @param force
 			 *            whether an update should be forced
 			 * @param context
 			 *            the decoration context
 			 */
-			private void ensureResultCached(Object element, boolean force,
+			private void ensureResultCached(Object element,
+					Object adaptedElement, boolean force,
 					IDecorationContext context) {
-				boolean elementIsCached = internalGetResult(element, context) != null;
+				boolean elementIsCached = resultCache.contains(element,
+						context);
 				if (elementIsCached) {
 					synchronized (pendingKey) {
 						pendingUpdate.add(element);
@@ -368,8 +434,14 @@ public class DecorationScheduler {
 					DecorationBuilder cacheResult = new DecorationBuilder(
 							context);
 					// Calculate the decoration
-					decoratorManager.getLightweightManager().getDecorations(
-							element, cacheResult);
+					if (concurrent) {
+						decoratorManager.getLightweightManager()
+								.getDecorationsConcurrently(element,
+										cacheResult);
+					} else {
+						decoratorManager.getLightweightManager()
+								.getDecorations(element, cacheResult);
+					}
 
 					// If we should update regardless then put a result
 					// anyways
@@ -384,8 +456,9 @@ public class DecorationScheduler {
 						// Add the decoration even if it's empty in
 						// order to indicate that the decoration is
 						// ready
-						internalPutResult(element, context, cacheResult
-								.createResult());
+						resultCache.put(element, adaptedElement, context,
+								cacheResult.createResult(), cacheResult
+										.getDefinitions());
 
 						// Add an update for only the original element
 						// to
@@ -418,9 +491,9 @@ public class DecorationScheduler {
 			}
 		};
 
-		decorationJob.setSystem(true);
-		decorationJob.setPriority(Job.DECORATE);
-		decorationJob.schedule();
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+		return job;
 	}
 
 	/**
@@ -432,50 +505,26 @@ public class DecorationScheduler {
 		if (updateJob != null && updateJob.getState() != Job.NONE) {
 			return true;
 		}
-		if (clearJob != null && clearJob.getState() != Job.NONE) {
-			return true;
-		}
 		return false;
 	}
 
+	/**
+	 * Return whether or not the update job is waiting or running.
+	 * 
+	 * @return <code>true</code> if the update job is scheduled
+	 */
+	private boolean isUpdateScheduled() {
+		return updateJob != null && updateJob.getState() != Job.NONE;
+	}
+
 	/**
 	 * An external update request has been made. Clear the results as they are
 	 * likely obsolete now.
 	 */
 	void clearResults() {
-		if (clearJob == null) {
-			clearJob = getClearJob();
-		}
-		clearJob.schedule();
-	}
-
-	private Job getClearJob() {
-		Job clear = new Job(
-				WorkbenchMessages.DecorationScheduler_ClearResultsJob) {
-
-			/*
-			 * (non-Javadoc)
-			 * 
-			 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
-			 */
-			protected IStatus run(IProgressMonitor monitor) {
-				resultCache.clear();
-				return Status.OK_STATUS;
-			}
-
-			/*
-			 * (non-Javadoc)
-			 * 
-			 * @see org.eclipse.core.runtime.jobs.Job#shouldRun()
-			 */
-			public boolean shouldRun() {
-				return PlatformUI.isWorkbenchRunning();
-			}
-
-		};
-		clear.setSystem(true);
-
-		return clear;
+		// Cleared right away so that the labels updated next do not get
+		// obsolete results
+		resultCache.clear();
 	}
 
 	/**
@@ -533,8 +582,10 @@ public class DecorationScheduler {
 
 					// If it is taking long enough for the user to notice then
 					// cancel the
-					// updates.
-					if ((System.currentTimeMillis() - startTime) >= UPDATE_DELAY / 2) {
+					// updates. In parallel mode all of the listeners are
+					// updated at once as decoration continues meanwhile.
+					if (!parallel
+							&& (System.currentTimeMillis() - startTime) >= UPDATE_DELAY / 2) {
 						break;
 					}
 				}
@@ -560,12 +611,8 @@ public class DecorationScheduler {
             private void resetState() {
                 currentIndex = NEEDS_INIT;// Reset
                 removedListeners.clear();
-                // Other decoration requests may have occurred due to
-                // updates or we may have timed out updating listeners.
-                // Only clear the results if there are none pending.
-                if (awaitingDecoration.isEmpty()) {
-                    resultCache.clear();
-                }
+                // The results are kept for later label requests as the
+                // cache is bounded in size.
             }
             
 			private void setUpUpdates() {
@@ -615,7 +662,7 @@ public class DecorationScheduler {
 	 * @return boolean true if the element is ready.
 	 */
 	public boolean isDecorationReady(Object element, IDecorationContext context) {
-		return internalGetResult(element, context) != null;
+		return resultCache.contains(element, context);
 	}
 
 	/**
@@ -684,7 +731,7 @@ public class DecorationScheduler {
 	 * @return boolean
 	 */
 	public boolean processingUpdates() {
-		return !hasPendingUpdates() && !awaitingDecoration.isEmpty();
+		return !hasPendingUpdates() && !awaitingDecorationValues.isEmpty();
 	}
 
 	/**
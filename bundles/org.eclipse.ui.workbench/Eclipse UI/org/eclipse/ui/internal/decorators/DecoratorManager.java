@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,9 +11,11 @@
 package org.eclipse.ui.internal.decorators;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.StringTokenizer;
 import org.eclipse.core.runtime.CoreException;
@@ -32,6 +34,8 @@ import org.eclipse.core.runtime.dynamichelpers.IExtensionTracker;
 import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.resource.LocalResourceManager;
 import org.eclipse.jface.resource.ResourceManager;
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.jface.util.SafeRunnable;
 import org.eclipse.jface.viewers.DecorationContext;
 import org.eclipse.jface.viewers.IBaseLabelProvider;
@@ -78,6 +82,17 @@ public class DecoratorManager implements ILabelProviderListener,
 
 	private DecorationScheduler scheduler;
 
+	// Switches the scheduler to parallel decoration and back
+	private IPropertyChangeListener parallelDecorationListener = new IPropertyChangeListener() {
+		public void propertyChange(PropertyChangeEvent event) {
+			if (IPreferenceConstants.PARALLEL_DECORATION.equals(event
+					.getProperty())) {
+				scheduler.setParallel(PrefUtil.getInternalPreferenceStore()
+						.getBoolean(IPreferenceConstants.PARALLEL_DECORATION));
+			}
+		}
+	};
+
 	private LightweightDecoratorManager lightweightManager;
 
 	// Hold onto the list of listeners to be told if a change has occured
@@ -282,6 +297,10 @@ public class DecoratorManager implements ILabelProviderListener,
 	public DecoratorManager() {
 
 		scheduler = new DecorationScheduler(this);
+		scheduler.setParallel(PrefUtil.getInternalPreferenceStore().getBoolean(
+				IPreferenceConstants.PARALLEL_DECORATION));
+		PrefUtil.getInternalPreferenceStore().addPropertyChangeListener(
+				parallelDecorationListener);
 		IExtensionTracker tracker = PlatformUI.getWorkbench()
 				.getExtensionTracker();
 		tracker.registerHandler(this, ExtensionTracker
@@ -800,23 +819,64 @@ public class DecoratorManager implements ILabelProviderListener,
 	 */
 	public void labelProviderChanged(LabelProviderChangedEvent event) {
 		Object[] elements = event.getElements();
-		scheduler.clearResults();
 		// If the elements are not specified send out a general update
 		if (elements == null) {
+			// Only the results of a lightweight decorator are obsolete
+			LightweightDecoratorDefinition definition = getLightweightDefinition(event
+					.getSource());
+			if (definition == null) {
+				scheduler.clearResults();
+			} else {
+				scheduler.getResultCache().invalidate(definition);
+			}
 			fireListeners(event);
 		} else {
+			// The elements adapting to the changed ones are obsolete too
+			Set changed = new LinkedHashSet(Arrays.asList(elements));
+			changed.addAll(scheduler.getResultCache().invalidate(elements));
 			// Assume that someone is going to care about the
 			// decoration result and just start it right away
-			for (int i = 0; i < elements.length; i++) {
-				Object adapted = getResourceAdapter(elements[i]);
+			Iterator iterator = changed.iterator();
+			while (iterator.hasNext()) {
+				Object element = iterator.next();
+				Object adapted = getResourceAdapter(element);
 				// Force an update in case full decorators are the only ones
 				// enabled
-				scheduler.queueForDecoration(elements[i], adapted, true, null,
+				scheduler.queueForDecoration(element, adapted, true, null,
 						DecorationContext.DEFAULT_CONTEXT);
 			}
 		}
 	}
 
+	/**
+	 * Return the lightweight decorator definition of the decorator.
+	 * 
+	 * @param decorator
+	 * @return LightweightDecoratorDefinition or <code>null</code> if
+	 *         decorator is not a lightweight decorator
+	 */
+	private LightweightDecoratorDefinition getLightweightDefinition(
+			Object decorator) {
+		LightweightDecoratorDefinition[] definitions = getLightweightManager()
+				.getDefinitions();
+		for (int i = 0; i < definitions.length; i++) {
+			if (definitions[i].getDecorator() == decorator) {
+				return definitions[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the cache of the lightweight decoration results, for tuning its
+	 * size from its statistics.
+	 * 
+	 * @return DecorationResultCache
+	 */
+	public DecorationResultCache getDecorationResultCache() {
+		return scheduler.getResultCache();
+	}
+
 	/**
 	 * Store the currently enabled decorators in preference store.
 	 */
@@ -916,6 +976,8 @@ public class DecoratorManager implements ILabelProviderListener,
 		if (lightweightManager != null) {
 			getLightweightManager().shutdown();
 		}
+		PrefUtil.getInternalPreferenceStore().removePropertyChangeListener(
+				parallelDecorationListener);
 		scheduler.shutdown();
 		dispose();
 	}
@@ -1105,7 +1167,13 @@ public class DecoratorManager implements ILabelProviderListener,
 
 		IBaseLabelProvider provider = getBaseLabelProvider(decoratorId);
 		if (provider != null) {
-			scheduler.clearResults();
+			LightweightDecoratorDefinition definition = getLightweightManager()
+					.getDecoratorDefinition(decoratorId);
+			if (definition == null) {
+				scheduler.clearResults();
+			} else {
+				scheduler.getResultCache().invalidate(definition);
+			}
 			fireListeners(new LabelProviderChangedEvent(provider));
 		}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -302,6 +302,14 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 * Get the lightweight registered for elements of this type.
 	 */
 	LightweightDecoratorDefinition[] getDecoratorsFor(Object element) {
+		return getEnabledDecorators(element, getCandidatesFor(element));
+	}
+
+	/**
+	 * Get the lightweight decorators contributed to the type of the element,
+	 * before their enablement is tested.
+	 */
+	private LightweightDecoratorDefinition[] getCandidatesFor(Object element) {
 
 		if (element == null) {
 			return EMPTY_LIGHTWEIGHT_DEF;
@@ -309,13 +317,26 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 
 		List elements = new ArrayList(1);
 		elements.add(element);
-		LightweightDecoratorDefinition[] decoratorArray = EMPTY_LIGHTWEIGHT_DEF;
 		List contributors = getContributors(elements);
-		if (!contributors.isEmpty()) {
+		if (contributors.isEmpty()) {
+			return EMPTY_LIGHTWEIGHT_DEF;
+		}
+		LightweightDecoratorDefinition[] candidates = new LightweightDecoratorDefinition[contributors
+				.size()];
+		contributors.toArray(candidates);
+		return candidates;
+	}
+
+	/**
+	 * Get the candidates whose enablement accepts the element.
+	 */
+	private LightweightDecoratorDefinition[] getEnabledDecorators(
+			Object element, LightweightDecoratorDefinition[] candidates) {
+
+		LightweightDecoratorDefinition[] decoratorArray = EMPTY_LIGHTWEIGHT_DEF;
+		if (candidates.length > 0) {
 			Collection decorators = DecoratorManager.getDecoratorsFor(element,
-					(DecoratorDefinition[]) contributors
-							.toArray(new DecoratorDefinition[contributors
-									.size()]));
+					candidates);
 			if (decorators.size() > 0) {
 				decoratorArray = new LightweightDecoratorDefinition[decorators
 						.size()];
@@ -337,7 +358,10 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 */
 	public void getDecorations(Object element, DecorationBuilder decoration) {
 
-		LightweightDecoratorDefinition[] decorators = getDecoratorsFor(element);
+		LightweightDecoratorDefinition[] candidates = getCandidatesFor(element);
+		decoration.addCandidateDefinitions(candidates);
+		LightweightDecoratorDefinition[] decorators = getEnabledDecorators(
+				element, candidates);
 
 		for (int i = 0; i < decorators.length; i++) {
 			// If we are doing the adaptable one make sure we are
@@ -348,6 +372,37 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 		}
 	}
 
+	/**
+	 * Fill the decoration with all of the results of the decorators. Unlike
+	 * {@link #getDecorations(Object, DecorationBuilder)} this may be called
+	 * by several threads at once: a decorator is only run by one thread at a
+	 * time, so different decorators run in parallel while each of them still
+	 * sees the calls of a single decoration thread.
+	 *
+	 * @param element
+	 *            The source element
+	 * @param decoration
+	 *            The DecorationResult we are working on.
+	 */
+	void getDecorationsConcurrently(Object element,
+			DecorationBuilder decoration) {
+
+		LightweightDecoratorDefinition[] candidates = getCandidatesFor(element);
+		decoration.addCandidateDefinitions(candidates);
+		LightweightDecoratorDefinition[] decorators = getEnabledDecorators(
+				element, candidates);
+
+		LightweightRunnable decorationRunnable = new LightweightRunnable();
+		for (int i = 0; i < decorators.length; i++) {
+			LightweightDecoratorDefinition dd = decorators[i];
+			decoration.setCurrentDefinition(dd);
+			synchronized (dd) {
+				decorationRunnable.setValues(element, decoration, dd);
+				SafeRunner.run(decorationRunnable);
+			}
+		}
+	}
+
 	/**
 	 * Decorate the element receiver in a SafeRunnable.
 	 * 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005 IBM Corporation and others.
+ * Copyright (c) 2005, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,4 +30,14 @@ public abstract class AbstractProgressViewer extends StructuredViewer {
 	 * @param elements
 	 */
 	public abstract void remove(Object[] elements);
+
+	/**
+	 * Refresh the elements in the receiver as one batch.
+	 * @param elements
+	 */
+	public void refresh(Object[] elements) {
+		for (int i = 0; i < elements.length; i++) {
+			refresh(elements[i], true);
+		}
+	}
 }
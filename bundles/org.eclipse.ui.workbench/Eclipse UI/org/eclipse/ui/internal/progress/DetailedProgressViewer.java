@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2008 IBM Corporation and others.
+ * Copyright (c) 2005, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,8 +11,11 @@
 package org.eclipse.ui.internal.progress;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.eclipse.jface.dialogs.IDialogConstants;
 import org.eclipse.jface.resource.JFaceResources;
@@ -36,6 +39,12 @@ import org.eclipse.ui.internal.IWorkbenchHelpContextIds;
 /**
  * The DetailedProgressViewer is a viewer that shows the details of all in
  * progress job or jobs that are finished awaiting user input.
+ * <p>
+ * Only the first elements in sorted order get an item, however many jobs
+ * there are. Changes are applied to the existing items: an item is only
+ * created, disposed or moved when its element enters, leaves or moves within
+ * the shown elements.
+ * </p>
  * 
  * @since 3.2
  * 
@@ -166,19 +175,66 @@ public class DetailedProgressViewer extends AbstractProgressViewer {
 			sorter.sort(this, infos);
 		}
 
-		// Update with the new elements to prevent flash
+		showElements(infos, false);
+	}
+
+	/**
+	 * Show the first of the sorted elements. The items of the elements that
+	 * are already shown are kept, and only the items that change are created,
+	 * disposed or moved.
+	 * 
+	 * @param infos
+	 *            the sorted elements
+	 * @param refreshExisting
+	 *            whether the items that are kept are refreshed
+	 */
+	private void showElements(Object[] infos, boolean refreshExisting) {
+		Control[] existingChildren = control.getChildren();
+		Map existingItems = new HashMap();
 		for (int i = 0; i < existingChildren.length; i++) {
-			((ProgressInfoItem) existingChildren[i]).dispose();
+			if (existingChildren[i].getData() != null) {
+				existingItems.put(existingChildren[i].getData(),
+						existingChildren[i]);
+			}
 		}
 
-		int totalSize = Math.min(newItems.size(), MAX_DISPLAYED);
-
+		boolean changed = false;
+		int totalSize = Math.min(infos.length, MAX_DISPLAYED);
+		ProgressInfoItem[] items = new ProgressInfoItem[totalSize];
 		for (int i = 0; i < totalSize; i++) {
-			ProgressInfoItem item = createNewItem(infos[i]);
-			item.setColor(i);
+			items[i] = (ProgressInfoItem) existingItems.remove(infos[i]);
+			if (items[i] == null) {
+				items[i] = createNewItem((JobTreeElement) infos[i]);
+				changed = true;
+			} else if (refreshExisting) {
+				items[i].refresh();
+			}
 		}
 
-		control.layout(true);
+		// Dispose the items of the elements that are no longer shown
+		Iterator staleItems = existingItems.values().iterator();
+		while (staleItems.hasNext()) {
+			((Control) staleItems.next()).dispose();
+			changed = true;
+		}
+
+		Control[] children = control.getChildren();
+		for (int i = 0; i < children.length && !changed; i++) {
+			changed = children[i] != items[i];
+		}
+
+		if (changed) {
+			for (int i = 0; i < items.length; i++) {
+				if (i == 0) {
+					items[i].moveAbove(null);
+				} else {
+					items[i].moveBelow(items[i - 1]);
+				}
+				items[i].setColor(i);
+			}
+			control.layout(true);
+			updateMinSize();
+		}
 		updateForShowingProgress();
 	}
 
@@ -186,13 +242,25 @@ public class DetailedProgressViewer extends AbstractProgressViewer {
 	 * Update for the progress being displayed.
 	 */
 	private void updateForShowingProgress() {
-		if (control.getChildren().length > 0) {
-			scrolled.setContent(control);
-		} else {
-			scrolled.setContent(noEntryArea);
+		Control content = control.getChildren().length > 0 ? control
+				: noEntryArea;
+		// Setting the same content again resets its bounds
+		if (scrolled.getContent() != content) {
+			scrolled.setContent(content);
 		}
 	}
 
+	/**
+	 * Update the minimum size of the scrolled area for the items.
+	 */
+	private void updateMinSize() {
+		Point size = control.computeSize(SWT.DEFAULT, SWT.DEFAULT);
+		size.x += IDialogConstants.HORIZONTAL_SPACING;
+		size.y += IDialogConstants.VERTICAL_SPACING;
+
+		scrolled.setMinSize(size);
+	}
+
 	/**
 	 * Create a new item for info.
 	 * 
@@ -332,10 +400,8 @@ public class DetailedProgressViewer extends AbstractProgressViewer {
 	 *      java.lang.Object, boolean)
 	 */
 	protected void doUpdateItem(Widget item, Object element, boolean fullMap) {
-		if (usingElementMap()) {
-			unmapElement(item);
-		}
-		item.dispose();
+		((ProgressInfoItem) item).refresh();
+		// Move the item if its position changed
 		add(new Object[] { element });
 	}
 
@@ -389,13 +455,38 @@ public class DetailedProgressViewer extends AbstractProgressViewer {
 			return;
 		}
 		((ProgressInfoItem) widget).refresh();
+		updateMinSize();
+	}
 
-		// Update the minimum size
-		Point size = control.computeSize(SWT.DEFAULT, SWT.DEFAULT);
-		size.x += IDialogConstants.HORIZONTAL_SPACING;
-		size.y += IDialogConstants.VERTICAL_SPACING;
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.ui.internal.progress.AbstractProgressViewer#refresh(java.lang.Object[])
+	 */
+	public void refresh(Object[] elements) {
+		List missing = new ArrayList();
+		for (int i = 0; i < elements.length; i++) {
+			if (elements[i] == null) {
+				continue;
+			}
+			if (elements[i].equals(getRoot())) {
+				refreshAll();
+				return;
+			}
+			Widget widget = findItem(elements[i]);
+			if (widget == null) {
+				missing.add(elements[i]);
+			} else {
+				((ProgressInfoItem) widget).refresh();
+			}
+		}
 
-		scrolled.setMinSize(size);
+		// The elements not shown only get an item if they sort before the
+		// shown ones
+		if (!missing.isEmpty()) {
+			add(missing.toArray());
+		}
+		updateMinSize();
 	}
 
 	/*
@@ -430,6 +521,11 @@ public class DetailedProgressViewer extends AbstractProgressViewer {
 		}
 
 		Control[] existingChildren = control.getChildren();
+		if (existingChildren.length < MAX_DISPLAYED && getRoot() != null) {
+			// Show the elements that did not fit before
+			showElements(getSortedChildren(getRoot()), false);
+			return;
+		}
 		for (int i = 0; i < existingChildren.length; i++) {
 			ProgressInfoItem item = (ProgressInfoItem) existingChildren[i];
 			item.setColor(i);
@@ -483,23 +579,7 @@ public class DetailedProgressViewer extends AbstractProgressViewer {
 	 */
 	private void refreshAll() {
 
-		Object[] infos = getSortedChildren(getRoot());
-		Control[] existingChildren = control.getChildren();
-
-		for (int i = 0; i < existingChildren.length; i++) {
-			existingChildren[i].dispose();
-
-		}
-		
-		int maxLength = Math.min(infos.length,MAX_DISPLAYED);
-		// Create new ones if required
-		for (int i = 0; i < maxLength; i++) {
-			ProgressInfoItem item = createNewItem((JobTreeElement) infos[i]);
-			item.setColor(i);
-		}
-
-		control.layout(true);
-		updateForShowingProgress();
+		showElements(getSortedChildren(getRoot()), true);
 
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2007 IBM Corporation and others.
+ * Copyright (c) 2003, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,7 +37,7 @@ public class JobInfo extends JobTreeElement {
 
     private GroupInfo parent;
 
-    private TaskInfo taskInfo;
+    private volatile TaskInfo taskInfo;
 
     //Default to no progress
     private int ticks = -1;
@@ -64,16 +64,17 @@ public class JobInfo extends JobTreeElement {
      * Add the amount of work to the job info.
      * 
      * @param workIncrement
+     * @return boolean <code>true</code> if the job info needs a refresh
      */
-    void addWork(double workIncrement) {
-        if (taskInfo == null) {
-			return;
+    boolean addWork(double workIncrement) {
+    	TaskInfo info = taskInfo;
+        if (info == null) {
+			return false;
 		}
         if (parent == null || ticks < 1) {
-			taskInfo.addWork(workIncrement);
-		} else {
-			taskInfo.addWork(workIncrement, parent, ticks);
+			return info.addWork(workIncrement);
 		}
+        return info.addWork(workIncrement, parent, ticks);
     }
 
     /**
@@ -347,7 +348,7 @@ public class JobInfo extends JobTreeElement {
         	if(info.totalWork == 0) {
 				return 0;
 			}
-            return (int) info.preWork * 100 / info.totalWork;
+            return (int) info.sampleWork() * 100 / info.totalWork;
         }
         return IProgressMonitor.UNKNOWN;
     }
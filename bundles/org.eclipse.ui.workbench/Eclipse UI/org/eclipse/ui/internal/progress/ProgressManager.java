@@ -22,11 +22,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IProgressMonitorWithBlocking;
 import org.eclipse.core.runtime.IStatus;
@@ -72,6 +73,10 @@ import org.eclipse.ui.statushandlers.StatusManager.INotificationTypes;
 /**
  * JobProgressManager provides the progress monitor to the job manager and
  * informs any ProgressContentProviders of changes.
+ * <p>
+ * The jobs, their monitors and the busy listeners are kept in concurrent
+ * structures, so reporting progress from the jobs does not lock the receiver.
+ * </p>
  */
 public class ProgressManager extends ProgressProvider implements
 		IProgressService {
@@ -90,10 +95,10 @@ public class ProgressManager extends ProgressProvider implements
 
 	private static ProgressManager singleton;
 
-	final private Map jobs = Collections.synchronizedMap(new HashMap());
+	final private ConcurrentHashMap jobs = new ConcurrentHashMap();
 
-	final private Map familyListeners = Collections
-			.synchronizedMap(new HashMap());
+	// Family -> Set of IJobBusyListener, the sets are copied on write
+	final private Map familyListeners = new ConcurrentHashMap();
 
 	//	list of IJobProgressManagerListener
 	private ListenerList listeners = new ListenerList();
@@ -125,7 +130,7 @@ public class ProgressManager extends ProgressProvider implements
 	 */
 	public static final String BLOCKED_JOB_KEY = "LOCKED_JOB"; //$NON-NLS-1$
 
-	final Map runnableMonitors = Collections.synchronizedMap(new HashMap());
+	final ConcurrentHashMap runnableMonitors = new ConcurrentHashMap();
 
 	// A table that maps families to keys in the Jface image
 	// table
@@ -194,7 +199,7 @@ public class ProgressManager extends ProgressProvider implements
 			TaskInfo currentTask = info.getTaskInfo();
 			if (currentTask != null) {
 				listener.beginTask(currentTaskName, currentTask.totalWork);
-				listener.internalWorked(currentTask.preWork);
+				listener.internalWorked(currentTask.getWork());
 			}
 		}
 
@@ -236,8 +241,9 @@ public class ProgressManager extends ProgressProvider implements
 		 */
 		public void internalWorked(double work) {
 			JobInfo info = getJobInfo(job);
-			if (info.hasTaskInfo()) {
-				info.addWork(work);
+			// Only the first work since the UI sampled the progress is
+			// refreshed, the rest is picked up by that refresh
+			if (info.addWork(work)) {
 				refreshJobInfo(info);
 			}
 			if (listener != null) {
@@ -637,15 +643,16 @@ public class ProgressManager extends ProgressProvider implements
 	 */
 	public JobMonitor progressFor(Job job) {
 
-		synchronized (runnableMonitors) {
-			JobMonitor monitor = (JobMonitor) runnableMonitors.get(job);
-			if (monitor == null) {
-				monitor = new JobMonitor(job);
-				runnableMonitors.put(job, monitor);
+		JobMonitor monitor = (JobMonitor) runnableMonitors.get(job);
+		if (monitor == null) {
+			monitor = new JobMonitor(job);
+			JobMonitor existing = (JobMonitor) runnableMonitors.putIfAbsent(
+					job, monitor);
+			if (existing != null) {
+				return existing;
 			}
-			
-			return monitor;
 		}
+		return monitor;
 
 	}
 
@@ -678,7 +685,10 @@ public class ProgressManager extends ProgressProvider implements
 		JobInfo info = internalGetJobInfo(job);
 		if (info == null) {
 			info = new JobInfo(job);
-			jobs.put(job, info);
+			JobInfo existing = (JobInfo) jobs.putIfAbsent(job, info);
+			if (existing != null) {
+				return existing;
+			}
 		}
 		return info;
 	}
@@ -846,19 +856,17 @@ public class ProgressManager extends ProgressProvider implements
 	 * @return JobInfo[]
 	 */
 	public JobInfo[] getJobInfos(boolean debug) {
-		synchronized (jobs) {
-			Iterator iterator = jobs.keySet().iterator();
-			Collection result = new ArrayList();
-			while (iterator.hasNext()) {
-				Job next = (Job) iterator.next();
-				if (!isCurrentDisplaying(next, debug)) {
-					result.add(jobs.get(next));
-				}
+		Iterator iterator = jobs.values().iterator();
+		Collection result = new ArrayList();
+		while (iterator.hasNext()) {
+			JobInfo next = (JobInfo) iterator.next();
+			if (!isCurrentDisplaying(next.getJob(), debug)) {
+				result.add(next);
 			}
-			JobInfo[] infos = new JobInfo[result.size()];
-			result.toArray(infos);
-			return infos;
 		}
+		JobInfo[] infos = new JobInfo[result.size()];
+		result.toArray(infos);
+		return infos;
 	}
 
 	/**
@@ -868,25 +876,22 @@ public class ProgressManager extends ProgressProvider implements
 	 * @return JobTreeElement[]
 	 */
 	public JobTreeElement[] getRootElements(boolean debug) {
-		synchronized (jobs) {
-			Iterator iterator = jobs.keySet().iterator();
-			Collection result = new HashSet();
-			while (iterator.hasNext()) {
-				Job next = (Job) iterator.next();
-				if (!isCurrentDisplaying(next, debug)) {
-					JobInfo jobInfo = (JobInfo) jobs.get(next);
-					GroupInfo group = jobInfo.getGroupInfo();
-					if (group == null) {
-						result.add(jobInfo);
-					} else {
-						result.add(group);
-					}
+		Iterator iterator = jobs.values().iterator();
+		Collection result = new HashSet();
+		while (iterator.hasNext()) {
+			JobInfo jobInfo = (JobInfo) iterator.next();
+			if (!isCurrentDisplaying(jobInfo.getJob(), debug)) {
+				GroupInfo group = jobInfo.getGroupInfo();
+				if (group == null) {
+					result.add(jobInfo);
+				} else {
+					result.add(group);
 				}
 			}
-			JobTreeElement[] infos = new JobTreeElement[result.size()];
-			result.toArray(infos);
-			return infos;
 		}
+		JobTreeElement[] infos = new JobTreeElement[result.size()];
+		result.toArray(infos);
+		return infos;
 	}
 
 	/**
@@ -895,13 +900,7 @@ public class ProgressManager extends ProgressProvider implements
 	 * @return boolean
 	 */
 	public boolean hasJobInfos() {
-		synchronized (jobs) {
-			Iterator iterator = jobs.keySet().iterator();
-			while (iterator.hasNext()) {
-				return true;
-			}
-			return false;
-		}
+		return !jobs.isEmpty();
 	}
 
 	/**
@@ -1071,7 +1070,7 @@ public class ProgressManager extends ProgressProvider implements
 		synchronized (familyListeners) {
 			Collection currentListeners = (Collection) familyListeners.get(family);
 			if (currentListeners == null) {
-				currentListeners = new HashSet();
+				currentListeners = new CopyOnWriteArraySet();
 				familyListeners.put(family, currentListeners);
 			}
 			currentListeners.add(listener);
@@ -1110,24 +1109,19 @@ public class ProgressManager extends ProgressProvider implements
 		if (job.isSystem()) {
 			return Collections.EMPTY_LIST;
 		}
-		synchronized (familyListeners) {
-
-			if (familyListeners.isEmpty()) {
-				return Collections.EMPTY_LIST;
-			}
+		if (familyListeners.isEmpty()) {
+			return Collections.EMPTY_LIST;
+		}
 
-			Iterator families = familyListeners.keySet().iterator();
-			Collection returnValue = new HashSet();
-			while (families.hasNext()) {
-				Object next = families.next();
-				if (job.belongsTo(next)) {
-					Collection currentListeners = (Collection) familyListeners
-							.get(next);
-					returnValue.addAll(currentListeners);
-				}
+		Iterator families = familyListeners.entrySet().iterator();
+		Collection returnValue = new HashSet();
+		while (families.hasNext()) {
+			Map.Entry next = (Map.Entry) families.next();
+			if (job.belongsTo(next.getKey())) {
+				returnValue.addAll((Collection) next.getValue());
 			}
-			return returnValue;
 		}
+		return returnValue;
 	}
 
 	/*
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2009 IBM Corporation and others.
+ * Copyright (c) 2003, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,7 +17,9 @@ import java.util.Iterator;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.ui.IWorkbenchPreferenceConstants;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.internal.util.PrefUtil;
@@ -217,21 +219,32 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 		}
     }
 
-    /** keep track of how often we schedule the job to avoid overloading the JobManager */
-    private long lastUpdateJobScheduleRequest = 0;
+    /**
+     * The delay between two updates, so the collectors are updated at most
+     * ten times a second however many jobs change.
+     */
+    static final long UPDATE_INTERVAL = 100;
+
+    /**
+     * whether the update job is scheduled and has not taken the updates yet,
+     * reset when the job takes them or is done
+     */
+    private boolean updateScheduled = false;
     
     /**
-     * Schedule an update.
+     * Schedule an update. The updates coming in until the update job runs are
+     * batched into that run.
      */
     void scheduleUpdate() {
         if (PlatformUI.isWorkbenchRunning()) {
-            // make sure we don't schedule too often
-        	long now = System.currentTimeMillis();
-        	if (now - lastUpdateJobScheduleRequest >= 100) {
-        		//Add in a 100ms delay so as to keep priority low
-        		updateJob.schedule(100);
-        		lastUpdateJobScheduleRequest = now;
-        	}
+            synchronized (updateLock) {
+                if (updateScheduled) {
+                    return;
+                }
+                updateScheduled = true;
+            }
+            //Add in a delay so as to keep priority low
+            updateJob.schedule(UPDATE_INTERVAL);
         }
     }
 
@@ -249,12 +262,16 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 
                 //Abort the job if there isn't anything
                 if (collectors.length == 0) {
+                    synchronized (updateLock) {
+                        updateScheduled = false;
+                    }
 					return Status.CANCEL_STATUS;
 				}
 
                 if (currentInfo.updateAll) {
                     synchronized (updateLock) {
                         currentInfo.reset();
+                        updateScheduled = false;
                     }
                     for (int i = 0; i < collectors.length; i++) {
                         collectors[i].refresh();
@@ -273,6 +290,7 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
                         deletionItems = currentInfo.deletions.toArray();
 
                         currentInfo.reset();
+                        updateScheduled = false;
                     }
 
                     for (int v = 0; v < collectors.length; v++) {
@@ -296,6 +314,20 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
         updateJob.setSystem(true);
         updateJob.setPriority(Job.DECORATE);
         updateJob.setProperty(ProgressManagerUtil.INFRASTRUCTURE_PROPERTY, new Object());
+        updateJob.addJobChangeListener(new JobChangeAdapter() {
+            /*
+             * (non-Javadoc)
+             * 
+             * @see org.eclipse.core.runtime.jobs.JobChangeAdapter#done(org.eclipse.core.runtime.jobs.IJobChangeEvent)
+             */
+            public void done(IJobChangeEvent event) {
+                // The job may be canceled, or find the display disposed,
+                // without running the update
+                synchronized (updateLock) {
+                    updateScheduled = false;
+                }
+            }
+        });
 
     }
 
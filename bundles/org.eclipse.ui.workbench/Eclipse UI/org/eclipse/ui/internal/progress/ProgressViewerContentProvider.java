@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2008 IBM Corporation and others.
+ * Copyright (c) 2004, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -146,10 +146,7 @@ public class ProgressViewerContentProvider extends ProgressContentProvider {
 	 * @see org.eclipse.ui.internal.progress.IProgressUpdateCollector#refresh(org.eclipse.ui.internal.progress.JobTreeElement[])
 	 */
 	public void refresh(Object[] elements) {
-		Object[] refreshes = getRoots(elements, true);
-		for (int i = 0; i < refreshes.length; i++) {
-			progressViewer.refresh(refreshes[i], true);
-		}
+		progressViewer.refresh(getRoots(elements, true));
 	}
 
 	/*
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2006 IBM Corporation and others.
+ * Copyright (c) 2003, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.progress;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.osgi.util.NLS;
 
@@ -17,9 +20,19 @@ import org.eclipse.osgi.util.NLS;
  * The TaskInfo is the info on a task with a job. It is assumed that there is
  * only one task running at a time - any previous tasks in a Job will be
  * deleted.
+ * <p>
+ * The work done is an atomic counter so that the job reports progress without
+ * locking. The UI samples the counter when it shows the progress, and only
+ * the first work reported after a sample has to be refreshed.
+ * </p>
  */
 public class TaskInfo extends SubTaskInfo {
-	double preWork = 0;
+	// The bits of the double amount of work done
+	private final AtomicLong preWork = new AtomicLong(Double
+			.doubleToLongBits(0));
+
+	// Whether there is work that has not been sampled yet
+	private final AtomicBoolean unsampledWork = new AtomicBoolean();
 
 	int totalWork = 0;
 
@@ -40,15 +53,44 @@ public class TaskInfo extends SubTaskInfo {
 	 * Add the work increment to the total.
 	 * 
 	 * @param workIncrement
+	 * @return boolean <code>true</code> if this is the first work since the
+	 *         last sample and the receiver needs a refresh
 	 */
-	void addWork(double workIncrement) {
+	boolean addWork(double workIncrement) {
 
 		// Don't bother if we are indeterminate
 		if (totalWork == IProgressMonitor.UNKNOWN) {
-			return;
+			return false;
 		}
-		preWork += workIncrement;
+		long current;
+		long updated;
+		do {
+			current = preWork.get();
+			updated = Double.doubleToLongBits(Double.longBitsToDouble(current)
+					+ workIncrement);
+		} while (!preWork.compareAndSet(current, updated));
+
+		return !unsampledWork.getAndSet(true);
+	}
 
+	/**
+	 * Return the amount of work done without sampling it.
+	 * 
+	 * @return double
+	 */
+	double getWork() {
+		return Double.longBitsToDouble(preWork.get());
+	}
+
+	/**
+	 * Return the amount of work done for showing it. Work added after this
+	 * call refreshes the receiver again.
+	 * 
+	 * @return double
+	 */
+	double sampleWork() {
+		unsampledWork.set(false);
+		return getWork();
 	}
 
 	/**
@@ -61,16 +103,17 @@ public class TaskInfo extends SubTaskInfo {
 	 *            The IProgressMonitor that is also listening
 	 * @param parentTicks
 	 *            the number of ticks this monitor represents
+	 * @return boolean <code>true</code> if the receiver needs a refresh
 	 */
-	void addWork(double workIncrement, IProgressMonitor parentMonitor,
+	boolean addWork(double workIncrement, IProgressMonitor parentMonitor,
 			int parentTicks) {
 		// Don't bother if we are indeterminate
 		if (totalWork == IProgressMonitor.UNKNOWN) {
-			return;
+			return false;
 		}
 
-		addWork(workIncrement);
 		parentMonitor.internalWorked(workIncrement * parentTicks / totalWork);
+		return addWork(workIncrement);
 	}
 
 	/*
@@ -135,7 +178,7 @@ public class TaskInfo extends SubTaskInfo {
 			return IProgressMonitor.UNKNOWN;
 		}
 
-		return Math.min((int) (preWork * 100 / totalWork), 100);
+		return Math.min((int) (sampleWork() * 100 / totalWork), 100);
 	}
 
 	/**
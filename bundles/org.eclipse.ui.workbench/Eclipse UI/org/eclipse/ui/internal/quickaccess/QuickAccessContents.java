@@ -12,7 +12,13 @@ package org.eclipse.ui.internal.quickaccess;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.layout.GridDataFactory;
 import org.eclipse.jface.layout.TableColumnLayout;
@@ -43,6 +49,7 @@ import org.eclipse.swt.graphics.TextLayout;
 import org.eclipse.swt.graphics.TextStyle;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Table;
@@ -60,8 +67,14 @@ import org.eclipse.ui.themes.ColorUtil;
  * 
  */
 public abstract class QuickAccessContents {
+	/**
+	 * The family of the jobs finding the elements that match the filter.
+	 */
+	public static final Object FAMILY_MATCH = new Object();
+
 	private static final int INITIAL_COUNT_PER_PROVIDER = 5;
 	private static final int MAX_COUNT_TOTAL = 20;
+	private static final int MAX_CACHED_MATCHES = 16;
 
 	protected Text filterText;
 
@@ -80,6 +93,88 @@ public abstract class QuickAccessContents {
 	private boolean showAllMatches = false;
 	protected boolean resized = false;
 
+	/**
+	 * The elements matching the most recent filters, by filter.
+	 */
+	private final Map<String, Matches> cachedMatches = new LinkedHashMap<String, Matches>(
+			MAX_CACHED_MATCHES, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<String, Matches> eldest) {
+			return size() > MAX_CACHED_MATCHES;
+		}
+	};
+
+	/**
+	 * The job finding the elements matching the current filter, or
+	 * <code>null</code> if the table shows the elements matching the current
+	 * filter.
+	 */
+	private MatchJob matchJob;
+
+	/**
+	 * The elements of the providers that match a filter, as indices in the
+	 * sorted elements of each provider.
+	 */
+	private static final class Matches {
+		final QuickAccessIndex[] indexes;
+		final int[][] elements;
+
+		Matches(QuickAccessIndex[] indexes, int[][] elements) {
+			this.indexes = indexes;
+			this.elements = elements;
+		}
+	}
+
+	/**
+	 * Finds the elements matching a filter outside of the UI thread, and shows
+	 * them unless the filter changed in the meantime.
+	 */
+	private final class MatchJob extends Job {
+		final String filter;
+		final QuickAccessIndex[] indexes;
+		final int[][] candidates;
+		final Display display;
+
+		MatchJob(String filter, QuickAccessIndex[] indexes, int[][] candidates) {
+			super(QuickAccessMessages.QuickAccess_MatchJob);
+			this.filter = filter;
+			this.indexes = indexes;
+			this.candidates = candidates;
+			this.display = table.getDisplay();
+			setSystem(true);
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			final Matches matches = computeMatches(filter, indexes, candidates,
+					monitor);
+			if (matches == null || monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			if (!display.isDisposed()) {
+				display.asyncExec(new Runnable() {
+					public void run() {
+						if (matchJob == MatchJob.this && table != null
+								&& !table.isDisposed()) {
+							matchJob = null;
+							if (isCurrent(matches)) {
+								cachedMatches.put(filter, matches);
+								showMatches(filter, matches.elements);
+							} else {
+								refresh(filter);
+							}
+						}
+					}
+				});
+			}
+			return Status.OK_STATUS;
+		}
+
+		public boolean belongsTo(Object family) {
+			return FAMILY_MATCH == family;
+		}
+	}
+
 
 	public QuickAccessContents(QuickAccessProvider[] providers) {
 		this.providers = providers;
@@ -97,15 +192,115 @@ public abstract class QuickAccessContents {
 	}
 
 	/**
+	 * Shows the elements matching the given filter. Unless the elements
+	 * matching the filter are known, they are found by a job and the table is
+	 * updated once the job is done, provided the filter did not change.
 	 * 
+	 * @param filter
+	 *            the lowercase filter
 	 */
 	public void refresh(String filter) {
+		if (filter.length() == 0) {
+			cancelMatchJob();
+			showMatches(filter, null);
+			return;
+		}
+		if (matchJob != null && matchJob.filter.equals(filter)) {
+			// the table is updated once the job is done
+			return;
+		}
+		cancelMatchJob();
+		QuickAccessIndex[] indexes = getIndexes();
+		Matches matches = cachedMatches.get(filter);
+		if (matches != null && isCurrent(matches)) {
+			showMatches(filter, matches.elements);
+			return;
+		}
+		// the elements matching a filter include the elements matching any
+		// longer filter starting with it
+		int[][] candidates = null;
+		for (int length = filter.length() - 1; length > 0; length--) {
+			Matches previous = cachedMatches.get(filter.substring(0, length));
+			if (previous != null && isCurrent(previous)) {
+				candidates = previous.elements;
+				break;
+			}
+		}
+		matchJob = new MatchJob(filter, indexes, candidates);
+		matchJob.schedule();
+	}
+
+	/**
+	 * Shows the elements matching the current filter now if they are still
+	 * being found.
+	 */
+	private void flushMatchJob() {
+		if (matchJob != null) {
+			MatchJob job = matchJob;
+			cancelMatchJob();
+			Matches matches = computeMatches(job.filter, getIndexes(), null,
+					null);
+			cachedMatches.put(job.filter, matches);
+			showMatches(job.filter, matches.elements);
+		}
+	}
+
+	private void cancelMatchJob() {
+		if (matchJob != null) {
+			matchJob.cancel();
+			matchJob = null;
+		}
+	}
+
+	private QuickAccessIndex[] getIndexes() {
+		QuickAccessIndex[] indexes = new QuickAccessIndex[providers.length];
+		for (int i = 0; i < providers.length; i++) {
+			indexes[i] = providers[i].getIndex();
+		}
+		return indexes;
+	}
+
+	/*
+	 * Answers whether the matches refer to the current elements of the
+	 * providers.
+	 */
+	private boolean isCurrent(Matches matches) {
+		for (int i = 0; i < providers.length; i++) {
+			if (matches.indexes[i] != providers[i].getIndex()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Returns the matches, or null if the monitor was canceled.
+	 */
+	private static Matches computeMatches(String filter,
+			QuickAccessIndex[] indexes, int[][] candidates,
+			IProgressMonitor monitor) {
+		int[][] elements = new int[indexes.length][];
+		for (int i = 0; i < indexes.length; i++) {
+			elements[i] = indexes[i].match(filter, candidates == null ? null
+					: candidates[i], monitor);
+			if (elements[i] == null) {
+				return null;
+			}
+		}
+		return new Matches(indexes, elements);
+	}
+
+	/*
+	 * Fills the table with the given matches, or with all the elements if null.
+	 */
+	private void showMatches(String filter, int[][] matches) {
 		int numItems = computeNumberOfItems();
 
 		// perfect match, to be selected in the table if not null
 		QuickAccessElement perfectMatch = getPerfectMatch(filter);
 
-		List[] entries = computeMatchingEntries(filter, perfectMatch, numItems);
+		List[] entries = computeMatchingEntries(filter, matches, perfectMatch,
+				numItems);
 
 		int selectionIndex = refreshTable(perfectMatch, entries);
 
@@ -195,7 +390,7 @@ public abstract class QuickAccessContents {
 		return selectionIndex;
 	}
 
-	private List[] computeMatchingEntries(String filter,
+	private List[] computeMatchingEntries(String filter, int[][] matches,
 			QuickAccessElement perfectMatch, int maxCount) {
 		// collect matches in an array of lists
 		List[] entries = new ArrayList[providers.length];
@@ -227,10 +422,14 @@ public abstract class QuickAccessContents {
 						|| showAllMatches) {
 					QuickAccessElement[] elements = provider
 							.getElementsSorted();
+					int[] matching = matches == null ? null : matches[i];
+					int length = matching == null ? elements.length
+							: matching.length;
 					int j = indexPerProvider[i];
-					while (j < elements.length
+					while (j < length
 							&& (showAllMatches || (count < countPerProvider && countTotal < maxCount))) {
-						QuickAccessElement element = elements[j];
+						QuickAccessElement element = elements[matching == null ? j
+								: matching[j]];
 						QuickAccessEntry entry;
 						if (filter.length() == 0) {
 							if (i == 0 || showAllMatches) {
@@ -254,7 +453,7 @@ public abstract class QuickAccessContents {
 						j++;
 					}
 					indexPerProvider[i] = j;
-					if (j < elements.length) {
+					if (j < length) {
 						done = false;
 					}
 				}
@@ -280,6 +479,7 @@ public abstract class QuickAccessContents {
 	}
 
 	public void doDispose() {
+		cancelMatchJob();
 		if (textLayout != null && !textLayout.isDisposed()) {
 			textLayout.dispose();
 		}
@@ -313,6 +513,7 @@ public abstract class QuickAccessContents {
 	 * 
 	 */
 	private void handleSelection() {
+		flushMatchJob();
 		QuickAccessElement selectedElement = null;
 		String text = filterText.getText().toLowerCase();
 		if (table.getSelectionCount() == 1) {
@@ -531,6 +732,8 @@ public abstract class QuickAccessContents {
 	 * 
 	 */
 	public void resetProviders() {
+		cancelMatchJob();
+		cachedMatches.clear();
 		for (QuickAccessProvider provider : providers) {
 			provider.reset();
 		}
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.quickaccess;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * An index over the labels of the elements of a quick access provider, used to
+ * find the elements matching a filter without trying every element.
+ * <p>
+ * An element matches a filter if
+ * {@link QuickAccessElement#match(String, QuickAccessProvider)} returns an
+ * entry for it, that is if the filter is contained in the lowercase label of
+ * the element or in its camel case initials, optionally preceded by the name of
+ * the provider. The index maps the trigrams of these strings to the elements
+ * containing them, so that only the elements having all the trigrams of the
+ * filter are tried. Trigrams found in the name of the provider are contained
+ * in every element and are not indexed.
+ * </p>
+ * <p>
+ * The labels are read when the index is created, which must happen in the UI
+ * thread. The trigrams are computed on first use and the index can then be
+ * queried from any thread.
+ * </p>
+ */
+public class QuickAccessIndex {
+
+	private static final int GRAM_LENGTH = 3;
+
+	private static final int[] NO_ELEMENTS = new int[0];
+
+	private final String providerName;
+
+	private final String providerCamelCase;
+
+	private final String[] lowerCaseLabels;
+
+	private final String[] combinedLabels;
+
+	private final String[] camelCases;
+
+	private final String[] combinedCamelCases;
+
+	/**
+	 * The trigrams found in every element. Guarded by this index, as the
+	 * postings.
+	 */
+	private Set<String> providerGrams;
+
+	/**
+	 * The indices of the elements containing each trigram, in ascending order.
+	 */
+	private Map<String, int[]> postings;
+
+	/**
+	 * Creates an index over the given element labels.
+	 *
+	 * @param providerName
+	 *            the name of the provider, as displayed to the user
+	 * @param labels
+	 *            the labels of the elements, as returned by
+	 *            {@link QuickAccessElement#getLabel()}
+	 */
+	public QuickAccessIndex(String providerName, String[] labels) {
+		this.providerName = providerName.toLowerCase();
+		this.providerCamelCase = CamelUtil.getCamelCase(providerName);
+		lowerCaseLabels = new String[labels.length];
+		combinedLabels = new String[labels.length];
+		camelCases = new String[labels.length];
+		combinedCamelCases = new String[labels.length];
+		for (int i = 0; i < labels.length; i++) {
+			String combinedLabel = providerName + " " + labels[i]; //$NON-NLS-1$
+			lowerCaseLabels[i] = labels[i].toLowerCase();
+			combinedLabels[i] = combinedLabel.toLowerCase();
+			camelCases[i] = CamelUtil.getCamelCase(labels[i]);
+			combinedCamelCases[i] = CamelUtil.getCamelCase(combinedLabel);
+		}
+	}
+
+	/**
+	 * Returns the number of indexed elements.
+	 *
+	 * @return the number of elements
+	 */
+	public int size() {
+		return lowerCaseLabels.length;
+	}
+
+	/**
+	 * Returns the elements matching the given filter, in the order in which
+	 * their labels were given.
+	 *
+	 * @param filter
+	 *            the lowercase filter, not empty
+	 * @param candidates
+	 *            the indices of the elements that may match in ascending
+	 *            order, such as the elements matching a prefix of the filter,
+	 *            or <code>null</code> to try all the elements
+	 * @param monitor
+	 *            the monitor checked for cancellation, may be
+	 *            <code>null</code>
+	 * @return the indices of the matching elements in ascending order, or
+	 *         <code>null</code> if the monitor was canceled
+	 */
+	public int[] match(String filter, int[] candidates, IProgressMonitor monitor) {
+		int[] narrowed = narrow(filter);
+		if (candidates == null) {
+			candidates = narrowed;
+		} else if (narrowed != null) {
+			candidates = intersect(candidates, narrowed);
+		}
+		int count = candidates == null ? lowerCaseLabels.length
+				: candidates.length;
+		int[] result = new int[count];
+		int matches = 0;
+		for (int i = 0; i < count; i++) {
+			if ((i & 0xff) == 0 && monitor != null && monitor.isCanceled()) {
+				return null;
+			}
+			int element = candidates == null ? i : candidates[i];
+			if (matches(element, filter)) {
+				result[matches++] = element;
+			}
+		}
+		if (matches < count) {
+			int[] trimmed = new int[matches];
+			System.arraycopy(result, 0, trimmed, 0, matches);
+			result = trimmed;
+		}
+		return result;
+	}
+
+	/*
+	 * Must stay in sync with QuickAccessElement.match(String,
+	 * QuickAccessProvider).
+	 */
+	private boolean matches(int element, String filter) {
+		return lowerCaseLabels[element].indexOf(filter) != -1
+				|| combinedLabels[element].indexOf(filter) != -1
+				|| camelCases[element].indexOf(filter) != -1
+				|| combinedCamelCases[element].indexOf(filter) != -1;
+	}
+
+	/*
+	 * Returns the elements containing all the indexed trigrams of the filter,
+	 * or null if the filter has no indexed trigram.
+	 */
+	private synchronized int[] narrow(String filter) {
+		if (filter.length() < GRAM_LENGTH) {
+			return null;
+		}
+		if (postings == null) {
+			computePostings();
+		}
+		int[] result = null;
+		for (int i = 0; i + GRAM_LENGTH <= filter.length(); i++) {
+			String gram = filter.substring(i, i + GRAM_LENGTH);
+			if (providerGrams.contains(gram)) {
+				continue;
+			}
+			int[] elements = postings.get(gram);
+			if (elements == null) {
+				return NO_ELEMENTS;
+			}
+			result = result == null ? elements : intersect(result, elements);
+			if (result.length == 0) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	private void computePostings() {
+		providerGrams = new HashSet<String>();
+		addGrams(providerName + " ", providerGrams); //$NON-NLS-1$
+		addGrams(providerCamelCase, providerGrams);
+
+		Map<String, IntList> lists = new HashMap<String, IntList>();
+		Set<String> grams = new HashSet<String>();
+		for (int i = 0; i < combinedLabels.length; i++) {
+			grams.clear();
+			addGrams(combinedLabels[i], grams);
+			addGrams(camelCases[i], grams);
+			addGrams(combinedCamelCases[i], grams);
+			grams.removeAll(providerGrams);
+			for (String gram : grams) {
+				IntList list = lists.get(gram);
+				if (list == null) {
+					list = new IntList();
+					lists.put(gram, list);
+				}
+				list.add(i);
+			}
+		}
+		postings = new HashMap<String, int[]>(lists.size() * 4 / 3 + 1);
+		for (Map.Entry<String, IntList> entry : lists.entrySet()) {
+			postings.put(entry.getKey(), entry.getValue().toArray());
+		}
+	}
+
+	private static void addGrams(String s, Set<String> grams) {
+		for (int i = 0; i + GRAM_LENGTH <= s.length(); i++) {
+			grams.add(s.substring(i, i + GRAM_LENGTH));
+		}
+	}
+
+	private static int[] intersect(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[count++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		if (count < result.length) {
+			int[] trimmed = new int[count];
+			System.arraycopy(result, 0, trimmed, 0, count);
+			result = trimmed;
+		}
+		return result;
+	}
+
+	private static final class IntList {
+		private int[] values = new int[4];
+
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				int[] grown = new int[size * 2];
+				System.arraycopy(values, 0, grown, 0, size);
+				values = grown;
+			}
+			values[size++] = value;
+		}
+
+		int[] toArray() {
+			int[] result = new int[size];
+			System.arraycopy(values, 0, result, 0, size);
+			return result;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 IBM Corporation and others.
+ * Copyright (c) 2006, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,8 @@ public abstract class QuickAccessProvider {
 
 	private QuickAccessElement[] sortedElements;
 
+	private QuickAccessIndex index;
+
 	/**
 	 * Returns the unique ID of this provider.
 	 * 
@@ -64,6 +66,25 @@ public abstract class QuickAccessProvider {
 		}
 		return sortedElements;
 	}
+
+	/**
+	 * Returns the index over the labels of the sorted elements. The element
+	 * indices used by the index are positions in {@link #getElementsSorted()}.
+	 * Must be called in the UI thread.
+	 * 
+	 * @return the index of this provider's elements
+	 */
+	public QuickAccessIndex getIndex() {
+		if (index == null) {
+			QuickAccessElement[] elements = getElementsSorted();
+			String[] labels = new String[elements.length];
+			for (int i = 0; i < elements.length; i++) {
+				labels[i] = elements[i].getLabel();
+			}
+			index = new QuickAccessIndex(getName(), labels);
+		}
+		return index;
+	}
 	
 	/**
 	 * Returns the element for the given ID if available, or null if no matching
@@ -81,6 +102,7 @@ public abstract class QuickAccessProvider {
 
 	public void reset() {
 		sortedElements = null;
+		index = null;
 		doReset();
 	}
 
@@ -0,0 +1,198 @@
+package org.eclipse.e4.ui.bindings.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.commands.Category;
+import org.eclipse.core.commands.Command;
+import org.eclipse.core.commands.CommandManager;
+import org.eclipse.core.commands.ParameterizedCommand;
+import org.eclipse.core.commands.contexts.Context;
+import org.eclipse.core.commands.contexts.ContextManager;
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.ui.bindings.internal.BindingTable;
+import org.eclipse.e4.ui.bindings.internal.BindingTableManager;
+import org.eclipse.e4.ui.bindings.internal.ContextSet;
+import org.eclipse.jface.bindings.Binding;
+import org.eclipse.jface.bindings.keys.IKeyLookup;
+import org.eclipse.jface.bindings.keys.KeyBinding;
+import org.eclipse.jface.bindings.keys.KeyLookupFactory;
+import org.eclipse.jface.bindings.keys.KeySequence;
+import org.eclipse.jface.bindings.keys.KeyStroke;
+
+/**
+ * Measures loading and querying a keymap of 10000 bindings spread over a
+ * chain of contexts, shaped like the Emacs scheme with many plug-ins: most
+ * bindings are multi-stroke sequences sharing a few prefixes. Each query runs
+ * a number of warm-up iterations followed by measured iterations, and the
+ * average time is printed.
+ * <p>
+ * This is not part of the regular test suite; run it on demand.
+ */
+public class BindingTableBenchmark extends TestCase {
+	private static final int BINDING_COUNT = 10000;
+	private static final int CONTEXT_COUNT = 10;
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final int MEASURED_ITERATIONS = 10;
+
+	private static final String[] PREFIXES = { "CTRL+X", "CTRL+C", "ESC",
+			"CTRL+X 4", "CTRL+X R", "CTRL+C CTRL+V", "CTRL+H", "ALT+G" };
+
+	private ContextManager contextManager;
+	private List<Context> contexts;
+	private List<Binding> bindings;
+	private List<KeySequence> queries;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		contextManager = new ContextManager();
+		contexts = new ArrayList<Context>();
+		String parentId = null;
+		for (int i = 0; i < CONTEXT_COUNT; i++) {
+			Context context = contextManager.getContext("bench.context." + i);
+			context.define("Context " + i, null, parentId);
+			contexts.add(context);
+			parentId = context.getId();
+		}
+		ContextSet.setComparator(new ContextSet.CComp(contextManager));
+
+		CommandManager commandManager = new CommandManager();
+		Category category = commandManager.getCategory("bench");
+		category.define("Bench", null);
+
+		IKeyLookup lookup = KeyLookupFactory.getDefault();
+		int[] modifiers = { 0, lookup.getCtrl(), lookup.getAlt(),
+				lookup.getCtrl() | lookup.getShift() };
+		KeySequence[] prefixes = new KeySequence[PREFIXES.length];
+		for (int i = 0; i < PREFIXES.length; i++) {
+			prefixes[i] = KeySequence.getInstance(PREFIXES[i]);
+		}
+
+		bindings = new ArrayList<Binding>(BINDING_COUNT);
+		queries = new ArrayList<KeySequence>();
+		for (int i = 0; i < BINDING_COUNT; i++) {
+			Command cmd = commandManager.getCommand("bench.command." + i);
+			cmd.define("Command " + i, null, category);
+			KeySequence prefix = prefixes[i % prefixes.length];
+			KeyStroke stroke = KeyStroke.getInstance(modifiers[(i / prefixes.length)
+					% modifiers.length], 'A' + (i / 32) % 26);
+			KeySequence sequence = KeySequence.getInstance(prefix, stroke);
+			Context context = contexts.get(i % CONTEXT_COUNT);
+			bindings.add(new KeyBinding(sequence, new ParameterizedCommand(cmd,
+					null), "bench.scheme", context.getId(), null, null, null,
+					Binding.SYSTEM));
+			if (i % 100 == 0) {
+				queries.add(sequence);
+			}
+		}
+		for (int i = 0; i < prefixes.length; i++) {
+			queries.add(prefixes[i]);
+		}
+		queries.add(KeySequence.getInstance("CTRL+8"));
+	}
+
+	public void testLoadTables() {
+		long time = measure(new Runnable() {
+			public void run() {
+				loadTables();
+			}
+		});
+		long bulkTime = measure(new Runnable() {
+			public void run() {
+				bulkLoadTables();
+			}
+		});
+		System.out.println(getClass().getName() + " load " + BINDING_COUNT
+				+ " bindings: one by one " + time + "us, bulk " + bulkTime
+				+ "us");
+	}
+
+	public void testQueries() throws Exception {
+		IEclipseContext context = Activator.getDefault().getGlobalContext()
+				.createChild("benchmarkContext");
+		final BindingTableManager manager = (BindingTableManager) ContextInjectionFactory
+				.make(BindingTableManager.class, context);
+		for (BindingTable table : loadTables()) {
+			manager.addTable(table);
+		}
+		final ContextSet contextSet = manager.createContextSet(contexts);
+
+		long perfect = measure(new Runnable() {
+			public void run() {
+				for (KeySequence query : queries) {
+					manager.getPerfectMatch(contextSet, query);
+				}
+			}
+		});
+		long isPartial = measure(new Runnable() {
+			public void run() {
+				for (KeySequence query : queries) {
+					manager.isPartialMatch(contextSet, query);
+				}
+			}
+		});
+		long partial = measure(new Runnable() {
+			public void run() {
+				for (KeySequence query : queries) {
+					manager.getPartialMatches(contextSet, query);
+				}
+			}
+		});
+		long best = measure(new Runnable() {
+			public void run() {
+				for (int i = 0; i < bindings.size(); i += 100) {
+					manager.getBestSequenceFor(contextSet, bindings.get(i)
+							.getParameterizedCommand());
+				}
+			}
+		});
+		System.out.println(getClass().getName() + " " + queries.size()
+				+ " queries over " + CONTEXT_COUNT + " contexts: perfect "
+				+ perfect + "us, isPartial " + isPartial + "us, partial "
+				+ partial + "us, best sequence " + best + "us");
+		context.dispose();
+	}
+
+	private List<BindingTable> loadTables() {
+		List<BindingTable> tables = new ArrayList<BindingTable>();
+		for (Context context : contexts) {
+			tables.add(new BindingTable(context));
+		}
+		for (int i = 0; i < bindings.size(); i++) {
+			tables.get(i % CONTEXT_COUNT).addBinding(bindings.get(i));
+		}
+		return tables;
+	}
+
+	private List<BindingTable> bulkLoadTables() {
+		List<List<Binding>> bindingsByTable = new ArrayList<List<Binding>>();
+		for (int i = 0; i < CONTEXT_COUNT; i++) {
+			bindingsByTable.add(new ArrayList<Binding>());
+		}
+		for (int i = 0; i < bindings.size(); i++) {
+			bindingsByTable.get(i % CONTEXT_COUNT).add(bindings.get(i));
+		}
+		List<BindingTable> tables = new ArrayList<BindingTable>();
+		for (int i = 0; i < CONTEXT_COUNT; i++) {
+			BindingTable table = new BindingTable(contexts.get(i));
+			table.addBindings(bindingsByTable.get(i));
+			tables.add(table);
+		}
+		return tables;
+	}
+
+	private static long measure(Runnable runnable) {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			runnable.run();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+			runnable.run();
+		}
+		return (System.nanoTime() - start) / 1000 / MEASURED_ITERATIONS;
+	}
+}
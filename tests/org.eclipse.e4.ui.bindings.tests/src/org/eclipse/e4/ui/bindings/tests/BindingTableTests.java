@@ -169,6 +169,64 @@ public class BindingTableTests extends TestCase {
 		assertFalse(table.isPartialMatch(ctrl8));
 	}
 
+	public void testPartialMatchAfterRemove() throws Exception {
+		BindingTable table = loadTable(ID_DIALOG_AND_WINDOW);
+		Binding about = getTestBinding(ABOUT_ID);
+		KeySequence ctrl5 = KeySequence.getInstance("CTRL+5");
+		assertTrue(table.isPartialMatch(ctrl5));
+		assertFalse(table.isPartialMatch(about.getTriggerSequence()));
+		assertFalse(table.isPartialMatch(KeySequence.getInstance()));
+
+		table.removeBinding(about);
+		assertFalse(table.isPartialMatch(ctrl5));
+		assertNull(table.getPartialMatches(ctrl5));
+		assertNull(table.getPerfectMatch(about.getTriggerSequence()));
+
+		table.addBinding(about);
+		assertEquals(about, table.getPerfectMatch(about.getTriggerSequence()));
+		assertEquals(1, table.getPartialMatches(ctrl5).size());
+	}
+
+	public void testAddBindings() throws Exception {
+		Context window = contextManager.getContext(ID_WINDOW);
+		Binding rename = getTestBinding(RENAME_ID);
+		Binding copyF2 = new KeyBinding(KeySequence.getInstance("F2"),
+				getTestBinding(COPY_ID).getParameterizedCommand(),
+				"org.eclipse.ui.defaultAcceleratorConfiguration", ID_WINDOW,
+				null, null, null, Binding.SYSTEM);
+		ArrayList<Binding> windowBindings = new ArrayList<Binding>();
+		for (Binding b : loadedBindings) {
+			if (ID_WINDOW.equals(b.getContextId())) {
+				windowBindings.add(b);
+			}
+		}
+		windowBindings.add(copyF2);
+
+		BindingTable expected = new BindingTable(window);
+		for (Binding b : windowBindings) {
+			expected.addBinding(b);
+		}
+		BindingTable table = new BindingTable(window);
+		table.addBindings(windowBindings);
+
+		assertEquals(new ArrayList<Binding>(expected.getBindings()),
+				new ArrayList<Binding>(table.getBindings()));
+		assertEquals(expected.getConflicts(), table.getConflicts());
+		assertEquals(2, table.getConflictsFor(rename.getTriggerSequence())
+				.size());
+		assertNull(table.getPerfectMatch(rename.getTriggerSequence()));
+
+		Binding paste = getTestBinding(PASTE_ID);
+		assertEquals(expected.getSequencesFor(paste.getParameterizedCommand()),
+				table.getSequencesFor(paste.getParameterizedCommand()));
+		assertEquals(paste, table.getBestSequenceFor(paste
+				.getParameterizedCommand()));
+
+		// removing one side of the conflict brings the other one back
+		table.removeBinding(copyF2);
+		assertEquals(rename, table.getPerfectMatch(rename.getTriggerSequence()));
+	}
+
 	public void testContextSet() throws Exception {
 		BindingTableManager manager = (BindingTableManager) ContextInjectionFactory
 				.make(BindingTableManager.class, workbenchContext);
@@ -13,6 +13,8 @@ import java.io.IOException;
 
 import junit.framework.TestCase;
 
+import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleListImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSStyleSheetImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.DocumentCSSImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.ViewCSSImpl;
 import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
@@ -57,6 +59,127 @@ public class ViewCSSTest extends TestCase {
 		assertEquals( 2, buttonStyle.getLength() );
 	}
 
+	public void testGetComputedStyleByClassAndId() throws Exception {
+		String css = "Button { color: black; }\n"
+			+ ".primary { font-weight: bold; }\n"
+			+ "Button.primary.large { font-size: 12px; }\n"
+			+ "#ok { color: blue; }\n"
+			+ "Label#ok { color: red; }\n";
+		ViewCSS viewCSS = createViewCss(css);
+
+		TestElement button = new TestElement("Button", engine);
+		assertEquals(1, viewCSS.getComputedStyle(button, null).getLength());
+
+		button.setClass("large  primary primary");
+		CSSStyleDeclaration buttonStyle = viewCSS.getComputedStyle(button, null);
+		assertEquals(3, buttonStyle.getLength());
+
+		button.setId("ok");
+		buttonStyle = viewCSS.getComputedStyle(button, null);
+		assertEquals("blue", buttonStyle.getPropertyCSSValue("color")
+				.getCssText());
+
+		TestElement label = new TestElement("Label", engine);
+		label.setId("ok");
+		CSSStyleDeclaration labelStyle = viewCSS.getComputedStyle(label, null);
+		assertEquals("red", labelStyle.getPropertyCSSValue("color")
+				.getCssText());
+	}
+
+	public void testSelectorEvaluationCount() throws Exception {
+		StringBuffer css = new StringBuffer();
+		for (int i = 0; i < 100; i++) {
+			css.append(".class" + i + " { color: black; }\n");
+		}
+		css.append("Button { color: blue; }\n");
+		css.append("* { font-weight: bold; }\n");
+		ViewCSSImpl viewCSS = (ViewCSSImpl) createViewCss(css.toString());
+
+		TestElement button = new TestElement("Button", engine);
+		button.setClass("class7");
+		long before = viewCSS.getSelectorEvaluationCount();
+		CSSStyleDeclaration buttonStyle = viewCSS.getComputedStyle(button, null);
+		assertEquals(2, buttonStyle.getLength());
+		// only the Button, .class7 and universal selectors are evaluated
+		assertEquals(3, viewCSS.getSelectorEvaluationCount() - before);
+	}
+
+	public void testComputedStyleSharedBySignature() throws Exception {
+		String css = "Button { color: black; }\n"
+			+ ".primary { color: blue; }\n"
+			+ "Button[flat='true'] { color: red; }\n";
+		ViewCSSImpl viewCSS = (ViewCSSImpl) createViewCss(css);
+
+		TestElement button1 = new TestElement("Button", engine);
+		TestElement button2 = new TestElement("Button", engine);
+		CSSStyleDeclaration style1 = viewCSS.getComputedStyle(button1, null);
+		CSSStyleDeclaration style2 = viewCSS.getComputedStyle(button2, null);
+		assertSame(style1, style2);
+		assertEquals(1, viewCSS.getStyleCacheMissCount());
+		assertEquals(1, viewCSS.getStyleCacheHitCount());
+
+		// class and tested attributes are part of the signature
+		button2.setClass("primary");
+		assertEquals("blue", viewCSS.getComputedStyle(button2, null)
+				.getPropertyCSSValue("color").getCssText());
+		button2.setClass(null);
+		button2.setAttribute("flat", "true");
+		assertEquals("red", viewCSS.getComputedStyle(button2, null)
+				.getPropertyCSSValue("color").getCssText());
+		assertEquals("black", viewCSS.getComputedStyle(button1, null)
+				.getPropertyCSSValue("color").getCssText());
+	}
+
+	public void testDescendantDependencyKey() throws Exception {
+		String css = "Composite.active Label { color: red; }\n"
+			+ "Composite.primary { color: blue; }\n";
+		ViewCSSImpl viewCSS = (ViewCSSImpl) createViewCss(css);
+
+		TestElement composite = new TestElement("Composite", engine);
+		String key = viewCSS.getDescendantDependencyKey(composite);
+		assertNotNull(key);
+
+		// only tested on the element itself, descendants are not affected
+		composite.setClass("primary");
+		assertEquals(key, viewCSS.getDescendantDependencyKey(composite));
+
+		// tested on ancestors, descendants must be restyled
+		composite.setClass("primary active");
+		assertFalse(key.equals(viewCSS.getDescendantDependencyKey(composite)));
+
+		// sibling selectors depend on more than the ancestors
+		viewCSS = (ViewCSSImpl) createViewCss(css
+				+ "Label + Button { color: green; }\n");
+		assertNull(viewCSS.getDescendantDependencyKey(composite));
+	}
+
+	public void testRulesReplacedWithSameCount() throws Exception {
+		CSSStyleSheetImpl styleSheet = (CSSStyleSheetImpl) ParserTestUtil
+				.parseCss("Button { color: black; }\n");
+		DocumentCSSImpl docCss = new DocumentCSSImpl();
+		docCss.addStyleSheet(styleSheet);
+		ViewCSS viewCSS = new ViewCSSImpl(docCss);
+
+		TestElement button = new TestElement("Button", engine);
+		assertEquals("black", viewCSS.getComputedStyle(button, null)
+				.getPropertyCSSValue("color").getCssText());
+
+		// a rule replaced in the same rule list
+		CSSStyleSheet other = ParserTestUtil
+				.parseCss("Button { color: blue; }\n");
+		styleSheet.deleteRule(0);
+		((CSSRuleListImpl) styleSheet.getCssRules()).add(other.getCssRules()
+				.item(0));
+		assertEquals("blue", viewCSS.getComputedStyle(button, null)
+				.getPropertyCSSValue("color").getCssText());
+
+		// the whole rule list replaced
+		other = ParserTestUtil.parseCss("Button { color: red; }\n");
+		styleSheet.setRuleList(other.getCssRules());
+		assertEquals("red", viewCSS.getComputedStyle(button, null)
+				.getPropertyCSSValue("color").getCssText());
+	}
+
 	private static ViewCSS createViewCss(String css) throws IOException {
 		CSSStyleSheet styleSheet = ParserTestUtil.parseCss(css);
 		DocumentCSSImpl docCss = new DocumentCSSImpl();
@@ -3,6 +3,7 @@ package org.eclipse.e4.ui.tests.css.swt;
 import org.eclipse.e4.ui.css.core.engine.CSSEngine;
 import org.eclipse.e4.ui.css.swt.dom.WidgetElement;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.widgets.Button;
@@ -67,4 +68,42 @@ public class DescendentTest extends CSSSWTTestCase {
 		assertEquals(WHITE, buttonA.getBackground().getRGB());
 		assertEquals(BLACK, buttonB.getBackground().getRGB());
 	}
+
+	public void testRestyleAffectedSubtree() throws Exception {
+		Button[] buttons = createTestWidgets(
+				"Composite.special Button { background: #FF0000}\n" +
+				"Button { background: #0000FF}");
+
+		Button buttonA = buttons[0];
+		Button buttonB = buttons[1];
+		Button buttonC = buttons[2];
+		assertEquals(BLUE, buttonA.getBackground().getRGB());
+
+		// mark the buttons to see which ones get styled again
+		Color white = new Color(buttonA.getDisplay(), WHITE);
+		try {
+			buttonB.setBackground(white);
+			buttonC.setBackground(white);
+
+			WidgetElement.setCSSClass(buttonA.getParent(), "special");
+			engine.restyle(buttonA.getParent());
+			assertEquals(RED, buttonA.getBackground().getRGB());
+			assertEquals(WHITE, buttonB.getBackground().getRGB());
+			assertEquals(WHITE, buttonC.getBackground().getRGB());
+
+			WidgetElement.setCSSClass(buttonA.getParent(), "plain");
+			engine.restyle(buttonA.getParent());
+			assertEquals(BLUE, buttonA.getBackground().getRGB());
+
+			// no selector tests this class on ancestors, so the children
+			// are not styled again
+			buttonA.setBackground(white);
+			WidgetElement.setCSSClass(buttonA.getParent(), "other");
+			engine.restyle(buttonA.getParent());
+			assertEquals(WHITE, buttonA.getBackground().getRGB());
+		} finally {
+			buttonA.getShell().dispose();
+			white.dispose();
+		}
+	}
 }
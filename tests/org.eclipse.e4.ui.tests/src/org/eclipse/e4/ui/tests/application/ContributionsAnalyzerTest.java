@@ -0,0 +1,308 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.tests.application;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+import org.eclipse.core.expressions.EvaluationResult;
+import org.eclipse.core.expressions.Expression;
+import org.eclipse.core.expressions.ExpressionInfo;
+import org.eclipse.core.expressions.IEvaluationContext;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.ui.internal.workbench.ContributionsAnalyzer;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.commands.MCommand;
+import org.eclipse.e4.ui.model.application.commands.impl.CommandsFactoryImpl;
+import org.eclipse.e4.ui.model.application.impl.ApplicationFactoryImpl;
+import org.eclipse.e4.ui.model.application.ui.MCoreExpression;
+import org.eclipse.e4.ui.model.application.ui.impl.UiFactoryImpl;
+import org.eclipse.e4.ui.model.application.ui.menu.MMenu;
+import org.eclipse.e4.ui.model.application.ui.menu.MMenuContribution;
+import org.eclipse.e4.ui.model.application.ui.menu.impl.MenuFactoryImpl;
+import org.eclipse.e4.ui.services.IServiceConstants;
+import org.eclipse.e4.ui.workbench.modeling.ExpressionContext;
+
+/**
+ * Tests that the menu contributions and commands found through the index of the application
+ * follow the changes of the model, and that visibility results are only reused while the
+ * variables read by their expressions do not change.
+ */
+public class ContributionsAnalyzerTest extends TestCase {
+
+	/**
+	 * Visible when the variable has the expected value, counting its evaluations.
+	 */
+	static class VariableExpression extends Expression {
+		final String variable;
+		final Object expected;
+		final boolean collectVariable;
+		int evaluations;
+
+		VariableExpression(String variable, Object expected, boolean collectVariable) {
+			this.variable = variable;
+			this.expected = expected;
+			this.collectVariable = collectVariable;
+		}
+
+		@Override
+		public EvaluationResult evaluate(IEvaluationContext context) {
+			evaluations++;
+			return EvaluationResult.valueOf(expected.equals(context.getVariable(variable)));
+		}
+
+		@Override
+		public void collectExpressionInfo(ExpressionInfo info) {
+			if (collectVariable) {
+				info.addVariableNameAccess(variable);
+			} else {
+				info.addMisBehavingExpressionType(getClass());
+			}
+		}
+	}
+
+	/**
+	 * Tests a property of the default variable, as a property tester does. The property can change
+	 * while the variable keeps its value.
+	 */
+	static class PropertyExpression extends Expression {
+		boolean value = true;
+		int evaluations;
+
+		@Override
+		public EvaluationResult evaluate(IEvaluationContext context) {
+			evaluations++;
+			return EvaluationResult.valueOf(context.getDefaultVariable() != null && value);
+		}
+
+		@Override
+		public void collectExpressionInfo(ExpressionInfo info) {
+			info.markDefaultVariableAccessed();
+			info.addAccessedPropertyName("org.eclipse.e4.ui.tests.open");
+		}
+	}
+
+	private MApplication application;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		application = ApplicationFactoryImpl.eINSTANCE.createApplication();
+	}
+
+	private MMenuContribution createContribution(String id, String parentId) {
+		MMenuContribution contribution = MenuFactoryImpl.eINSTANCE.createMenuContribution();
+		contribution.setElementId(id);
+		contribution.setParentId(parentId);
+		return contribution;
+	}
+
+	private MCommand createCommand(String id, String name) {
+		MCommand command = CommandsFactoryImpl.eINSTANCE.createCommand();
+		command.setElementId(id);
+		command.setCommandName(name);
+		return command;
+	}
+
+	private List<String> gather(MMenu menu, boolean includePopups) {
+		ArrayList<MMenuContribution> toContribute = new ArrayList<MMenuContribution>();
+		ContributionsAnalyzer.gatherMenuContributions(menu, application.getMenuContributions(),
+				menu.getElementId(), toContribute, null, includePopups);
+		List<String> ids = new ArrayList<String>();
+		for (MMenuContribution contribution : toContribute) {
+			ids.add(contribution.getElementId());
+		}
+		return ids;
+	}
+
+	public void testGatherMenuContributions() {
+		MMenu menu = MenuFactoryImpl.eINSTANCE.createPopupMenu();
+		menu.setElementId("menu");
+		application.getMenuContributions().add(createContribution("c1", "menu"));
+		application.getMenuContributions().add(createContribution("c2", "other"));
+		application.getMenuContributions().add(createContribution("c3", "popup"));
+		application.getMenuContributions().add(createContribution("c4", "menu"));
+
+		assertEquals(Arrays.asList("c1", "c4"), gather(menu, false));
+		assertEquals(Arrays.asList("c1", "c3", "c4"), gather(menu, true));
+	}
+
+	public void testGatherMenuContributionsAfterChanges() {
+		MMenu menu = MenuFactoryImpl.eINSTANCE.createMenu();
+		menu.setElementId("menu");
+		MMenuContribution c1 = createContribution("c1", "menu");
+		MMenuContribution c2 = createContribution("c2", "other");
+		application.getMenuContributions().add(c1);
+		application.getMenuContributions().add(c2);
+		assertEquals(Arrays.asList("c1"), gather(menu, false));
+
+		application.getMenuContributions().add(createContribution("c3", "menu"));
+		assertEquals(Arrays.asList("c1", "c3"), gather(menu, false));
+
+		application.getMenuContributions().add(0, createContribution("c0", "menu"));
+		assertEquals(Arrays.asList("c0", "c1", "c3"), gather(menu, false));
+
+		c2.setParentId("menu");
+		assertEquals(Arrays.asList("c0", "c1", "c2", "c3"), gather(menu, false));
+
+		application.getMenuContributions().remove(c1);
+		assertEquals(Arrays.asList("c0", "c2", "c3"), gather(menu, false));
+
+		c1.setParentId("other");
+		application.getMenuContributions().addAll(
+				Arrays.asList(createContribution("c4", "menu"), c1));
+		assertEquals(Arrays.asList("c0", "c2", "c3", "c4"), gather(menu, false));
+
+		application.getMenuContributions().clear();
+		assertEquals(Arrays.asList(), gather(menu, false));
+	}
+
+	private MCoreExpression createCoreExpression(Expression expression) {
+		MCoreExpression exp = UiFactoryImpl.eINSTANCE.createCoreExpression();
+		exp.setCoreExpression(expression);
+		return exp;
+	}
+
+	public void testVisibilityCachedUntilVariableChanges() {
+		IEclipseContext context = EclipseContextFactory.create();
+		ExpressionContext eContext = new ExpressionContext(context);
+		VariableExpression expression = new VariableExpression("mode", "edit", true);
+		MCoreExpression exp = createCoreExpression(expression);
+		context.set("mode", "edit");
+		context.set("unrelated", "a");
+
+		long saved = ContributionsAnalyzer.getSavedVisibilityEvaluationCount();
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		context.set("unrelated", "b");
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertEquals(1, expression.evaluations);
+		assertEquals(2, ContributionsAnalyzer.getSavedVisibilityEvaluationCount() - saved);
+
+		context.set("mode", "debug");
+		assertFalse(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertEquals(2, expression.evaluations);
+		assertFalse(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertEquals(2, expression.evaluations);
+
+		// a new expression is evaluated even though the variables did not change
+		VariableExpression replacement = new VariableExpression("mode", "debug", true);
+		exp.setCoreExpression(replacement);
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertEquals(1, replacement.evaluations);
+	}
+
+	public void testVisibilityNotCachedWithoutDependencies() {
+		IEclipseContext context = EclipseContextFactory.create();
+		ExpressionContext eContext = new ExpressionContext(context);
+		VariableExpression expression = new VariableExpression("mode", "edit", false);
+		MCoreExpression exp = createCoreExpression(expression);
+		context.set("mode", "edit");
+
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertEquals(2, expression.evaluations);
+	}
+
+	public void testVisibilityNotCachedWithProperties() {
+		IEclipseContext context = EclipseContextFactory.create();
+		ExpressionContext eContext = new ExpressionContext(context);
+		PropertyExpression expression = new PropertyExpression();
+		MCoreExpression exp = createCoreExpression(expression);
+		context.set(IServiceConstants.ACTIVE_SELECTION, "selection");
+
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		// the property changes, the selection does not
+		expression.value = false;
+		assertFalse(ContributionsAnalyzer.isVisible(exp, eContext));
+		expression.value = true;
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertEquals(3, expression.evaluations);
+	}
+
+	public void testVisibilityAfterValueCollected() {
+		IEclipseContext context = EclipseContextFactory.create();
+		ExpressionContext eContext = new ExpressionContext(context);
+		VariableExpression expression = new VariableExpression("part", "", true) {
+			@Override
+			public EvaluationResult evaluate(IEvaluationContext context) {
+				evaluations++;
+				return EvaluationResult.valueOf(context.getVariable(variable) == null);
+			}
+		};
+		MCoreExpression exp = createCoreExpression(expression);
+
+		// a real null value keeps the result valid
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertEquals(1, expression.evaluations);
+
+		Object part = new Object();
+		context.set("part", part);
+		assertFalse(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertEquals(2, expression.evaluations);
+
+		// the part goes away and is collected
+		WeakReference<Object> reference = new WeakReference<Object>(part);
+		part = null;
+		context.remove("part");
+		for (int i = 0; i < 10 && reference.get() != null; i++) {
+			System.gc();
+		}
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertEquals(3, expression.evaluations);
+	}
+
+	public void testVisibilityNotCachedWithSystemProperties() {
+		IEclipseContext context = EclipseContextFactory.create();
+		ExpressionContext eContext = new ExpressionContext(context);
+		VariableExpression expression = new VariableExpression("mode", "edit", true) {
+			@Override
+			public void collectExpressionInfo(ExpressionInfo info) {
+				super.collectExpressionInfo(info);
+				info.markSystemPropertyAccessed();
+			}
+		};
+		MCoreExpression exp = createCoreExpression(expression);
+		context.set("mode", "edit");
+
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertTrue(ContributionsAnalyzer.isVisible(exp, eContext));
+		assertEquals(2, expression.evaluations);
+	}
+
+	public void testGetCommandById() {
+		MCommand first = createCommand("a", "first");
+		application.getCommands().add(first);
+		application.getCommands().add(createCommand("b", "b"));
+		assertSame(first, ContributionsAnalyzer.getCommandById(application, "a"));
+		assertNull(ContributionsAnalyzer.getCommandById(application, "c"));
+
+		MCommand second = createCommand("a", "second");
+		application.getCommands().add(second);
+		assertSame(first, ContributionsAnalyzer.getCommandById(application, "a"));
+
+		application.getCommands().remove(first);
+		assertSame(second, ContributionsAnalyzer.getCommandById(application, "a"));
+
+		second.setElementId("c");
+		assertNull(ContributionsAnalyzer.getCommandById(application, "a"));
+		assertSame(second, ContributionsAnalyzer.getCommandById(application, "c"));
+
+		MCommand third = createCommand("c", "third");
+		application.getCommands().add(0, third);
+		assertSame(third, ContributionsAnalyzer.getCommandById(application, "c"));
+	}
+}
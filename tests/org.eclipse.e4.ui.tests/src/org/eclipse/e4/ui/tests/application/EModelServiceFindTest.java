@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.List;
 import junit.framework.TestCase;
 import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.ui.internal.workbench.UIEventPublisher;
 import org.eclipse.e4.ui.internal.workbench.swt.E4Application;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.impl.ApplicationFactoryImpl;
@@ -29,6 +30,7 @@ import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
 import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
 import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
 import org.eclipse.e4.ui.workbench.modeling.EModelService;
+import org.eclipse.emf.common.notify.Notifier;
 
 public class EModelServiceFindTest extends TestCase {
 
@@ -277,4 +279,91 @@ public class EModelServiceFindTest extends TestCase {
 		assertEquals(1, elements.size());
 		assertEquals(part, elements.get(0));
 	}
+
+	public void testFindElementsTracksModelChanges() {
+		MApplication application = createApplication();
+		((Notifier) application).eAdapters().add(
+				new UIEventPublisher(applicationContext));
+		EModelService modelService = (EModelService) application.getContext()
+				.get(EModelService.class.getName());
+		MWindow window = application.getChildren().get(0);
+		MPartSashContainer psc = (MPartSashContainer) window.getChildren()
+				.get(0);
+		MPart part3 = (MPart) psc.getChildren().get(1);
+
+		List<String> tags = new ArrayList<String>();
+		tags.add("twoValidTags");
+		assertEquals(2,
+				modelService.findElements(application, "twoValidIds", null, null)
+						.size());
+		assertEquals(2, modelService.findElements(application, null, null, tags)
+				.size());
+
+		part3.setElementId("twoValidIds");
+		part3.getTags().add("twoValidTags");
+		List<MUIElement> ids = modelService.findElements(application,
+				"twoValidIds", null, null);
+		assertEquals(3, ids.size());
+		assertEquals(psc, ids.get(0));
+		assertEquals(part3, ids.get(2));
+		assertEquals(3, modelService.findElements(application, null, null, tags)
+				.size());
+
+		// elements are only found while they are in the model
+		psc.getChildren().remove(part3);
+		assertEquals(2,
+				modelService.findElements(application, "twoValidIds", null, null)
+						.size());
+		assertNull(modelService.find("thirdPart", application));
+		part3.setElementId("thirdPart");
+		window.getChildren().add(part3);
+		assertEquals(part3, modelService.find("thirdPart", application));
+
+		// searches are limited to the given root
+		assertEquals(1,
+				modelService.findElements(psc.getChildren().get(0),
+						"twoValidIds", null, null).size());
+	}
+
+	public void testFindElementsThroughPlaceholders() {
+		MApplication application = createApplication();
+		((Notifier) application).eAdapters().add(
+				new UIEventPublisher(applicationContext));
+
+		MWindow window = BasicFactoryImpl.eINSTANCE.createWindow();
+		application.getChildren().add(window);
+
+		MPartStack partStack = BasicFactoryImpl.eINSTANCE.createPartStack();
+		window.getSharedElements().add(partStack);
+
+		MPart sharedPart = BasicFactoryImpl.eINSTANCE.createPart();
+		sharedPart.setElementId("part");
+		partStack.getChildren().add(sharedPart);
+
+		MPart part = BasicFactoryImpl.eINSTANCE.createPart();
+		part.setElementId("part");
+		window.getChildren().add(part);
+
+		EModelService modelService = (EModelService) application.getContext()
+				.get(EModelService.class.getName());
+		List<MPart> elements = modelService.findElements(window, "part",
+				MPart.class, null);
+		assertEquals(1, elements.size());
+		assertEquals(part, elements.get(0));
+
+		// shared elements are found where they are referenced
+		MPlaceholder placeholder = AdvancedFactoryImpl.eINSTANCE
+				.createPlaceholder();
+		window.getChildren().add(0, placeholder);
+		placeholder.setRef(partStack);
+		elements = modelService.findElements(window, "part", MPart.class, null);
+		assertEquals(2, elements.size());
+		assertEquals(sharedPart, elements.get(0));
+		assertEquals(part, elements.get(1));
+
+		placeholder.setRef(null);
+		elements = modelService.findElements(window, "part", MPart.class, null);
+		assertEquals(1, elements.size());
+		assertEquals(part, elements.get(0));
+	}
 }
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.tests.internal.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.internal.databinding.observable.ListDiffAnalyzer;
+
+/**
+ * Compares {@link ListDiffAnalyzer} against the sequential algorithm that
+ * {@link Diffs#computeListDiff(List, List)} used before (adapted from EMF's
+ * ListDifferenceAnalyzer). Each scenario runs a number of warm-up iterations
+ * followed by measured iterations, and the average time per diff is printed.
+ * <p>
+ * This is not part of the regular test suite; run it on demand.
+ *
+ * @since 1.1
+ */
+public class ListDiffAnalyzerBenchmark extends TestCase {
+	private static final int SIZE = 20000;
+
+	private static final int WARMUP_ITERATIONS = 3;
+
+	private static final int MEASURED_ITERATIONS = 5;
+
+	private List oldList;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		oldList = new ArrayList(SIZE);
+		for (int i = 0; i < SIZE; i++)
+			oldList.add("row" + i);
+	}
+
+	public void testUnchanged() {
+		run("unchanged", new ArrayList(oldList));
+	}
+
+	public void testSingleInsertAtFront() {
+		List newList = new ArrayList(oldList);
+		newList.add(0, "new");
+		run("insert at front", newList);
+	}
+
+	public void testReverse() {
+		List newList = new ArrayList(oldList);
+		Collections.reverse(newList);
+		run("reverse", newList);
+	}
+
+	public void testShuffleWithReplacements() {
+		Random random = new Random(42);
+		List newList = new ArrayList(oldList);
+		Collections.shuffle(newList, random);
+		for (int i = 0; i < SIZE / 10; i++)
+			newList.set(random.nextInt(SIZE), "replacement" + i);
+		run("shuffle with 10% replaced", newList);
+	}
+
+	private void run(String scenario, final List newList) {
+		long indexed = measure(new Runnable() {
+			public void run() {
+				ListDiffAnalyzer.computeDifferences(oldList, newList);
+			}
+		});
+		long sequential = measure(new Runnable() {
+			public void run() {
+				computeSequentialDifferences(oldList, newList);
+			}
+		});
+		System.out.println(getClass().getName() + " " + scenario + " (" + SIZE
+				+ " rows): indexed " + indexed + "us, sequential "
+				+ sequential + "us");
+	}
+
+	private static long measure(Runnable runnable) {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++)
+			runnable.run();
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < MEASURED_ITERATIONS; i++)
+			runnable.run();
+		return (System.currentTimeMillis() - start) * 1000
+				/ MEASURED_ITERATIONS;
+	}
+
+	/**
+	 * The previous implementation of Diffs.computeListDiff, kept here as the
+	 * benchmark baseline.
+	 */
+	static List computeSequentialDifferences(List originalList, List newList) {
+		List oldList = new ArrayList(originalList);
+		List listDiffs = new ArrayList();
+		int index = 0;
+		for (Iterator it = newList.iterator(); it.hasNext();) {
+			Object newValue = it.next();
+			if (oldList.size() <= index) {
+				listDiffs.add(Diffs.createListDiffEntry(index, true, newValue));
+			} else {
+				boolean done;
+				do {
+					done = true;
+					Object oldValue = oldList.get(index);
+					if (!Diffs.equals(oldValue, newValue)) {
+						int oldIndexOfNewValue = listIndexOf(oldList, newValue,
+								index);
+						if (oldIndexOfNewValue != -1) {
+							int newIndexOfOldValue = listIndexOf(newList,
+									oldValue, index);
+							if (newIndexOfOldValue == -1) {
+								listDiffs.add(Diffs.createListDiffEntry(index,
+										false, oldValue));
+								oldList.remove(index);
+								done = false;
+							} else if (newIndexOfOldValue > oldIndexOfNewValue) {
+								if (oldList.size() <= newIndexOfOldValue) {
+									newIndexOfOldValue = oldList.size() - 1;
+								}
+								listDiffs.add(Diffs.createListDiffEntry(index,
+										false, oldValue));
+								oldList.remove(index);
+								listDiffs.add(Diffs.createListDiffEntry(
+										newIndexOfOldValue, true, oldValue));
+								oldList.add(newIndexOfOldValue, oldValue);
+								done = false;
+							} else {
+								listDiffs.add(Diffs.createListDiffEntry(
+										oldIndexOfNewValue, false, newValue));
+								oldList.remove(oldIndexOfNewValue);
+								listDiffs.add(Diffs.createListDiffEntry(index,
+										true, newValue));
+								oldList.add(index, newValue);
+							}
+						} else {
+							oldList.add(index, newValue);
+							listDiffs.add(Diffs.createListDiffEntry(index,
+									true, newValue));
+						}
+					}
+				} while (!done);
+			}
+			++index;
+		}
+		for (int i = oldList.size(); i > index;) {
+			listDiffs.add(Diffs.createListDiffEntry(--i, false, oldList.get(i)));
+		}
+		return listDiffs;
+	}
+
+	private static int listIndexOf(List list, Object object, int index) {
+		int size = list.size();
+		for (int i = index; i < size; i++) {
+			if (Diffs.equals(list.get(i), object))
+				return i;
+		}
+		return -1;
+	}
+}
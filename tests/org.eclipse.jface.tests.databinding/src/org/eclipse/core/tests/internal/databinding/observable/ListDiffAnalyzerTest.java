@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.tests.internal.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+import org.eclipse.core.databinding.observable.list.ListDiffVisitor;
+import org.eclipse.core.internal.databinding.observable.ListDiffAnalyzer;
+
+/**
+ * Tests for ListDiffAnalyzer
+ *
+ * @since 1.1
+ */
+public class ListDiffAnalyzerTest extends TestCase {
+	private Random random;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		random = new Random(42);
+	}
+
+	public void testRandomEdits() {
+		for (int i = 0; i < 2000; i++) {
+			List oldList = randomList(random.nextInt(15), 6);
+			List newList = randomList(random.nextInt(15), 6);
+			checkDifferences(oldList, newList, false);
+		}
+	}
+
+	public void testShuffleReportsMovesOnly() {
+		List oldList = randomList(500, Integer.MAX_VALUE);
+		List newList = new ArrayList(oldList);
+		Collections.shuffle(newList, random);
+
+		ListDiffEntry[] entries = checkDifferences(oldList, newList, false);
+		assertEquals(0, entries.length % 2);
+
+		final int[] moves = new int[1];
+		Diffs.createListDiff(entries).accept(new ListDiffVisitor() {
+			public void handleAdd(int index, Object element) {
+				fail("Unexpected add");
+			}
+
+			public void handleRemove(int index, Object element) {
+				fail("Unexpected remove");
+			}
+
+			public void handleMove(int oldIndex, int newIndex, Object element) {
+				moves[0]++;
+			}
+		});
+		assertEquals(entries.length / 2, moves[0]);
+	}
+
+	public void testMoveSingleElementToEnd() {
+		List oldList = Arrays.asList(new Object[] { "a", "b", "c", "d" });
+		List newList = Arrays.asList(new Object[] { "b", "c", "d", "a" });
+
+		ListDiffEntry[] entries = checkDifferences(oldList, newList, false);
+		assertEquals(2, entries.length);
+	}
+
+	public void testDuplicates() {
+		checkDifferences(Arrays.asList(new Object[] { "a", "a", "b", "a" }),
+				Arrays.asList(new Object[] { "b", "a", "a" }), false);
+		checkDifferences(Arrays.asList(new Object[] { "a", null, "a" }),
+				Arrays.asList(new Object[] { null, null, "a" }), false);
+	}
+
+	public void testIdentity() {
+		String element1 = new String("a");
+		String element2 = new String("a");
+		List oldList = Arrays.asList(new Object[] { element1 });
+		List newList = Arrays.asList(new Object[] { element2 });
+
+		assertEquals(0, ListDiffAnalyzer.computeDifferences(oldList, newList,
+				false).length);
+
+		ListDiffEntry[] entries = checkDifferences(oldList, newList, true);
+		assertEquals(2, entries.length);
+		assertSame(element2, entries[0].getElement());
+		assertSame(element1, entries[1].getElement());
+	}
+
+	private List randomList(int size, int range) {
+		List list = new ArrayList(size);
+		for (int i = 0; i < size; i++)
+			list.add(new Integer(random.nextInt(range)));
+		return list;
+	}
+
+	private static ListDiffEntry[] checkDifferences(List oldList,
+			List newList, boolean identity) {
+		ListDiffEntry[] entries = ListDiffAnalyzer.computeDifferences(oldList,
+				newList, identity);
+
+		List list = new ArrayList(oldList);
+		for (int i = 0; i < entries.length; i++) {
+			ListDiffEntry entry = entries[i];
+			if (entry.isAddition()) {
+				list.add(entry.getPosition(), entry.getElement());
+			} else {
+				assertSame(entry.getElement(), list.remove(entry.getPosition()));
+			}
+		}
+
+		assertEquals(
+				"Applying diff to old list should make it equal to new list",
+				newList, list);
+		return entries;
+	}
+}
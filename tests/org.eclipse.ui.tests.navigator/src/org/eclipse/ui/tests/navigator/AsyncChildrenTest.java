@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.navigator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.TreeItem;
+import org.eclipse.ui.progress.PendingUpdateAdapter;
+import org.eclipse.ui.tests.harness.util.DisplayHelper;
+import org.eclipse.ui.tests.navigator.extension.TestSimpleChildrenContentProvider;
+import org.eclipse.ui.tests.navigator.extension.TestSimpleChildrenContentProvider.SimpleChild;
+import org.eclipse.ui.tests.navigator.extension.TestThreadSafeContentProvider;
+
+public class AsyncChildrenTest extends NavigatorTestBase {
+
+	private static final long TIMEOUT = 10000;
+
+	// The children of both thread safe extensions
+	private static final int ASYNC_CHILDREN = 2 * TestSimpleChildrenContentProvider.NUM_ITEMS;
+
+	public AsyncChildrenTest() {
+		_navigatorInstanceId = TEST_VIEWER_ASYNC_CHILDREN;
+	}
+
+	protected void tearDown() throws Exception {
+		TestThreadSafeContentProvider.resetTest();
+		super.tearDown();
+	}
+
+	private boolean waitForChildren(final TreeItem item, final int count) {
+		return new DisplayHelper() {
+			protected boolean condition() {
+				return item.getItems().length == count;
+			}
+		}.waitForCondition(Display.getCurrent(), TIMEOUT);
+	}
+
+	private boolean isPending(Object[] children) {
+		for (int i = 0; i < children.length; i++) {
+			if (children[i] instanceof PendingUpdateAdapter) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void joinFetchingJobs() throws InterruptedException {
+		Job.getJobManager().join(_viewer.getContentProvider(), null);
+	}
+
+	public void testPendingChildren() throws Exception {
+		// The first expansion loads the extension on the UI thread
+		_viewer.expandToLevel(_project, 1);
+		TestThreadSafeContentProvider.resetTest();
+
+		_viewer.refresh(_project);
+		final TreeItem projectItem = (TreeItem) _viewer.testFindItem(_project);
+		TreeItem[] items = projectItem.getItems();
+		assertEquals(_expectedChildren.size() + 1, items.length);
+		assertTrue(items[items.length - 1].getData() instanceof PendingUpdateAdapter);
+
+		assertTrue(waitForChildren(projectItem, _expectedChildren.size() + ASYNC_CHILDREN));
+
+		items = projectItem.getItems();
+		for (int i = 0; i < items.length; i++) {
+			assertFalse(items[i].getData() instanceof PendingUpdateAdapter);
+		}
+		assertFalse(TestThreadSafeContentProvider._threads.contains(Thread.currentThread()));
+	}
+
+	public void testRefreshWhileExpanded() throws Exception {
+		_viewer.expandToLevel(_project, 1);
+		_viewer.refresh(_project);
+		final TreeItem projectItem = (TreeItem) _viewer.testFindItem(_project);
+		int allChildren = _expectedChildren.size() + ASYNC_CHILDREN;
+		assertTrue(waitForChildren(projectItem, allChildren));
+
+		// The children last fetched are shown while they are fetched again
+		TestThreadSafeContentProvider._dropFirst = true;
+		_viewer.refresh(_project);
+		TreeItem[] items = projectItem.getItems();
+		assertEquals(allChildren, items.length);
+		for (int i = 0; i < items.length; i++) {
+			assertFalse(items[i].getData() instanceof PendingUpdateAdapter);
+		}
+
+		// Both extensions leave out their first child
+		assertTrue(waitForChildren(projectItem, allChildren - 2));
+		assertTrue(projectItem.getExpanded());
+	}
+
+	public void testFetchConcurrentlyInOrder() throws Exception {
+		// The first expansion loads the extensions on the UI thread
+		_viewer.expandToLevel(_project, 1);
+		TestThreadSafeContentProvider.resetTest();
+
+		_viewer.refresh(_project);
+		TreeItem projectItem = (TreeItem) _viewer.testFindItem(_project);
+		assertTrue(waitForChildren(projectItem, _expectedChildren.size() + ASYNC_CHILDREN));
+		assertEquals(2, TestThreadSafeContentProvider.getMaxConcurrentCalls());
+
+		// The children are merged in the order of the extensions
+		Object[] children = ((ITreeContentProvider) _viewer.getContentProvider())
+				.getChildren(_project);
+		List names = new ArrayList();
+		for (int i = 0; i < children.length; i++) {
+			if (children[i] instanceof SimpleChild) {
+				names.add(((SimpleChild) children[i])._name);
+			}
+		}
+		assertEquals(Arrays.asList(new String[] { "asyncBefore0", "asyncBefore1",
+				"asyncBefore2", "asyncBefore3", "async0", "async1", "async2", "async3" }), names);
+		joinFetchingJobs();
+	}
+
+	public void testChildrenForgottenWhenCollapsed() throws Exception {
+		_viewer.expandToLevel(_project, 1);
+		_viewer.refresh(_project);
+		TreeItem projectItem = (TreeItem) _viewer.testFindItem(_project);
+		assertTrue(waitForChildren(projectItem, _expectedChildren.size() + ASYNC_CHILDREN));
+		joinFetchingJobs();
+
+		ITreeContentProvider contentProvider = (ITreeContentProvider) _viewer
+				.getContentProvider();
+		assertFalse(isPending(contentProvider.getChildren(_project)));
+		joinFetchingJobs();
+
+		Event event = new Event();
+		event.item = projectItem;
+		_viewer.getTree().notifyListeners(SWT.Collapse, event);
+		assertTrue(isPending(contentProvider.getChildren(_project)));
+		joinFetchingJobs();
+	}
+
+	public void testChildrenForgottenWhenRemoved() throws Exception {
+		_viewer.expandToLevel(_project, 1);
+		_viewer.refresh(_project);
+		TreeItem projectItem = (TreeItem) _viewer.testFindItem(_project);
+		assertTrue(waitForChildren(projectItem, _expectedChildren.size() + ASYNC_CHILDREN));
+		joinFetchingJobs();
+
+		_viewer.remove(_project);
+		// The removed elements are checked once the viewer is done
+		while (Display.getCurrent().readAndDispatch())
+			;
+		ITreeContentProvider contentProvider = (ITreeContentProvider) _viewer
+				.getContentProvider();
+		assertTrue(isPending(contentProvider.getChildren(_project)));
+		joinFetchingJobs();
+	}
+
+	public void testHasChildrenOffUIThread() throws Exception {
+		// The first expansion loads the extension on the UI thread
+		_viewer.expandToLevel(_project, 1);
+		TestThreadSafeContentProvider.resetTest();
+
+		ITreeContentProvider contentProvider = (ITreeContentProvider) _viewer
+				.getContentProvider();
+		assertTrue(contentProvider.hasChildren(_project));
+		assertFalse(TestThreadSafeContentProvider._threads.contains(Thread.currentThread()));
+	}
+
+	public void testSynchronousOffUIThread() throws Exception {
+		_viewer.expandToLevel(_project, 1);
+		final ITreeContentProvider contentProvider = (ITreeContentProvider) _viewer
+				.getContentProvider();
+		final Object[][] children = new Object[1][];
+		Thread thread = new Thread() {
+			public void run() {
+				children[0] = contentProvider.getChildren(_project);
+			}
+		};
+		thread.start();
+		thread.join(TIMEOUT);
+
+		assertNotNull(children[0]);
+		assertEquals(_expectedChildren.size() + ASYNC_CHILDREN, children[0].length);
+	}
+
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.navigator;
+
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.ui.internal.navigator.VisibilityAssistant;
+import org.eclipse.ui.internal.navigator.extensions.EvaluationCache;
+import org.eclipse.ui.internal.navigator.extensions.NavigatorContentDescriptorManager;
+import org.eclipse.ui.navigator.resources.ProjectExplorer;
+
+/**
+ * Checks that the results of the content extension lookups are shared between
+ * elements of the same kind, bounded and invalidated.
+ */
+public class EvaluationCacheTest extends NavigatorTestBase {
+
+	private static final int ELEMENT_COUNT = 1000;
+
+	private static final NavigatorContentDescriptorManager MANAGER = NavigatorContentDescriptorManager
+			.getInstance();
+
+	private VisibilityAssistant _assistant;
+
+	public EvaluationCacheTest() {
+		_navigatorInstanceId = ProjectExplorer.VIEW_ID;
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		_assistant = new VisibilityAssistant(_contentService.getViewerDescriptor(),
+				_contentService.getActivationService());
+	}
+
+	protected void tearDown() throws Exception {
+		_assistant.dispose();
+		super.tearDown();
+	}
+
+	public void testSharedResults() throws Exception {
+		IFile[] files = new IFile[ELEMENT_COUNT];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = _project.getFile("file" + i + ".txt");
+		}
+		EvaluationCache cache = MANAGER.getTriggerPointEvaluationCache(_assistant);
+		cache.resetStatistics();
+
+		Object resourceContent = MANAGER.getContentDescriptor(COMMON_NAVIGATOR_RESOURCE_EXT);
+
+		for (int i = 0; i < files.length; i++) {
+			Set descriptors = MANAGER.findDescriptorsForTriggerPoint(files[i], _assistant, true);
+			assertTrue(descriptors.contains(resourceContent));
+		}
+
+		// The files only differ by name
+		assertEquals(ELEMENT_COUNT, cache.getHitCount() + cache.getMissCount());
+		assertTrue(cache.getMissCount() < 10);
+		assertTrue(cache.size() <= cache.getMaximumSize());
+	}
+
+	public void testInvalidateOnActivationChange() throws Exception {
+		EvaluationCache cache = MANAGER.getTriggerPointEvaluationCache(_assistant);
+		Object resourceContent = MANAGER.getContentDescriptor(COMMON_NAVIGATOR_RESOURCE_EXT);
+
+		assertTrue(MANAGER.findDescriptorsForTriggerPoint(_project, _assistant, true).contains(resourceContent));
+		cache.resetStatistics();
+
+		_contentService.getActivationService().deactivateExtensions(
+				new String[] { COMMON_NAVIGATOR_RESOURCE_EXT }, false);
+		try {
+			assertTrue(cache.getInvalidationCount() > 0);
+			assertFalse(MANAGER.findDescriptorsForTriggerPoint(_project, _assistant, true).contains(resourceContent));
+		} finally {
+			_contentService.getActivationService().activateExtensions(
+					new String[] { COMMON_NAVIGATOR_RESOURCE_EXT }, false);
+		}
+		assertTrue(MANAGER.findDescriptorsForTriggerPoint(_project, _assistant, true).contains(resourceContent));
+	}
+
+	public void testBounded() throws Exception {
+		EvaluationCache cache = MANAGER.getPossibleChildrenEvaluationCache(_assistant);
+		int maximumSize = cache.getMaximumSize();
+		try {
+			cache.setMaximumSize(1);
+			cache.resetStatistics();
+			MANAGER.findDescriptorsForPossibleChild(_project, _assistant, true);
+			MANAGER.findDescriptorsForPossibleChild(_project.getFile("file.txt"), _assistant, true);
+			MANAGER.findDescriptorsForPossibleChild(_project.getFolder("folder"), _assistant, true);
+
+			assertEquals(1, cache.size());
+			assertEquals(2, cache.getEvictionCount());
+		} finally {
+			cache.setMaximumSize(maximumSize);
+		}
+	}
+}
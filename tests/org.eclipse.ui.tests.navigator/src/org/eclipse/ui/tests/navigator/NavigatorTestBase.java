@@ -63,6 +63,7 @@ public class NavigatorTestBase extends TestCase {
 	public static final String TEST_VIEWER_FILTER = "org.eclipse.ui.tests.navigator.FilterTestView";
 	public static final String TEST_VIEWER_INITIAL_ACTIVATION = "org.eclipse.ui.tests.navigator.InitialActivationView";
 	public static final String TEST_VIEWER_LINK_HELPER = "org.eclipse.ui.tests.navigator.TestLinkHelperView";
+	public static final String TEST_VIEWER_ASYNC_CHILDREN = "org.eclipse.ui.tests.navigator.AsyncChildrenTestView";
 
 	public static final String TEST_VIEW_NON_COMMONVIEWER = "org.eclipse.ui.tests.navigator.NonCommonViewerTestView";
 
@@ -88,6 +89,8 @@ public class NavigatorTestBase extends TestCase {
 	public static final String TEST_SIMPLE_CHILDREN2 = "org.eclipse.ui.tests.navigator.testSimpleChildrenContent2";
 	public static final String TEST_SIMPLE_CHILDREN3 = "org.eclipse.ui.tests.navigator.testSimpleChildrenContent3";
 	public static final String TEST_SIMPLE_CHILDREN_NOT_FOUND = "org.eclipse.ui.tests.navigator.testSimpleChildrenAppearsBeforeNotFound";
+	public static final String TEST_THREAD_SAFE_CHILDREN = "org.eclipse.ui.tests.navigator.testThreadSafeChildren";
+	public static final String TEST_THREAD_SAFE_CHILDREN_BEFORE = "org.eclipse.ui.tests.navigator.testThreadSafeChildrenBefore";
 	
 	public static final String TEST_CONTENT_M12_VIEW = "org.eclipse.ui.tests.navigator.M12View";
 	public static final String TEST_CONTENT_M12_M1_CONTENT = "org.eclipse.ui.tests.navigator.m12.M1";
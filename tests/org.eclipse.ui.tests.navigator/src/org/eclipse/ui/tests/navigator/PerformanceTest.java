@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 webtekie@gmail.com, IBM Corporation and others.
+ * Copyright (c) 2008, 2010 webtekie@gmail.com, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,8 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.internal.navigator.VisibilityAssistant;
+import org.eclipse.ui.internal.navigator.extensions.NavigatorContentDescriptorManager;
 import org.eclipse.ui.navigator.ICommonViewerMapper;
 import org.eclipse.ui.navigator.resources.ProjectExplorer;
 import org.eclipse.ui.tests.harness.util.DisplayHelper;
@@ -291,4 +293,28 @@ public class PerformanceTest extends NavigatorTestBase {
 		assertTrue(createMappedTime < createUnMappedTime);
 	}
 
+	// the content extensions of many elements of the same kind
+	public void testTriggerPointLookup() throws Exception {
+		NavigatorContentDescriptorManager manager = NavigatorContentDescriptorManager
+				.getInstance();
+		VisibilityAssistant assistant = new VisibilityAssistant(
+				_contentService.getViewerDescriptor(), _contentService
+						.getActivationService());
+		try {
+			IProject p1 = ResourcesPlugin.getWorkspace().getRoot().getProject(
+					"p000");
+			int numElements = 20000;
+
+			long start = System.currentTimeMillis();
+			for (int i = 0; i < numElements; i++) {
+				manager.findDescriptorsForTriggerPoint(p1.getFile("f" + i),
+						assistant, true);
+			}
+			System.out.println("Trigger points of " + numElements
+					+ " files Time: " + (System.currentTimeMillis() - start));
+		} finally {
+			assistant.dispose();
+		}
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.navigator.extension;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Provides some children slowly, from any thread.
+ */
+public class TestThreadSafeContentProvider extends TestSimpleChildrenContentProvider {
+
+	public static final long DELAY = 500;
+
+	public static Set _threads = Collections.synchronizedSet(new HashSet());
+
+	// Whether to leave out the first child
+	public static volatile boolean _dropFirst;
+
+	private static int _concurrentCalls;
+
+	private static int _maxConcurrentCalls;
+
+	public TestThreadSafeContentProvider() {
+		_name = "async";
+	}
+
+	public static void resetTest() {
+		_threads.clear();
+		_dropFirst = false;
+		synchronized (TestThreadSafeContentProvider.class) {
+			_maxConcurrentCalls = 0;
+		}
+	}
+
+	// The most calls to getChildren running at once since the last reset
+	public static synchronized int getMaxConcurrentCalls() {
+		return _maxConcurrentCalls;
+	}
+
+	private static synchronized void enter() {
+		_concurrentCalls++;
+		_maxConcurrentCalls = Math.max(_maxConcurrentCalls, _concurrentCalls);
+	}
+
+	private static synchronized void exit() {
+		_concurrentCalls--;
+	}
+
+	public Object[] getChildren(Object parentElement) {
+		_threads.add(Thread.currentThread());
+		enter();
+		try {
+			Thread.sleep(DELAY);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exit();
+		}
+		Object[] children;
+		// The children are created on first use
+		synchronized (this) {
+			children = super.getChildren(parentElement);
+		}
+		if (_dropFirst && children.length > 0) {
+			Object[] remaining = new Object[children.length - 1];
+			System.arraycopy(children, 1, remaining, 0, remaining.length);
+			return remaining;
+		}
+		return children;
+	}
+
+	public boolean hasChildren(Object element) {
+		_threads.add(Thread.currentThread());
+		return super.hasChildren(element);
+	}
+
+}
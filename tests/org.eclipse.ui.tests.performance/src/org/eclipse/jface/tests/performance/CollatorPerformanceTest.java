@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 IBM Corporation and others.
+ * Copyright (c) 2008, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,10 +11,12 @@
 
 package org.eclipse.jface.tests.performance;
 
+import java.text.Collator;
 import java.util.Arrays;
 import java.util.Comparator;
 
 import org.eclipse.jface.util.Policy;
+import org.eclipse.jface.viewers.ViewerComparator;
 import org.eclipse.ui.tests.performance.BasicPerformanceTest;
 
 /**
@@ -48,6 +50,36 @@ public class CollatorPerformanceTest extends BasicPerformanceTest {
         commitMeasurements();
         assertPerformance();
 	}
+
+	/**
+	 * test sorting the array with a collator based ViewerComparator, which
+	 * computes the collation key of each element once per sort
+	 */
+	public void testViewerComparator() {
+		doTestViewerComparator(new ViewerComparator(Collator.getInstance()));
+	}
+
+	/**
+	 * test sorting the array with a collator based ViewerComparator that
+	 * keeps the collation keys from one sort to the next
+	 */
+	public void testViewerComparatorCachedKeys() {
+		ViewerComparator viewerComparator = new ViewerComparator(Collator
+				.getInstance());
+		viewerComparator.setCacheSortKeys(true);
+		doTestViewerComparator(viewerComparator);
+	}
+
+	private void doTestViewerComparator(ViewerComparator viewerComparator) {
+		for (int i = 0; i < 15; i++) {
+			String[] array = (String[]) fArray.clone();
+			startMeasuring();
+			viewerComparator.sort(null, array);
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
 	
 	/**
 	 * Generate a large sized array for sorting
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2009 IBM Corporation and others.
+ * Copyright (c) 2005, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,12 @@ public class TreeAddTest extends TreeTest {
 
 	static int TEST_COUNT = 1000;
 
+	static int HEAP_PARENT_COUNT = 100;
+
+	static int HEAP_CHILD_COUNT = 999;
+
+	static int HEAP_ITERATIONS = 3;
+
 	public TreeAddTest(String testName, int tagging) {
 		super(testName, tagging);
 	}
@@ -169,4 +175,41 @@ public class TreeAddTest extends TreeTest {
 		doTestAdd(1000, 2000, true);
 	}
 
+	/**
+	 * Measures the heap used by a fully expanded tree of
+	 * {@link #HEAP_PARENT_COUNT} elements with {@link #HEAP_CHILD_COUNT}
+	 * children each, most of which is taken by the items and the element map
+	 * of the viewer.
+	 */
+	public void testAddLargeTreeHeap() throws CoreException {
+		tagIfNecessary("JFace - Heap of a TreeViewer with 100000 items",
+				Dimension.USED_JAVA_HEAP);
+
+		openBrowser();
+
+		for (int i = 0; i < HEAP_ITERATIONS; i++) {
+			TestTreeElement input = new TestTreeElement(0, null);
+			input.createChildren(HEAP_PARENT_COUNT);
+			for (int j = 0; j < input.children.length; j++) {
+				input.children[j].createChildren(HEAP_CHILD_COUNT);
+			}
+			processEvents();
+			System.gc();
+			startMeasuring();
+
+			viewer.setInput(input);
+			viewer.expandAll();
+			processEvents();
+			System.gc();
+
+			stopMeasuring();
+
+			viewer.setInput(new TestTreeElement(0, null));
+			processEvents();
+		}
+
+		commitMeasurements();
+		assertPerformance();
+	}
+
 }
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.performance;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.IPageLayout;
+import org.eclipse.ui.IViewPart;
+import org.eclipse.ui.IWorkbenchPage;
+
+/**
+ * Measures the progress reported by many jobs running at once while the
+ * Progress view is open. Only the <code>worked()</code> calls of the jobs are
+ * measured, from the moment all jobs are running until they all reported
+ * their work.
+ *
+ * @since 3.6
+ */
+public class JobProgressPerformanceTest extends BasicPerformanceTest {
+
+	private static final int WORKED_CALLS = 10000;
+
+	private static final long TIMEOUT = 60000;
+
+	private int jobCount;
+
+	private final Object lock = new Object();
+
+	private int running;
+
+	private int finished;
+
+	private boolean started;
+
+	private IWorkbenchPage page;
+
+	private IViewPart progressView;
+
+	private class WorkingJob extends Job {
+
+		WorkingJob(int index) {
+			super("Working job " + index);
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			monitor.beginTask(getName(), WORKED_CALLS);
+			try {
+				synchronized (lock) {
+					running++;
+					lock.notifyAll();
+					while (!started) {
+						lock.wait();
+					}
+				}
+				for (int i = 0; i < WORKED_CALLS; i++) {
+					monitor.worked(1);
+				}
+				synchronized (lock) {
+					finished++;
+					lock.notifyAll();
+				}
+				return Status.OK_STATUS;
+			} catch (InterruptedException e) {
+				return Status.CANCEL_STATUS;
+			} finally {
+				monitor.done();
+			}
+		}
+	}
+
+	/**
+	 * @param jobCount
+	 *            the number of jobs reporting progress at once
+	 */
+	public JobProgressPerformanceTest(int jobCount) {
+		super("Report progress from " + jobCount + " concurrent jobs");
+		this.jobCount = jobCount;
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		page = openTestWindow().getActivePage();
+		progressView = page.showView(IPageLayout.ID_PROGRESS_VIEW);
+		processEvents();
+	}
+
+	protected void doTearDown() throws Exception {
+		release();
+		page.hideView(progressView);
+		super.doTearDown();
+	}
+
+	protected void runTest() throws Throwable {
+		exercise(new TestRunnable() {
+			public void run() throws Exception {
+				synchronized (lock) {
+					running = 0;
+					finished = 0;
+					started = false;
+				}
+				Job[] jobs = new Job[jobCount];
+				for (int i = 0; i < jobs.length; i++) {
+					jobs[i] = new WorkingJob(i);
+					jobs[i].schedule();
+				}
+				try {
+					assertTrue("Jobs not running", waitForJobs(false));
+					startMeasuring();
+					release();
+					assertTrue("Work not finished", waitForJobs(true));
+					stopMeasuring();
+				} finally {
+					release();
+					for (int i = 0; i < jobs.length; i++) {
+						jobs[i].join();
+					}
+				}
+				processEvents();
+			}
+		});
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Lets the jobs waiting to start report their work.
+	 */
+	private void release() {
+		synchronized (lock) {
+			started = true;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Processes events, so that the Progress view keeps updating, until all
+	 * jobs are running or until they all reported their work.
+	 *
+	 * @param work
+	 *            <code>true</code> to wait for the work to be reported
+	 * @return <code>false</code> if this timed out
+	 */
+	private boolean waitForJobs(boolean work) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (System.currentTimeMillis() < end) {
+			processEvents();
+			synchronized (lock) {
+				if ((work ? finished : running) == jobCount) {
+					return true;
+				}
+				lock.wait(5);
+			}
+		}
+		return false;
+	}
+}
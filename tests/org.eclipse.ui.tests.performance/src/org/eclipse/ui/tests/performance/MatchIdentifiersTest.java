@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.performance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.ui.activities.WorkbenchTriggerPointAdvisor;
+import org.eclipse.ui.internal.activities.AbstractActivityRegistry;
+import org.eclipse.ui.internal.activities.ActivityDefinition;
+import org.eclipse.ui.internal.activities.ActivityPatternBindingDefinition;
+import org.eclipse.ui.internal.activities.MutableActivityManager;
+
+/**
+ * Measures matching identifiers against the pattern bindings of many
+ * activities, when the identifiers are first requested and when the enabled
+ * activities change.
+ * 
+ * @since 3.6
+ */
+public class MatchIdentifiersTest extends BasicPerformanceTest {
+
+	private static final String PREFIX = "org.eclipse.ui.tests.performance.";
+
+	private int activityCount;
+
+	private int identifierCount;
+
+	/**
+	 * An activity registry with generated activities, each bound to an
+	 * equality pattern, a pattern starting with a literal and a pattern
+	 * without a literal prefix.
+	 */
+	private static class GeneratedActivityRegistry extends
+			AbstractActivityRegistry {
+		GeneratedActivityRegistry(int activityCount) {
+			activityDefinitions = new ArrayList();
+			activityPatternBindingDefinitions = new ArrayList();
+			for (int i = 0; i < activityCount; i++) {
+				String activityId = PREFIX + "activity" + i;
+				activityDefinitions.add(new ActivityDefinition(activityId,
+						"Activity " + i, PREFIX, "description"));
+				activityPatternBindingDefinitions
+						.add(new ActivityPatternBindingDefinition(activityId,
+								PREFIX + "plugin" + i + "/view", PREFIX, true));
+				activityPatternBindingDefinitions
+						.add(new ActivityPatternBindingDefinition(activityId,
+								"org\\.eclipse\\.ui\\.tests\\.performance\\.plugin"
+										+ i + "/.*", PREFIX));
+				activityPatternBindingDefinitions
+						.add(new ActivityPatternBindingDefinition(activityId,
+								".*/action" + i, PREFIX));
+			}
+		}
+	}
+
+	/**
+	 * @param activityCount
+	 * @param identifierCount
+	 */
+	public MatchIdentifiersTest(int activityCount, int identifierCount) {
+		super("Match " + identifierCount + " identifiers against "
+				+ activityCount + " activities");
+		this.activityCount = activityCount;
+		this.identifierCount = identifierCount;
+	}
+
+	protected void runTest() throws Throwable {
+		final GeneratedActivityRegistry registry = new GeneratedActivityRegistry(
+				activityCount);
+		final String[] ids = new String[identifierCount];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = PREFIX + "plugin" + (i % activityCount) + "/element" + i;
+		}
+		final Set someActivityIds = new HashSet();
+		for (int i = 0; i < activityCount; i += 2) {
+			someActivityIds.add(PREFIX + "activity" + i);
+		}
+
+		exercise(new TestRunnable() {
+			public void run() throws Exception {
+				MutableActivityManager activityManager = new MutableActivityManager(
+						new WorkbenchTriggerPointAdvisor(), registry);
+				try {
+					startMeasuring();
+					for (int i = 0; i < ids.length; i++) {
+						activityManager.getIdentifier(ids[i]);
+					}
+					activityManager.setEnabledActivityIds(someActivityIds);
+					activityManager.setEnabledActivityIds(Collections.EMPTY_SET);
+					stopMeasuring();
+				} finally {
+					activityManager.unhookRegistryListeners();
+				}
+			}
+		});
+		commitMeasurements();
+		assertPerformance();
+	}
+}
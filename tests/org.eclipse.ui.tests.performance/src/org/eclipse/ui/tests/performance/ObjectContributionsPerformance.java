@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,10 @@ public class ObjectContributionsPerformance extends BasicPerformanceTest {
                 "large selection, limited contributors",
                 generateAdaptableSelection(SEED, 5000),
                 BasicPerformanceTest.NONE));
+        suite.addTest(new ObjectContributionsPerformance(
+                "1000 element selection, limited contributors",
+                generateAdaptableSelection(SEED, 1000),
+                BasicPerformanceTest.NONE));
         suite
                 .addTest(new ObjectContributionsPerformance(
                         "limited selection, limited contributors",
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,14 +15,18 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.test.performance.Dimension;
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.tests.performance.parts.PerformanceMarkerSupportView;
 import org.eclipse.ui.tests.performance.parts.PerformanceProblemsView;
 import org.eclipse.ui.texteditor.MarkerUtilities;
 
@@ -38,6 +42,14 @@ public class ProblemsViewPerformanceTest extends BasicPerformanceTest {
 
 	private String PROBLEMS_VIEW_ID = "org.eclipse.ui.tests.performance.problemsView";
 
+	private String MARKER_SUPPORT_VIEW_ID = "org.eclipse.ui.tests.performance.markerSupportView";
+
+	private static final String PROJECT_PREFIX = "ProblemsViewPerformanceTest";
+
+	private static final int PROJECT_COUNT = 8;
+
+	private static final int MARKERS_PER_PROJECT = 5000;
+
 	/**
 	 * Create a new instance of the receiver.
 	 * 
@@ -83,6 +95,98 @@ public class ProblemsViewPerformanceTest extends BasicPerformanceTest {
 
 	}
 
+	/**
+	 * Test the gathering and sorting of the markers of several projects by
+	 * the marker support view.
+	 */
+	public void testPopulationAcrossProjects() {
+		IWorkbenchWindow window = openTestWindow(EMPTY_PERSPECTIVE_ID);
+		final IWorkbenchPage page = window.getActivePage();
+
+		IProject[] projects = createProjectsWithMarkers();
+		try {
+			tagIfNecessary("UI - Problems View population across projects",
+					Dimension.ELAPSED_PROCESS);
+
+			for (int i = 0; i < 20; i++) {
+				processEvents();
+				startMeasuring();
+				PerformanceMarkerSupportView view;
+				try {
+					view = (PerformanceMarkerSupportView) page
+							.showView(MARKER_SUPPORT_VIEW_ID);
+				} catch (PartInitException e) {
+					e.printStackTrace();
+					fail();
+					return;
+				}
+				while (view.getTreeWidget().getItemCount() == 0)
+					processEvents();
+				stopMeasuring();
+				page.hideView(view);
+			}
+			commitMeasurements();
+			assertPerformance();
+		} finally {
+			deleteProjects(projects);
+		}
+	}
+
+	/**
+	 * Create the projects and their markers, with varying severities and
+	 * messages so that the markers have to be sorted.
+	 * 
+	 * @return IProject[]
+	 */
+	private IProject[] createProjectsWithMarkers() {
+		final IProject[] projects = new IProject[PROJECT_COUNT];
+		try {
+			ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+				public void run(IProgressMonitor monitor) throws CoreException {
+					IWorkspaceRoot root = ResourcesPlugin.getWorkspace()
+							.getRoot();
+					for (int i = 0; i < projects.length; i++) {
+						projects[i] = root.getProject(PROJECT_PREFIX + i);
+						if (!projects[i].exists()) {
+							projects[i].create(null);
+						}
+						projects[i].open(null);
+						for (int j = 0; j < MARKERS_PER_PROJECT; j++) {
+							Map attribs = new HashMap();
+							attribs.put(IMarker.SEVERITY, new Integer(j % 3));
+							attribs.put(IMarker.MESSAGE, "this is a test "
+									+ (j * 7919 % MARKERS_PER_PROJECT));
+							attribs.put(IMarker.LINE_NUMBER, new Integer(j));
+							MarkerUtilities.createMarker(projects[i], attribs,
+									IMarker.PROBLEM);
+						}
+					}
+				}
+			}, null);
+		} catch (CoreException e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+		return projects;
+	}
+
+	/**
+	 * Delete the projects created for the test.
+	 * 
+	 * @param projects
+	 */
+	private void deleteProjects(IProject[] projects) {
+		for (int i = 0; i < projects.length; i++) {
+			try {
+				if (projects[i] != null) {
+					projects[i].delete(true, null);
+				}
+			} catch (CoreException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
 	/**
 	 * Remove the created markers
 	 */
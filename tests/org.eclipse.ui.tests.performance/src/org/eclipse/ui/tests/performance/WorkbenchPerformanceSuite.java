@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2009 IBM Corporation and others.
+ * Copyright (c) 2004, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -84,6 +84,14 @@ class WorkbenchPerformanceSuite extends TestSuite {
         addPerspectiveOpenCloseScenarios();
         addWindowOpenCloseScenarios();
         addContributionScenarios();
+        addProgressScenarios();
+    }
+
+    /**
+     * Add performance tests for jobs reporting progress at once.
+     */
+    private void addProgressScenarios() {
+        addTest(new JobProgressPerformanceTest(32));
     }
 
     /**
@@ -95,6 +103,11 @@ class WorkbenchPerformanceSuite extends TestSuite {
                 ObjectContributionsPerformance.generateAdaptableSelection(
                         ObjectContributionsPerformance.SEED, 5000),
                 BasicPerformanceTest.NONE));
+        addTest(new ObjectContributionsPerformance(
+                "1000 element selection, limited contributors",
+                ObjectContributionsPerformance.generateAdaptableSelection(
+                        ObjectContributionsPerformance.SEED, 1000),
+                BasicPerformanceTest.NONE));
         addTest(new ObjectContributionsPerformance(
                 "limited selection, limited contributors",
                 ObjectContributionsPerformance.generateAdaptableSelection(
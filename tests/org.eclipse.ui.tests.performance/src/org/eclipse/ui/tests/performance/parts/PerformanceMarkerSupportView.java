@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.ui.tests.performance.parts;
+
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.ui.views.markers.MarkerSupportView;
+import org.eclipse.ui.views.markers.internal.MarkerSupportRegistry;
+
+/**
+ * PerformanceMarkerSupportView is a problems view based on the marker
+ * support view created for the performance tests.
+ * 
+ * @since 3.6
+ * 
+ */
+public class PerformanceMarkerSupportView extends MarkerSupportView {
+
+	private Tree tree;
+
+	/**
+	 * Create a new instance of the receiver.
+	 */
+	public PerformanceMarkerSupportView() {
+		super(MarkerSupportRegistry.PROBLEMS_GENERATOR);
+	}
+
+	public void createPartControl(Composite parent) {
+		super.createPartControl(parent);
+		tree = (Tree) parent.getChildren()[0];
+	}
+
+	public Tree getTreeWidget() {
+		return tree;
+	}
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerComparator;
+import org.eclipse.jface.viewers.ViewerFilter;
+import org.eclipse.jface.viewers.ViewerSorter;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Table;
+
+/**
+ * Tests filtering and sorting the elements of a table in the background.
+ */
+public class BackgroundSortingTableViewerTest extends ViewerTestCase {
+
+	private static final int ELEMENT_COUNT = 50000;
+
+	private static final long TIMEOUT = 20000;
+
+	private String[] elements;
+
+	public BackgroundSortingTableViewerTest(String name) {
+		super(name);
+	}
+
+	protected void setUpModel() {
+		Random random = new Random(0);
+		elements = new String[ELEMENT_COUNT];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = Integer.toString(random.nextInt(Integer.MAX_VALUE), 36);
+		}
+	}
+
+	protected StructuredViewer createViewer(Composite parent) {
+		TableViewer viewer = new TableViewer(parent);
+		viewer.setContentProvider(new ArrayContentProvider());
+		viewer.setLabelProvider(new LabelProvider());
+		viewer.setComparator(new ViewerSorter());
+		viewer.setUseBackgroundSorting(true);
+		return viewer;
+	}
+
+	protected void setInput() {
+		fViewer.setInput(elements);
+	}
+
+	public void testSortInBackground() {
+		waitForItems(ELEMENT_COUNT);
+		assertItemsSorted(Arrays.asList(elements), false);
+	}
+
+	public void testFilterInBackground() {
+		waitForItems(ELEMENT_COUNT);
+		fViewer.addFilter(new ViewerFilter() {
+			public boolean select(Viewer viewer, Object parentElement,
+					Object element) {
+				return !((String) element).startsWith("1");
+			}
+		});
+		List expected = new ArrayList();
+		for (int i = 0; i < elements.length; i++) {
+			if (!elements[i].startsWith("1")) {
+				expected.add(elements[i]);
+			}
+		}
+		waitForItems(expected.size());
+		assertItemsSorted(expected, false);
+	}
+
+	public void testNewerRefreshWins() {
+		waitForItems(ELEMENT_COUNT);
+		fViewer.setComparator(new ViewerComparator());
+		fViewer.setComparator(new ViewerSorter() {
+			public int compare(Viewer viewer, Object e1, Object e2) {
+				return super.compare(viewer, e2, e1);
+			}
+		});
+		waitForOrder(true);
+		assertItemsSorted(Arrays.asList(elements), true);
+	}
+
+	public void testSmallInputFetchedOnce() {
+		final int[] calls = new int[1];
+		fViewer.setContentProvider(new ArrayContentProvider() {
+			public Object[] getElements(Object inputElement) {
+				calls[0]++;
+				return super.getElements(inputElement);
+			}
+		});
+		String[] small = { "c", "a", "b" };
+		fViewer.setInput(small);
+		calls[0] = 0;
+		fViewer.refresh();
+		assertEquals(1, calls[0]);
+		assertItemsSorted(Arrays.asList(small), false);
+	}
+
+	private Table getTable() {
+		return ((TableViewer) fViewer).getTable();
+	}
+
+	private void waitForItems(int count) {
+		long start = System.currentTimeMillis();
+		while (getTable().getItemCount() != count
+				&& System.currentTimeMillis() - start < TIMEOUT) {
+			processEvents();
+			Thread.yield();
+		}
+		processEvents();
+		assertEquals(count, getTable().getItemCount());
+	}
+
+	private void waitForOrder(boolean reverse) {
+		long start = System.currentTimeMillis();
+		while (!isSorted(reverse)
+				&& System.currentTimeMillis() - start < TIMEOUT) {
+			processEvents();
+			Thread.yield();
+		}
+		processEvents();
+	}
+
+	private boolean isSorted(boolean reverse) {
+		Table table = getTable();
+		int count = table.getItemCount();
+		if (count < 2) {
+			return false;
+		}
+		ViewerSorter sorter = new ViewerSorter();
+		int order = sorter.compare(fViewer, table.getItem(0).getData(), table
+				.getItem(count - 1).getData());
+		return reverse ? order > 0 : order < 0;
+	}
+
+	private void assertItemsSorted(List expected, boolean reverse) {
+		List sorted = new ArrayList(expected);
+		Collections.sort(sorted, new ViewerSorter().getCollator());
+		if (reverse) {
+			Collections.reverse(sorted);
+		}
+		Table table = getTable();
+		assertEquals(sorted.size(), table.getItemCount());
+		for (int i = 0; i < sorted.size(); i++) {
+			assertEquals(sorted.get(i), table.getItem(i).getData());
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.StructuredSelection;
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerSorter;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.TreeItem;
+
+/**
+ * Tests that a tree viewer sorting in the background filters and sorts
+ * synchronously for the operations that need the items of the children right
+ * away.
+ */
+public class BackgroundSortingTreeViewerTest extends ViewerTestCase {
+
+	private static final int ELEMENT_COUNT = 5000;
+
+	private static final String ROOT = "root";
+
+	private static final String PARENT = "parent";
+
+	private String[] elements;
+
+	public BackgroundSortingTreeViewerTest(String name) {
+		super(name);
+	}
+
+	protected void setUpModel() {
+		List list = new ArrayList(ELEMENT_COUNT);
+		for (int i = 0; i < ELEMENT_COUNT; i++) {
+			list.add("element" + Integer.toString(i, 36));
+		}
+		Collections.shuffle(list, new Random(0));
+		elements = (String[]) list.toArray(new String[list.size()]);
+	}
+
+	protected StructuredViewer createViewer(Composite parent) {
+		TreeViewer viewer = new TreeViewer(parent);
+		viewer.setContentProvider(new ITreeContentProvider() {
+			public Object[] getChildren(Object parentElement) {
+				if (ROOT.equals(parentElement)) {
+					return new Object[] { PARENT };
+				}
+				if (PARENT.equals(parentElement)) {
+					return elements;
+				}
+				return new Object[0];
+			}
+
+			public Object getParent(Object element) {
+				if (ROOT.equals(element)) {
+					return null;
+				}
+				return PARENT.equals(element) ? ROOT : PARENT;
+			}
+
+			public boolean hasChildren(Object element) {
+				return ROOT.equals(element) || PARENT.equals(element);
+			}
+
+			public Object[] getElements(Object inputElement) {
+				return getChildren(inputElement);
+			}
+
+			public void dispose() {
+			}
+
+			public void inputChanged(Viewer viewer, Object oldInput,
+					Object newInput) {
+			}
+		});
+		viewer.setLabelProvider(new LabelProvider());
+		viewer.setComparator(new ViewerSorter());
+		viewer.setUseBackgroundSorting(true);
+		return viewer;
+	}
+
+	protected void setInput() {
+		fViewer.setInput(ROOT);
+	}
+
+	public void testExpandToLevel() {
+		getTreeViewer().expandToLevel(PARENT, 1);
+		assertChildrenSorted();
+	}
+
+	public void testSetExpandedElements() {
+		getTreeViewer().setExpandedElements(new Object[] { PARENT });
+		assertChildrenSorted();
+	}
+
+	public void testReveal() {
+		fViewer.reveal(elements[42]);
+		assertChildrenSorted();
+	}
+
+	public void testSetSelection() {
+		fViewer.setSelection(new StructuredSelection(elements[42]), true);
+		IStructuredSelection selection = (IStructuredSelection) fViewer
+				.getSelection();
+		assertEquals(1, selection.size());
+		assertEquals(elements[42], selection.getFirstElement());
+	}
+
+	private TreeViewer getTreeViewer() {
+		return (TreeViewer) fViewer;
+	}
+
+	/**
+	 * Asserts that the items of the children of the parent exist in order,
+	 * without running the event loop.
+	 */
+	private void assertChildrenSorted() {
+		List sorted = new ArrayList(Arrays.asList(elements));
+		Collections.sort(sorted, new ViewerSorter().getCollator());
+		TreeItem parentItem = getTreeViewer().getTree().getItem(0);
+		assertEquals(PARENT, parentItem.getData());
+		assertEquals(sorted.size(), parentItem.getItemCount());
+		for (int i = 0; i < sorted.size(); i++) {
+			assertEquals(sorted.get(i), parentItem.getItem(i).getData());
+		}
+	}
+}
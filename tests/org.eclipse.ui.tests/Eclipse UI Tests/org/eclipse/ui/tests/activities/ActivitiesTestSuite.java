@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2008 IBM Corporation and others.
+ * Copyright (c) 2003, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,5 +36,6 @@ public class ActivitiesTestSuite extends TestSuite {
         addTest(new TestSuite(ActivityPreferenceTest.class));
         addTest(new TestSuite(MenusTest.class));
         addTest(new TestSuite(PatternUtilTest.class));
+        addTest(new TestSuite(ActivityPatternMatcherTest.class));
     }
 }
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.activities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ui.internal.activities.ActivityPatternBinding;
+import org.eclipse.ui.internal.activities.ActivityPatternMatcher;
+
+/**
+ * Tests that the combined matcher of the activity pattern bindings agrees
+ * with matching every binding on its own.
+ * 
+ * @since 3.6
+ */
+public class ActivityPatternMatcherTest extends TestCase {
+
+	private static final String[] PATTERNS = { "org\\.eclipse\\.jdt\\..*",
+			"org.eclipse.jdt.ui/.*",
+			"org\\.eclipse\\.jdt\\.ui/org\\.eclipse\\.jdt\\.ui\\.PackageExplorer",
+			"ab?c", "ab*c.*", "ab+c", "a{2}b", "\\Qx.y\\E.*", "\\Qx.y\\Ez?",
+			"^foo.*", "foo$", "(?i)org.*", "a|b", "\\d+",
+			"org\\.eclipse\\.cdt\\.[a-z]+/.*", ".*", "\\Qa\\Eb*",
+			"org\\.eclipse\\.team\\..*/.*\\.cvs.*" };
+
+	private static final String[] IDENTIFIERS = {
+			"org.eclipse.jdt.ui/org.eclipse.jdt.ui.PackageExplorer",
+			"org.eclipse.jdt.core/x", "orgXeclipse.jdt.ui/", "ac", "abc",
+			"abbc", "abbbcx", "aab", "aa", "x.y", "x.yz", "x.y\nz", "foo",
+			"foo\n", "ORG.x", "a", "b", "123", "org.eclipse.cdt.ui/x",
+			"org.eclipse.cdt.Ui/x", "", "ab", "abbb",
+			"org.eclipse.team.cvs/y.cvsz", "org.eclipse.jdt.ui/\n",
+			"org.eclipse.jdt." };
+
+	private List bindings = new ArrayList();
+
+	private Map bindingsByActivityId = new HashMap();
+
+	/**
+	 * @param testName
+	 */
+	public ActivityPatternMatcherTest(String testName) {
+		super(testName);
+	}
+
+	private void addBinding(ActivityPatternBinding binding) {
+		bindings.add(binding);
+		Set activityBindings = (Set) bindingsByActivityId.get(binding
+				.getActivityId());
+		if (activityBindings == null) {
+			activityBindings = new HashSet();
+			bindingsByActivityId.put(binding.getActivityId(),
+					activityBindings);
+		}
+		activityBindings.add(binding);
+	}
+
+	private void assertMatches(String identifierId) {
+		Set expected = new HashSet();
+		for (Iterator iterator = bindings.iterator(); iterator.hasNext();) {
+			ActivityPatternBinding binding = (ActivityPatternBinding) iterator
+					.next();
+			if (binding.isMatch(identifierId)) {
+				expected.add(binding.getActivityId());
+			}
+		}
+		assertEquals(identifierId, expected, new ActivityPatternMatcher(
+				bindingsByActivityId).getMatchingActivityIds(identifierId));
+	}
+
+	public void testRegularExpressions() {
+		for (int i = 0; i < PATTERNS.length; i++) {
+			addBinding(new ActivityPatternBinding("activity" + i % 5,
+					PATTERNS[i], false));
+			addBinding(new ActivityPatternBinding("insensitive" + i % 5,
+					Pattern.compile(PATTERNS[i], Pattern.CASE_INSENSITIVE)));
+		}
+		for (int i = 0; i < IDENTIFIERS.length; i++) {
+			assertMatches(IDENTIFIERS[i]);
+		}
+	}
+
+	public void testEqualityPatterns() {
+		for (int i = 0; i < IDENTIFIERS.length; i++) {
+			addBinding(new ActivityPatternBinding("equality" + i % 3,
+					IDENTIFIERS[i], true));
+		}
+		addBinding(new ActivityPatternBinding("quoted", "x.y", true));
+		addBinding(new ActivityPatternBinding("prefix", "org.eclipse.jdt.*",
+				true));
+		for (int i = 0; i < IDENTIFIERS.length; i++) {
+			assertMatches(IDENTIFIERS[i]);
+		}
+		assertMatches("xzy");
+		assertMatches("org.eclipse.jdt.*");
+		assertMatches("org.eclipse.jdt.ui");
+	}
+
+	public void testNoBindings() {
+		assertEquals(Collections.EMPTY_SET, new ActivityPatternMatcher(
+				Collections.EMPTY_MAP).getMatchingActivityIds("org.eclipse"));
+	}
+}
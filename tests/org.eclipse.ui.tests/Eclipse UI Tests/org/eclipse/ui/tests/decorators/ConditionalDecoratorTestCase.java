@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.decorators;
+
+import org.eclipse.jface.viewers.DecorationContext;
+import org.eclipse.ui.internal.decorators.DecoratorDefinition;
+
+/**
+ * Tests that the cached decorations of an element are recomputed when the
+ * enablement of a decorator changes for it.
+ */
+public class ConditionalDecoratorTestCase extends DecoratorEnablementTestCase {
+
+	private static final long TIMEOUT = 10000;
+
+	private DecoratorDefinition conditionalDefinition;
+
+	/**
+	 * @param testName
+	 */
+	public ConditionalDecoratorTestCase(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		DecoratorDefinition[] definitions = getDecoratorManager()
+				.getAllDecoratorDefinitions();
+		for (int i = 0; i < definitions.length; i++) {
+			if (definitions[i].getId().equals(
+					TestConditionalDecoratorContributor.ID))
+				conditionalDefinition = definitions[i];
+		}
+		System.setProperty(TestConditionalDecoratorContributor.PROPERTY,
+				"false");
+		getDecoratorManager().clearCaches();
+		// The other decorator gives the element a result to cache
+		definition.setEnabled(true);
+		conditionalDefinition.setEnabled(true);
+		getDecoratorManager().updateForEnablementChange();
+		processEvents();
+	}
+
+	protected void doTearDown() throws Exception {
+		definition.setEnabled(false);
+		conditionalDefinition.setEnabled(false);
+		getDecoratorManager().updateForEnablementChange();
+		System.getProperties().remove(
+				TestConditionalDecoratorContributor.PROPERTY);
+		super.doTearDown();
+	}
+
+	private boolean waitUntil(Condition condition) {
+		return processEventsUntil(condition, TIMEOUT);
+	}
+
+	/**
+	 * Test that a general update of a decorator recomputes the elements its
+	 * enablement did not accept when they were decorated.
+	 */
+	public void testEnablementChange() {
+		getDecoratorManager().decorateText(testFile.getName(), testFile);
+		assertTrue("Element not decorated", waitUntil(new Condition() {
+			public boolean compute() {
+				return getDecoratorManager().getDecorationResultCache()
+						.contains(testFile, DecorationContext.DEFAULT_CONTEXT);
+			}
+		}));
+		String text = getDecoratorManager().decorateText(testFile.getName(),
+				testFile);
+		assertTrue(text, text
+				.startsWith(TestLightweightDecoratorContributor.DECORATOR_PREFIX));
+		assertFalse(text, text
+				.endsWith(TestConditionalDecoratorContributor.DECORATOR_SUFFIX));
+
+		System.setProperty(TestConditionalDecoratorContributor.PROPERTY,
+				"true");
+		getDecoratorManager().update(TestConditionalDecoratorContributor.ID);
+
+		assertTrue("Decoration not recomputed", waitUntil(new Condition() {
+			public boolean compute() {
+				return getDecoratorManager().decorateText(testFile.getName(),
+						testFile).endsWith(
+						TestConditionalDecoratorContributor.DECORATOR_SUFFIX);
+			}
+		}));
+	}
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.decorators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.viewers.DecorationContext;
+import org.eclipse.jface.viewers.IDecorationContext;
+import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.internal.decorators.DecorationResult;
+import org.eclipse.ui.internal.decorators.DecorationResultCache;
+import org.eclipse.ui.internal.decorators.DecoratorDefinition;
+import org.eclipse.ui.internal.decorators.DecoratorManager;
+import org.eclipse.ui.internal.decorators.LightweightDecoratorDefinition;
+
+/**
+ * Tests the eviction, invalidation and statistics of the decoration result
+ * cache.
+ *
+ * @since 3.6
+ */
+public class DecorationResultCacheTest extends TestCase {
+
+	private static final IDecorationContext CONTEXT = DecorationContext.DEFAULT_CONTEXT;
+
+	private DecorationResultCache cache;
+
+	private DecorationResult result;
+
+	private LightweightDecoratorDefinition first;
+
+	private LightweightDecoratorDefinition second;
+
+	/**
+	 * @param testName
+	 */
+	public DecorationResultCacheTest(String testName) {
+		super(testName);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		cache = new DecorationResultCache(3);
+		DecoratorManager manager = WorkbenchPlugin.getDefault()
+				.getDecoratorManager();
+		result = manager.getLightweightManager().getDecorationResult(
+				new Object());
+		List definitions = new ArrayList();
+		DecoratorDefinition[] all = manager.getAllDecoratorDefinitions();
+		for (int i = 0; i < all.length; i++) {
+			if (all[i] instanceof LightweightDecoratorDefinition) {
+				definitions.add(all[i]);
+			}
+		}
+		assertTrue("Two lightweight decorators needed",
+				definitions.size() >= 2);
+		first = (LightweightDecoratorDefinition) definitions.get(0);
+		second = (LightweightDecoratorDefinition) definitions.get(1);
+	}
+
+	private void put(Object element, Object adaptedElement,
+			LightweightDecoratorDefinition definition) {
+		cache.put(element, adaptedElement, CONTEXT, result,
+				new LightweightDecoratorDefinition[] { definition });
+	}
+
+	public void testEvictsLeastRecentlyUsed() {
+		put("a", null, first);
+		put("b", null, first);
+		put("c", null, first);
+		assertSame(result, cache.get("a", CONTEXT));
+		put("d", null, first);
+
+		assertEquals(3, cache.size());
+		assertNull(cache.get("b", CONTEXT));
+		assertSame(result, cache.get("c", CONTEXT));
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		cache.resetStatistics();
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+		assertEquals(0, cache.getEvictionCount());
+	}
+
+	public void testContainsDoesNotCount() {
+		put("a", null, first);
+		assertTrue(cache.contains("a", CONTEXT));
+		assertFalse(cache.contains("b", CONTEXT));
+		assertFalse(cache.contains("a", new DecorationContext()));
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	public void testSetMaximumSize() {
+		put("a", null, first);
+		put("b", null, first);
+		put("c", null, first);
+		cache.setMaximumSize(1);
+
+		assertEquals(1, cache.size());
+		assertTrue(cache.contains("c", CONTEXT));
+		assertEquals(2, cache.getEvictionCount());
+	}
+
+	public void testInvalidateAdaptingElements() {
+		cache.setMaximumSize(4);
+		put("resource", null, first);
+		put("a", "resource", first);
+		put("b", "resource", first);
+		put("c", "other", first);
+
+		assertEquals(new HashSet(Arrays.asList(new Object[] { "resource",
+				"a", "b" })), new HashSet(cache.invalidate(new Object[] {
+				"resource", "unknown" })));
+		assertEquals(1, cache.size());
+		assertTrue(cache.contains("c", CONTEXT));
+		assertEquals(3, cache.getInvalidationCount());
+
+		// Elements evicted or invalidated are no longer found
+		cache.setMaximumSize(3);
+		put("d", "other", first);
+		put("e", null, first);
+		put("f", null, first);
+		assertEquals(Arrays.asList(new Object[] { "d" }), cache
+				.invalidate(new Object[] { "other" }));
+	}
+
+	public void testInvalidateDecorator() {
+		put("a", null, first);
+		put("b", "resource", second);
+		cache.put("c", null, CONTEXT, result,
+				new LightweightDecoratorDefinition[] { first, second });
+
+		assertEquals(new HashSet(Arrays.asList(new Object[] { "b", "c" })),
+				new HashSet(cache.invalidate(second)));
+		assertTrue(cache.contains("a", CONTEXT));
+		assertTrue(cache.invalidate(new Object[] { "resource" }).isEmpty());
+	}
+
+	public void testInvalidateDecoratorOfOtherContext() {
+		put("a", null, first);
+		cache.put("a", null, new DecorationContext(), result,
+				new LightweightDecoratorDefinition[] { second });
+
+		assertEquals(Arrays.asList(new Object[] { "a" }), cache
+				.invalidate(first));
+		assertFalse(cache.contains("a", CONTEXT));
+	}
+
+	public void testClear() {
+		put("a", "resource", first);
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertTrue(cache.invalidate(new Object[] { "resource" }).isEmpty());
+		assertEquals(0, cache.getInvalidationCount());
+	}
+}
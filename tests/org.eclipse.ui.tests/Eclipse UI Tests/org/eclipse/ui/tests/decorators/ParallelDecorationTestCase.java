@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.decorators;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.jface.viewers.LabelProviderChangedEvent;
+import org.eclipse.ui.internal.IPreferenceConstants;
+import org.eclipse.ui.internal.decorators.DecoratorDefinition;
+import org.eclipse.ui.internal.util.PrefUtil;
+
+/**
+ * Tests the decoration of elements by the pool of decoration jobs.
+ *
+ * @since 3.6
+ */
+public class ParallelDecorationTestCase extends DecoratorEnablementTestCase {
+
+	private static final int FILE_COUNT = 50;
+
+	private static final long TIMEOUT = 10000;
+
+	private DecoratorDefinition quadrantDefinition;
+
+	private IFile[] files;
+
+	// The text of the elements when their labels were updated
+	private Map updatedElements = new HashMap();
+
+	/**
+	 * @param testName
+	 */
+	public ParallelDecorationTestCase(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		PrefUtil.getInternalPreferenceStore().setValue(
+				IPreferenceConstants.PARALLEL_DECORATION, true);
+
+		DecoratorDefinition[] definitions = getDecoratorManager()
+				.getAllDecoratorDefinitions();
+		for (int i = 0; i < definitions.length; i++) {
+			if (definitions[i].getId().equals(
+					"org.eclipse.ui.tests.decorators.lightweightdecorator2"))
+				quadrantDefinition = definitions[i];
+		}
+
+		files = new IFile[FILE_COUNT];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = testFolder.getFile("File" + i + ".txt");
+			files[i].create(new ByteArrayInputStream("Some content."
+					.getBytes()), false, null);
+		}
+	}
+
+	protected void doTearDown() throws Exception {
+		definition.setEnabled(false);
+		quadrantDefinition.setEnabled(false);
+		getDecoratorManager().updateForEnablementChange();
+		PrefUtil.getInternalPreferenceStore().setToDefault(
+				IPreferenceConstants.PARALLEL_DECORATION);
+		super.doTearDown();
+	}
+
+	public void labelProviderChanged(LabelProviderChangedEvent event) {
+		super.labelProviderChanged(event);
+		Object[] elements = event.getElements();
+		if (elements == null) {
+			return;
+		}
+		for (int i = 0; i < elements.length; i++) {
+			if (elements[i] instanceof IFile) {
+				IFile file = (IFile) elements[i];
+				updatedElements.put(file, getDecoratorManager().decorateText(
+						file.getName(), file));
+			}
+		}
+	}
+
+	private void enable(DecoratorDefinition decorator) {
+		getDecoratorManager().clearCaches();
+		decorator.setEnabled(true);
+		getDecoratorManager().updateForEnablementChange();
+		processEvents();
+	}
+
+	private boolean waitForUpdates() {
+		return processEventsUntil(new Condition() {
+			public boolean compute() {
+				return updatedElements.keySet().containsAll(
+						Arrays.asList(files));
+			}
+		}, TIMEOUT);
+	}
+
+	/**
+	 * Test that the elements get decorated by every enabled decorator and
+	 * that their labels get updated.
+	 */
+	public void testDecorateInParallel() {
+		enable(definition);
+		enable(quadrantDefinition);
+		updatedElements.clear();
+
+		for (int i = 0; i < files.length; i++) {
+			assertEquals("Decorated before being computed", files[i]
+					.getName(), getDecoratorManager().decorateText(
+					files[i].getName(), files[i]));
+		}
+		assertTrue("Not all elements updated", waitForUpdates());
+
+		for (int i = 0; i < files.length; i++) {
+			String text = (String) updatedElements.get(files[i]);
+			assertTrue(text, text
+					.startsWith(TestLightweightDecoratorContributor.DECORATOR_PREFIX));
+			assertTrue(text, text
+					.endsWith(TestLightweightDecoratorContributor.DECORATOR_SUFFIX));
+		}
+	}
+
+	/**
+	 * Test that the waiting elements are decorated after switching back to a
+	 * single decoration job.
+	 */
+	public void testSwitchToSerialDecoration() {
+		enable(definition);
+		updatedElements.clear();
+
+		for (int i = 0; i < files.length; i++) {
+			getDecoratorManager().decorateText(files[i].getName(), files[i]);
+		}
+		PrefUtil.getInternalPreferenceStore().setValue(
+				IPreferenceConstants.PARALLEL_DECORATION, false);
+		assertTrue("Not all elements updated", waitForUpdates());
+	}
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.decorators;
+
+import org.eclipse.jface.viewers.IDecoration;
+import org.eclipse.jface.viewers.ILabelProviderListener;
+import org.eclipse.jface.viewers.ILightweightLabelDecorator;
+
+/**
+ * A lightweight decorator whose enablement depends on a system property.
+ */
+public class TestConditionalDecoratorContributor implements
+		ILightweightLabelDecorator {
+
+	public static final String ID = "org.eclipse.ui.tests.decorators.conditionaldecorator";
+
+	public static final String PROPERTY = "org.eclipse.ui.tests.decorators.conditional";
+
+	public static final String DECORATOR_SUFFIX = "_CONDITIONAL";
+
+	public void addListener(ILabelProviderListener listener) {
+	}
+
+	public void dispose() {
+	}
+
+	public boolean isLabelProperty(Object element, String property) {
+		return false;
+	}
+
+	public void removeListener(ILabelProviderListener listener) {
+	}
+
+	public void decorate(Object element, IDecoration decoration) {
+		decoration.addSuffix(DECORATOR_SUFFIX);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,17 +11,23 @@
 
 package org.eclipse.ui.tests.filteredtree;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.jface.dialogs.Dialog;
 import org.eclipse.jface.tests.viewers.TestElement;
 import org.eclipse.jface.tests.viewers.TestModelContentProvider;
 import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.TreeItem;
 import org.eclipse.ui.dialogs.FilteredTree;
 import org.eclipse.ui.dialogs.PatternFilter;
 import org.eclipse.ui.tests.harness.util.UITestCase;
@@ -104,6 +110,107 @@ public class FilteredTreeTests extends UITestCase {
 		dialog.close();
 	}
 	
+	/*
+	 * Tests that the cached matches kept while the pattern narrows agree with
+	 * a filter that does not cache anything.
+	 */
+	public void testNarrowingPattern(){
+		fRootElement = TestElement.createModel(DEPTH, NUM_ITEMS);
+		final int treeStyle = SWT.SINGLE | SWT.H_SCROLL | SWT.V_SCROLL
+				| SWT.BORDER;
+
+		Dialog dialog = new FilteredTreeDialog((Shell)null, treeStyle){
+			protected FilteredTree doCreateFilteredTree(Composite comp, int style) {
+				return createFilteredTree(comp, treeStyle);
+			}
+		};
+
+		dialog.create();
+		try {
+			String[] patterns = { "0-1", "0-1-1", "0-1-1-", "0-1-1-19",
+					"0-1", "name-1", "name-19", "x", "", "0-1" };
+			for (int i = 0; i < patterns.length; i++) {
+				assertSameMatches(patterns[i]);
+			}
+
+			// the cached label is forgotten when the element is updated
+			TestElement element = fRootElement.getChildAt(5).getChildAt(3);
+			element.setLabel("renamed");
+			assertSameMatches("0-5-3 renamed");
+			assertSameMatches("0-1");
+		} finally {
+			dialog.close();
+		}
+	}
+
+	/*
+	 * Tests that typing in the filter text runs the jobs of the filtered tree
+	 * to the same matches as a filter that does not cache anything.
+	 */
+	public void testTypeFilterText(){
+		fRootElement = TestElement.createModel(DEPTH, NUM_ITEMS);
+		final int treeStyle = SWT.SINGLE | SWT.H_SCROLL | SWT.V_SCROLL
+				| SWT.BORDER;
+
+		Dialog dialog = new FilteredTreeDialog((Shell)null, treeStyle){
+			protected FilteredTree doCreateFilteredTree(Composite comp, int style) {
+				return createFilteredTree(comp, treeStyle);
+			}
+		};
+
+		dialog.create();
+		try {
+			// narrowing patterns prepare their matches in the background
+			String[] texts = { "0-1", "0-1-1", "0-1-1-1", "0-", "0-19", "x" };
+			for (int i = 0; i < texts.length; i++) {
+				typeAndWait(texts[i]);
+			}
+		} finally {
+			dialog.close();
+		}
+	}
+
+	private void typeAndWait(String text) {
+		fTreeViewer.getFilterControl().setText(text);
+		PatternFilter filter = new PatternFilter();
+		filter.setPattern(text);
+		final List expected = Arrays.asList(filter.filter(fTreeViewer
+				.getViewer(), fRootElement, fRootElement.getChildren()));
+		assertTrue(text, processEventsUntil(new Condition() {
+			public boolean compute() {
+				return getRootElements().equals(expected);
+			}
+		}, 5000));
+	}
+
+	private List getRootElements() {
+		TreeItem[] items = fTreeViewer.getViewer().getTree().getItems();
+		List elements = new ArrayList(items.length);
+		for (int i = 0; i < items.length; i++) {
+			elements.add(items[i].getData());
+		}
+		return elements;
+	}
+
+	private void assertSameMatches(String pattern) {
+		TreeViewer viewer = fTreeViewer.getViewer();
+		PatternFilter cachingFilter = fTreeViewer.getPatternFilter();
+		PatternFilter filter = new PatternFilter();
+		cachingFilter.setPattern(pattern);
+		filter.setPattern(pattern);
+
+		TestElement[] children = fRootElement.getChildren();
+		assertEquals(pattern, Arrays.asList(filter.filter(viewer,
+				fRootElement, children)), Arrays.asList(cachingFilter.filter(
+				viewer, fRootElement, children)));
+		for (int i = 0; i < children.length; i++) {
+			TestElement[] grandChildren = children[i].getChildren();
+			assertEquals(pattern, Arrays.asList(filter.filter(viewer,
+					children[i], grandChildren)), Arrays.asList(cachingFilter
+					.filter(viewer, children[i], grandChildren)));
+		}
+	}
+
 	private void runFilteredTreeTest(final int treeStyle){
 		fRootElement = TestElement.createModel(DEPTH, NUM_ITEMS);	
 		
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.internal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.dynamichelpers.IExtensionTracker;
+import org.eclipse.ui.internal.IObjectContributor;
+import org.eclipse.ui.internal.ObjectContributorManager;
+
+/**
+ * Tests that the cached contributor lookups follow the registration changes.
+ */
+public class ObjectContributorManagerTest extends TestCase {
+
+	private interface ITarget {
+	}
+
+	private interface IOther {
+	}
+
+	private static class Target implements ITarget {
+	}
+
+	private static class Contributor implements IObjectContributor {
+		public boolean isApplicableTo(Object object) {
+			return true;
+		}
+
+		public boolean canAdapt() {
+			return false;
+		}
+	}
+
+	private static class TestManager extends ObjectContributorManager {
+		public void addExtension(IExtensionTracker tracker,
+				IExtension extension) {
+		}
+
+		List lookup(Object object) {
+			return getContributors(object);
+		}
+	}
+
+	private TestManager manager;
+
+	private IObjectContributor first;
+
+	private IObjectContributor second;
+
+	public ObjectContributorManagerTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		manager = new TestManager();
+		first = new Contributor();
+		second = new Contributor();
+	}
+
+	protected void tearDown() throws Exception {
+		manager.dispose();
+		super.tearDown();
+	}
+
+	public void testRegisterAfterLookup() {
+		Target target = new Target();
+		manager.registerContributor(first, ITarget.class.getName());
+		assertEquals(Arrays.asList(new Object[] { first }), manager
+				.lookup(target));
+
+		manager.registerContributor(second, ITarget.class.getName());
+		assertEquals(Arrays.asList(new Object[] { first, second }), manager
+				.lookup(target));
+	}
+
+	public void testUnregisterAfterLookup() {
+		Target target = new Target();
+		manager.registerContributor(first, ITarget.class.getName());
+		manager.registerContributor(second, ITarget.class.getName());
+		assertEquals(Arrays.asList(new Object[] { first, second }), manager
+				.lookup(target));
+
+		manager.unregisterContributor(first, ITarget.class.getName());
+		assertEquals(Arrays.asList(new Object[] { second }), manager
+				.lookup(target));
+
+		manager.unregisterContributors(ITarget.class.getName());
+		assertTrue(manager.lookup(target).isEmpty());
+		assertFalse(manager.hasContributorsFor(target));
+	}
+
+	public void testUnrelatedRegistration() {
+		Target target = new Target();
+		manager.registerContributor(first, ITarget.class.getName());
+		assertEquals(Arrays.asList(new Object[] { first }), manager
+				.lookup(target));
+
+		manager.registerContributor(second, IOther.class.getName());
+		assertEquals(Arrays.asList(new Object[] { first }), manager
+				.lookup(target));
+	}
+}
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.operations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.commands.operations.DefaultOperationHistory;
+import org.eclipse.core.commands.operations.IOperationHistory;
+import org.eclipse.core.commands.operations.IOperationHistoryListener;
+import org.eclipse.core.commands.operations.ISizedOperation;
+import org.eclipse.core.commands.operations.IUndoContext;
+import org.eclipse.core.commands.operations.ObjectUndoContext;
+import org.eclipse.core.commands.operations.OperationHistoryEvent;
+
+/**
+ * Tests the memory limit of the operation history.
+ *
+ * @since 3.6
+ */
+public class OperationHistoryMemoryTests extends TestCase {
+
+	private static final int SNAPSHOT_SIZE = 64 * 1024;
+
+	/**
+	 * An operation retaining a snapshot of the state it replaces.
+	 */
+	static class SnapshotOperation extends TestOperation implements
+			ISizedOperation {
+		byte[] snapshot;
+
+		boolean disposed;
+
+		SnapshotOperation(String label, int size) {
+			super(label);
+			snapshot = new byte[size];
+		}
+
+		public long getEstimatedSize() {
+			return snapshot == null ? 0 : snapshot.length;
+		}
+
+		public void dispose() {
+			super.dispose();
+			snapshot = null;
+			disposed = true;
+		}
+	}
+
+	DefaultOperationHistory history;
+
+	ObjectUndoContext contextA, contextB;
+
+	List events;
+
+	IOperationHistoryListener listener;
+
+	public OperationHistoryMemoryTests() {
+		super();
+	}
+
+	/**
+	 * @param name
+	 */
+	public OperationHistoryMemoryTests(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		history = new DefaultOperationHistory();
+		contextA = new ObjectUndoContext("A");
+		contextB = new ObjectUndoContext("B");
+		events = new ArrayList();
+		listener = new IOperationHistoryListener() {
+			public void historyNotification(OperationHistoryEvent event) {
+				if (event.getEventType() == OperationHistoryEvent.OPERATION_EVICTED) {
+					events.add("evicted " + event.getOperation().getLabel());
+				} else if (event.getEventType() == OperationHistoryEvent.OPERATION_REMOVED) {
+					events.add("removed " + event.getOperation().getLabel());
+				}
+			}
+		};
+		history.addOperationHistoryListener(listener);
+	}
+
+	protected void tearDown() throws Exception {
+		history.removeOperationHistoryListener(listener);
+		history.dispose(IOperationHistory.GLOBAL_UNDO_CONTEXT, true, true,
+				false);
+		super.tearDown();
+	}
+
+	private SnapshotOperation execute(String label, IUndoContext context,
+			int size) throws ExecutionException {
+		SnapshotOperation operation = new SnapshotOperation(label, size);
+		operation.addContext(context);
+		history.execute(operation, null, null);
+		return operation;
+	}
+
+	public void testNoLimitByDefault() throws ExecutionException {
+		assertEquals(0, history.getMemoryLimit());
+		execute("op1", contextA, 1000);
+		execute("op2", contextB, 1000);
+		assertEquals(2000, history.getEstimatedSize());
+		assertTrue(events.isEmpty());
+	}
+
+	public void testOldestEvictedAcrossContexts() throws ExecutionException {
+		history.setMemoryLimit(300);
+		SnapshotOperation op1 = execute("op1", contextA, 100);
+		TestOperation unsized = new TestOperation("unsized");
+		unsized.addContext(contextA);
+		history.execute(unsized, null, null);
+		execute("op2", contextB, 100);
+		execute("op3", contextA, 100);
+		assertTrue(events.isEmpty());
+
+		execute("op4", contextB, 100);
+		assertTrue(op1.disposed);
+		assertEquals(2, events.size());
+		assertEquals("evicted op1", events.get(0));
+		assertEquals("removed op1", events.get(1));
+		assertEquals(300, history.getEstimatedSize());
+		// operations without a size are not evicted
+		assertEquals(2, history.getUndoHistory(contextA).length);
+		assertSame(unsized, history.getUndoHistory(contextA)[0]);
+	}
+
+	public void testRedoEvictedAfterUndo() throws ExecutionException {
+		history.setMemoryLimit(1000);
+		SnapshotOperation op1 = execute("op1", contextA, 300);
+		SnapshotOperation op2 = execute("op2", contextA, 300);
+		history.undo(contextA, null, null);
+		history.undo(contextA, null, null);
+		assertSame(op1, history.getRedoOperation(contextA));
+
+		SnapshotOperation op3 = execute("op3", contextB, 500);
+		// op2 would be redone last
+		assertTrue(op2.disposed);
+		assertFalse(op1.disposed);
+		assertFalse(op3.disposed);
+		assertEquals("evicted op2", events.get(0));
+		assertEquals(1, history.getRedoHistory(contextA).length);
+		assertEquals(800, history.getEstimatedSize());
+	}
+
+	public void testLargeOperationKept() throws ExecutionException {
+		history.setMemoryLimit(100);
+		execute("op1", contextA, 50);
+		SnapshotOperation large = execute("large", contextB, 500);
+		assertFalse(large.disposed);
+		assertEquals("evicted op1", events.get(0));
+		assertSame(large, history.getUndoOperation(contextB));
+		assertEquals(500, history.getEstimatedSize());
+	}
+
+	public void testSetMemoryLimitEvicts() throws ExecutionException {
+		execute("op1", contextA, 100);
+		execute("op2", contextA, 100);
+		execute("op3", contextA, 100);
+		history.setMemoryLimit(150);
+		assertEquals(100, history.getEstimatedSize());
+		assertEquals(1, history.getUndoHistory(contextA).length);
+		assertEquals("evicted op1", events.get(0));
+		assertEquals("evicted op2", events.get(2));
+	}
+
+	public void testOperationChangedEstimatesAgain() throws ExecutionException {
+		history.setMemoryLimit(250);
+		SnapshotOperation op1 = execute("op1", contextA, 100);
+		SnapshotOperation op2 = execute("op2", contextA, 100);
+		op2.snapshot = new byte[200];
+		history.operationChanged(op2);
+		assertTrue(op1.disposed);
+		assertEquals(200, history.getEstimatedSize());
+	}
+
+	/**
+	 * Runs a scripted editing session where most of the commands are undo and
+	 * redo, and checks that the heap used once the history is full stays
+	 * within the memory limit.
+	 */
+	public void testSteadyStateHeapUndoHeavyWorkload()
+			throws ExecutionException {
+		final int limit = 4 * 1024 * 1024;
+		final int steps = 3000;
+		IUndoContext[] contexts = { contextA, contextB,
+				new ObjectUndoContext("C") };
+		for (int i = 0; i < contexts.length; i++) {
+			// let the memory limit, not the count limit, bound the history
+			history.setLimit(contexts[i], steps);
+		}
+		history.setMemoryLimit(limit);
+
+		long steadyHeap = 0;
+		for (int step = 0; step < steps; step++) {
+			IUndoContext context = contexts[step % contexts.length];
+			// undo heavy: two edits, undo both, redo one
+			execute("op" + 2 * step, context, SNAPSHOT_SIZE);
+			execute("op" + (2 * step + 1), context, SNAPSHOT_SIZE);
+			history.undo(context, null, null);
+			history.undo(context, null, null);
+			history.redo(context, null, null);
+			assertTrue(history.getEstimatedSize() <= limit);
+			if (step == steps / 3) {
+				steadyHeap = getUsedHeap();
+			}
+		}
+		long finalHeap = getUsedHeap();
+		assertTrue("History should have evicted operations",
+				events.contains("evicted op0"));
+		// without a memory limit the history would retain about 190 MB
+		long growth = finalHeap - steadyHeap;
+		assertTrue("Heap grew by " + growth / 1024 + " KB", growth < 2 * limit);
+	}
+
+	private static long getUsedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			System.runFinalization();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2006 IBM Corporation and others.
+ * Copyright (c) 2005, 2010 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -174,6 +174,56 @@ public class OperationsAPITest extends TestCase {
 		assertSame(history.getUndoOperation(contextA), op6);
 	}
 
+	public void testContextHistoriesAfterContextChanges() throws ExecutionException {
+		// query first so that the histories of the contexts are cached
+		assertEquals(3, history.getUndoHistory(contextA).length);
+		assertEquals(2, history.getUndoHistory(contextB).length);
+		assertSame(op6, history.getUndoOperation(contextA));
+
+		op3.addContext(contextB);
+		IUndoableOperation[] ops = history.getUndoHistory(contextB);
+		assertEquals(3, ops.length);
+		assertSame(op3, ops[1]);
+		op6.removeContext(contextA);
+		assertSame(op4, history.getUndoOperation(contextA));
+
+		contextA.addMatch(contextB);
+		assertSame(op5, history.getUndoOperation(contextA));
+		contextA.removeMatch(contextB);
+		assertSame(op4, history.getUndoOperation(contextA));
+
+		// the returned history belongs to the caller
+		ops[0] = null;
+		assertSame(op2, history.getUndoHistory(contextB)[0]);
+
+		history.undo(contextB, null, null);
+		assertEquals(2, history.getUndoHistory(contextB).length);
+		assertSame(op5, history.getRedoOperation(contextB));
+		history.dispose(contextB, true, true, true);
+		assertEquals(0, history.getUndoHistory(contextB).length);
+		assertEquals(0, history.getRedoHistory(contextB).length);
+		assertSame(op4, history.getUndoOperation(contextA));
+	}
+
+	public void testContextHistoryAfterLastOperationRemoved() throws ExecutionException {
+		ObjectUndoContext contextD = new ObjectUndoContext("D");
+		assertNull(history.getUndoOperation(contextD));
+		op4.addContext(contextD);
+		assertSame(op4, history.getUndoOperation(contextD));
+
+		// op4 loses contextD but stays in the history of contextA
+		history.dispose(contextD, true, true, false);
+		assertEquals(0, history.getUndoHistory(contextD).length);
+		assertSame(op6, history.getUndoOperation(contextA));
+
+		history.undo(contextA, null, null);
+		op4.addContext(contextD);
+		assertSame(op4, history.getUndoOperation(contextD));
+		history.undo(contextD, null, null);
+		assertNull(history.getUndoOperation(contextD));
+		assertSame(op4, history.getRedoOperation(contextD));
+	}
+
 	public void testHistoryLimit() throws ExecutionException {
 		history.setLimit(contextA, 2);
 		assertTrue(history.getUndoHistory(contextA).length == 2);
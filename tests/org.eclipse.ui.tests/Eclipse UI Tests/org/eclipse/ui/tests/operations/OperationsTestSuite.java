@@ -30,6 +30,7 @@ public class OperationsTestSuite extends TestSuite {
 	 */
 	public OperationsTestSuite() {
 		addTest(new TestSuite(OperationsAPITest.class));
+		addTest(new TestSuite(OperationHistoryMemoryTests.class));
 		addTest(new TestSuite(WorkbenchOperationHistoryTests.class));
 		addTest(new TestSuite(MultiThreadedOperationsTests.class));
 		addTest(new TestSuite(WorkbenchOperationStressTests.class));
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.progress;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.internal.progress.JobInfo;
+import org.eclipse.ui.internal.progress.ProgressManager;
+import org.eclipse.ui.internal.progress.TaskInfo;
+
+/**
+ * Reports progress from many jobs at once while the Progress View samples it.
+ */
+public class JobMonitorStressTest extends ProgressTestCase {
+
+	private static final int JOB_COUNT = 32;
+
+	private static final int WORKED_CALLS = 100000;
+
+	private static final long TIMEOUT = 60000;
+
+	private CountDownLatch start;
+
+	private CountDownLatch finished;
+
+	private CountDownLatch release;
+
+	/**
+	 * @param testName
+	 */
+	public JobMonitorStressTest(String testName) {
+		super(testName);
+	}
+
+	private class WorkingJob extends Job {
+
+		WorkingJob(int index) {
+			super("Working job " + index);
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			monitor.beginTask(getName(), WORKED_CALLS);
+			try {
+				if (!start.await(TIMEOUT, TimeUnit.MILLISECONDS)) {
+					return Status.CANCEL_STATUS;
+				}
+				for (int i = 0; i < WORKED_CALLS; i++) {
+					monitor.worked(1);
+					if (i % 1000 == 0) {
+						monitor.subTask(String.valueOf(i));
+					}
+				}
+				finished.countDown();
+				// Keep the job tracked until its work has been checked
+				if (!release.await(TIMEOUT, TimeUnit.MILLISECONDS)) {
+					return Status.CANCEL_STATUS;
+				}
+				return Status.OK_STATUS;
+			} catch (InterruptedException e) {
+				return Status.CANCEL_STATUS;
+			} finally {
+				monitor.done();
+			}
+		}
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		start = new CountDownLatch(1);
+		finished = new CountDownLatch(JOB_COUNT);
+		release = new CountDownLatch(1);
+	}
+
+	protected void doTearDown() throws Exception {
+		start.countDown();
+		release.countDown();
+		super.doTearDown();
+	}
+
+	/**
+	 * Test that concurrent jobs report all of their progress and finish while
+	 * the Progress View is open.
+	 *
+	 * @throws Exception
+	 */
+	public void testConcurrentWorked() throws Exception {
+		openProgressView();
+
+		final Job[] jobs = new Job[JOB_COUNT];
+		for (int i = 0; i < jobs.length; i++) {
+			jobs[i] = new WorkingJob(i);
+			jobs[i].schedule();
+		}
+		assertTrue("Jobs not running", processEventsUntil(new Condition() {
+			public boolean compute() {
+				for (int i = 0; i < jobs.length; i++) {
+					if (jobs[i].getState() != Job.RUNNING) {
+						return false;
+					}
+				}
+				return true;
+			}
+		}, TIMEOUT));
+
+		start.countDown();
+		assertTrue("Work not finished", processEventsUntil(new Condition() {
+			public boolean compute() {
+				return finished.getCount() == 0;
+			}
+		}, TIMEOUT));
+
+		JobInfo[] infos = ProgressManager.getInstance().getJobInfos(true);
+		for (int i = 0; i < jobs.length; i++) {
+			TaskInfo taskInfo = getTaskInfo(infos, jobs[i]);
+			assertNotNull(jobs[i].getName(), taskInfo);
+			assertEquals(jobs[i].getName(), WORKED_CALLS, getWork(taskInfo),
+					0);
+		}
+
+		release.countDown();
+		assertTrue("Jobs not finished", processEventsUntil(new Condition() {
+			public boolean compute() {
+				for (int i = 0; i < jobs.length; i++) {
+					if (jobs[i].getState() != Job.NONE) {
+						return false;
+					}
+				}
+				return true;
+			}
+		}, TIMEOUT));
+		for (int i = 0; i < jobs.length; i++) {
+			assertEquals(jobs[i].getName(), IStatus.OK, jobs[i].getResult()
+					.getSeverity());
+		}
+
+		assertTrue("Finished jobs still tracked", processEventsUntil(
+				new Condition() {
+					public boolean compute() {
+						return !isTracked(jobs);
+					}
+				}, TIMEOUT));
+	}
+
+	private TaskInfo getTaskInfo(JobInfo[] infos, Job job) throws Exception {
+		for (int i = 0; i < infos.length; i++) {
+			if (infos[i].getJob() == job) {
+				Method method = JobInfo.class.getDeclaredMethod("getTaskInfo",
+						new Class[0]);
+				method.setAccessible(true); // hack for testing
+				return (TaskInfo) method.invoke(infos[i], new Object[0]);
+			}
+		}
+		return null;
+	}
+
+	private double getWork(TaskInfo taskInfo) throws Exception {
+		Method method = TaskInfo.class.getDeclaredMethod("getWork",
+				new Class[0]);
+		method.setAccessible(true); // hack for testing
+		return ((Double) method.invoke(taskInfo, new Object[0])).doubleValue();
+	}
+
+	private boolean isTracked(Job[] jobs) {
+		JobInfo[] infos = ProgressManager.getInstance().getJobInfos(true);
+		for (int i = 0; i < infos.length; i++) {
+			for (int j = 0; j < jobs.length; j++) {
+				if (infos[i].getJob() == jobs[j]) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
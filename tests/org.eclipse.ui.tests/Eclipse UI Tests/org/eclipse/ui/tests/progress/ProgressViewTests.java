@@ -11,11 +11,17 @@
 
 package org.eclipse.ui.tests.progress;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.ui.internal.progress.JobInfo;
 import org.eclipse.ui.internal.progress.JobTreeElement;
 import org.eclipse.ui.internal.progress.ProgressInfoItem;
+import org.eclipse.ui.internal.progress.ProgressManager;
 import org.eclipse.ui.internal.progress.TaskInfo;
 import org.eclipse.ui.progress.IProgressConstants;
 
@@ -70,6 +76,83 @@ public class ProgressViewTests extends ProgressTestCase {
 		}
 	}
 
+	public void testManyJobs() throws Exception {
+		openProgressView();
+
+		final CountDownLatch release = new CountDownLatch(1);
+		final Job[] jobs = new Job[1000];
+		for (int i = 0; i < jobs.length; i++) {
+			jobs[i] = new Job("Many jobs " + i) {
+				protected IStatus run(IProgressMonitor monitor) {
+					monitor.beginTask(getName(), 1);
+					try {
+						release.await(60, TimeUnit.SECONDS);
+						return Status.OK_STATUS;
+					} catch (InterruptedException e) {
+						return Status.CANCEL_STATUS;
+					} finally {
+						monitor.done();
+					}
+				}
+			};
+			jobs[i].schedule();
+		}
+
+		try {
+			assertTrue("Jobs not shown", processEventsUntil(new Condition() {
+				public boolean compute() {
+					return progressView.getViewer().getProgressInfoItems().length > 0
+							&& ProgressManager.getInstance().getJobInfos(false).length >= jobs.length;
+				}
+			}, 60000));
+			// Let the updates of all of the jobs come in
+			processEventsUntil(null, 500);
+
+			// The number of items does not grow with the number of jobs
+			ProgressInfoItem[] items = progressView.getViewer()
+					.getProgressInfoItems();
+			assertTrue("Too many items: " + items.length, items.length <= 20);
+
+			// Refreshing the view keeps the items of the shown jobs
+			ProgressManager.getInstance().refreshAll();
+			processEventsUntil(null, 500);
+			ProgressInfoItem[] refreshedItems = progressView.getViewer()
+					.getProgressInfoItems();
+			assertEquals(items.length, refreshedItems.length);
+			for (int i = 0; i < items.length; i++) {
+				assertSame(items[i], refreshedItems[i]);
+			}
+		} finally {
+			release.countDown();
+		}
+
+		for (int i = 0; i < jobs.length; i++) {
+			jobs[i].join();
+		}
+		assertTrue("Finished jobs still shown", processEventsUntil(
+				new Condition() {
+					public boolean compute() {
+						return !isShown(jobs);
+					}
+				}, 60000));
+	}
+
+	private boolean isShown(Job[] jobs) {
+		ProgressInfoItem[] items = progressView.getViewer()
+				.getProgressInfoItems();
+		for (int i = 0; i < items.length; i++) {
+			JobInfo[] jobInfos = items[i].getJobInfos();
+			for (int j = 0; j < jobInfos.length; j++) {
+				for (int k = 0; k < jobs.length; k++) {
+					if (jobInfos[j].getJob() == jobs[k]) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
 	protected boolean checkJob(Job job, boolean found, JobInfo jobInfo) {
 		if(job.equals(jobInfo.getJob())) {
 			if(found)
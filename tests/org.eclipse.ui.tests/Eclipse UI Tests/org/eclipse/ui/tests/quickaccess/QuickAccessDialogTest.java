@@ -11,11 +11,13 @@
 
 package org.eclipse.ui.tests.quickaccess;
 
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
 import org.eclipse.e4.ui.model.application.ui.menu.MToolControl;
 import org.eclipse.e4.ui.workbench.modeling.EModelService;
 import org.eclipse.ui.handlers.IHandlerService;
 import org.eclipse.ui.internal.WorkbenchWindow;
+import org.eclipse.ui.internal.quickaccess.QuickAccessContents;
 import org.eclipse.ui.internal.quickaccess.SearchField;
 import org.eclipse.ui.tests.harness.util.UITestCase;
 
@@ -55,6 +57,9 @@ public class QuickAccessDialogTest extends UITestCase {
 			String oldFirstItemText = searchField.getTable().getItem(0)
 					.getText(1);
 			searchField.getFilterText().setText("e");
+			// the matches are found by a job
+			Job.getJobManager().join(QuickAccessContents.FAMILY_MATCH, null);
+			processEvents();
 			int count1 = searchField.getTable().getItemCount();
 			assertTrue("expecting matching items", count1 > 0);
 			assertNotSame("expecting different item", oldFirstItemText,
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2010 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.quickaccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.ui.internal.quickaccess.QuickAccessElement;
+import org.eclipse.ui.internal.quickaccess.QuickAccessIndex;
+import org.eclipse.ui.internal.quickaccess.QuickAccessProvider;
+
+/**
+ * Tests that the quick access index finds the same elements as
+ * {@link QuickAccessElement#match(String, QuickAccessProvider)}.
+ */
+public class QuickAccessIndexTest extends TestCase {
+
+	private static final String[] LABELS = { "About", "Activate Editor",
+			"Close All Editors", "Content Assist", "Copy Qualified Name",
+			"Debug As - Java Application", "Editors ApplAction.java - mail/src",
+			"Find and Replace", "General > Editors > Text Editors",
+			"New - Java Project", "Open Call Hierarchy", "Open Type",
+			"Package Explorer", "Quick Access", "Run Last Launched",
+			"SomeJRE - Example", "Toggle Breakpoint", "(default package)",
+			"call Some Method", "x" };
+
+	private static final String[] FILTERS = { "a", "ed", "edi", "edit",
+			"editors", "s e", "cae", "ot", "oty", "open t", "commands o",
+			"commands open", "ands cl", "cqn", "jre", "sjre", "ja", "java",
+			"ap", "app", "zz", "(de", "default", "csm", "s cal", "ter", "x",
+			"comm", "cd", "gete", "mail/src", "-" };
+
+	static class TestProvider extends QuickAccessProvider {
+		private final QuickAccessElement[] elements;
+
+		TestProvider(String[] labels) {
+			elements = new QuickAccessElement[labels.length];
+			for (int i = 0; i < labels.length; i++) {
+				elements[i] = new TestElement(this, labels[i]);
+			}
+		}
+
+		public String getId() {
+			return "test";
+		}
+
+		public String getName() {
+			return "Commands";
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public QuickAccessElement[] getElements() {
+			return elements;
+		}
+
+		public QuickAccessElement getElementForId(String id) {
+			return null;
+		}
+
+		protected void doReset() {
+			// nothing to do
+		}
+	}
+
+	static class TestElement extends QuickAccessElement {
+		private final String label;
+
+		TestElement(QuickAccessProvider provider, String label) {
+			super(provider);
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public String getId() {
+			return label;
+		}
+
+		public void execute() {
+			// nothing to do
+		}
+	}
+
+	private TestProvider provider;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		provider = new TestProvider(LABELS);
+	}
+
+	private int[] expectedMatches(String filter) {
+		QuickAccessElement[] elements = provider.getElementsSorted();
+		List matches = new ArrayList();
+		for (int i = 0; i < elements.length; i++) {
+			if (elements[i].match(filter, provider) != null) {
+				matches.add(new Integer(i));
+			}
+		}
+		int[] result = new int[matches.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ((Integer) matches.get(i)).intValue();
+		}
+		return result;
+	}
+
+	private static String toString(int[] indices) {
+		StringBuffer buffer = new StringBuffer();
+		for (int i = 0; i < indices.length; i++) {
+			buffer.append(indices[i]).append(' ');
+		}
+		return buffer.toString();
+	}
+
+	public void testMatchesLikeElements() {
+		QuickAccessIndex index = provider.getIndex();
+		assertEquals(LABELS.length, index.size());
+		for (int i = 0; i < FILTERS.length; i++) {
+			assertEquals(FILTERS[i], toString(expectedMatches(FILTERS[i])),
+					toString(index.match(FILTERS[i], null, null)));
+		}
+	}
+
+	public void testMatchesFromPrefixMatches() {
+		QuickAccessIndex index = provider.getIndex();
+		for (int i = 0; i < FILTERS.length; i++) {
+			String filter = FILTERS[i];
+			int[] previous = index.match(filter.substring(0, 1), null, null);
+			for (int length = 2; length <= filter.length(); length++) {
+				String prefix = filter.substring(0, length);
+				previous = index.match(prefix, previous, null);
+				assertEquals(prefix, toString(expectedMatches(prefix)),
+						toString(previous));
+			}
+		}
+	}
+
+	public void testIndexRebuiltAfterReset() {
+		QuickAccessIndex index = provider.getIndex();
+		assertSame(index, provider.getIndex());
+		provider.reset();
+		assertNotSame(index, provider.getIndex());
+	}
+
+	public void testNoMatch() {
+		assertTrue(Arrays.equals(new int[0], provider.getIndex().match(
+				"qqq", null, null)));
+	}
+}